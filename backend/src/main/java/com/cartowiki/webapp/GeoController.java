@@ -1,15 +1,230 @@
 package com.cartowiki.webapp;
 
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.nio.channels.Channels;
+import java.util.HashMap;
+import java.util.MissingResourceException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.cartowiki.webapp.periods.model.EpochIndex;
+import com.cartowiki.webapp.periods.service.EpochService;
+import com.cartowiki.webapp.tiles.model.PrefetchRequest;
+import com.cartowiki.webapp.tiles.model.TileKey;
+import com.cartowiki.webapp.tiles.service.TilePrefetcher;
+import com.cartowiki.webapp.tiles.service.TileService;
+import com.cartowiki.webapp.tiles.service.VectorTileService;
+import com.cartowiki.webapp.util.ResponseMaker;
+
+import jakarta.servlet.http.HttpServletResponse;
+
 @RestController
 @RequestMapping("/api")
 public class GeoController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GeoController.class);
+
+    private static final CacheControl TILE_CACHE_CONTROL = CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic();
+    private static final MediaType VECTOR_TILE = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+
+    private TileService tileService;
+    private VectorTileService vectorTileService;
+    private EpochService epochService;
+    private TilePrefetcher prefetcher;
+
+    /**
+     * Autowired constructor
+     * @param tileService Service for map tiles
+     * @param vectorTileService Service for vector tiles
+     * @param epochService Epochs of the world history
+     * @param prefetcher Background prefetching of tiles
+     */
+    @Autowired
+    public GeoController(TileService tileService, VectorTileService vectorTileService, EpochService epochService, TilePrefetcher prefetcher) {
+        this.tileService = tileService;
+        this.vectorTileService = vectorTileService;
+        this.epochService = epochService;
+        this.prefetcher = prefetcher;
+    }
 
     @GetMapping("/hello")
     public String helloWorld() {
         return "Hello World!";
     }
+
+    /**
+     * Return the epochs of the world history, or the epoch containing a year
+     * @param year Optional year
+     * @return Response containing the first years of all epochs, or the first and last years of one epoch
+     */
+    @GetMapping("/epochs")
+    public ResponseEntity<Object> getEpochs(@RequestParam(name = "year", required = false) Integer year) {
+        EpochIndex index = epochService.getIndex();
+        ResponseEntity<Object> response;
+
+        if (year == null) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, index.getBoundaries(), HttpStatus.OK);
+        }
+        else {
+            HashMap<String, Object> epoch = new HashMap<>();
+            epoch.put("start", index.getStart(year));
+            epoch.put("end", index.getEnd(year));
+
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, epoch, HttpStatus.OK);
+        }
+
+        return response;
+    }
+
+    /**
+     * Return a map tile of a layer for a given year
+     * @param layer Public layer name
+     * @param year Year displayed
+     * @param z Zoom level
+     * @param x Column of the tile
+     * @param y Row of the tile
+     * @param servletResponse Raw response, for sending stored tiles without copy
+     * @return Response containing the PNG tile, or null if already written
+     */
+    @GetMapping("/geoserver/tiles/{layer}/{year}/{z}/{x}/{y}.png")
+    public ResponseEntity<Object> getTile(@PathVariable("layer") String layer, @PathVariable("year") int year, @PathVariable("z") int z, @PathVariable("x") int x, @PathVariable("y") int y, HttpServletResponse servletResponse) {
+        ResponseEntity<Object> response = null;
+
+        try {
+            TileKey key = new TileKey(layer, year, z, x, y);
+            Optional<byte[]> tile = tileService.getTile(key);
+
+            if (tile.isPresent()) {
+                response = this.tileResponse(tile.get());
+            }
+            else {
+                // Cold tile : stream it straight from the archive file
+                servletResponse.setContentType(MediaType.IMAGE_PNG_VALUE);
+                servletResponse.setHeader(HttpHeaders.CACHE_CONTROL, TILE_CACHE_CONTROL.getHeaderValue());
+                tileService.transferTile(key, Channels.newChannel(servletResponse.getOutputStream()));
+            }
+
+            prefetcher.onRequest(key, false);
+        }
+        catch (IllegalArgumentException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        catch (MissingResourceException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+        catch (HttpTimeoutException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.GATEWAY_TIMEOUT);
+        }
+        catch (IOException e) {
+            if (servletResponse.isCommitted()) {
+                // Part of the tile is already sent : the client gets a truncated response
+                LOGGER.warn("Unable to send tile {}/{}/{}/{}/{}", layer, year, z, x, y, e);
+            }
+            else {
+                servletResponse.reset();
+                response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_GATEWAY);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, "Tile rendering interrupted", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        return response;
+    }
+
+    /**
+     * Return a Mapbox Vector Tile of countries or cities for a given year
+     * @param layer Vector layer name ("countries" or "cities")
+     * @param year Year displayed
+     * @param z Zoom level
+     * @param x Column of the tile
+     * @param y Row of the tile
+     * @return Response containing the vector tile
+     */
+    @GetMapping("/tiles/{layer}/{year}/{z}/{x}/{y}.mvt")
+    public ResponseEntity<Object> getVectorTile(@PathVariable("layer") String layer, @PathVariable("year") int year, @PathVariable("z") int z, @PathVariable("x") int x, @PathVariable("y") int y) {
+        ResponseEntity<Object> response;
+
+        try {
+            TileKey key = new TileKey(layer, year, z, x, y);
+            byte[] tile = vectorTileService.getTile(key);
+
+            response = ResponseEntity.ok()
+                                     .contentType(VECTOR_TILE)
+                                     .cacheControl(TILE_CACHE_CONTROL)
+                                     .body(tile);
+
+            prefetcher.onRequest(key, true);
+        }
+        catch (IllegalArgumentException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        catch (MissingResourceException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+        catch (HttpTimeoutException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.GATEWAY_TIMEOUT);
+        }
+        catch (IOException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, "Tile building interrupted", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        return response;
+    }
+
+    /**
+     * Queue the background rendering of the tiles of a viewport over a window of years.
+     * Reserved to authenticated users, since each request may queue many renders.
+     * @param request Prefetching request
+     * @return Response containing the numbers of queued and dropped tiles
+     */
+    @PostMapping("/prefetch")
+    public ResponseEntity<Object> prefetch(@RequestBody PrefetchRequest request) {
+        ResponseEntity<Object> response;
+
+        try {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, prefetcher.prefetch(request), HttpStatus.ACCEPTED);
+        }
+        catch (IllegalArgumentException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        catch (MissingResourceException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+
+        return response;
+    }
+
+    /**
+     * Return a response containing a PNG tile
+     * @param tile PNG content of the tile
+     * @return Response
+     */
+    private ResponseEntity<Object> tileResponse(byte[] tile) {
+        return ResponseEntity.ok()
+                             .contentType(MediaType.IMAGE_PNG)
+                             .cacheControl(TILE_CACHE_CONTROL)
+                             .body(tile);
+    }
 }
@@ -76,7 +76,7 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable()) // Disable CSRF for stateless APIs
             .authorizeHttpRequests(auth -> auth
                 // Public endpoints
-                .requestMatchers("/auth/signup", "/auth/login", "/api/geoserver/**").permitAll()
+                .requestMatchers("/auth/signup", "/auth/login", "/api/geoserver/**", "/api/tiles/**", "/api/epochs", "/api/world/**", "/api/cities", "/api/cities/clusters", "/api/population/**", "/api/search", "/api/identify").permitAll()
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()  // Permit some pathes for Swagger process
 
                 // User management (ADMINISTRATOR only)
@@ -85,6 +85,9 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.PUT, "/users/{id}").hasRole(User.ADMINISTRATOR)
                 .requestMatchers(HttpMethod.DELETE, "/users/{id}").hasRole(User.ADMINISTRATOR)
 
+                // Server administration (ADMINISTRATOR only)
+                .requestMatchers("/admin/**").hasRole(User.ADMINISTRATOR)
+
                 // Contribution management
                 .requestMatchers(HttpMethod.GET, "/contributions").hasRole(User.CONTRIBUTOR)
                 .requestMatchers(HttpMethod.GET, "/contributions/{id}").hasRole(User.CONTRIBUTOR)
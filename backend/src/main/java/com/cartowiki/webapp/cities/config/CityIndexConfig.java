@@ -0,0 +1,80 @@
+package com.cartowiki.webapp.cities.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Store parameters of the in-memory city index
+ */
+@Configuration
+@ConfigurationProperties(prefix = "cities.index")
+public class CityIndexConfig {
+    private int epochs = 32;
+    private long timeout = 30000;
+    private int clusterMaxZoom = 10;
+    private int clusterCellSize = 64;
+
+    /**
+     * Epochs getter
+     * @return Maximum number of epochs whose city tree is kept in memory
+     */
+    public int getEpochs() {
+        return epochs;
+    }
+
+    /**
+     * Epochs setter
+     * @param epochs New maximum number of epochs whose city tree is kept in memory
+     */
+    public void setEpochs(int epochs) {
+        this.epochs = epochs;
+    }
+
+    /**
+     * Timeout getter
+     * @return Maximum waiting time for a tree built by another request (in milliseconds)
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Timeout setter
+     * @param timeout New maximum waiting time for a tree built by another request (in milliseconds)
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Cluster max zoom getter
+     * @return Finest zoom level where cities are clustered (cities are returned one by one above it)
+     */
+    public int getClusterMaxZoom() {
+        return clusterMaxZoom;
+    }
+
+    /**
+     * Cluster max zoom setter
+     * @param clusterMaxZoom New finest zoom level where cities are clustered
+     */
+    public void setClusterMaxZoom(int clusterMaxZoom) {
+        this.clusterMaxZoom = clusterMaxZoom;
+    }
+
+    /**
+     * Cluster cell size getter
+     * @return Width of the clustering cells, in pixels (a power of two up to 256)
+     */
+    public int getClusterCellSize() {
+        return clusterCellSize;
+    }
+
+    /**
+     * Cluster cell size setter
+     * @param clusterCellSize New width of the clustering cells, in pixels (a power of two up to 256)
+     */
+    public void setClusterCellSize(int clusterCellSize) {
+        this.clusterCellSize = clusterCellSize;
+    }
+}
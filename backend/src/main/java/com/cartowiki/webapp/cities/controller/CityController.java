@@ -0,0 +1,158 @@
+package com.cartowiki.webapp.cities.controller;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cartowiki.webapp.cities.service.CityIndexService;
+import com.cartowiki.webapp.tiles.model.TileKey;
+import com.cartowiki.webapp.util.Bounds;
+import com.cartowiki.webapp.util.ResponseMaker;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * Queries on cities
+ */
+@RestController
+@RequestMapping("/api/cities")
+@Tag(name = "Cities")
+public class CityController {
+    private CityIndexService service;
+
+    /**
+     * Autowired constructor
+     * @param service Service for the city index
+     */
+    @Autowired
+    public CityController(CityIndexService service) {
+        this.service = service;
+    }
+
+    /**
+     * Return the cities existing at a year inside a bounding box
+     * @param year Year
+     * @param bbox Bounding box
+     * @return Response containing the cities
+     */
+    @GetMapping
+    @Operation(
+        summary = "Retrieve the cities of an area",
+        description = "Return the id, name, population and position of the cities existing at a year inside a bounding box"
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "List of cities",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": [{\"id\": 12, \"name\": \"Paris\", \"population\": 547000, \"longitude\": 2.35, \"latitude\": 48.85}]}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid bounding box",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Invalid bounding box\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getCities(@RequestParam("year") @Parameter(name = "year", description = "Year", example = "1800") int year,
+                                            @RequestParam("bbox") @Parameter(name = "bbox", description = "Bounding box (minLongitude,minLatitude,maxLongitude,maxLatitude)", example = "-5,42,8,51") String bbox) {
+        ResponseEntity<Object> response;
+
+        try {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, service.getCities(year, Bounds.parse(bbox)), HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        catch (HttpTimeoutException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.GATEWAY_TIMEOUT);
+        }
+        catch (IOException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, "City index building interrupted", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        return response;
+    }
+
+    /**
+     * Return the clusters of cities existing at a year inside a bounding box, for a zoom level
+     * @param year Year
+     * @param zoom Zoom level
+     * @param bbox Bounding box
+     * @return Response containing the clusters
+     */
+    @GetMapping("/clusters")
+    @Operation(
+        summary = "Retrieve the city clusters of an area",
+        description = "Return the centroid, number of cities and total population of the clusters of cities existing at a year inside a bounding box. " +
+                      "Cities are grouped by cells of the map grid at the zoom level; a cluster of one city also has the city id"
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "List of clusters",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": [{\"longitude\": 2.41, \"latitude\": 48.79, \"count\": 14, \"population\": 812000, \"id\": null}, " +
+                            "{\"longitude\": 4.83, \"latitude\": 45.76, \"count\": 1, \"population\": 109000, \"id\": 37}]}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid zoom level or bounding box",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Invalid zoom level\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getClusters(@RequestParam("year") @Parameter(name = "year", description = "Year", example = "1800") int year,
+                                              @RequestParam("zoom") @Parameter(name = "zoom", description = "Zoom level", example = "5") int zoom,
+                                              @RequestParam("bbox") @Parameter(name = "bbox", description = "Bounding box (minLongitude,minLatitude,maxLongitude,maxLatitude)", example = "-5,42,8,51") String bbox) {
+        ResponseEntity<Object> response;
+
+        try {
+            if (zoom < 0 || zoom > TileKey.MAX_ZOOM) {
+                throw new IllegalArgumentException("Invalid zoom level");
+            }
+
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, service.getClusters(year, zoom, Bounds.parse(bbox)), HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        catch (HttpTimeoutException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.GATEWAY_TIMEOUT);
+        }
+        catch (IOException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, "City index building interrupted", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        return response;
+    }
+}
@@ -0,0 +1,318 @@
+package com.cartowiki.webapp.cities.model;
+
+import java.util.Arrays;
+
+import com.cartowiki.webapp.tiles.model.TileKey;
+
+/**
+ * Immutable hierarchy of city clusters, one level per zoom level.
+ * At each zoom level, cities are grouped by square cells of the Web Mercator grid; the cells of a level
+ * are the union of four cells of the next level, so each level is computed from the finer one.
+ * Clusters of a level are sorted by cell (row-major), so that a bounding box query is a walk over rows.
+ */
+public final class CityClusters {
+    private static final int TILE_SIZE = 256;
+
+    private final int maxZoom;
+    private final int cellsPerTile;
+
+    // Clusters of each zoom level
+    private final long[][] cells;
+    private final double[][] longitudes;
+    private final double[][] latitudes;
+    private final int[][] counts;
+    private final long[][] populations;
+    private final int[][] ids;
+
+    /**
+     * Constructor with arguments
+     * @param tree Cities to cluster
+     * @param maxZoom Finest zoom level of the hierarchy
+     * @param cellSize Width of the cells, in pixels (a power of two below the tile size)
+     * @throws IllegalArgumentException Invalid cell size or zoom level
+     */
+    public CityClusters(CityTree tree, int maxZoom, int cellSize) throws IllegalArgumentException {
+        if (cellSize <= 0 || cellSize > TILE_SIZE || Integer.bitCount(cellSize) != 1) {
+            throw new IllegalArgumentException("Invalid cell size");
+        }
+
+        if (maxZoom < 0 || maxZoom > TileKey.MAX_ZOOM) {
+            throw new IllegalArgumentException("Invalid zoom level");
+        }
+
+        this.maxZoom = maxZoom;
+        this.cellsPerTile = TILE_SIZE / cellSize;
+
+        this.cells = new long[maxZoom + 1][];
+        this.longitudes = new double[maxZoom + 1][];
+        this.latitudes = new double[maxZoom + 1][];
+        this.counts = new int[maxZoom + 1][];
+        this.populations = new long[maxZoom + 1][];
+        this.ids = new int[maxZoom + 1][];
+
+        // Finest level from the cities, each city being a cluster of one
+        int size = tree.size();
+        int perAxis = this.getCellsPerAxis(maxZoom);
+        long[] cityCells = new long[size];
+        double[] cityLongitudes = new double[size];
+        double[] cityLatitudes = new double[size];
+        int[] cityCounts = new int[size];
+        long[] cityPopulations = new long[size];
+        int[] cityIds = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            cityCells[i] = this.getCell(tree.getLongitude(i), tree.getLatitude(i), perAxis);
+            cityLongitudes[i] = tree.getLongitude(i);
+            cityLatitudes[i] = tree.getLatitude(i);
+            cityCounts[i] = 1;
+            cityPopulations[i] = Math.max(0, tree.getPopulation(i));
+            cityIds[i] = tree.getId(i);
+        }
+
+        this.merge(maxZoom, cityCells, cityLongitudes, cityLatitudes, cityCounts, cityPopulations, cityIds);
+
+        // Coarser levels from the finer ones: the parent of cell (column, row) is (column / 2, row / 2)
+        for (int zoom = maxZoom - 1; zoom >= 0; zoom--) {
+            int finerPerAxis = this.getCellsPerAxis(zoom + 1);
+            long[] finerCells = cells[zoom + 1];
+            long[] parentCells = new long[finerCells.length];
+
+            for (int i = 0; i < finerCells.length; i++) {
+                long row = finerCells[i] / finerPerAxis;
+                long column = finerCells[i] % finerPerAxis;
+                parentCells[i] = (row / 2) * (finerPerAxis / 2) + column / 2;
+            }
+
+            this.merge(zoom, parentCells, longitudes[zoom + 1], latitudes[zoom + 1], counts[zoom + 1], populations[zoom + 1], ids[zoom + 1]);
+        }
+    }
+
+    /**
+     * Merge the clusters falling in the same cell, and store them as a level
+     * @param zoom Zoom level
+     * @param itemCells Cell of each cluster to merge
+     * @param itemLongitudes Centroid longitude of each cluster to merge
+     * @param itemLatitudes Centroid latitude of each cluster to merge
+     * @param itemCounts Number of cities of each cluster to merge
+     * @param itemPopulations Total population of each cluster to merge
+     * @param itemIds City of each cluster to merge (only meaningful for clusters of one city)
+     */
+    private void merge(int zoom, long[] itemCells, double[] itemLongitudes, double[] itemLatitudes, int[] itemCounts, long[] itemPopulations, int[] itemIds) {
+        int size = itemCells.length;
+        Integer[] order = new Integer[size];
+
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, (first, second) -> Long.compare(itemCells[first], itemCells[second]));
+
+        long[] mergedCells = new long[size];
+        double[] mergedLongitudes = new double[size];
+        double[] mergedLatitudes = new double[size];
+        int[] mergedCounts = new int[size];
+        long[] mergedPopulations = new long[size];
+        int[] mergedIds = new int[size];
+        int count = -1;
+
+        for (int i = 0; i < size; i++) {
+            int item = order[i];
+
+            if (count < 0 || mergedCells[count] != itemCells[item]) {
+                count++;
+                mergedCells[count] = itemCells[item];
+                mergedIds[count] = itemIds[item];
+            }
+
+            // Centroids weighted by number of cities (sums until divided below)
+            mergedLongitudes[count] += itemLongitudes[item] * itemCounts[item];
+            mergedLatitudes[count] += itemLatitudes[item] * itemCounts[item];
+            mergedCounts[count] += itemCounts[item];
+            mergedPopulations[count] += itemPopulations[item];
+        }
+
+        count++;
+
+        for (int i = 0; i < count; i++) {
+            mergedLongitudes[i] /= mergedCounts[i];
+            mergedLatitudes[i] /= mergedCounts[i];
+        }
+
+        cells[zoom] = Arrays.copyOf(mergedCells, count);
+        longitudes[zoom] = Arrays.copyOf(mergedLongitudes, count);
+        latitudes[zoom] = Arrays.copyOf(mergedLatitudes, count);
+        counts[zoom] = Arrays.copyOf(mergedCounts, count);
+        populations[zoom] = Arrays.copyOf(mergedPopulations, count);
+        ids[zoom] = Arrays.copyOf(mergedIds, count);
+    }
+
+    /**
+     * Return the number of cells on each axis at a zoom level
+     * @param zoom Zoom level
+     * @return Number of cells
+     */
+    private int getCellsPerAxis(int zoom) {
+        return cellsPerTile << zoom;
+    }
+
+    /**
+     * Return the cell of a position
+     * @param longitude Longitude
+     * @param latitude Latitude
+     * @param perAxis Number of cells on each axis
+     * @return Cell number (row * perAxis + column)
+     */
+    private long getCell(double longitude, double latitude, int perAxis) {
+        return (long) this.getRow(latitude, perAxis) * perAxis + this.getColumn(longitude, perAxis);
+    }
+
+    /**
+     * Return the column of a longitude
+     * @param longitude Longitude
+     * @param perAxis Number of cells on each axis
+     * @return Column (from west to east)
+     */
+    private int getColumn(double longitude, int perAxis) {
+        return Math.clamp((long) Math.floor((longitude + 180) / 360 * perAxis), 0, perAxis - 1);
+    }
+
+    /**
+     * Return the row of a latitude
+     * @param latitude Latitude
+     * @param perAxis Number of cells on each axis
+     * @return Row (from north to south)
+     */
+    private int getRow(double latitude, int perAxis) {
+        return Math.clamp((long) Math.floor(TileKey.latitudeToRow(latitude, perAxis)), 0, perAxis - 1);
+    }
+
+    /**
+     * Return the level of clusters displayed at a zoom level
+     * @param zoom Zoom level
+     * @return Level of clusters (the finest one above the maximum zoom level)
+     */
+    public int getLevel(int zoom) {
+        return Math.clamp(zoom, 0, maxZoom);
+    }
+
+    /**
+     * Return the clusters of a zoom level whose cell intersects a bounding box
+     * @param zoom Zoom level
+     * @param minLongitude West bound
+     * @param minLatitude South bound
+     * @param maxLongitude East bound
+     * @param maxLatitude North bound
+     * @return Positions of the clusters in the level, to read with the getters
+     */
+    public int[] search(int zoom, double minLongitude, double minLatitude, double maxLongitude, double maxLatitude) {
+        int level = this.getLevel(zoom);
+        int perAxis = this.getCellsPerAxis(level);
+        long[] levelCells = cells[level];
+
+        int minColumn = this.getColumn(minLongitude, perAxis);
+        int maxColumn = this.getColumn(maxLongitude, perAxis);
+        int minRow = this.getRow(maxLatitude, perAxis);
+        int maxRow = this.getRow(minLatitude, perAxis);
+
+        int[] found = new int[64];
+        int count = 0;
+
+        for (int row = minRow; row <= maxRow; row++) {
+            long first = (long) row * perAxis + minColumn;
+            long last = (long) row * perAxis + maxColumn;
+
+            // First cluster at or after the first cell of the row
+            int position = Arrays.binarySearch(levelCells, first);
+            position = position < 0 ? -position - 1 : position;
+
+            if (position == levelCells.length) {
+                break;
+            }
+
+            // Skip empty rows at once
+            if (levelCells[position] > last) {
+                row = Math.max(row, (int) (levelCells[position] / perAxis) - 1);
+                continue;
+            }
+
+            while (position < levelCells.length && levelCells[position] <= last) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, 2 * count);
+                }
+
+                found[count++] = position++;
+            }
+        }
+
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Maximum zoom level getter
+     * @return Finest zoom level of the hierarchy
+     */
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    /**
+     * Number of clusters getter
+     * @param zoom Zoom level
+     * @return Number of clusters of the level
+     */
+    public int size(int zoom) {
+        return cells[this.getLevel(zoom)].length;
+    }
+
+    /**
+     * Cluster longitude getter
+     * @param zoom Zoom level
+     * @param position Position of the cluster in the level
+     * @return Longitude of the centroid of the cities
+     */
+    public double getLongitude(int zoom, int position) {
+        return longitudes[this.getLevel(zoom)][position];
+    }
+
+    /**
+     * Cluster latitude getter
+     * @param zoom Zoom level
+     * @param position Position of the cluster in the level
+     * @return Latitude of the centroid of the cities
+     */
+    public double getLatitude(int zoom, int position) {
+        return latitudes[this.getLevel(zoom)][position];
+    }
+
+    /**
+     * Cluster count getter
+     * @param zoom Zoom level
+     * @param position Position of the cluster in the level
+     * @return Number of cities
+     */
+    public int getCount(int zoom, int position) {
+        return counts[this.getLevel(zoom)][position];
+    }
+
+    /**
+     * Cluster population getter
+     * @param zoom Zoom level
+     * @param position Position of the cluster in the level
+     * @return Total known population of the cities
+     */
+    public long getPopulation(int zoom, int position) {
+        return populations[this.getLevel(zoom)][position];
+    }
+
+    /**
+     * Cluster city getter
+     * @param zoom Zoom level
+     * @param position Position of the cluster in the level
+     * @return City entity id if the cluster has only one city, null otherwise
+     */
+    public Integer getId(int zoom, int position) {
+        int level = this.getLevel(zoom);
+
+        return counts[level][position] == 1 ? ids[level][position] : null;
+    }
+}
@@ -0,0 +1,287 @@
+package com.cartowiki.webapp.cities.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable packed R-tree of city positions, built with the Sort-Tile-Recursive algorithm.
+ * Points are sorted into vertical slices by longitude, then by latitude inside each slice, and grouped
+ * into full nodes; each upper level groups the nodes of the level below the same way.
+ * All data is kept in flat arrays, so that a tree of a whole epoch holds no object per city.
+ */
+public final class CityTree {
+    public static final int NODE_CAPACITY = 16;
+
+    public static final CityTree EMPTY = new CityTree(new int[0], new String[0], new long[0], new double[0], new double[0]);
+
+    // Cities, in tree order
+    private final int[] ids;
+    private final String[] names;
+    private final long[] populations;
+    private final double[] longitudes;
+    private final double[] latitudes;
+
+    // Nodes of each level, from the leaves (level 0, whose children are cities) to the root:
+    // bounds {minLongitude, minLatitude, maxLongitude, maxLatitude} of node i at 4 * i,
+    // children of node i from starts[i] to ends[i] - 1 in the level below
+    private final double[][] bounds;
+    private final int[][] starts;
+    private final int[][] ends;
+
+    /**
+     * Constructor with arguments, all arrays having one item per city
+     * @param ids City entity ids
+     * @param names City names (may contain null)
+     * @param populations City populations (-1 if unknown)
+     * @param longitudes City longitudes
+     * @param latitudes City latitudes
+     */
+    public CityTree(int[] ids, String[] names, long[] populations, double[] longitudes, double[] latitudes) {
+        int size = ids.length;
+        int[] order = sortTiles(identity(size), longitudes, latitudes);
+
+        this.ids = new int[size];
+        this.names = new String[size];
+        this.populations = new long[size];
+        this.longitudes = new double[size];
+        this.latitudes = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            this.ids[i] = ids[order[i]];
+            this.names[i] = names[order[i]];
+            this.populations[i] = populations[order[i]];
+            this.longitudes[i] = longitudes[order[i]];
+            this.latitudes[i] = latitudes[order[i]];
+        }
+
+        List<double[]> levelBounds = new ArrayList<>();
+        List<int[]> levelStarts = new ArrayList<>();
+        List<int[]> levelEnds = new ArrayList<>();
+
+        // Leaves group consecutive cities, already in tile order
+        int[] childStarts = identity(size);
+        int[] childEnds = new int[size];
+        double[] childBounds = new double[4 * size];
+
+        for (int i = 0; i < size; i++) {
+            childEnds[i] = i + 1;
+            childBounds[4 * i] = this.longitudes[i];
+            childBounds[4 * i + 1] = this.latitudes[i];
+            childBounds[4 * i + 2] = this.longitudes[i];
+            childBounds[4 * i + 3] = this.latitudes[i];
+        }
+
+        boolean leaves = true;
+
+        while (leaves || childStarts.length > 1) {
+            int count = childStarts.length;
+
+            if (!leaves) {
+                // Sort the nodes of the level below by their centers, so that their parents are compact
+                double[] centerX = new double[count];
+                double[] centerY = new double[count];
+
+                for (int i = 0; i < count; i++) {
+                    centerX[i] = (childBounds[4 * i] + childBounds[4 * i + 2]) / 2;
+                    centerY[i] = (childBounds[4 * i + 1] + childBounds[4 * i + 3]) / 2;
+                }
+
+                int[] nodeOrder = sortTiles(identity(count), centerX, centerY);
+                int[] sortedStarts = new int[count];
+                int[] sortedEnds = new int[count];
+                double[] sortedBounds = new double[4 * count];
+
+                for (int i = 0; i < count; i++) {
+                    sortedStarts[i] = childStarts[nodeOrder[i]];
+                    sortedEnds[i] = childEnds[nodeOrder[i]];
+                    System.arraycopy(childBounds, 4 * nodeOrder[i], sortedBounds, 4 * i, 4);
+                }
+
+                levelBounds.set(levelBounds.size() - 1, sortedBounds);
+                levelStarts.set(levelStarts.size() - 1, sortedStarts);
+                levelEnds.set(levelEnds.size() - 1, sortedEnds);
+                childBounds = sortedBounds;
+            }
+
+            int parents = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            int[] parentStarts = new int[parents];
+            int[] parentEnds = new int[parents];
+            double[] parentBounds = new double[4 * parents];
+
+            for (int i = 0; i < parents; i++) {
+                parentStarts[i] = i * NODE_CAPACITY;
+                parentEnds[i] = Math.min(count, (i + 1) * NODE_CAPACITY);
+                parentBounds[4 * i] = Double.POSITIVE_INFINITY;
+                parentBounds[4 * i + 1] = Double.POSITIVE_INFINITY;
+                parentBounds[4 * i + 2] = Double.NEGATIVE_INFINITY;
+                parentBounds[4 * i + 3] = Double.NEGATIVE_INFINITY;
+
+                for (int child = parentStarts[i]; child < parentEnds[i]; child++) {
+                    parentBounds[4 * i] = Math.min(parentBounds[4 * i], childBounds[4 * child]);
+                    parentBounds[4 * i + 1] = Math.min(parentBounds[4 * i + 1], childBounds[4 * child + 1]);
+                    parentBounds[4 * i + 2] = Math.max(parentBounds[4 * i + 2], childBounds[4 * child + 2]);
+                    parentBounds[4 * i + 3] = Math.max(parentBounds[4 * i + 3], childBounds[4 * child + 3]);
+                }
+            }
+
+            levelBounds.add(parentBounds);
+            levelStarts.add(parentStarts);
+            levelEnds.add(parentEnds);
+
+            childStarts = parentStarts;
+            childEnds = parentEnds;
+            childBounds = parentBounds;
+            leaves = false;
+        }
+
+        this.bounds = levelBounds.toArray(new double[0][]);
+        this.starts = levelStarts.toArray(new int[0][]);
+        this.ends = levelEnds.toArray(new int[0][]);
+    }
+
+    /**
+     * Return the positions 0 to size - 1
+     * @param size Number of positions
+     * @return Positions in increasing order
+     */
+    private static int[] identity(int size) {
+        int[] positions = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            positions[i] = i;
+        }
+
+        return positions;
+    }
+
+    /**
+     * Sort items into vertical slices by x, then by y inside each slice (Sort-Tile-Recursive order)
+     * @param items Item positions to sort
+     * @param x X coordinate of each item position
+     * @param y Y coordinate of each item position
+     * @return Sorted item positions
+     */
+    private static int[] sortTiles(int[] items, double[] x, double[] y) {
+        Integer[] sorted = Arrays.stream(items).boxed().toArray(Integer[]::new);
+        Arrays.sort(sorted, (first, second) -> Double.compare(x[first], x[second]));
+
+        int nodes = (items.length + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int slices = (int) Math.ceil(Math.sqrt(nodes));
+        int sliceSize = slices * NODE_CAPACITY;
+
+        for (int start = 0; start < sorted.length; start += sliceSize) {
+            Arrays.sort(sorted, start, Math.min(sorted.length, start + sliceSize), (first, second) -> Double.compare(y[first], y[second]));
+        }
+
+        return Arrays.stream(sorted).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Return the positions of the cities inside a bounding box
+     * @param minLongitude West bound
+     * @param minLatitude South bound
+     * @param maxLongitude East bound
+     * @param maxLatitude North bound
+     * @return Positions of the cities, to read with the getters
+     */
+    public int[] search(double minLongitude, double minLatitude, double maxLongitude, double maxLatitude) {
+        int[] found = new int[64];
+        int count = 0;
+
+        // Explicit stack of {level, node}
+        int[] stack = new int[2 * 64];
+        int top = 0;
+        int root = bounds.length - 1;
+
+        for (int node = 0; node < starts[root].length; node++) {
+            stack[top++] = root;
+            stack[top++] = node;
+        }
+
+        while (top > 0) {
+            int node = stack[--top];
+            int level = stack[--top];
+            double[] box = bounds[level];
+
+            if (box[4 * node] <= maxLongitude && box[4 * node + 2] >= minLongitude
+                && box[4 * node + 1] <= maxLatitude && box[4 * node + 3] >= minLatitude) {
+                for (int child = starts[level][node]; child < ends[level][node]; child++) {
+                    if (level == 0) {
+                        if (longitudes[child] >= minLongitude && longitudes[child] <= maxLongitude
+                            && latitudes[child] >= minLatitude && latitudes[child] <= maxLatitude) {
+                            if (count == found.length) {
+                                found = Arrays.copyOf(found, 2 * count);
+                            }
+
+                            found[count++] = child;
+                        }
+                    }
+                    else {
+                        if (top + 2 > stack.length) {
+                            stack = Arrays.copyOf(stack, 2 * stack.length);
+                        }
+
+                        stack[top++] = level - 1;
+                        stack[top++] = child;
+                    }
+                }
+            }
+        }
+
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Number of cities getter
+     * @return Number of cities
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * City id getter
+     * @param position Position of the city
+     * @return City entity id
+     */
+    public int getId(int position) {
+        return ids[position];
+    }
+
+    /**
+     * City name getter
+     * @param position Position of the city
+     * @return City name, may be null
+     */
+    public String getName(int position) {
+        return names[position];
+    }
+
+    /**
+     * City population getter
+     * @param position Position of the city
+     * @return City population, -1 if unknown
+     */
+    public long getPopulation(int position) {
+        return populations[position];
+    }
+
+    /**
+     * City longitude getter
+     * @param position Position of the city
+     * @return City longitude
+     */
+    public double getLongitude(int position) {
+        return longitudes[position];
+    }
+
+    /**
+     * City latitude getter
+     * @param position Position of the city
+     * @return City latitude
+     */
+    public double getLatitude(int position) {
+        return latitudes[position];
+    }
+}
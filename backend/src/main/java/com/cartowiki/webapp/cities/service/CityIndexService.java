@@ -0,0 +1,292 @@
+package com.cartowiki.webapp.cities.service;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.cartowiki.webapp.cities.config.CityIndexConfig;
+import com.cartowiki.webapp.cities.model.CityClusters;
+import com.cartowiki.webapp.cities.model.CityTree;
+import com.cartowiki.webapp.periods.model.EpochIndex;
+import com.cartowiki.webapp.periods.service.EpochService;
+import com.cartowiki.webapp.tiles.cache.SingleFlight;
+import com.cartowiki.webapp.tiles.model.DataChangeEvent;
+import com.cartowiki.webapp.util.PeriodSql;
+
+/**
+ * Answer bounding box queries on city positions from memory.
+ * A tree and a hierarchy of clusters of the cities of an epoch are built on the first query of the epoch, and those of
+ * the least recently used epochs are dropped when too many epochs are kept.
+ */
+@Service
+public class CityIndexService {
+    private static final String CITIES_QUERY = """
+        SELECT entites_villes.id_entite_ville AS id, names.nom_ville AS name, populations.population AS population,
+               ST_X(entites_villes.position_ville) AS longitude, ST_Y(entites_villes.position_ville) AS latitude
+        FROM entites_villes
+        JOIN existence_ville ON entites_villes.id_entite_ville = existence_ville.id_entite_ville
+        JOIN periodes AS existence_periodes ON existence_ville.id_periode = existence_periodes.id_periode
+        LEFT JOIN LATERAL (
+            SELECT noms_villes.nom_ville
+            FROM ville
+            JOIN periodes AS ville_periodes ON ville.id_periode = ville_periodes.id_periode
+            JOIN noms_villes ON ville.id_nom_ville = noms_villes.id_nom_ville
+            WHERE ville.id_entite_ville = entites_villes.id_entite_ville AND %2$s
+            LIMIT 1
+        ) AS names ON true
+        LEFT JOIN LATERAL (
+            SELECT populations_villes.population
+            FROM populations_villes
+            WHERE populations_villes.id_entite_ville = entites_villes.id_entite_ville AND populations_villes.annee <= ?
+            ORDER BY populations_villes.annee DESC
+            LIMIT 1
+        ) AS populations ON true
+        WHERE %1$s AND entites_villes.position_ville IS NOT NULL
+        """.formatted(PeriodSql.validAt("existence_periodes"), PeriodSql.validAt("ville_periodes"));
+
+    private JdbcTemplate jdbcTemplate;
+    private EpochService epochService;
+    private CityIndexConfig config;
+    private SingleFlight<Integer, Entry> builds;
+
+    // Trees by first year of epoch, in access order, only accessed while holding the lock of the map
+    private final LinkedHashMap<Integer, Entry> trees;
+
+    // Incremented on each change, so that trees built from older data are not kept
+    private long generation = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Tree and clusters of an epoch, with the last year of the epoch when they were built
+     * @param tree City tree
+     * @param clusters City clusters of each zoom level
+     * @param end Last year of the epoch
+     */
+    private record Entry(CityTree tree, CityClusters clusters, int end) {}
+
+    /**
+     * Autowired constructor
+     * @param jdbcTemplate JDBC access to the database
+     * @param epochService Epochs of the world history
+     * @param config Index parameters
+     */
+    @Autowired
+    public CityIndexService(JdbcTemplate jdbcTemplate, EpochService epochService, CityIndexConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.epochService = epochService;
+        this.config = config;
+        this.builds = new SingleFlight<>(config.getTimeout());
+
+        int capacity = config.getEpochs();
+        this.trees = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Drop the trees of the epochs overlapping a change of cities
+     * @param event Change of a row of the map data
+     */
+    @EventListener
+    public void onDataChange(DataChangeEvent event) {
+        if (DataChangeEvent.CITY_ENTITIES.equals(event.getTable()) || DataChangeEvent.CITY_EXISTENCES.equals(event.getTable())
+            || DataChangeEvent.CITY_POPULATIONS.equals(event.getTable()) || DataChangeEvent.CITY_NAMES.equals(event.getTable())) {
+            synchronized (trees) {
+                generation++;
+                trees.entrySet().removeIf(entry -> entry.getKey() <= event.getMaxYear() && entry.getValue().end() >= event.getMinYear());
+            }
+        }
+    }
+
+    /**
+     * Return the cities existing at a year inside a bounding box
+     * @param year Year
+     * @param bounds Bounding box {minLongitude, minLatitude, maxLongitude, maxLatitude}
+     * @return List of cities for converting to JSON
+     * @throws IOException Tree built by another request too long to come, or failed
+     * @throws InterruptedException Waiting for another request interrupted
+     */
+    public List<HashMap<String, Object>> getCities(int year, double[] bounds) throws IOException, InterruptedException {
+        CityTree tree = this.getEntry(year).tree();
+        List<HashMap<String, Object>> cities = new ArrayList<>();
+
+        for (int position: tree.search(bounds[0], bounds[1], bounds[2], bounds[3])) {
+            HashMap<String, Object> city = new HashMap<>();
+            long population = tree.getPopulation(position);
+
+            city.put("id", tree.getId(position));
+            city.put("name", tree.getName(position));
+            city.put("population", population < 0 ? null : population);
+            city.put("longitude", tree.getLongitude(position));
+            city.put("latitude", tree.getLatitude(position));
+            cities.add(city);
+        }
+
+        return cities;
+    }
+
+    /**
+     * Return the clusters of cities existing at a year inside a bounding box.
+     * Above the finest clustered zoom level, each city is returned as a cluster of one.
+     * @param year Year
+     * @param zoom Zoom level
+     * @param bounds Bounding box {minLongitude, minLatitude, maxLongitude, maxLatitude}
+     * @return List of clusters for converting to JSON
+     * @throws IOException Clusters built by another request too long to come, or failed
+     * @throws InterruptedException Waiting for another request interrupted
+     */
+    public List<HashMap<String, Object>> getClusters(int year, int zoom, double[] bounds) throws IOException, InterruptedException {
+        Entry entry = this.getEntry(year);
+        List<HashMap<String, Object>> clusters = new ArrayList<>();
+
+        if (zoom > entry.clusters().getMaxZoom()) {
+            CityTree tree = entry.tree();
+
+            for (int position: tree.search(bounds[0], bounds[1], bounds[2], bounds[3])) {
+                clusters.add(clusterMap(tree.getLongitude(position), tree.getLatitude(position), 1,
+                                        Math.max(0, tree.getPopulation(position)), tree.getId(position)));
+            }
+        }
+        else {
+            CityClusters levels = entry.clusters();
+
+            for (int position: levels.search(zoom, bounds[0], bounds[1], bounds[2], bounds[3])) {
+                clusters.add(clusterMap(levels.getLongitude(zoom, position), levels.getLatitude(zoom, position), levels.getCount(zoom, position),
+                                        levels.getPopulation(zoom, position), levels.getId(zoom, position)));
+            }
+        }
+
+        return clusters;
+    }
+
+    /**
+     * Return a cluster for converting to JSON
+     * @param longitude Centroid longitude
+     * @param latitude Centroid latitude
+     * @param count Number of cities
+     * @param population Total known population
+     * @param id City entity id for a cluster of one city, null otherwise
+     * @return Cluster map
+     */
+    private static HashMap<String, Object> clusterMap(double longitude, double latitude, int count, long population, Integer id) {
+        HashMap<String, Object> cluster = new HashMap<>();
+
+        cluster.put("longitude", longitude);
+        cluster.put("latitude", latitude);
+        cluster.put("count", count);
+        cluster.put("population", population);
+        cluster.put("id", id);
+
+        return cluster;
+    }
+
+    /**
+     * Return the tree and clusters of the epoch containing a year, building them on a miss
+     * @param year Year
+     * @return Cached entry
+     * @throws IOException Entry built by another request too long to come, or failed
+     * @throws InterruptedException Waiting for another request interrupted
+     */
+    private Entry getEntry(int year) throws IOException, InterruptedException {
+        EpochIndex epochs = epochService.getIndex();
+        int start = epochs.getStart(year);
+        Entry entry;
+        long builtGeneration;
+
+        synchronized (trees) {
+            entry = trees.get(start);
+            builtGeneration = generation;
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            int end = epochs.getEnd(year);
+            entry = builds.load(start, () -> this.build(start, end));
+
+            synchronized (trees) {
+                if (builtGeneration == generation) {
+                    trees.put(start, entry);
+                }
+            }
+        }
+        else {
+            hits.incrementAndGet();
+        }
+
+        return entry;
+    }
+
+    /**
+     * Build the tree and clusters of the cities existing during an epoch
+     * @param year First year of the epoch
+     * @param end Last year of the epoch
+     * @return Entry to cache
+     */
+    private Entry build(int year, int end) {
+        List<Integer> ids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Long> populations = new ArrayList<>();
+        List<Double> longitudes = new ArrayList<>();
+        List<Double> latitudes = new ArrayList<>();
+
+        jdbcTemplate.query(CITIES_QUERY, row -> {
+            ids.add(row.getInt("id"));
+            names.add(row.getString("name"));
+            populations.add(getPopulation(row));
+            longitudes.add(row.getDouble("longitude"));
+            latitudes.add(row.getDouble("latitude"));
+        }, year, year, year, year, year);
+
+        CityTree tree = new CityTree(ids.stream().mapToInt(Integer::intValue).toArray(), names.toArray(new String[0]),
+                                     populations.stream().mapToLong(Long::longValue).toArray(),
+                                     longitudes.stream().mapToDouble(Double::doubleValue).toArray(),
+                                     latitudes.stream().mapToDouble(Double::doubleValue).toArray());
+
+        return new Entry(tree, new CityClusters(tree, config.getClusterMaxZoom(), config.getClusterCellSize()), end);
+    }
+
+    /**
+     * Read the population of a city row, checking for NULL right after reading it
+     * @param row Row of the cities query
+     * @return Population, -1 if unknown
+     * @throws SQLException Error while reading the row
+     */
+    static long getPopulation(ResultSet row) throws SQLException {
+        long population = row.getLong("population");
+
+        return row.wasNull() ? -1 : population;
+    }
+
+    /**
+     * Return the index counters for converting to JSON
+     * @return Map of counters
+     */
+    public HashMap<String, Object> getStats() {
+        HashMap<String, Object> map = new HashMap<>();
+
+        synchronized (trees) {
+            map.put("epochs", trees.size());
+        }
+
+        map.put("hits", hits.get());
+        map.put("misses", misses.get());
+
+        return map;
+    }
+}
@@ -0,0 +1,46 @@
+package com.cartowiki.webapp.contributions.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Store parameters of the contributions listing
+ */
+@Configuration
+@ConfigurationProperties(prefix = "contributions")
+public class ContributionConfig {
+    private int limit = 50;
+    private int maxLimit = 500;
+
+    /**
+     * Limit getter
+     * @return Number of contributions per page when the client gives no limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Limit setter
+     * @param limit New number of contributions per page when the client gives no limit
+     */
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Maximum limit getter
+     * @return Maximum number of contributions per page
+     */
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Maximum limit setter
+     * @param maxLimit New maximum number of contributions per page
+     */
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+}
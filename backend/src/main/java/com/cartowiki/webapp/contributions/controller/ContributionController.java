@@ -0,0 +1,455 @@
+package com.cartowiki.webapp.contributions.controller;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.MissingResourceException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authorization.AuthorizationDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cartowiki.webapp.contributions.model.ContributionRequest;
+import com.cartowiki.webapp.contributions.service.ContributionService;
+import com.cartowiki.webapp.users.model.User;
+import com.cartowiki.webapp.util.ResponseMaker;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * Contributions manager
+ */
+@RestController
+@RequestMapping("/contributions")
+@Tag(name = "Contributions management")
+public class ContributionController {
+    private ContributionService service;
+
+    /**
+     * Autowired constructor
+     * @param service Service for contribution management
+     */
+    @Autowired
+    public ContributionController(ContributionService service) {
+        this.service = service;
+    }
+
+    /**
+     * Return a page of contributions, from the newest
+     * @param userId Id of the contributor
+     * @param objectType Id of the object type
+     * @param status Status
+     * @param from First date
+     * @param to Last date
+     * @param cursor Cursor of the page
+     * @param limit Maximum number of contributions
+     * @return Response
+     */
+    @GetMapping("")
+    @Operation(
+        summary = "Retrieve a page of contributions",
+        description = "Return contributions from the newest, filtered by contributor, object type, status and date. " +
+                      "Pass the \"next\" cursor of a page to read the following one; it is null after the last page.",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [contributor, admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Page of contributions",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": {\"contributions\": [" +
+                            "{\"id\": 1, \"userId\": 1, \"username\": \"contributor_test\", \"date\": \"2025-03-12\", \"status\": \"pending\", " +
+                            "\"objectTypeId\": 3, \"objectType\": \"pays\", \"comment\": \"Ajout de Madagascar\"}" +
+                            "], \"next\": \"2025-03-12_1\"}}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid status, cursor or limit",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Invalid cursor\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getContributions(@RequestParam(name = "user", required = false) @Parameter(name = "user", description = "Contributor's id", example = "1") Integer userId,
+                                                   @RequestParam(name = "type", required = false) @Parameter(name = "type", description = "Object type id", example = "3") Integer objectType,
+                                                   @RequestParam(name = "status", required = false) @Parameter(name = "status", description = "Status (pending or validated)", example = "pending") String status,
+                                                   @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(name = "from", description = "First date", example = "2025-01-01") LocalDate from,
+                                                   @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(name = "to", description = "Last date", example = "2025-12-31") LocalDate to,
+                                                   @RequestParam(name = "cursor", required = false) @Parameter(name = "cursor", description = "Cursor returned with the previous page", example = "2025-03-12_1") String cursor,
+                                                   @RequestParam(name = "limit", required = false) @Parameter(name = "limit", description = "Maximum number of contributions", example = "50") Integer limit) {
+        ResponseEntity<Object> response;
+
+        try {
+            HashMap<String, Object> page = service.getContributions(userId, objectType, status, from, to, cursor, limit);
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, page, HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+
+        return response;
+    }
+
+    /**
+     * Return the details of a contribution
+     * @param id Contribution id
+     * @return Response
+     */
+    @GetMapping("/{id}")
+    @Operation(
+        summary = "Retrieve one contribution",
+        description = "Return the details of one contribution, with its sources and the contribution it changes",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [contributor, admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Contribution details",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": {\"id\": 1, \"userId\": 1, \"username\": \"contributor_test\", \"date\": \"2025-03-12\", \"status\": \"pending\", " +
+                            "\"objectTypeId\": 3, \"objectType\": \"pays\", \"comment\": \"Ajout de Madagascar\", \"sources\": \"https://fr.wikipedia.org/wiki/Madagascar\", \"previous\": null}}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Contribution is not found",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Missing contribution\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getContribution(@PathVariable("id") @Parameter(name = "id", description = "Contribution's id", example = "1") int id) {
+        ResponseEntity<Object> response;
+
+        try {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, service.getContribution(id), HttpStatus.OK);
+        }
+        catch (MissingResourceException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+
+        return response;
+    }
+
+    /**
+     * Submit a contribution
+     * @param data Contribution content
+     * @param authentication Current user's authentication
+     * @return Response
+     */
+    @PostMapping("")
+    @Operation(
+        summary = "Submit one contribution",
+        description = "Add a pending contribution of the current user. A contribution with the same content as an existing one is rejected.",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [contributor, admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "201",
+            description = "Contribution successfully submitted",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": 2}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid value of one argument",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Unknown object type\"}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "Same comment and sources as another contribution of the submitting user",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Duplicate contribution\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> createContribution(@RequestBody ContributionRequest data, Authentication authentication) {
+        ResponseEntity<Object> response;
+
+        try {
+            int id = service.createContribution(data, (User) authentication.getPrincipal());
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, id, HttpStatus.CREATED);
+        }
+        catch (IllegalArgumentException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        catch (DuplicateKeyException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.CONFLICT);
+        }
+
+        return response;
+    }
+
+    /**
+     * Edit a contribution
+     * @param id Contribution id
+     * @param data New contribution content
+     * @param authentication Current user's authentication
+     * @return Response
+     */
+    @PutMapping("/{id}")
+    @Operation(
+        summary = "Edit one contribution",
+        description = "Replace the content of a contribution. Contributors may only edit their own pending contributions.",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [contributor, admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "202",
+            description = "Contribution successfully edited",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Contribution successfully edited\"}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid value of one argument",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Comment is too long\"}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "403",
+            description = "Contribution of another user, or already validated",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Missing priviledge\"}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Contribution is not found",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Missing contribution\"}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "Same comment and sources as another contribution of the submitting user",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Duplicate contribution\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> editContribution(@PathVariable("id") @Parameter(name = "id", description = "Contribution's id", example = "1") int id,
+                                                   @RequestBody ContributionRequest data, Authentication authentication) {
+        ResponseEntity<Object> response;
+
+        try {
+            service.editContribution(id, data, (User) authentication.getPrincipal());
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, "Contribution successfully edited", HttpStatus.ACCEPTED);
+        }
+        catch (MissingResourceException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+        catch (IllegalArgumentException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        catch (AuthorizationDeniedException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.FORBIDDEN);
+        }
+        catch (DuplicateKeyException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.CONFLICT);
+        }
+
+        return response;
+    }
+
+    /**
+     * Delete a contribution
+     * @param id Contribution id
+     * @param authentication Current user's authentication
+     * @return Response
+     */
+    @DeleteMapping("/{id}")
+    @Operation(
+        summary = "Delete one contribution",
+        description = "Delete a contribution without map data. Contributors may only delete their own pending contributions.",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [contributor, admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Contribution successfully deleted",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Contribution successfully deleted\"}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Contribution still referenced by map data or by another contribution",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Contribution is still in use\"}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "403",
+            description = "Contribution of another user, or already validated",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Missing priviledge\"}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Contribution is not found, or already deleted",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Missing contribution\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> deleteContribution(@PathVariable("id") @Parameter(name = "id", description = "Contribution's id", example = "1") int id, Authentication authentication) {
+        ResponseEntity<Object> response;
+
+        try {
+            service.deleteContribution(id, (User) authentication.getPrincipal());
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, "Contribution successfully deleted", HttpStatus.OK);
+        }
+        catch (MissingResourceException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+        catch (IllegalArgumentException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        catch (AuthorizationDeniedException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.FORBIDDEN);
+        }
+
+        return response;
+    }
+
+    /**
+     * Validate a contribution
+     * @param id Contribution id
+     * @return Response
+     */
+    @PostMapping("/{id}/validate")
+    @Operation(
+        summary = "Validate one contribution (admin and superadmin only)",
+        description = "Mark a pending contribution as validated",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Contribution successfully validated",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Contribution successfully validated\"}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Contribution is not found",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Missing contribution\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> validateContribution(@PathVariable("id") @Parameter(name = "id", description = "Contribution's id", example = "1") int id) {
+        ResponseEntity<Object> response;
+
+        try {
+            service.validateContribution(id);
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, "Contribution successfully validated", HttpStatus.OK);
+        }
+        catch (MissingResourceException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+
+        return response;
+    }
+}
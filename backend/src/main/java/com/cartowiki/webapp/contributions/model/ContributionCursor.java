@@ -0,0 +1,64 @@
+package com.cartowiki.webapp.contributions.model;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Position in the list of contributions, sorted from the newest: the date and id of the last contribution of a page.
+ * The next page starts right after it, whatever was added meanwhile, and is found through an index instead of
+ * skipping all the previous pages.
+ */
+public class ContributionCursor {
+    private static final char SEPARATOR = '_';
+
+    private final LocalDate date;
+    private final int id;
+
+    /**
+     * Constructor with arguments
+     * @param date Date of the last contribution of a page
+     * @param id Id of the last contribution of a page
+     */
+    public ContributionCursor(LocalDate date, int id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    /**
+     * Parse a cursor given by a client
+     * @param value Cursor, as returned by toString
+     * @return Cursor
+     * @throws IllegalArgumentException Malformed cursor
+     */
+    public static ContributionCursor parse(String value) throws IllegalArgumentException {
+        int separator = value.lastIndexOf(SEPARATOR);
+
+        try {
+            return new ContributionCursor(LocalDate.parse(value.substring(0, separator)), Integer.parseInt(value.substring(separator + 1)));
+        }
+        catch (IndexOutOfBoundsException | DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Date getter
+     * @return Date of the last contribution of a page
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Id getter
+     * @return Id of the last contribution of a page
+     */
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return date.toString() + SEPARATOR + id;
+    }
+}
@@ -0,0 +1,142 @@
+package com.cartowiki.webapp.contributions.model;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Contribution creation or edit request
+ */
+public class ContributionRequest {
+    public static final int COMMENT_MAX_LENGTH = 1024;
+    public static final int SOURCES_MAX_LENGTH = 4096;
+
+    private static final char SEPARATOR = '\u001f';
+
+    @Schema(name = "objectType", description = "Id of the type of the contributed object (type_objet)", example = "5")
+    private Integer objectType;
+
+    @Schema(name = "comment", example = "Ajout de Lyon")
+    private String comment;
+
+    @Schema(name = "sources", example = "https://fr.wikipedia.org/wiki/Lyon")
+    private String sources;
+
+    @Schema(name = "previous", description = "Id of the contribution changed by this one", example = "1")
+    private Integer previous;
+
+    /**
+     * Object type getter
+     * @return Id of the type of the contributed object
+     */
+    public Integer getObjectType() {
+        return objectType;
+    }
+
+    /**
+     * Object type setter
+     * @param objectType New id of the type of the contributed object
+     */
+    public void setObjectType(Integer objectType) {
+        this.objectType = objectType;
+    }
+
+    /**
+     * Comment getter
+     * @return Comment, may be null
+     */
+    public String getComment() {
+        return comment;
+    }
+
+    /**
+     * Comment setter
+     * @param comment New comment
+     */
+    public void setComment(String comment) {
+        this.comment = comment;
+    }
+
+    /**
+     * Sources getter
+     * @return Sources, may be null
+     */
+    public String getSources() {
+        return sources;
+    }
+
+    /**
+     * Sources setter
+     * @param sources New sources
+     */
+    public void setSources(String sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * Previous contribution getter
+     * @return Id of the contribution changed by this one, null for a new object
+     */
+    public Integer getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Previous contribution setter
+     * @param previous New id of the contribution changed by this one
+     */
+    public void setPrevious(Integer previous) {
+        this.previous = previous;
+    }
+
+    /**
+     * Check the request
+     * @return Reason why the request is invalid, null if valid
+     */
+    public String validate() {
+        String error = null;
+
+        if (objectType == null) {
+            error = "Missing object type";
+        }
+        else if (comment != null && comment.length() > COMMENT_MAX_LENGTH) {
+            error = "Comment is too long";
+        }
+        else if (sources != null && sources.length() > SOURCES_MAX_LENGTH) {
+            error = "Sources are too long";
+        }
+
+        return error;
+    }
+
+    /**
+     * Check whether the request has a comment or sources, the only content that can tell two contributions of a user apart
+     * when submitted: the proposed objects are linked to the contribution afterwards
+     * @return True if the comment or the sources are set
+     */
+    public boolean hasDescription() {
+        return (comment != null && !comment.isBlank()) || (sources != null && !sources.isBlank());
+    }
+
+    /**
+     * Compute the SHA-256 hash of the content of the contribution, identical for two requests of a user with the same description
+     * @param userId Id of the user submitting the contribution
+     * @return Hash
+     */
+    public byte[] hash(int userId) {
+        StringBuilder content = new StringBuilder();
+
+        content.append(userId).append(SEPARATOR).append(objectType).append(SEPARATOR).append(previous).append(SEPARATOR)
+               .append(comment).append(SEPARATOR).append(sources);
+
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        catch (NoSuchAlgorithmException e) {
+            // Every Java platform implements SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
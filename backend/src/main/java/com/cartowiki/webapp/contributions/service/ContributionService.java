@@ -0,0 +1,390 @@
+package com.cartowiki.webapp.contributions.service;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.MissingResourceException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authorization.AuthorizationDeniedException;
+import org.springframework.stereotype.Service;
+
+import com.cartowiki.webapp.contributions.config.ContributionConfig;
+import com.cartowiki.webapp.contributions.model.ContributionCursor;
+import com.cartowiki.webapp.contributions.model.ContributionRequest;
+import com.cartowiki.webapp.duplicates.service.DuplicateService;
+import com.cartowiki.webapp.users.model.User;
+
+/**
+ * Contributions listing, submission and moderation.
+ * Lists are sorted from the newest contribution and paged by keyset: each page starts after the date and id of the
+ * last contribution of the previous one, so that reading any page costs an index range scan whatever its depth.
+ */
+@Service
+public class ContributionService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContributionService.class);
+
+    public static final String PENDING = "pending";
+    public static final String VALIDATED = "validated";
+
+    // One index per filter, each ending with the sort key so that filtered pages are read in order
+    private static final String[] CREATE_INDEXES = {
+        "CREATE INDEX IF NOT EXISTS contributions_date ON contributions (date, id_contribution)",
+        "CREATE INDEX IF NOT EXISTS contributions_utilisateur_date ON contributions (id_utilisateur, date, id_contribution)",
+        "CREATE INDEX IF NOT EXISTS contributions_type_objet_date ON contributions (id_type_objet, date, id_contribution)",
+        "CREATE INDEX IF NOT EXISTS contributions_en_attente_date ON contributions (date, id_contribution) WHERE nouvelle_proposition IS TRUE",
+        "CREATE INDEX IF NOT EXISTS contributions_validees_date ON contributions (date, id_contribution) WHERE nouvelle_proposition IS NOT TRUE"
+    };
+
+    // The column is nullable, and only true means pending
+    private static final String PENDING_CONDITION = " AND c.nouvelle_proposition IS TRUE";
+    private static final String VALIDATED_CONDITION = " AND c.nouvelle_proposition IS NOT TRUE";
+
+    private static final String SUMMARIES_QUERY = """
+        SELECT c.id_contribution, c.id_utilisateur, u.pseudo, c.date, c.nouvelle_proposition IS TRUE AS en_attente, c.id_type_objet, t.nom_table, c.commentaire
+        FROM contributions AS c
+        JOIN type_objet AS t ON t.id_type = c.id_type_objet
+        LEFT JOIN utilisateurs AS u ON u.id_utilisateur = c.id_utilisateur
+        WHERE true%s
+        ORDER BY c.date DESC, c.id_contribution DESC
+        LIMIT ?
+        """;
+
+    private static final String CONTRIBUTION_QUERY = """
+        SELECT c.id_contribution, c.id_utilisateur, u.pseudo, c.date, c.nouvelle_proposition IS TRUE AS en_attente, c.id_type_objet, t.nom_table, c.commentaire,
+               c.sources, c.id_precedent
+        FROM contributions AS c
+        JOIN type_objet AS t ON t.id_type = c.id_type_objet
+        LEFT JOIN utilisateurs AS u ON u.id_utilisateur = c.id_utilisateur
+        WHERE c.id_contribution = ?
+        """;
+
+    private static final String OWNER_QUERY = "SELECT id_utilisateur, nouvelle_proposition IS TRUE AS en_attente, hash_column FROM contributions WHERE id_contribution = ?";
+    private static final String TYPE_EXISTS_QUERY = "SELECT EXISTS (SELECT 1 FROM type_objet WHERE id_type = ?)";
+    private static final String CONTRIBUTION_EXISTS_QUERY = "SELECT EXISTS (SELECT 1 FROM contributions WHERE id_contribution = ?)";
+
+    private static final String INSERT_CONTRIBUTION = """
+        INSERT INTO contributions (id_utilisateur, date, nouvelle_proposition, id_precedent, commentaire, sources, hash_column, id_type_objet)
+        VALUES (?, CURRENT_DATE, true, ?, ?, ?, ?, ?)
+        RETURNING id_contribution
+        """;
+
+    private static final String UPDATE_CONTRIBUTION = """
+        UPDATE contributions SET id_precedent = ?, commentaire = ?, sources = ?, hash_column = ?, id_type_objet = ?
+        WHERE id_contribution = ?
+        """;
+
+    private static final String VALIDATE_CONTRIBUTION = "UPDATE contributions SET nouvelle_proposition = false WHERE id_contribution = ?";
+    private static final String DELETE_CONTRIBUTION = "DELETE FROM contributions WHERE id_contribution = ?";
+
+    // Submitting user, status and hash of a contribution, read before changing it
+    private record Owner(int userId, boolean pending, byte[] hash) {}
+
+    private ContributionConfig config;
+    private JdbcTemplate jdbcTemplate;
+    private DuplicateService duplicateService;
+
+    /**
+     * Autowired constructor
+     * @param config Listing parameters
+     * @param jdbcTemplate JDBC access to the database
+     * @param duplicateService Duplicate detection
+     */
+    @Autowired
+    public ContributionService(ContributionConfig config, JdbcTemplate jdbcTemplate, DuplicateService duplicateService) {
+        this.config = config;
+        this.jdbcTemplate = jdbcTemplate;
+        this.duplicateService = duplicateService;
+    }
+
+    /**
+     * Create the listing indexes if needed at startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        try {
+            for (String index: CREATE_INDEXES) {
+                jdbcTemplate.execute(index);
+            }
+        }
+        catch (DataAccessException e) {
+            LOGGER.error("Unable to create the contribution indexes, filtered listings will scan the table", e);
+        }
+    }
+
+    /**
+     * Return a page of contributions, from the newest
+     * @param userId Id of the contributor, null for all
+     * @param objectType Id of the object type, null for all
+     * @param status PENDING or VALIDATED, null for all
+     * @param from First date, null for no lower bound
+     * @param to Last date, null for no upper bound
+     * @param cursor Cursor returned with the previous page, null for the first page
+     * @param limit Maximum number of contributions, null for the default one
+     * @return Map of the contributions and of the cursor of the next page (null after the last page), for converting to JSON
+     * @throws IllegalArgumentException Invalid status, cursor or limit
+     * @throws DataAccessException Error while reading the contributions
+     */
+    public HashMap<String, Object> getContributions(Integer userId, Integer objectType, String status, LocalDate from, LocalDate to,
+                                                    String cursor, Integer limit) throws IllegalArgumentException, DataAccessException {
+        if (limit != null && (limit < 1 || limit > config.getMaxLimit())) {
+            throw new IllegalArgumentException("Invalid limit");
+        }
+
+        int size = limit == null ? config.getLimit() : limit;
+        StringBuilder conditions = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+
+        if (userId != null) {
+            conditions.append(" AND c.id_utilisateur = ?");
+            args.add(userId);
+        }
+
+        if (objectType != null) {
+            conditions.append(" AND c.id_type_objet = ?");
+            args.add(objectType);
+        }
+
+        if (status != null) {
+            if (!PENDING.equals(status) && !VALIDATED.equals(status)) {
+                throw new IllegalArgumentException("Invalid status");
+            }
+
+            conditions.append(PENDING.equals(status) ? PENDING_CONDITION : VALIDATED_CONDITION);
+        }
+
+        if (from != null) {
+            conditions.append(" AND c.date >= ?");
+            args.add(Date.valueOf(from));
+        }
+
+        if (to != null) {
+            conditions.append(" AND c.date <= ?");
+            args.add(Date.valueOf(to));
+        }
+
+        if (cursor != null) {
+            ContributionCursor after = ContributionCursor.parse(cursor);
+
+            // Row comparison, matched by the indexes on (..., date, id_contribution)
+            conditions.append(" AND (c.date, c.id_contribution) < (?, ?)");
+            args.add(Date.valueOf(after.getDate()));
+            args.add(after.getId());
+        }
+
+        // One more row tells whether there is a next page
+        args.add(size + 1);
+
+        List<HashMap<String, Object>> contributions = jdbcTemplate.query(SUMMARIES_QUERY.formatted(conditions), (row, number) -> summary(row), args.toArray());
+        HashMap<String, Object> page = new HashMap<>();
+        String next = null;
+
+        if (contributions.size() > size) {
+            contributions.remove(size);
+
+            HashMap<String, Object> last = contributions.get(size - 1);
+            next = new ContributionCursor(LocalDate.parse((String) last.get("date")), (int) last.get("id")).toString();
+        }
+
+        page.put("contributions", contributions);
+        page.put("next", next);
+
+        return page;
+    }
+
+    /**
+     * Convert the columns shared by summaries and details
+     * @param row Current row
+     * @return Map for converting to JSON
+     * @throws SQLException Error while reading the row
+     */
+    private static HashMap<String, Object> summary(ResultSet row) throws SQLException {
+        HashMap<String, Object> map = new HashMap<>();
+
+        map.put("id", row.getInt("id_contribution"));
+        map.put("userId", row.getInt("id_utilisateur"));
+        map.put("username", row.getString("pseudo"));
+        map.put("date", row.getDate("date").toLocalDate().toString());
+        map.put("status", row.getBoolean("en_attente") ? PENDING : VALIDATED);
+        map.put("objectTypeId", row.getInt("id_type_objet"));
+        map.put("objectType", row.getString("nom_table"));
+        map.put("comment", row.getString("commentaire"));
+
+        return map;
+    }
+
+    /**
+     * Return the details of a contribution
+     * @param id Contribution id
+     * @return Map for converting to JSON
+     * @throws MissingResourceException Contribution not found
+     * @throws DataAccessException Error while reading the contribution
+     */
+    public HashMap<String, Object> getContribution(int id) throws MissingResourceException, DataAccessException {
+        List<HashMap<String, Object>> result = jdbcTemplate.query(CONTRIBUTION_QUERY, (row, number) -> {
+            HashMap<String, Object> map = summary(row);
+            map.put("sources", row.getString("sources"));
+            map.put("previous", row.getObject("id_precedent"));
+
+            return map;
+        }, id);
+
+        if (result.isEmpty()) {
+            throw new MissingResourceException("Missing contribution", "Contribution", String.valueOf(id));
+        }
+
+        return result.get(0);
+    }
+
+    /**
+     * Submit a contribution, pending until validated by an administrator
+     * @param request Contribution content
+     * @param user Contributor
+     * @return Id of the new contribution
+     * @throws IllegalArgumentException Invalid request
+     * @throws DuplicateKeyException Same comment and sources as another contribution of the user
+     * @throws DataAccessException Error while saving the contribution
+     */
+    public int createContribution(ContributionRequest request, User user) throws IllegalArgumentException, DuplicateKeyException, DataAccessException {
+        this.check(request, null);
+        byte[] hash = request.hash(user.getId());
+
+        // The proposed objects are linked afterwards, so only a described contribution can be recognized as a duplicate
+        if (request.hasDescription() && duplicateService.isDuplicate(DuplicateService.CONTRIBUTIONS, hash)) {
+            throw new DuplicateKeyException("Duplicate contribution");
+        }
+
+        Integer id = jdbcTemplate.queryForObject(INSERT_CONTRIBUTION, Integer.class, user.getId(), request.getPrevious(),
+                                                 request.getComment(), request.getSources(), hash, request.getObjectType());
+
+        // Added once committed, so that a concurrent load of the filter cannot miss it
+        duplicateService.add(DuplicateService.CONTRIBUTIONS, hash);
+
+        return id;
+    }
+
+    /**
+     * Change a contribution
+     * @param id Contribution id
+     * @param request New contribution content
+     * @param user User asking for the change
+     * @throws MissingResourceException Contribution not found
+     * @throws AuthorizationDeniedException Contribution of another user, or already validated, changed by a contributor
+     * @throws IllegalArgumentException Invalid request
+     * @throws DuplicateKeyException Same comment and sources as another contribution of the submitting user
+     * @throws DataAccessException Error while saving the contribution
+     */
+    public void editContribution(int id, ContributionRequest request, User user) throws MissingResourceException, AuthorizationDeniedException,
+                                                                                      IllegalArgumentException, DuplicateKeyException, DataAccessException {
+        Owner owner = this.checkOwner(id, user);
+        this.check(request, id);
+
+        // Hashed for the submitting user, even when an administrator makes the change
+        byte[] hash = request.hash(owner.userId());
+
+        if (request.hasDescription() && !Arrays.equals(hash, owner.hash()) && duplicateService.isDuplicate(DuplicateService.CONTRIBUTIONS, hash)) {
+            throw new DuplicateKeyException("Duplicate contribution");
+        }
+
+        jdbcTemplate.update(UPDATE_CONTRIBUTION, request.getPrevious(), request.getComment(), request.getSources(), hash, request.getObjectType(), id);
+        duplicateService.add(DuplicateService.CONTRIBUTIONS, hash);
+    }
+
+    /**
+     * Delete a contribution
+     * @param id Contribution id
+     * @param user User asking for the deletion
+     * @throws MissingResourceException Contribution not found
+     * @throws AuthorizationDeniedException Contribution of another user, or already validated, deleted by a contributor
+     * @throws IllegalArgumentException Contribution still referenced by map data or by another contribution
+     * @throws DataAccessException Error while deleting the contribution
+     */
+    public void deleteContribution(int id, User user) throws MissingResourceException, AuthorizationDeniedException, IllegalArgumentException, DataAccessException {
+        this.checkOwner(id, user);
+
+        try {
+            jdbcTemplate.update(DELETE_CONTRIBUTION, id);
+        }
+        catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("Contribution is still in use");
+        }
+    }
+
+    /**
+     * Validate a pending contribution.
+     * Map data is read whatever the status of its contribution, so nothing cached depends on it.
+     * @param id Contribution id
+     * @throws MissingResourceException Contribution not found
+     * @throws DataAccessException Error while saving the contribution
+     */
+    public void validateContribution(int id) throws MissingResourceException, DataAccessException {
+        if (jdbcTemplate.update(VALIDATE_CONTRIBUTION, id) == 0) {
+            throw new MissingResourceException("Missing contribution", "Contribution", String.valueOf(id));
+        }
+    }
+
+    /**
+     * Check a contribution request and the rows it refers to
+     * @param request Contribution content
+     * @param id Id of the edited contribution, null for a new one
+     * @throws IllegalArgumentException Invalid request, unknown object type or previous contribution
+     * @throws DataAccessException Error while reading the referenced rows
+     */
+    private void check(ContributionRequest request, Integer id) throws IllegalArgumentException, DataAccessException {
+        String error = request.validate();
+
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(TYPE_EXISTS_QUERY, Boolean.class, request.getObjectType()))) {
+            throw new IllegalArgumentException("Unknown object type");
+        }
+
+        if (request.getPrevious() != null && (request.getPrevious().equals(id)
+                || !Boolean.TRUE.equals(jdbcTemplate.queryForObject(CONTRIBUTION_EXISTS_QUERY, Boolean.class, request.getPrevious())))) {
+            throw new IllegalArgumentException("Unknown previous contribution");
+        }
+    }
+
+    /**
+     * Check that a user may change a contribution: administrators may change any, contributors their pending ones
+     * @param id Contribution id
+     * @param user User asking for the change
+     * @return Submitting user, status and current hash of the contribution
+     * @throws MissingResourceException Contribution not found
+     * @throws AuthorizationDeniedException Missing priviledge
+     * @throws DataAccessException Error while reading the contribution
+     */
+    private Owner checkOwner(int id, User user) throws MissingResourceException, AuthorizationDeniedException, DataAccessException {
+        List<Owner> result = jdbcTemplate.query(OWNER_QUERY, (row, number) -> new Owner(
+            row.getInt("id_utilisateur"), row.getBoolean("en_attente"), row.getBytes("hash_column")
+        ), id);
+
+        if (result.isEmpty()) {
+            throw new MissingResourceException("Missing contribution", "Contribution", String.valueOf(id));
+        }
+
+        Owner owner = result.get(0);
+        boolean administrator = user.getAdminLevel() >= User.ADMINISTRATOR_CODE;
+
+        if (!administrator && (owner.userId() != user.getId() || !owner.pending())) {
+            throw new AuthorizationDeniedException("Missing priviledge");
+        }
+
+        return owner;
+    }
+}
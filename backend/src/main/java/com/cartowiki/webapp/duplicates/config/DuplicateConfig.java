@@ -0,0 +1,80 @@
+package com.cartowiki.webapp.duplicates.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Store parameters of the duplicate detection
+ */
+@Configuration
+@ConfigurationProperties(prefix = "duplicates")
+public class DuplicateConfig {
+    private double falsePositiveRate = 0.01;
+    private long minCapacity = 100000;
+    private int fetchSize = 10000;
+    private int queueSize = 64;
+
+    /**
+     * False positive rate getter
+     * @return Share of new hashes needing a database lookup to be confirmed as new
+     */
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    /**
+     * False positive rate setter
+     * @param falsePositiveRate New share of new hashes needing a database lookup to be confirmed as new
+     */
+    public void setFalsePositiveRate(double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Minimum capacity getter
+     * @return Minimum number of hashes a table filter is sized for
+     */
+    public long getMinCapacity() {
+        return minCapacity;
+    }
+
+    /**
+     * Minimum capacity setter
+     * @param minCapacity New minimum number of hashes a table filter is sized for
+     */
+    public void setMinCapacity(long minCapacity) {
+        this.minCapacity = minCapacity;
+    }
+
+    /**
+     * Fetch size getter
+     * @return Number of hashes read at once while loading a table
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Fetch size setter
+     * @param fetchSize New number of hashes read at once while loading a table
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Queue size getter
+     * @return Maximum number of table loads waiting
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Queue size setter
+     * @param queueSize New maximum number of table loads waiting
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+}
@@ -0,0 +1,74 @@
+package com.cartowiki.webapp.duplicates.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cartowiki.webapp.duplicates.service.DuplicateService;
+import com.cartowiki.webapp.util.ResponseMaker;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * Duplicate detection monitoring
+ */
+@RestController
+@RequestMapping("/admin/duplicates")
+@Tag(name = "Duplicate detection (admin and superadmin only)")
+public class DuplicateAdminController {
+    private DuplicateService service;
+
+    /**
+     * Autowired constructor
+     * @param service Duplicate detection
+     */
+    @Autowired
+    public DuplicateAdminController(DuplicateService service) {
+        this.service = service;
+    }
+
+    /**
+     * Return the counters of the duplicate detection
+     * @return Response
+     */
+    @GetMapping
+    @Operation(
+        summary = "Retrieve duplicate detection statistics",
+        description = "Return the size of the hash filter of each table, the number of checks, and how many of them needed a database lookup",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Duplicate detection counters",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": {\"filters\": {\"contributions\": {\"hashes\": 120000, \"capacity\": 240000, \"bits\": 2300160, \"hashFunctions\": 7}}, " +
+                            "\"checks\": 20000, \"lookups\": 215, \"duplicates\": 12, \"pendingLoads\": 0}}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getStats() {
+        return ResponseMaker.singleValueResponse(ResponseMaker.DATA, service.getStats(), HttpStatus.OK);
+    }
+}
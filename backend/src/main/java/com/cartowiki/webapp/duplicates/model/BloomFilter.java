@@ -0,0 +1,148 @@
+package com.cartowiki.webapp.duplicates.model;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Set of hashes answering "maybe present" or "surely absent", in a fixed amount of memory.
+ * Keys are SHA-256 hashes, whose bytes are already uniformly distributed: bit positions are derived from them
+ * by double hashing instead of hashing them again. Adding and checking keys is safe from several threads.
+ */
+public class BloomFilter {
+    private static final int MIN_KEY_LENGTH = 16;
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long capacity;
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * Constructor with arguments
+     * @param capacity Number of keys the filter is sized for
+     * @param falsePositiveRate Probability of a false "maybe present" once the filter holds its capacity
+     * @throws IllegalArgumentException Capacity not positive, or rate not between 0 and 1
+     */
+    public BloomFilter(long capacity, double falsePositiveRate) throws IllegalArgumentException {
+        if (capacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter size");
+        }
+
+        // Optimal sizes: m = -n ln(p) / ln(2)^2 bits and k = m / n ln(2) hash functions
+        long words = Math.max(1, (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)) / Long.SIZE));
+
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid Bloom filter size");
+        }
+
+        this.bits = new AtomicLongArray((int) words);
+        this.bitCount = words * Long.SIZE;
+        this.capacity = capacity;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+    }
+
+    /**
+     * Add a key
+     * @param key Hash to add
+     */
+    public void add(byte[] key) {
+        ByteBuffer buffer = ByteBuffer.wrap(digest(key));
+        long h1 = buffer.getLong();
+        long h2 = buffer.getLong() | 1;
+
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+
+            long old = bits.get(word);
+            while ((old & mask) == 0 && !bits.compareAndSet(word, old, old | mask)) {
+                old = bits.get(word);
+            }
+        }
+
+        size.incrementAndGet();
+    }
+
+    /**
+     * Check whether a key may have been added
+     * @param key Hash to check
+     * @return False if the key was surely never added, true if it may have been
+     */
+    public boolean mightContain(byte[] key) {
+        ByteBuffer buffer = ByteBuffer.wrap(digest(key));
+        long h1 = buffer.getLong();
+        long h2 = buffer.getLong() | 1;
+
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Return the key bytes used for bit positions, hashing keys too short to be hashes themselves
+     * @param key Key
+     * @return At least 16 uniformly distributed bytes
+     */
+    private static byte[] digest(byte[] key) {
+        if (key.length >= MIN_KEY_LENGTH) {
+            return key;
+        }
+
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(key);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Check whether more keys were added than the filter is sized for, its false positive rate growing beyond the expected one
+     * @return True if the filter should be rebuilt larger
+     */
+    public boolean isFull() {
+        return size.get() > capacity;
+    }
+
+    /**
+     * Size getter
+     * @return Number of keys added (counting keys added twice twice)
+     */
+    public long getSize() {
+        return size.get();
+    }
+
+    /**
+     * Capacity getter
+     * @return Number of keys the filter is sized for
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Hash count getter
+     * @return Number of bits set per key
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * Bit count getter
+     * @return Size of the filter, in bits
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+}
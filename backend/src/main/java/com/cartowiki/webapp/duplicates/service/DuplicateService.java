@@ -0,0 +1,358 @@
+package com.cartowiki.webapp.duplicates.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cartowiki.webapp.duplicates.config.DuplicateConfig;
+import com.cartowiki.webapp.duplicates.model.BloomFilter;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Find whether a row with the same content already exists, from the SHA-256 hash_column of the data tables.
+ * Each table has a Bloom filter of its hashes, loaded in the background at startup by a streamed scan and updated
+ * on every insert: most new hashes are known to be new without querying the database, and the others are confirmed
+ * by an index lookup. Until the filter of a table is loaded, every check is an index lookup.
+ */
+@Service
+public class DuplicateService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DuplicateService.class);
+
+    public static final String CONTRIBUTIONS = "contributions";
+
+    public static final List<String> TABLES = List.of(
+        CONTRIBUTIONS, "metadonnees", "periodes",
+        "entites_villes", "noms_villes", "ville", "existence_ville", "populations_villes",
+        "entites_pays", "noms_pays", "pays", "geometrie_pays", "populations_pays",
+        "capitales", "pays_ville"
+    );
+
+    // Built without locking the table against writes, outside of any transaction; a build interrupted by a failure
+    // leaves an invalid index, which is dropped so that it is built again
+    private static final String INVALID_INDEX_QUERY = "SELECT EXISTS (SELECT 1 FROM pg_index WHERE indexrelid = to_regclass(?) AND NOT indisvalid)";
+    private static final String DROP_INDEX = "DROP INDEX CONCURRENTLY IF EXISTS %s_hash_column";
+    private static final String CREATE_INDEX = "CREATE INDEX CONCURRENTLY IF NOT EXISTS %1$s_hash_column ON %1$s (hash_column)";
+    private static final String ESTIMATE_QUERY = "SELECT GREATEST(reltuples, 0)::bigint FROM pg_class WHERE oid = ?::regclass";
+    private static final String HASHES_QUERY = "SELECT hash_column FROM %s WHERE hash_column IS NOT NULL";
+    private static final String EXISTS_QUERY = "SELECT EXISTS (SELECT 1 FROM %s WHERE hash_column = ?)";
+
+    private DuplicateConfig config;
+    private JdbcTemplate jdbcTemplate;
+    private JdbcTemplate streamingTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    // Loaded filters by table, and filters being loaded, which also get the hashes inserted meanwhile
+    private final Map<String, BloomFilter> filters;
+    private final Map<String, BloomFilter> loading;
+
+    // Incremented when a load starts, so that inserts racing with it can be detected
+    private final AtomicLong loads = new AtomicLong();
+
+    // Tables whose load is queued or running
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor loader;
+
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+
+    /**
+     * Autowired constructor
+     * @param config Duplicate detection parameters
+     * @param dataSource Database connections
+     * @param transactionManager Transactions (the PostgreSQL driver only streams rows inside a transaction)
+     */
+    @Autowired
+    public DuplicateService(DuplicateConfig config, DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this(config, dataSource, transactionManager, new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Constructor with the maps of filters
+     * @param config Duplicate detection parameters
+     * @param dataSource Database connections
+     * @param transactionManager Transactions (the PostgreSQL driver only streams rows inside a transaction)
+     * @param filters Empty concurrent map of the loaded filters
+     * @param loading Empty concurrent map of the filters being loaded
+     */
+    DuplicateService(DuplicateConfig config, DataSource dataSource, PlatformTransactionManager transactionManager,
+                     Map<String, BloomFilter> filters, Map<String, BloomFilter> loading) {
+        this.config = config;
+        this.filters = filters;
+        this.loading = loading;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+
+        this.streamingTemplate = new JdbcTemplate(dataSource);
+        this.streamingTemplate.setFetchSize(config.getFetchSize());
+
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+
+        // Single background loader, dropping loads when too far behind (checks are still answered by the database)
+        this.loader = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(config.getQueueSize()),
+                                             (task, executor) -> pending.remove(((LoadTask) task).table));
+    }
+
+    /**
+     * Load the filters of all tables in the background once the application is ready
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (String table: TABLES) {
+            this.queueLoad(table, 0);
+        }
+    }
+
+    /**
+     * Check whether a table already has a row with a hash
+     * @param table Table name, one of TABLES
+     * @param hash SHA-256 hash of the row content
+     * @return True if a row has the same hash
+     * @throws IllegalArgumentException Table without hashes
+     * @throws DataAccessException Error while confirming the hash in the database
+     */
+    public boolean isDuplicate(String table, byte[] hash) throws IllegalArgumentException, DataAccessException {
+        if (!TABLES.contains(table)) {
+            throw new IllegalArgumentException("Table without hashes");
+        }
+
+        checks.incrementAndGet();
+        BloomFilter filter = filters.get(table);
+
+        if (filter != null && !filter.mightContain(hash)) {
+            return false;
+        }
+
+        lookups.incrementAndGet();
+        boolean duplicate = Boolean.TRUE.equals(jdbcTemplate.queryForObject(EXISTS_QUERY.formatted(table), Boolean.class, (Object) hash));
+
+        if (duplicate) {
+            duplicates.incrementAndGet();
+        }
+
+        return duplicate;
+    }
+
+    /**
+     * Add the hash of an inserted row, before or after its transaction commits (a rolled back row only costs a lookup)
+     * @param table Table name, one of TABLES
+     * @param hash SHA-256 hash of the row content, may be null
+     */
+    public void add(String table, byte[] hash) {
+        if (hash == null) {
+            return;
+        }
+
+        // Read in the opposite order of publish, so that a load finishing meanwhile is seen in one of the maps
+        BloomFilter next = loading.get(table);
+        BloomFilter filter = filters.get(table);
+
+        if (filter != null) {
+            filter.add(hash);
+
+            // Past its capacity the filter answers "maybe" too often, and is loaded again larger
+            if (filter.isFull()) {
+                this.queueLoad(table, 2 * filter.getSize());
+            }
+        }
+
+        if (next != null && next != filter) {
+            next.add(hash);
+        }
+    }
+
+    /**
+     * Use a loaded filter, unless a racing insert dropped it meanwhile.
+     * It is put in the loaded filters before leaving the loading map, so that a concurrent add always finds it in one of them.
+     * @param table Table name
+     * @param filter Filter built by the load
+     * @return True if the filter is used
+     */
+    boolean publish(String table, BloomFilter filter) {
+        filters.put(table, filter);
+        boolean published = loading.remove(table, filter);
+
+        if (!published) {
+            filters.remove(table, filter);
+        }
+
+        return published;
+    }
+
+    /**
+     * Return the number of loads started, to read before the first insert of a transaction
+     * @return Load counter
+     */
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    /**
+     * Make sure that the hashes added by a committed transaction are in the filters.
+     * A load started while the transaction was running may have scanned the tables without its rows, and added
+     * its hashes too early: the filters are then dropped, lookups going to the database until they are loaded again.
+     * @param loadCount Load counter read before the first insert of the transaction
+     */
+    public void afterCommit(long loadCount) {
+        if (loads.get() != loadCount) {
+            // Removed from the loading map first: a load finishing meanwhile either fails to leave it, or has already
+            // published its filter, which is then removed here
+            for (String table: TABLES) {
+                loading.remove(table);
+                filters.remove(table);
+                this.queueLoad(table, 0);
+            }
+        }
+    }
+
+    /**
+     * Load the filter of a table in the background, unless already queued
+     * @param table Table name
+     * @param capacity Expected number of hashes, 0 for an estimate from the table statistics
+     */
+    private void queueLoad(String table, long capacity) {
+        if (pending.add(table)) {
+            loader.execute(new LoadTask(table, capacity));
+        }
+    }
+
+    /**
+     * Background load of the filter of a table
+     */
+    private final class LoadTask implements Runnable {
+        private final String table;
+        private final long capacity;
+
+        /**
+         * Constructor with arguments
+         * @param table Table name
+         * @param capacity Expected number of hashes, 0 for an estimate from the table statistics
+         */
+        private LoadTask(String table, long capacity) {
+            this.table = table;
+            this.capacity = capacity;
+        }
+
+        /**
+         * Build the filter from a scan of the table, and use it unless a racing insert dropped it meanwhile
+         */
+        @Override
+        public void run() {
+            BloomFilter filter = null;
+
+            try {
+                filter = DuplicateService.this.build(table, capacity);
+
+                if (DuplicateService.this.publish(table, filter)) {
+                    LOGGER.info("Loaded {} hashes of {}", filter.getSize(), table);
+                }
+            }
+            catch (DataAccessException | TransactionException e) {
+                loading.remove(table);
+                LOGGER.warn("Unable to load the hashes of {}", table, e);
+            }
+            finally {
+                pending.remove(table);
+            }
+
+            // A dropped filter is loaded again, and statistics may be far behind the actual size of the table
+            if (filter != null && filters.get(table) != filter) {
+                DuplicateService.this.queueLoad(table, capacity);
+            }
+            else if (filter != null && filter.isFull()) {
+                DuplicateService.this.queueLoad(table, 2 * filter.getSize());
+            }
+        }
+    }
+
+    /**
+     * Create the hash index of a table if missing, and load its hashes
+     * @param table Table name
+     * @param capacity Expected number of hashes, 0 for an estimate from the table statistics
+     * @return Filter of the hashes
+     * @throws DataAccessException Error while reading the hashes
+     * @throws TransactionException Error while opening the read transaction
+     */
+    private BloomFilter build(String table, long capacity) throws DataAccessException, TransactionException {
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(INVALID_INDEX_QUERY, Boolean.class, table + "_hash_column"))) {
+            jdbcTemplate.execute(DROP_INDEX.formatted(table));
+        }
+
+        jdbcTemplate.execute(CREATE_INDEX.formatted(table));
+
+        if (capacity == 0) {
+            Long estimate = jdbcTemplate.queryForObject(ESTIMATE_QUERY, Long.class, table);
+            capacity = 2 * (estimate == null ? 0 : estimate);
+        }
+
+        BloomFilter filter = new BloomFilter(Math.max(config.getMinCapacity(), capacity), config.getFalsePositiveRate());
+
+        // Registered before the scan starts, so that rows committed after its snapshot are added by their inserts
+        loading.put(table, filter);
+        loads.incrementAndGet();
+
+        transactionTemplate.executeWithoutResult(transaction -> {
+            streamingTemplate.query(HASHES_QUERY.formatted(table), row -> {
+                filter.add(row.getBytes(1));
+            });
+        });
+
+        return filter;
+    }
+
+    /**
+     * Return the duplicate detection counters for converting to JSON
+     * @return Map of counters
+     */
+    public HashMap<String, Object> getStats() {
+        HashMap<String, Object> map = new HashMap<>();
+        TreeMap<String, Object> tables = new TreeMap<>();
+
+        for (Map.Entry<String, BloomFilter> filter: filters.entrySet()) {
+            HashMap<String, Object> table = new HashMap<>();
+            table.put("hashes", filter.getValue().getSize());
+            table.put("capacity", filter.getValue().getCapacity());
+            table.put("bits", filter.getValue().getBitCount());
+            table.put("hashFunctions", filter.getValue().getHashCount());
+            tables.put(filter.getKey(), table);
+        }
+
+        map.put("filters", tables);
+        map.put("checks", checks.get());
+        map.put("lookups", lookups.get());
+        map.put("duplicates", duplicates.get());
+        map.put("pendingLoads", pending.size());
+
+        return map;
+    }
+
+    /**
+     * Stop the background loader on shutdown
+     */
+    @PreDestroy
+    public void stop() {
+        loader.shutdownNow();
+    }
+}
@@ -0,0 +1,63 @@
+package com.cartowiki.webapp.export.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Store parameters of the dataset exports
+ */
+@Configuration
+@ConfigurationProperties(prefix = "export")
+public class ExportConfig {
+    private String directory;
+    private int fetchSize = 1000;
+    private int queueSize = 4;
+
+    /**
+     * Directory getter
+     * @return Directory of the export files
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Directory setter
+     * @param directory New directory of the export files
+     */
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Fetch size getter
+     * @return Number of rows read from the database at once
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Fetch size setter
+     * @param fetchSize New number of rows read from the database at once
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Queue size getter
+     * @return Maximum number of exports waiting for the running one
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Queue size setter
+     * @param queueSize New maximum number of exports waiting for the running one
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+}
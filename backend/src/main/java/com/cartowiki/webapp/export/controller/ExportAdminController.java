@@ -0,0 +1,321 @@
+package com.cartowiki.webapp.export.controller;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.MissingResourceException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cartowiki.webapp.export.model.ExportJob;
+import com.cartowiki.webapp.export.service.ExportService;
+import com.cartowiki.webapp.util.ResponseMaker;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * Exports of the whole dataset
+ */
+@RestController
+@RequestMapping("/admin/export")
+@Tag(name = "Dataset export (admin and superadmin only)")
+public class ExportAdminController {
+    private static final String NDJSON = "application/x-ndjson";
+
+    private ExportService service;
+
+    /**
+     * Autowired constructor
+     * @param service Dataset exports
+     */
+    @Autowired
+    public ExportAdminController(ExportService service) {
+        this.service = service;
+    }
+
+    /**
+     * Start an export of the whole dataset
+     * @param format Output format
+     * @return Response
+     */
+    @PostMapping
+    @Operation(
+        summary = "Start a dataset export",
+        description = "Write all periods, countries, cities, names, populations and metadata to a file in the background, one JSON object per row: {\"table\": ..., \"row\": {...}}. " +
+                      "Geometries are written as GeoJSON. Exports run one at a time, and are lost on restart.",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "202",
+            description = "Export successfully queued",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": {\"id\": 1, \"status\": \"QUEUED\", \"format\": \"ndjson\", \"table\": null, \"rows\": 0, \"createdAt\": \"2025-01-10T08:00:00Z\", \"updatedAt\": \"2025-01-10T08:00:00Z\"}}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid format, or too many exports waiting",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Invalid format\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> startExport(@RequestParam(name = "format", defaultValue = ExportJob.NDJSON) @Parameter(name = "format", description = "Output format", example = "ndjson") String format) {
+        ResponseEntity<Object> response;
+
+        try {
+            ExportJob job = service.startJob(format);
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, service.getProgress(job), HttpStatus.ACCEPTED);
+        }
+        catch (IllegalArgumentException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+
+        return response;
+    }
+
+    /**
+     * Return the progress of all exports
+     * @return Response
+     */
+    @GetMapping
+    @Operation(
+        summary = "Retrieve all dataset exports",
+        description = "Return the progress of all exports since the last restart",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "List of exports",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": [{\"id\": 1, \"status\": \"COMPLETED\", \"format\": \"ndjson\", \"table\": \"capitales\", \"rows\": 2450000, \"bytes\": 1073741824, \"createdAt\": \"2025-01-10T08:00:00Z\", \"updatedAt\": \"2025-01-10T08:06:30Z\"}]}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getExports() {
+        List<HashMap<String, Object>> jobs = new ArrayList<>();
+
+        for (ExportJob job: service.getJobs()) {
+            jobs.add(service.getProgress(job));
+        }
+
+        return ResponseMaker.singleValueResponse(ResponseMaker.DATA, jobs, HttpStatus.OK);
+    }
+
+    /**
+     * Return the progress of an export
+     * @param id Job id
+     * @return Response
+     */
+    @GetMapping("/{id}")
+    @Operation(
+        summary = "Retrieve a dataset export",
+        description = "Return the status, the table being written and the number of rows written of an export",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Export progress",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": {\"id\": 1, \"status\": \"RUNNING\", \"format\": \"ndjson\", \"table\": \"geometrie_pays\", \"rows\": 120000, \"createdAt\": \"2025-01-10T08:00:00Z\", \"updatedAt\": \"2025-01-10T08:01:12Z\"}}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Export is not found",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Missing job\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getExport(@PathVariable("id") @Parameter(name = "id", description = "Job id", example = "1") int id) {
+        ResponseEntity<Object> response;
+
+        try {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, service.getProgress(service.getJob(id)), HttpStatus.OK);
+        }
+        catch (MissingResourceException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+
+        return response;
+    }
+
+    /**
+     * Download the file of a completed export
+     * @param id Job id
+     * @return Response
+     */
+    @GetMapping("/{id}/file")
+    @Operation(
+        summary = "Download a dataset export",
+        description = "Send the file of a completed export. Range requests are supported, so that interrupted downloads can be resumed.",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Whole file",
+            content = @Content(mediaType = NDJSON)
+        ),
+        @ApiResponse(
+            responseCode = "206",
+            description = "Requested ranges of the file",
+            content = @Content(mediaType = NDJSON)
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Export is not completed",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Export is not completed\"}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Export is not found, or its file expired",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Missing job\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getExportFile(@PathVariable("id") @Parameter(name = "id", description = "Job id", example = "1") int id) {
+        ResponseEntity<Object> response;
+
+        try {
+            Path file = service.getFile(id);
+
+            // Spring answers Range requests itself for file resources
+            response = ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(NDJSON))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(file.getFileName().toString()).build().toString())
+                    .body(new FileSystemResource(file));
+        }
+        catch (IllegalArgumentException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        catch (MissingResourceException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+
+        return response;
+    }
+
+    /**
+     * Cancel an export, and remove it with its file
+     * @param id Job id
+     * @return Response
+     */
+    @DeleteMapping("/{id}")
+    @Operation(
+        summary = "Remove a dataset export",
+        description = "Stop a queued or running export, or remove the file of a finished one",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Export successfully removed",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": {\"id\": 1, \"status\": \"CANCELLED\", \"format\": \"ndjson\", \"table\": \"ville\", \"rows\": 410000, \"createdAt\": \"2025-01-10T08:00:00Z\", \"updatedAt\": \"2025-01-10T08:03:00Z\"}}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Export is not found",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Missing job\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> deleteExport(@PathVariable("id") @Parameter(name = "id", description = "Job id", example = "1") int id) {
+        ResponseEntity<Object> response;
+
+        try {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, service.getProgress(service.deleteJob(id)), HttpStatus.OK);
+        }
+        catch (MissingResourceException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+
+        return response;
+    }
+}
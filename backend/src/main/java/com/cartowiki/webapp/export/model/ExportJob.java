@@ -0,0 +1,142 @@
+package com.cartowiki.webapp.export.model;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Export of the whole dataset to a file, written in the background.
+ * Jobs only live in memory: after a restart, the files of previous exports are removed.
+ */
+public class ExportJob {
+    public static final String NDJSON = "ndjson";
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+    public static final String CANCELLED = "CANCELLED";
+    public static final String EXPIRED = "EXPIRED";
+
+    private final int id;
+    private final String format;
+    private final Path path;
+    private final Instant createdAt;
+
+    private volatile String status = QUEUED;
+    private volatile String table;
+    private volatile long rows;
+    private volatile Instant updatedAt;
+
+    /**
+     * Constructor with arguments for a new queued job
+     * @param id Job id
+     * @param format Output format
+     * @param path File the dataset is written to
+     */
+    public ExportJob(int id, String format, Path path) {
+        this.id = id;
+        this.format = format;
+        this.path = path;
+        this.createdAt = Instant.now();
+        this.updatedAt = createdAt;
+    }
+
+    /**
+     * Check whether the job will not write anymore
+     * @return True if completed, failed, cancelled or expired
+     */
+    public boolean isFinished() {
+        return COMPLETED.equals(status) || FAILED.equals(status) || CANCELLED.equals(status) || EXPIRED.equals(status);
+    }
+
+    /**
+     * Record that a table is being written
+     * @param table Name of the table
+     */
+    public void startTable(String table) {
+        this.table = table;
+        this.updatedAt = Instant.now();
+    }
+
+    /**
+     * Record that rows were written, only called by the thread writing the file
+     * @param count Number of rows
+     */
+    public void addRows(long count) {
+        this.rows += count;
+        this.updatedAt = Instant.now();
+    }
+
+    /**
+     * Id getter
+     * @return Job id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Format getter
+     * @return Output format
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Path getter
+     * @return File the dataset is written to
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Creation date getter
+     * @return Date the job was asked
+     */
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Status getter
+     * @return Job status
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * Status setter
+     * @param status New job status
+     */
+    public void setStatus(String status) {
+        this.status = status;
+        this.updatedAt = Instant.now();
+    }
+
+    /**
+     * Table getter
+     * @return Name of the table being written, or last written
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Rows getter
+     * @return Number of rows written
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Update date getter
+     * @return Date of the last progress
+     */
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,398 @@
+package com.cartowiki.webapp.export.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cartowiki.webapp.export.config.ExportConfig;
+import com.cartowiki.webapp.export.model.ExportJob;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Export the whole historical dataset as newline-delimited JSON, one line per row: {"table": ..., "row": {...}}.
+ * Tables are read through server-side cursors and written straight to a file, so memory use does not depend on
+ * the size of the dataset. Exports run one at a time in the background.
+ */
+@Service
+public class ExportService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportService.class);
+
+    private static final String EXTENSION = ".ndjson";
+
+    // Exported tables, referenced ones first, with their geometry column written as GeoJSON
+    private static final Map<String, String> TABLES = new LinkedHashMap<>();
+
+    static {
+        TABLES.put("periodes", null);
+        TABLES.put("metadonnees", null);
+        TABLES.put("entites_pays", null);
+        TABLES.put("noms_pays", null);
+        TABLES.put("pays", null);
+        TABLES.put("geometrie_pays", "geometrie");
+        TABLES.put("populations_pays", null);
+        TABLES.put("entites_villes", "position_ville");
+        TABLES.put("noms_villes", null);
+        TABLES.put("ville", null);
+        TABLES.put("existence_ville", null);
+        TABLES.put("populations_villes", null);
+        TABLES.put("pays_ville", null);
+        TABLES.put("capitales", null);
+    }
+
+    // Integrity hashes are internal, geometries would be written as hexadecimal EWKB without the override
+    private static final String ROWS_QUERY = "SELECT (to_jsonb(t) - 'hash_column'%2$s)::text FROM %1$s AS t";
+    private static final String GEOMETRY_OVERRIDE = " || jsonb_build_object('%1$s', ST_AsGeoJSON(t.%1$s)::jsonb)";
+
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    private Path directory;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private ObjectMapper objectMapper;
+
+    private final ThreadPoolExecutor exporter;
+    private final AtomicInteger lastId = new AtomicInteger();
+    private final Map<Integer, ExportJob> jobs = new ConcurrentSkipListMap<>();
+
+    /**
+     * Autowired constructor
+     * @param config Export parameters
+     * @param dataSource Database connections
+     * @param transactionManager Transactions (the PostgreSQL driver only streams rows inside a transaction)
+     * @param objectMapper JSON converter
+     */
+    @Autowired
+    public ExportService(ExportConfig config, DataSource dataSource, PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+        this.directory = Paths.get(config.getDirectory());
+
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(config.getFetchSize());
+
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+
+        this.objectMapper = objectMapper;
+
+        // Single background exporter, refusing new exports when too many are waiting
+        this.exporter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(config.getQueueSize()));
+    }
+
+    /**
+     * Remove the files of the exports made before the last restart, whose jobs are lost
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void clean() {
+        try (Stream<Path> files = Files.exists(directory) ? Files.list(directory) : Stream.empty()) {
+            files.filter(path -> path.getFileName().toString().endsWith(EXTENSION)).forEach(ExportService::deleteQuietly);
+        }
+        catch (IOException e) {
+            LOGGER.warn("Unable to remove previous exports from {}", directory, e);
+        }
+    }
+
+    /**
+     * Queue an export of the whole dataset
+     * @param format Output format
+     * @return Queued job
+     * @throws IllegalArgumentException Unknown format, or too many exports waiting
+     */
+    public ExportJob startJob(String format) throws IllegalArgumentException {
+        if (!ExportJob.NDJSON.equals(format)) {
+            throw new IllegalArgumentException("Invalid format");
+        }
+
+        int id = lastId.incrementAndGet();
+        ExportJob job = new ExportJob(id, format, directory.resolve("export-" + id + EXTENSION));
+
+        jobs.put(id, job);
+
+        try {
+            exporter.execute(new ExportTask(job));
+        }
+        catch (RejectedExecutionException e) {
+            jobs.remove(id);
+            throw new IllegalArgumentException("Too many exports waiting");
+        }
+
+        return job;
+    }
+
+    /**
+     * Return a job
+     * @param id Job id
+     * @return Job
+     * @throws MissingResourceException Job not found
+     */
+    public ExportJob getJob(int id) throws MissingResourceException {
+        ExportJob job = jobs.get(id);
+
+        if (job == null) {
+            throw new MissingResourceException("Missing job", "ExportJob", String.valueOf(id));
+        }
+
+        return checkFile(job);
+    }
+
+    /**
+     * Return all jobs
+     * @return List of jobs, oldest first
+     */
+    public List<ExportJob> getJobs() {
+        List<ExportJob> list = new ArrayList<>();
+
+        for (ExportJob job: jobs.values()) {
+            list.add(checkFile(job));
+        }
+
+        return list;
+    }
+
+    /**
+     * Mark a completed job as expired if its file was removed meanwhile from the export directory
+     * @param job Job
+     * @return Same job
+     */
+    private static ExportJob checkFile(ExportJob job) {
+        synchronized (job) {
+            if (ExportJob.COMPLETED.equals(job.getStatus()) && !Files.exists(job.getPath())) {
+                job.setStatus(ExportJob.EXPIRED);
+            }
+        }
+
+        return job;
+    }
+
+    /**
+     * Return the file of a completed job
+     * @param id Job id
+     * @return File of the export
+     * @throws MissingResourceException Job not found, or its file was removed
+     * @throws IllegalArgumentException Job not completed
+     */
+    public Path getFile(int id) throws MissingResourceException, IllegalArgumentException {
+        ExportJob job = this.getJob(id);
+
+        if (ExportJob.EXPIRED.equals(job.getStatus())) {
+            throw new MissingResourceException("Export file expired", "ExportJob", String.valueOf(id));
+        }
+        else if (!ExportJob.COMPLETED.equals(job.getStatus())) {
+            throw new IllegalArgumentException("Export is not completed");
+        }
+
+        return job.getPath();
+    }
+
+    /**
+     * Cancel a job if it is not finished, then remove it with its file
+     * @param id Job id
+     * @return Removed job
+     * @throws MissingResourceException Job not found
+     */
+    public ExportJob deleteJob(int id) throws MissingResourceException {
+        ExportJob job = this.getJob(id);
+
+        synchronized (job) {
+            if (!job.isFinished()) {
+                // The writing thread stops at its next row and removes the file itself
+                job.setStatus(ExportJob.CANCELLED);
+            }
+            else {
+                deleteQuietly(job.getPath());
+            }
+        }
+
+        jobs.remove(id);
+
+        return job;
+    }
+
+    /**
+     * Return the progress of a job for converting to JSON
+     * @param job Job
+     * @return Map of values
+     */
+    public HashMap<String, Object> getProgress(ExportJob job) {
+        HashMap<String, Object> map = new HashMap<>();
+
+        map.put("id", job.getId());
+        map.put("status", job.getStatus());
+        map.put("format", job.getFormat());
+        map.put("table", job.getTable());
+        map.put("rows", job.getRows());
+        map.put("createdAt", job.getCreatedAt().toString());
+        map.put("updatedAt", job.getUpdatedAt().toString());
+
+        if (ExportJob.COMPLETED.equals(job.getStatus())) {
+            try {
+                map.put("bytes", Files.size(job.getPath()));
+            }
+            catch (IOException e) {
+                map.put("bytes", null);
+            }
+        }
+
+        return map;
+    }
+
+    /**
+     * Background export of the dataset
+     */
+    private final class ExportTask implements Runnable {
+        private final ExportJob job;
+
+        /**
+         * Constructor with arguments
+         * @param job Job to run
+         */
+        private ExportTask(ExportJob job) {
+            this.job = job;
+        }
+
+        /**
+         * Write all tables to the file of the job, in a single read-only transaction so that tables are consistent
+         */
+        @Override
+        public void run() {
+            synchronized (job) {
+                if (job.isFinished()) {
+                    return;
+                }
+
+                job.setStatus(ExportJob.RUNNING);
+            }
+
+            String status = ExportJob.FAILED;
+
+            try {
+                Files.createDirectories(directory);
+
+                try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(job.getPath()), 64 * 1024);
+                     JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+                    generator.setRootValueSeparator(new SerializedString("\n"));
+
+                    transactionTemplate.executeWithoutResult(transaction -> {
+                        for (Map.Entry<String, String> table: TABLES.entrySet()) {
+                            ExportService.this.writeTable(job, generator, table.getKey(), table.getValue());
+                        }
+                    });
+
+                    generator.writeRaw('\n');
+                }
+
+                status = ExportJob.COMPLETED;
+            }
+            catch (CancellationException e) {
+                status = ExportJob.CANCELLED;
+            }
+            catch (IOException | UncheckedIOException | DataAccessException | TransactionException e) {
+                LOGGER.error("Unable to export the dataset to {}", job.getPath(), e);
+            }
+            finally {
+                synchronized (job) {
+                    if (ExportJob.CANCELLED.equals(job.getStatus()) || !ExportJob.COMPLETED.equals(status)) {
+                        deleteQuietly(job.getPath());
+                    }
+
+                    if (!job.isFinished()) {
+                        job.setStatus(status);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Write all rows of a table, from inside the export transaction
+     * @param job Running job
+     * @param generator JSON writer
+     * @param table Name of the table
+     * @param geometryColumn Name of the geometry column, null if none
+     * @throws CancellationException Job cancelled meanwhile
+     */
+    private void writeTable(ExportJob job, JsonGenerator generator, String table, String geometryColumn) throws CancellationException {
+        String query = ROWS_QUERY.formatted(table, geometryColumn == null ? "" : GEOMETRY_OVERRIDE.formatted(geometryColumn));
+        long[] written = {0};
+
+        job.startTable(table);
+
+        jdbcTemplate.query(query, row -> {
+            if (written[0] % PROGRESS_INTERVAL == 0 && ExportJob.CANCELLED.equals(job.getStatus())) {
+                throw new CancellationException();
+            }
+
+            try {
+                generator.writeStartObject();
+                generator.writeStringField("table", table);
+                generator.writeFieldName("row");
+                generator.writeRawValue(row.getString(1));
+                generator.writeEndObject();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            if (++written[0] % PROGRESS_INTERVAL == 0) {
+                job.addRows(PROGRESS_INTERVAL);
+            }
+        });
+
+        job.addRows(written[0] % PROGRESS_INTERVAL);
+    }
+
+    /**
+     * Delete a file, ignoring errors
+     * @param path File
+     */
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        }
+        catch (IOException e) {
+            LOGGER.warn("Unable to delete {}", path, e);
+        }
+    }
+
+    /**
+     * Stop the background exporter on shutdown
+     */
+    @PreDestroy
+    public void stop() {
+        exporter.shutdownNow();
+    }
+}
@@ -0,0 +1,63 @@
+package com.cartowiki.webapp.imports.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Store parameters of the bulk imports
+ */
+@Configuration
+@ConfigurationProperties(prefix = "import")
+public class ImportConfig {
+    private int batchSize = 1000;
+    private int workers = 4;
+    private int maxErrors = 100;
+
+    /**
+     * Batch size getter
+     * @return Number of records validated by a worker at once
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Batch size setter
+     * @param batchSize New number of records validated by a worker at once
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Workers getter
+     * @return Number of threads validating records
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Workers setter
+     * @param workers New number of threads validating records
+     */
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * Maximum errors getter
+     * @return Maximum number of invalid records described in a report
+     */
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    /**
+     * Maximum errors setter
+     * @param maxErrors New maximum number of invalid records described in a report
+     */
+    public void setMaxErrors(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+}
@@ -0,0 +1,133 @@
+package com.cartowiki.webapp.imports.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cartowiki.webapp.imports.model.ImportReport;
+import com.cartowiki.webapp.imports.service.CsvImportReader;
+import com.cartowiki.webapp.imports.service.GeoJsonImportReader;
+import com.cartowiki.webapp.imports.service.ImportService;
+import com.cartowiki.webapp.users.model.User;
+import com.cartowiki.webapp.util.ResponseMaker;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * Bulk imports of cities and countries
+ */
+@RestController
+@RequestMapping("/admin/import")
+@Tag(name = "Bulk import (admin and superadmin only)")
+public class ImportAdminController {
+    private ImportService service;
+
+    /**
+     * Autowired constructor
+     * @param service Bulk imports
+     */
+    @Autowired
+    public ImportAdminController(ImportService service) {
+        this.service = service;
+    }
+
+    /**
+     * Import all cities and countries of a file
+     * @param contentType Media type of the file
+     * @param sources Sources of the imported data
+     * @param input Content of the file
+     * @param authentication Current user's authentication
+     * @return Response
+     */
+    @PostMapping
+    @Operation(
+        summary = "Import cities and countries",
+        description = "Add every city and country of a GeoJSON feature collection or of a CSV file, each one as a contribution of the current user with its name, period, geometry and populations. " +
+                      "Known names and periods are reused. Nothing is saved if any record is invalid. The report gives the time spent and the throughput of each stage (parse, validate, copy, merge).",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        },
+        requestBody = @RequestBody(
+            content = {
+                @Content(
+                    mediaType = GeoJsonImportReader.MEDIA_TYPE,
+                    examples = @ExampleObject(value = "{\"type\": \"FeatureCollection\", \"features\": [" +
+                                "{\"type\": \"Feature\", \"properties\": {\"type\": \"city\", \"name\": \"Paris\", \"startYear\": -52, \"endYear\": null, \"populations\": {\"1800\": 547000}, \"wikipedia\": \"https://fr.wikipedia.org/wiki/Paris\"}, \"geometry\": {\"type\": \"Point\", \"coordinates\": [2.35, 48.85]}}" +
+                                "]}")
+                    ),
+                @Content(
+                    mediaType = CsvImportReader.MEDIA_TYPE,
+                    examples = @ExampleObject(value = "type,name,start_year,end_year,color,geometry,populations,wikipedia,description\n" +
+                                "city,Paris,-52,,,POINT (2.35 48.85),1800:547000;1850:1053000,https://fr.wikipedia.org/wiki/Paris,")
+                    )
+            }
+            )
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "201",
+            description = "All records successfully imported",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": {\"records\": 20000, \"invalidRecords\": 0, \"errors\": [], " +
+                            "\"stages\": [{\"name\": \"parse\", \"items\": 20000, \"seconds\": 0.8, \"itemsPerSecond\": 25000}, {\"name\": \"validate\", \"items\": 20000, \"seconds\": 2.4, \"itemsPerSecond\": 8333}, " +
+                            "{\"name\": \"copy\", \"items\": 20000, \"seconds\": 0.3, \"itemsPerSecond\": 66666}, {\"name\": \"merge\", \"items\": 20000, \"seconds\": 1.9, \"itemsPerSecond\": 10526}], " +
+                            "\"insertedRows\": {\"contributions\": 20000, \"ville\": 18000, \"geometrie_pays\": 2000}}}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Unsupported media type, malformed file, or invalid records (nothing saved)",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": {\"records\": 20000, \"invalidRecords\": 1, \"errors\": [\"Record 12: Invalid period\"], \"stages\": [], \"insertedRows\": {}}}")
+                )
+        )
+    })
+    public ResponseEntity<Object> importRecords(@RequestHeader(name = HttpHeaders.CONTENT_TYPE, required = false) @Parameter(hidden = true) String contentType,
+                                                @RequestParam(name = "sources", required = false) @Parameter(name = "sources", description = "Sources of the imported data", example = "Atlas historique, 1998") String sources,
+                                                InputStream input, Authentication authentication) {
+        ResponseEntity<Object> response;
+
+        try {
+            ImportReport report = service.importRecords(contentType, input, ((User) authentication.getPrincipal()).getId(), sources);
+
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, report.toMap(), report.hasErrors() ? HttpStatus.BAD_REQUEST : HttpStatus.CREATED);
+        }
+        catch (IllegalArgumentException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        catch (IOException | DataAccessException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        return response;
+    }
+}
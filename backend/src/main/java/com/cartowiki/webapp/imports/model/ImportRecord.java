@@ -0,0 +1,285 @@
+package com.cartowiki.webapp.imports.model;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.WKBWriter;
+
+/**
+ * City or country read from an import file, with its name, period, geometry and populations.
+ * Each record becomes one contribution, adding one entity and the rows describing it.
+ */
+public class ImportRecord {
+    public static final String CITY = "city";
+    public static final String COUNTRY = "country";
+
+    public static final int CITY_NAME_MAX_LENGTH = 128;
+    public static final int COUNTRY_NAME_MAX_LENGTH = 256;
+
+    private static final Pattern COLOR = Pattern.compile("#[0-9A-Fa-f]{6}");
+    private static final char SEPARATOR = '\u001f';
+
+    private final int number;
+    private String type;
+    private String name;
+    private Integer startYear;
+    private Integer endYear;
+    private String color;
+    private Geometry geometry;
+    private SortedMap<Integer, Integer> populations = new TreeMap<>();
+    private String wikipedia;
+    private String description;
+
+    /**
+     * Constructor with arguments
+     * @param number Position of the record in the file, from 1
+     */
+    public ImportRecord(int number) {
+        this.number = number;
+    }
+
+    /**
+     * Check the record, without the database
+     * @return Reason why the record is invalid, null if valid
+     */
+    public String validate() {
+        String error = null;
+
+        if (!CITY.equals(type) && !COUNTRY.equals(type)) {
+            error = "Invalid type";
+        }
+        else if (name == null || name.isBlank()) {
+            error = "Missing name";
+        }
+        else if (name.length() > (CITY.equals(type) ? CITY_NAME_MAX_LENGTH : COUNTRY_NAME_MAX_LENGTH)) {
+            error = "Name too long";
+        }
+        else if (!isYear(startYear) || !isYear(endYear) || (startYear != null && endYear != null && startYear > endYear)) {
+            error = "Invalid period";
+        }
+        else if (geometry == null || geometry.isEmpty()) {
+            error = "Missing geometry";
+        }
+        else if (CITY.equals(type) && !(geometry instanceof Point)) {
+            error = "City geometry must be a point";
+        }
+        else if (COUNTRY.equals(type) && !(geometry instanceof Polygon || geometry instanceof MultiPolygon)) {
+            error = "Country geometry must be a polygon or a multipolygon";
+        }
+        else if (!isInWorld(geometry)) {
+            error = "Coordinates out of range";
+        }
+        else if (COUNTRY.equals(type) && !geometry.isValid()) {
+            error = "Invalid country geometry";
+        }
+        else if (COUNTRY.equals(type) && (color == null || !COLOR.matcher(color).matches())) {
+            error = "Invalid color";
+        }
+        else {
+            for (Map.Entry<Integer, Integer> population: populations.entrySet()) {
+                if (!isYear(population.getKey()) || population.getValue() == null || population.getValue() < 0) {
+                    error = "Invalid population";
+                }
+            }
+        }
+
+        return error;
+    }
+
+    /**
+     * Check that a year fits the database columns
+     * @param year Year, null for an open period
+     * @return True if valid
+     */
+    private static boolean isYear(Integer year) {
+        return year == null || (year >= Short.MIN_VALUE && year <= Short.MAX_VALUE);
+    }
+
+    /**
+     * Check that a geometry is in longitude and latitude
+     * @param geometry Geometry
+     * @return True if all coordinates are in range
+     */
+    private static boolean isInWorld(Geometry geometry) {
+        Envelope envelope = geometry.getEnvelopeInternal();
+
+        return envelope.getMinX() >= -180 && envelope.getMaxX() <= 180 && envelope.getMinY() >= -90 && envelope.getMaxY() <= 90;
+    }
+
+    /**
+     * Compute the SHA-256 hash of the content of the record, identical for two records describing the same place the same way
+     * @return Hash
+     */
+    public byte[] hash() {
+        StringBuilder content = new StringBuilder();
+
+        content.append(type).append(SEPARATOR).append(name).append(SEPARATOR)
+               .append(startYear).append(SEPARATOR).append(endYear).append(SEPARATOR)
+               .append(color).append(SEPARATOR)
+               .append(geometry == null ? null : WKBWriter.toHex(new WKBWriter().write(geometry))).append(SEPARATOR)
+               .append(populations).append(SEPARATOR)
+               .append(wikipedia).append(SEPARATOR).append(description);
+
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        catch (NoSuchAlgorithmException e) {
+            // Every Java platform implements SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Number getter
+     * @return Position of the record in the file, from 1
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * Type getter
+     * @return Entity type ("city" or "country")
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Type setter
+     * @param type New entity type ("city" or "country")
+     */
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    /**
+     * Name getter
+     * @return Name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Name setter
+     * @param name New name
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Start year getter
+     * @return First year of the period, null if unknown
+     */
+    public Integer getStartYear() {
+        return startYear;
+    }
+
+    /**
+     * Start year setter
+     * @param startYear New first year of the period, null if unknown
+     */
+    public void setStartYear(Integer startYear) {
+        this.startYear = startYear;
+    }
+
+    /**
+     * End year getter
+     * @return Last year of the period, null if unknown
+     */
+    public Integer getEndYear() {
+        return endYear;
+    }
+
+    /**
+     * End year setter
+     * @param endYear New last year of the period, null if unknown
+     */
+    public void setEndYear(Integer endYear) {
+        this.endYear = endYear;
+    }
+
+    /**
+     * Color getter
+     * @return Country color (#RRGGBB), null for a city
+     */
+    public String getColor() {
+        return color;
+    }
+
+    /**
+     * Color setter
+     * @param color New country color (#RRGGBB)
+     */
+    public void setColor(String color) {
+        this.color = color;
+    }
+
+    /**
+     * Geometry getter
+     * @return Position of a city, or borders of a country, in longitude and latitude
+     */
+    public Geometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Geometry setter
+     * @param geometry New position of a city, or borders of a country, in longitude and latitude
+     */
+    public void setGeometry(Geometry geometry) {
+        this.geometry = geometry;
+    }
+
+    /**
+     * Populations getter
+     * @return Populations by year
+     */
+    public SortedMap<Integer, Integer> getPopulations() {
+        return populations;
+    }
+
+    /**
+     * Wikipedia getter
+     * @return Link to the Wikipedia article, may be null
+     */
+    public String getWikipedia() {
+        return wikipedia;
+    }
+
+    /**
+     * Wikipedia setter
+     * @param wikipedia New link to the Wikipedia article
+     */
+    public void setWikipedia(String wikipedia) {
+        this.wikipedia = wikipedia;
+    }
+
+    /**
+     * Description getter
+     * @return Description, may be null
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Description setter
+     * @param description New description
+     */
+    public void setDescription(String description) {
+        this.description = description;
+    }
+}
@@ -0,0 +1,124 @@
+package com.cartowiki.webapp.imports.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk import: invalid records, inserted rows, and time spent and throughput of each stage.
+ * Stages overlapping in time (parsing, validating and copying run together) are timed separately,
+ * validation time being summed over all workers.
+ */
+public class ImportReport {
+    public static final String PARSE = "parse";
+    public static final String VALIDATE = "validate";
+    public static final String COPY = "copy";
+    public static final String MERGE = "merge";
+
+    private final int maxErrors;
+
+    private int records = 0;
+    private int invalidRecords = 0;
+    private List<String> errors = new ArrayList<>();
+    private Map<String, long[]> stages = new LinkedHashMap<>();
+    private Map<String, Integer> insertedRows = new LinkedHashMap<>();
+
+    /**
+     * Constructor with arguments
+     * @param maxErrors Maximum number of invalid records described
+     */
+    public ImportReport(int maxErrors) {
+        this.maxErrors = maxErrors;
+
+        for (String stage: new String[] {PARSE, VALIDATE, COPY, MERGE}) {
+            stages.put(stage, new long[2]);
+        }
+    }
+
+    /**
+     * Add the work done by a stage
+     * @param stage Stage name
+     * @param items Number of items processed
+     * @param nanos Time spent, in nanoseconds
+     */
+    public void addStage(String stage, long items, long nanos) {
+        long[] stats = stages.computeIfAbsent(stage, key -> new long[2]);
+        stats[0] += items;
+        stats[1] += nanos;
+    }
+
+    /**
+     * Count a read record
+     */
+    public void addRecord() {
+        records++;
+    }
+
+    /**
+     * Count an invalid record, describing it if there are not too many already
+     * @param number Position of the record in the file
+     * @param error Reason why the record is invalid
+     */
+    public void addError(int number, String error) {
+        invalidRecords++;
+
+        if (errors.size() < maxErrors) {
+            errors.add("Record " + number + ": " + error);
+        }
+    }
+
+    /**
+     * Set the number of rows inserted in a table
+     * @param table Table name
+     * @param rows Number of rows
+     */
+    public void setInsertedRows(String table, int rows) {
+        insertedRows.put(table, rows);
+    }
+
+    /**
+     * Check whether some records are invalid
+     * @return True if the import must be cancelled
+     */
+    public boolean hasErrors() {
+        return invalidRecords > 0;
+    }
+
+    /**
+     * Records getter
+     * @return Number of read records
+     */
+    public int getRecords() {
+        return records;
+    }
+
+    /**
+     * Return the report for converting to JSON
+     * @return Map of values
+     */
+    public HashMap<String, Object> toMap() {
+        HashMap<String, Object> map = new HashMap<>();
+        List<HashMap<String, Object>> stageList = new ArrayList<>();
+
+        for (Map.Entry<String, long[]> stage: stages.entrySet()) {
+            HashMap<String, Object> stageMap = new HashMap<>();
+            double seconds = stage.getValue()[1] / 1e9;
+
+            stageMap.put("name", stage.getKey());
+            stageMap.put("items", stage.getValue()[0]);
+            stageMap.put("seconds", seconds);
+            stageMap.put("itemsPerSecond", seconds > 0 ? stage.getValue()[0] / seconds : null);
+            stageList.add(stageMap);
+        }
+
+        map.put("records", records);
+        map.put("invalidRecords", invalidRecords);
+        map.put("errors", errors);
+        map.put("stages", stageList);
+        map.put("insertedRows", insertedRows);
+
+        return map;
+    }
+}
@@ -0,0 +1,198 @@
+package com.cartowiki.webapp.imports.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+
+import com.cartowiki.webapp.imports.model.ImportRecord;
+
+/**
+ * Reader of a CSV file (RFC 4180, comma separated, with a header line), one record at a time.
+ * Columns, in any order: type, name, start_year, end_year, color, geometry (WKT), populations ("1800:547000;1850:1053000"),
+ * wikipedia, description. Empty values are missing values.
+ */
+public class CsvImportReader implements ImportReader {
+    public static final String MEDIA_TYPE = "text/csv";
+
+    private static final String[] COLUMNS = {"type", "name", "start_year", "end_year", "color", "geometry", "populations", "wikipedia", "description"};
+
+    private BufferedReader reader;
+    private WKTReader wktReader = new WKTReader(new GeometryFactory(new PrecisionModel(), 4326));
+    private Map<String, Integer> columns;
+    private int number = 0;
+
+    /**
+     * Constructor with arguments
+     * @param input Source stream, in UTF-8
+     */
+    public CsvImportReader(InputStream input) {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public ImportRecord next() throws IOException, IllegalArgumentException {
+        if (columns == null) {
+            this.readHeader();
+        }
+
+        List<String> values = this.readLine();
+        ImportRecord record = null;
+
+        if (values != null) {
+            number++;
+            record = new ImportRecord(number);
+
+            try {
+                record.setType(this.get(values, "type"));
+                record.setName(this.get(values, "name"));
+                record.setStartYear(integer(this.get(values, "start_year")));
+                record.setEndYear(integer(this.get(values, "end_year")));
+                record.setColor(this.get(values, "color"));
+                record.setWikipedia(this.get(values, "wikipedia"));
+                record.setDescription(this.get(values, "description"));
+
+                String populations = this.get(values, "populations");
+
+                if (populations != null) {
+                    for (String population: populations.split(";")) {
+                        String[] parts = population.split(":", 2);
+                        record.getPopulations().put(Integer.valueOf(parts[0].trim()), Integer.valueOf(parts[1].trim()));
+                    }
+                }
+
+                String geometry = this.get(values, "geometry");
+                record.setGeometry(geometry == null ? null : wktReader.read(geometry));
+            }
+            catch (IllegalArgumentException | IndexOutOfBoundsException | ParseException e) {
+                throw new IllegalArgumentException("Invalid record " + number);
+            }
+        }
+
+        return record;
+    }
+
+    /**
+     * Read the header line
+     * @throws IOException Error while reading the stream
+     * @throws IllegalArgumentException Missing header, or missing column
+     */
+    private void readHeader() throws IOException, IllegalArgumentException {
+        List<String> header = this.readLine();
+
+        if (header == null) {
+            throw new IllegalArgumentException("Missing header");
+        }
+
+        columns = new HashMap<>();
+
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(), i);
+        }
+
+        for (String column: COLUMNS) {
+            if (!columns.containsKey(column)) {
+                throw new IllegalArgumentException("Missing column " + column);
+            }
+        }
+    }
+
+    /**
+     * Return the value of a column
+     * @param values Values of a line
+     * @param column Column name
+     * @return Value, null if empty
+     */
+    private String get(List<String> values, String column) {
+        int index = columns.get(column);
+        String value = index < values.size() ? values.get(index) : null;
+
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Parse an integer value
+     * @param value Value, may be null
+     * @return Integer, null if missing
+     * @throws NumberFormatException Not an integer
+     */
+    private static Integer integer(String value) throws NumberFormatException {
+        return value == null ? null : Integer.valueOf(value.trim());
+    }
+
+    /**
+     * Read the values of a line, quoted values being able to hold commas, doubled quotes and line breaks
+     * @return Values, null at the end of the file
+     * @throws IOException Error while reading the stream
+     * @throws IllegalArgumentException Unclosed quoted value
+     */
+    private List<String> readLine() throws IOException, IllegalArgumentException {
+        int c = reader.read();
+
+        // Blank lines are skipped
+        while (c == '\r' || c == '\n') {
+            c = reader.read();
+        }
+
+        if (c == -1) {
+            return null;
+        }
+
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("Unclosed quoted value after record " + number);
+                }
+                else if (c == '"') {
+                    reader.mark(1);
+
+                    if (reader.read() == '"') {
+                        value.append('"');
+                    }
+                    else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                }
+                else {
+                    value.append((char) c);
+                }
+            }
+            else if (c == '"') {
+                quoted = true;
+            }
+            else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            }
+            else if (c == '\n' || c == '\r' || c == -1) {
+                values.add(value.toString());
+                return values;
+            }
+            else {
+                value.append((char) c);
+            }
+
+            c = reader.read();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,223 @@
+package com.cartowiki.webapp.imports.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import com.cartowiki.webapp.imports.model.ImportRecord;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reader of a GeoJSON feature collection, one feature at a time, so that only the current feature is held in memory.
+ * Feature properties: type ("city" or "country"), name, startYear, endYear, color, populations ({"1800": 547000}),
+ * wikipedia, description. Geometries must be points for cities, polygons or multipolygons for countries.
+ */
+public class GeoJsonImportReader implements ImportReader {
+    public static final String MEDIA_TYPE = "application/geo+json";
+
+    private static final GeometryFactory FACTORY = new GeometryFactory(new PrecisionModel(), 4326);
+
+    private JsonParser parser;
+    private int number = 0;
+    private boolean started = false;
+
+    /**
+     * Constructor with arguments
+     * @param objectMapper JSON converter
+     * @param input Source stream
+     * @throws IOException Error while opening the stream
+     */
+    public GeoJsonImportReader(ObjectMapper objectMapper, InputStream input) throws IOException {
+        this.parser = objectMapper.getFactory().createParser(input);
+    }
+
+    @Override
+    public ImportRecord next() throws IOException, IllegalArgumentException {
+        if (!started) {
+            this.skipToFeatures();
+            started = true;
+        }
+
+        ImportRecord record = null;
+
+        if (parser.nextToken() == JsonToken.START_OBJECT) {
+            number++;
+            record = this.readFeature(parser.readValueAsTree());
+        }
+
+        return record;
+    }
+
+    /**
+     * Move the parser to the beginning of the array of features
+     * @throws IOException Error while reading the stream
+     * @throws IllegalArgumentException Not a feature collection
+     */
+    private void skipToFeatures() throws IOException, IllegalArgumentException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Invalid feature collection");
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            if ("features".equals(field) && value == JsonToken.START_ARRAY) {
+                return;
+            }
+
+            parser.skipChildren();
+        }
+
+        throw new IllegalArgumentException("Missing features");
+    }
+
+    /**
+     * Convert a feature
+     * @param feature GeoJSON feature
+     * @return Record
+     * @throws IllegalArgumentException Malformed feature
+     */
+    private ImportRecord readFeature(JsonNode feature) throws IllegalArgumentException {
+        ImportRecord record = new ImportRecord(number);
+        JsonNode properties = feature.path("properties");
+
+        try {
+            record.setType(text(properties, "type"));
+            record.setName(text(properties, "name"));
+            record.setStartYear(integer(properties, "startYear"));
+            record.setEndYear(integer(properties, "endYear"));
+            record.setColor(text(properties, "color"));
+            record.setWikipedia(text(properties, "wikipedia"));
+            record.setDescription(text(properties, "description"));
+
+            Iterator<Map.Entry<String, JsonNode>> populations = properties.path("populations").fields();
+
+            while (populations.hasNext()) {
+                Map.Entry<String, JsonNode> population = populations.next();
+                record.getPopulations().put(Integer.valueOf(population.getKey()), population.getValue().asInt());
+            }
+
+            JsonNode geometry = feature.path("geometry");
+            record.setGeometry(geometry.isObject() ? readGeometry(geometry) : null);
+        }
+        catch (IllegalArgumentException e) {
+            // Also thrown by the geometry factory for unclosed rings
+            throw new IllegalArgumentException("Invalid feature " + number);
+        }
+
+        return record;
+    }
+
+    /**
+     * Return a text property
+     * @param properties Properties of a feature
+     * @param name Property name
+     * @return Value, null if missing
+     */
+    private static String text(JsonNode properties, String name) {
+        JsonNode value = properties.get(name);
+
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    /**
+     * Return an integer property
+     * @param properties Properties of a feature
+     * @param name Property name
+     * @return Value, null if missing
+     * @throws NumberFormatException Not an integer
+     */
+    private static Integer integer(JsonNode properties, String name) throws NumberFormatException {
+        JsonNode value = properties.get(name);
+
+        return value == null || value.isNull() ? null : Integer.valueOf(value.asText());
+    }
+
+    /**
+     * Convert a GeoJSON geometry
+     * @param geometry GeoJSON point, polygon or multipolygon
+     * @return Geometry
+     * @throws IllegalArgumentException Unsupported geometry type, or invalid coordinates
+     */
+    private static Geometry readGeometry(JsonNode geometry) throws IllegalArgumentException {
+        JsonNode coordinates = geometry.path("coordinates");
+
+        return switch (geometry.path("type").asText()) {
+            case "Point" -> FACTORY.createPoint(readCoordinate(coordinates));
+            case "Polygon" -> readPolygon(coordinates);
+            case "MultiPolygon" -> {
+                Polygon[] polygons = new Polygon[coordinates.size()];
+
+                for (int i = 0; i < polygons.length; i++) {
+                    polygons[i] = readPolygon(coordinates.path(i));
+                }
+
+                yield FACTORY.createMultiPolygon(polygons);
+            }
+            default -> throw new IllegalArgumentException("Unsupported geometry type");
+        };
+    }
+
+    /**
+     * Convert the rings of a GeoJSON polygon
+     * @param rings Array of rings, the shell first
+     * @return Polygon
+     * @throws IllegalArgumentException Invalid ring
+     */
+    private static Polygon readPolygon(JsonNode rings) throws IllegalArgumentException {
+        LinearRing[] holes = new LinearRing[Math.max(0, rings.size() - 1)];
+
+        for (int i = 0; i < holes.length; i++) {
+            holes[i] = readRing(rings.path(i + 1));
+        }
+
+        return FACTORY.createPolygon(readRing(rings.path(0)), holes);
+    }
+
+    /**
+     * Convert a GeoJSON ring
+     * @param positions Array of positions
+     * @return Ring
+     * @throws IllegalArgumentException Ring not closed, too short, or with an invalid position
+     */
+    private static LinearRing readRing(JsonNode positions) throws IllegalArgumentException {
+        Coordinate[] coordinates = new Coordinate[positions.size()];
+
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = readCoordinate(positions.path(i));
+        }
+
+        return FACTORY.createLinearRing(coordinates);
+    }
+
+    /**
+     * Convert a GeoJSON position
+     * @param position Array of longitude and latitude
+     * @return Coordinate
+     * @throws IllegalArgumentException Missing latitude
+     */
+    private static Coordinate readCoordinate(JsonNode position) throws IllegalArgumentException {
+        if (position == null || position.size() < 2) {
+            throw new IllegalArgumentException("Invalid position");
+        }
+
+        return new Coordinate(position.get(0).asDouble(), position.get(1).asDouble());
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
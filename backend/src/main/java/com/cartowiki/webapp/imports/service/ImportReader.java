@@ -0,0 +1,19 @@
+package com.cartowiki.webapp.imports.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import com.cartowiki.webapp.imports.model.ImportRecord;
+
+/**
+ * Reader of the records of an import file, one at a time, in one input format
+ */
+public interface ImportReader extends Closeable {
+    /**
+     * Read the next record
+     * @return Record, null at the end of the file
+     * @throws IOException Error while reading the stream
+     * @throws IllegalArgumentException Malformed file
+     */
+    ImportRecord next() throws IOException, IllegalArgumentException;
+}
@@ -0,0 +1,645 @@
+package com.cartowiki.webapp.imports.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.sql.DataSource;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKBWriter;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cartowiki.webapp.duplicates.service.DuplicateService;
+import com.cartowiki.webapp.imports.config.ImportConfig;
+import com.cartowiki.webapp.imports.model.ImportRecord;
+import com.cartowiki.webapp.imports.model.ImportReport;
+import com.cartowiki.webapp.tiles.model.DataChangeEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Import many cities and countries at once, each record becoming one contribution.
+ * Records are parsed from a stream, validated in parallel by batches, and loaded with COPY into a temporary staging table,
+ * while later batches are still being parsed. Ids are then resolved and the data tables filled by a few set-based
+ * statements, all in the same transaction: an import is saved entirely, or not at all if any record is invalid.
+ * Records with the same content as an existing contribution, or as an earlier record of the file, are invalid.
+ */
+@Service
+public class ImportService {
+    private static final String CREATE_STAGING = """
+        CREATE TEMPORARY TABLE import_staging (
+            numero integer NOT NULL,
+            type text NOT NULL,
+            name text NOT NULL,
+            start_year smallint,
+            end_year smallint,
+            color text,
+            geometry text NOT NULL,
+            population_years smallint[],
+            population_values integer[],
+            wikipedia text,
+            description text,
+            hash bytea NOT NULL,
+            id_meta integer,
+            id_contribution integer,
+            id_entite integer,
+            id_periode integer,
+            id_nom integer
+        ) ON COMMIT DROP
+        """;
+
+    private static final String COPY_STAGING = """
+        COPY import_staging (numero, type, name, start_year, end_year, color, geometry, population_years, population_values, wikipedia, description, hash)
+        FROM STDIN WITH (FORMAT csv)
+        """;
+
+    // Ids are taken from the sequences of the tables at once, so that rows of all tables can be inserted set by set
+    private static final String ALLOCATE_IDS = """
+        UPDATE import_staging SET
+            id_meta = nextval(pg_get_serial_sequence('metadonnees', 'id_meta')),
+            id_contribution = nextval(pg_get_serial_sequence('contributions', 'id_contribution')),
+            id_entite = CASE WHEN type = 'city' THEN nextval(pg_get_serial_sequence('entites_villes', 'id_entite_ville'))
+                             ELSE nextval(pg_get_serial_sequence('entites_pays', 'id_entite_pays')) END
+        """;
+
+    private static final String INSERT_METADATA = """
+        INSERT INTO metadonnees (id_meta, wikipedia, description, hash_column)
+        SELECT id_meta, wikipedia, description, sha256(convert_to(concat(wikipedia, '|', description), 'UTF8'))
+        FROM import_staging
+        """;
+
+    private static final String INSERT_CONTRIBUTIONS = """
+        INSERT INTO contributions (id_contribution, id_utilisateur, date, commentaire, sources, hash_column, id_type_objet)
+        SELECT s.id_contribution, ?, CURRENT_DATE, 'Import: ' || s.name, ?, s.hash, type_objet.id_type
+        FROM import_staging AS s
+        JOIN type_objet ON type_objet.nom_table = CASE WHEN s.type = 'city' THEN 'ville' ELSE 'pays' END
+        """;
+
+    // Open periods are compared with years out of the smallint range, so that the join can use a hash
+    private static final String INSERT_PERIODS = """
+        INSERT INTO periodes (annee_debut, annee_fin, hash_column)
+        SELECT DISTINCT s.start_year, s.end_year, sha256(convert_to(concat(s.start_year, '|', s.end_year), 'UTF8'))
+        FROM import_staging AS s
+        WHERE NOT EXISTS (
+            SELECT 1 FROM periodes
+            WHERE COALESCE(periodes.annee_debut, -100000) = COALESCE(s.start_year, -100000)
+              AND COALESCE(periodes.annee_fin, 100000) = COALESCE(s.end_year, 100000)
+        )
+        """;
+
+    private static final String RESOLVE_PERIODS = """
+        UPDATE import_staging AS s SET id_periode = p.id_periode
+        FROM (
+            SELECT COALESCE(annee_debut, -100000) AS debut, COALESCE(annee_fin, 100000) AS fin, min(id_periode) AS id_periode
+            FROM periodes
+            GROUP BY 1, 2
+        ) AS p
+        WHERE p.debut = COALESCE(s.start_year, -100000) AND p.fin = COALESCE(s.end_year, 100000)
+        """;
+
+    // Names already known are shared, new ones belong to the contribution of their first record
+    private static final String INSERT_NAMES = """
+        INSERT INTO %1$s (%2$s, id_meta, id_contribution, hash_column)
+        SELECT DISTINCT ON (s.name) s.name, s.id_meta, s.id_contribution, sha256(convert_to(s.name, 'UTF8'))
+        FROM import_staging AS s
+        WHERE s.type = '%4$s' AND NOT EXISTS (SELECT 1 FROM %1$s WHERE %1$s.%2$s = s.name)
+        ORDER BY s.name, s.numero
+        """;
+
+    private static final String RESOLVE_NAMES = """
+        UPDATE import_staging AS s SET id_nom = n.id
+        FROM (
+            SELECT %2$s AS name, min(%3$s) AS id
+            FROM %1$s
+            WHERE %2$s IN (SELECT name FROM import_staging WHERE type = '%4$s')
+            GROUP BY %2$s
+        ) AS n
+        WHERE s.type = '%4$s' AND n.name = s.name
+        """;
+
+    // Row hashes cover the content columns, without the own id, metadata and contribution of the row
+    private static final String INSERT_CITY_ENTITIES = """
+        INSERT INTO entites_villes (id_entite_ville, position_ville, id_meta, id_contribution, hash_column)
+        SELECT id_entite, ST_GeomFromWKB(decode(geometry, 'hex'), 4326), id_meta, id_contribution, sha256(decode(geometry, 'hex'))
+        FROM import_staging
+        WHERE type = 'city'
+        """;
+
+    private static final String INSERT_CITY_NAMES = """
+        INSERT INTO ville (id_nom_ville, id_entite_ville, id_periode, id_meta, id_contribution, hash_column)
+        SELECT id_nom, id_entite, id_periode, id_meta, id_contribution, sha256(convert_to(concat(id_nom, '|', id_entite, '|', id_periode), 'UTF8'))
+        FROM import_staging
+        WHERE type = 'city'
+        """;
+
+    private static final String INSERT_CITY_EXISTENCES = """
+        INSERT INTO existence_ville (id_entite_ville, id_periode, id_meta, id_contribution, hash_column)
+        SELECT id_entite, id_periode, id_meta, id_contribution, sha256(convert_to(concat(id_entite, '|', id_periode), 'UTF8'))
+        FROM import_staging
+        WHERE type = 'city'
+        """;
+
+    private static final String INSERT_COUNTRY_ENTITIES = """
+        INSERT INTO entites_pays (id_entite_pays, couleur, id_meta, id_contribution, hash_column)
+        SELECT id_entite, color, id_meta, id_contribution, sha256(convert_to(color, 'UTF8'))
+        FROM import_staging
+        WHERE type = 'country'
+        """;
+
+    private static final String INSERT_COUNTRY_NAMES = """
+        INSERT INTO pays (id_nom_pays, id_entite_pays, id_periode, id_meta, id_contribution, hash_column)
+        SELECT id_nom, id_entite, id_periode, id_meta, id_contribution, sha256(convert_to(concat(id_nom, '|', id_entite, '|', id_periode), 'UTF8'))
+        FROM import_staging
+        WHERE type = 'country'
+        """;
+
+    private static final String INSERT_COUNTRY_GEOMETRIES = """
+        INSERT INTO geometrie_pays (id_entite_pays, geometrie, id_periode, id_meta, id_contribution, hash_column)
+        SELECT id_entite, ST_GeomFromWKB(decode(geometry, 'hex'), 4326), id_periode, id_meta, id_contribution,
+               sha256(decode(geometry, 'hex') || convert_to(concat('|', id_entite, '|', id_periode), 'UTF8'))
+        FROM import_staging
+        WHERE type = 'country'
+        """;
+
+    private static final String INSERT_POPULATIONS = """
+        INSERT INTO %1$s (%2$s, population, annee, id_meta, id_contribution, hash_column)
+        SELECT s.id_entite, p.population, p.annee, s.id_meta, s.id_contribution, sha256(convert_to(concat(s.id_entite, '|', p.population, '|', p.annee), 'UTF8'))
+        FROM import_staging AS s
+        CROSS JOIN LATERAL unnest(s.population_years, s.population_values) AS p(annee, population)
+        WHERE s.type = '%3$s'
+        """;
+
+    private ImportConfig config;
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private ObjectMapper objectMapper;
+    private ApplicationEventPublisher publisher;
+    private DuplicateService duplicateService;
+
+    private final ExecutorService validators;
+
+    /**
+     * Autowired constructor
+     * @param config Import parameters
+     * @param dataSource Database connections
+     * @param transactionManager Transactions
+     * @param objectMapper JSON converter
+     * @param publisher Publisher of the data changes
+     * @param duplicateService Duplicate detection
+     */
+    @Autowired
+    public ImportService(ImportConfig config, DataSource dataSource, PlatformTransactionManager transactionManager, ObjectMapper objectMapper, ApplicationEventPublisher publisher,
+                         DuplicateService duplicateService) {
+        this.config = config;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.publisher = publisher;
+        this.duplicateService = duplicateService;
+        this.validators = Executors.newFixedThreadPool(config.getWorkers());
+    }
+
+    /**
+     * Create the reader of an input format
+     * @param mediaType Media type of the input, CsvImportReader.MEDIA_TYPE or GeoJsonImportReader.MEDIA_TYPE (or JSON)
+     * @param input Source stream
+     * @return Record reader
+     * @throws IOException Error while opening the stream
+     * @throws IllegalArgumentException Unsupported media type
+     */
+    private ImportReader createReader(String mediaType, InputStream input) throws IOException, IllegalArgumentException {
+        ImportReader reader;
+
+        if (mediaType != null && mediaType.startsWith(CsvImportReader.MEDIA_TYPE)) {
+            reader = new CsvImportReader(input);
+        }
+        else if (mediaType != null && (mediaType.startsWith(GeoJsonImportReader.MEDIA_TYPE) || mediaType.startsWith("application/json"))) {
+            reader = new GeoJsonImportReader(objectMapper, input);
+        }
+        else {
+            throw new IllegalArgumentException("Unsupported media type");
+        }
+
+        return reader;
+    }
+
+    /**
+     * Import all records of a file as contributions of a user, unless one of them is invalid
+     * @param mediaType Media type of the file
+     * @param input Content of the file
+     * @param userId Id of the user importing the file
+     * @param sources Sources of the imported data, may be null
+     * @return Report of the import, with errors if nothing was saved
+     * @throws IOException Error while reading the file
+     * @throws IllegalArgumentException Unsupported media type, or malformed file
+     * @throws DataAccessException Error while saving the records
+     */
+    public ImportReport importRecords(String mediaType, InputStream input, int userId, String sources) throws IOException, IllegalArgumentException, DataAccessException {
+        ImportReport report = new ImportReport(config.getMaxErrors());
+        Map<String, ChangedRange> changes = new TreeMap<>();
+        long loadCount = duplicateService.getLoadCount();
+
+        try (ImportReader reader = this.createReader(mediaType, input)) {
+            transactionTemplate.executeWithoutResult(status -> {
+                Connection connection = DataSourceUtils.getConnection(dataSource);
+
+                try {
+                    jdbcTemplate.execute(CREATE_STAGING);
+                    this.stage(reader, connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING), report, changes);
+
+                    if (report.hasErrors()) {
+                        status.setRollbackOnly();
+                    }
+                    else {
+                        this.merge(userId, sources, report);
+                    }
+                }
+                catch (SQLException e) {
+                    throw new UncategorizedSQLException("Bulk import", COPY_STAGING, e);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                finally {
+                    DataSourceUtils.releaseConnection(connection, dataSource);
+                }
+            });
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // Caches are refreshed once the rows are visible to other connections
+        if (!report.hasErrors()) {
+            duplicateService.afterCommit(loadCount);
+
+            for (Map.Entry<String, ChangedRange> change: changes.entrySet()) {
+                change.getValue().publish(change.getKey(), publisher);
+            }
+        }
+
+        return report;
+    }
+
+    /**
+     * Parse records, validate them by batches on the workers, and copy the valid ones to the staging table
+     * @param reader Record reader
+     * @param copy Running COPY to the staging table
+     * @param report Report to fill
+     * @param changes Changed area and years by table, to fill
+     * @throws IOException Error while reading the file
+     * @throws SQLException Error while copying the records
+     * @throws IllegalArgumentException Malformed file
+     */
+    private void stage(ImportReader reader, CopyIn copy, ImportReport report, Map<String, ChangedRange> changes) throws IOException, SQLException, IllegalArgumentException {
+        // Batches being validated, at most two per worker so that memory use does not depend on the file size
+        Deque<Future<StagedBatch>> validating = new ArrayDeque<>();
+        List<ImportRecord> batch = new ArrayList<>(config.getBatchSize());
+        Map<ByteBuffer, Integer> hashes = new HashMap<>();
+        long parseNanos = 0;
+
+        try {
+            while (true) {
+                long start = System.nanoTime();
+                ImportRecord record = reader.next();
+                parseNanos += System.nanoTime() - start;
+
+                if (record != null) {
+                    report.addRecord();
+                    batch.add(record);
+                }
+
+                if (batch.size() == config.getBatchSize() || (record == null && !batch.isEmpty())) {
+                    List<ImportRecord> validated = batch;
+                    validating.add(validators.submit(() -> this.validate(validated)));
+                    batch = new ArrayList<>(config.getBatchSize());
+                }
+
+                while (validating.size() > 2 * config.getWorkers() || (record == null && !validating.isEmpty())) {
+                    this.copyBatch(await(validating.poll()), copy, report, hashes, changes);
+                }
+
+                if (record == null) {
+                    break;
+                }
+            }
+
+            long start = System.nanoTime();
+            copy.endCopy();
+            report.addStage(ImportReport.COPY, 0, System.nanoTime() - start);
+        }
+        finally {
+            report.addStage(ImportReport.PARSE, report.getRecords(), parseNanos);
+
+            for (Future<StagedBatch> future: validating) {
+                future.cancel(true);
+            }
+
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+    }
+
+    /**
+     * Wait for the validation of a batch
+     * @param future Validation result
+     * @return Validated batch
+     * @throws IOException Import interrupted
+     * @throws DataAccessException Error while checking the records in the database
+     */
+    private static StagedBatch await(Future<StagedBatch> future) throws IOException, DataAccessException {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        }
+        catch (ExecutionException e) {
+            // Validation errors are reported by record, so a failed batch is a bug or a database error: keep its cause
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            else if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+
+            throw new IOException("Validation failed", e.getCause());
+        }
+    }
+
+    /**
+     * Copy the valid records of a batch to the staging table, and report the invalid ones
+     * @param batch Validated batch
+     * @param copy Running COPY to the staging table
+     * @param report Report to fill
+     * @param hashes Numbers of the records copied so far by hash, to fill
+     * @param changes Changed area and years by table, to fill
+     * @throws SQLException Error while copying the records
+     */
+    private void copyBatch(StagedBatch batch, CopyIn copy, ImportReport report, Map<ByteBuffer, Integer> hashes, Map<String, ChangedRange> changes) throws SQLException {
+        report.addStage(ImportReport.VALIDATE, batch.records.size(), batch.nanos);
+
+        for (Map.Entry<Integer, byte[]> hash: batch.hashes.entrySet()) {
+            Integer first = hashes.putIfAbsent(ByteBuffer.wrap(hash.getValue()), hash.getKey());
+
+            if (first != null) {
+                batch.errors.put(hash.getKey(), "Duplicate of record " + first);
+            }
+        }
+
+        for (Map.Entry<Integer, String> error: batch.errors.entrySet()) {
+            report.addError(error.getKey(), error.getValue());
+        }
+
+        // Once a record is invalid nothing will be saved, but later records are still validated to report their errors
+        if (!report.hasErrors()) {
+            long start = System.nanoTime();
+            copy.writeToCopy(batch.rows, 0, batch.rows.length);
+            report.addStage(ImportReport.COPY, batch.records.size(), System.nanoTime() - start);
+
+            for (ImportRecord record: batch.records) {
+                addChanges(record, changes);
+            }
+        }
+    }
+
+    /**
+     * Validate a batch of records and encode the valid ones as CSV rows of the staging table, on a worker
+     * @param records Records of the batch
+     * @return Validated batch
+     * @throws DataAccessException Error while looking for existing contributions
+     */
+    private StagedBatch validate(List<ImportRecord> records) throws DataAccessException {
+        long start = System.nanoTime();
+        StagedBatch batch = new StagedBatch(records);
+        StringBuilder rows = new StringBuilder();
+        WKBWriter wkbWriter = new WKBWriter();
+        HexFormat hex = HexFormat.of();
+
+        for (ImportRecord record: records) {
+            String error = record.validate();
+            byte[] hash = error == null ? record.hash() : null;
+
+            if (hash != null && duplicateService.isDuplicate(DuplicateService.CONTRIBUTIONS, hash)) {
+                error = "Duplicate of an existing contribution";
+            }
+
+            if (error != null) {
+                batch.errors.put(record.getNumber(), error);
+            }
+            else {
+                batch.hashes.put(record.getNumber(), hash);
+                rows.append(record.getNumber()).append(',');
+                appendText(rows, record.getType()).append(',');
+                appendText(rows, record.getName()).append(',');
+                rows.append(record.getStartYear() == null ? "" : record.getStartYear()).append(',');
+                rows.append(record.getEndYear() == null ? "" : record.getEndYear()).append(',');
+                appendText(rows, record.getColor()).append(',');
+                rows.append(WKBWriter.toHex(wkbWriter.write(record.getGeometry()))).append(',');
+
+                if (!record.getPopulations().isEmpty()) {
+                    rows.append("\"{").append(String.join(",", record.getPopulations().keySet().stream().map(String::valueOf).toList())).append("}\",");
+                    rows.append("\"{").append(String.join(",", record.getPopulations().values().stream().map(String::valueOf).toList())).append("}\"");
+                }
+                else {
+                    rows.append(',');
+                }
+
+                rows.append(',');
+                appendText(rows, record.getWikipedia()).append(',');
+                appendText(rows, record.getDescription()).append(',');
+                rows.append("\\x").append(hex.formatHex(hash)).append('\n');
+            }
+        }
+
+        batch.rows = rows.toString().getBytes(StandardCharsets.UTF_8);
+        batch.nanos = System.nanoTime() - start;
+
+        return batch;
+    }
+
+    /**
+     * Append a quoted CSV value, or nothing for a missing value (read as NULL by COPY)
+     * @param rows Rows being written
+     * @param value Value, may be null
+     * @return The rows
+     */
+    private static StringBuilder appendText(StringBuilder rows, String value) {
+        if (value != null) {
+            rows.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+
+        return rows;
+    }
+
+    /**
+     * Resolve the ids of the staged records and insert them into the data tables, in the import transaction
+     * @param userId Id of the user importing the file
+     * @param sources Sources of the imported data, may be null
+     * @param report Report to fill
+     * @throws DataAccessException Error while inserting the rows
+     */
+    private void merge(int userId, String sources, ImportReport report) throws DataAccessException {
+        long start = System.nanoTime();
+
+        jdbcTemplate.execute("ANALYZE import_staging");
+        jdbcTemplate.update(ALLOCATE_IDS);
+
+        report.setInsertedRows("metadonnees", this.insert("metadonnees", INSERT_METADATA));
+        report.setInsertedRows("contributions", this.insert("contributions", INSERT_CONTRIBUTIONS, userId, sources));
+        report.setInsertedRows("periodes", this.insert("periodes", INSERT_PERIODS));
+        jdbcTemplate.update(RESOLVE_PERIODS);
+
+        report.setInsertedRows("noms_villes", this.insert("noms_villes", INSERT_NAMES.formatted("noms_villes", "nom_ville", "id_nom_ville", ImportRecord.CITY)));
+        jdbcTemplate.update(RESOLVE_NAMES.formatted("noms_villes", "nom_ville", "id_nom_ville", ImportRecord.CITY));
+        report.setInsertedRows("noms_pays", this.insert("noms_pays", INSERT_NAMES.formatted("noms_pays", "nom_pays", "id_nom_pays", ImportRecord.COUNTRY)));
+        jdbcTemplate.update(RESOLVE_NAMES.formatted("noms_pays", "nom_pays", "id_nom_pays", ImportRecord.COUNTRY));
+
+        report.setInsertedRows("entites_villes", this.insert("entites_villes", INSERT_CITY_ENTITIES));
+        report.setInsertedRows("ville", this.insert("ville", INSERT_CITY_NAMES));
+        report.setInsertedRows("existence_ville", this.insert("existence_ville", INSERT_CITY_EXISTENCES));
+        report.setInsertedRows("populations_villes", this.insert("populations_villes", INSERT_POPULATIONS.formatted("populations_villes", "id_entite_ville", ImportRecord.CITY)));
+
+        report.setInsertedRows("entites_pays", this.insert("entites_pays", INSERT_COUNTRY_ENTITIES));
+        report.setInsertedRows("pays", this.insert("pays", INSERT_COUNTRY_NAMES));
+        report.setInsertedRows("geometrie_pays", this.insert("geometrie_pays", INSERT_COUNTRY_GEOMETRIES));
+        report.setInsertedRows("populations_pays", this.insert("populations_pays", INSERT_POPULATIONS.formatted("populations_pays", "id_entite_pays", ImportRecord.COUNTRY)));
+
+        report.addStage(ImportReport.MERGE, report.getRecords(), System.nanoTime() - start);
+    }
+
+    /**
+     * Run an insert statement, adding the hashes of the inserted rows to the duplicate detection
+     * @param table Table filled by the statement
+     * @param sql Insert statement
+     * @param args Statement arguments
+     * @return Number of inserted rows
+     * @throws DataAccessException Error while inserting the rows
+     */
+    private int insert(String table, String sql, Object... args) throws DataAccessException {
+        int[] rows = {0};
+
+        jdbcTemplate.query(sql + "RETURNING hash_column", row -> {
+            duplicateService.add(table, row.getBytes(1));
+            rows[0]++;
+        }, args);
+
+        return rows[0];
+    }
+
+    /**
+     * Records of a batch after validation
+     */
+    private static final class StagedBatch {
+        private final List<ImportRecord> records;
+        private final Map<Integer, String> errors = new TreeMap<>();
+        private final Map<Integer, byte[]> hashes = new TreeMap<>();
+        private byte[] rows;
+        private long nanos;
+
+        /**
+         * Constructor with arguments
+         * @param records Records of the batch
+         */
+        private StagedBatch(List<ImportRecord> records) {
+            this.records = records;
+        }
+    }
+
+    /**
+     * Extend the changed ranges of the tables filled by a record.
+     * City entities are not listed: every listener of their table also listens to the existences, which get the same range.
+     * @param record Valid record
+     * @param changes Changed area and years by table, to fill
+     */
+    private static void addChanges(ImportRecord record, Map<String, ChangedRange> changes) {
+        boolean city = ImportRecord.CITY.equals(record.getType());
+        List<String> tables = city
+            ? List.of(DataChangeEvent.CITY_EXISTENCES, DataChangeEvent.CITY_NAMES)
+            : List.of(DataChangeEvent.COUNTRY_GEOMETRIES, DataChangeEvent.COUNTRY_NAMES);
+
+        for (String table: tables) {
+            changes.computeIfAbsent(table, key -> new ChangedRange()).add(record.getGeometry(), record.getStartYear(), record.getEndYear());
+        }
+
+        // Populations only change the years they are given for
+        if (!record.getPopulations().isEmpty()) {
+            String table = city ? DataChangeEvent.CITY_POPULATIONS : DataChangeEvent.COUNTRY_POPULATIONS;
+            changes.computeIfAbsent(table, key -> new ChangedRange())
+                   .add(record.getGeometry(), record.getPopulations().firstKey(), record.getPopulations().lastKey());
+        }
+    }
+
+    /**
+     * Area and years changed in one table by an import, for refreshing what depends on it
+     */
+    private static final class ChangedRange {
+        private final Envelope envelope = new Envelope();
+        private int minYear = Short.MAX_VALUE;
+        private int maxYear = Short.MIN_VALUE;
+
+        /**
+         * Extend the range to the rows of a record
+         * @param geometry Geometry of the record
+         * @param startYear First year of the rows, null if unbounded
+         * @param endYear Last year of the rows, null if unbounded
+         */
+        private void add(Geometry geometry, Integer startYear, Integer endYear) {
+            envelope.expandToInclude(geometry.getEnvelopeInternal());
+            minYear = Math.min(minYear, startYear == null ? Short.MIN_VALUE : startYear);
+            maxYear = Math.max(maxYear, endYear == null ? Short.MAX_VALUE : endYear);
+        }
+
+        /**
+         * Publish the change of the table
+         * @param table Table name
+         * @param publisher Publisher of the data changes
+         */
+        private void publish(String table, ApplicationEventPublisher publisher) {
+            double[] bounds = {envelope.getMinX(), envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY()};
+            publisher.publishEvent(new DataChangeEvent(table, null, bounds, minYear, maxYear));
+        }
+    }
+
+    /**
+     * Stop the validation workers on shutdown
+     */
+    @PreDestroy
+    public void stop() {
+        validators.shutdownNow();
+    }
+}
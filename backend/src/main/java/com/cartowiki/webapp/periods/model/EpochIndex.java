@@ -0,0 +1,91 @@
+package com.cartowiki.webapp.periods.model;
+
+import java.util.Arrays;
+
+/**
+ * Sorted boundaries of the epochs, the year ranges over which the state of the world does not change.
+ * An epoch starts at a boundary and ends the year before the next one. An epoch is identified by its first year.
+ */
+public final class EpochIndex {
+    // Index used before the boundaries are loaded, where each year is its own epoch
+    public static final EpochIndex IDENTITY = new EpochIndex(null);
+
+    private final int[] boundaries;
+
+    /**
+     * Constructor with arguments
+     * @param boundaries Sorted first years of the epochs, without duplicates (null for one epoch per year)
+     */
+    public EpochIndex(int[] boundaries) {
+        this.boundaries = boundaries == null ? null : boundaries.clone();
+    }
+
+    /**
+     * Return the first year of the epoch containing a year
+     * @param year Year
+     * @return First year of the epoch
+     */
+    public int getStart(int year) {
+        int start;
+
+        if (boundaries == null) {
+            start = year;
+        }
+        else {
+            int position = Arrays.binarySearch(boundaries, year);
+
+            if (position >= 0) {
+                start = year;
+            }
+            else if (position == -1) {
+                // Before the first boundary
+                start = Short.MIN_VALUE;
+            }
+            else {
+                start = boundaries[-position - 2];
+            }
+        }
+
+        return start;
+    }
+
+    /**
+     * Return the last year of the epoch containing a year
+     * @param year Year
+     * @return Last year of the epoch
+     */
+    public int getEnd(int year) {
+        int end;
+
+        if (boundaries == null) {
+            end = year;
+        }
+        else {
+            int position = Arrays.binarySearch(boundaries, year);
+            int next = position >= 0 ? position + 1 : -position - 1;
+
+            end = next < boundaries.length ? boundaries[next] - 1 : Short.MAX_VALUE;
+        }
+
+        return end;
+    }
+
+    /**
+     * Check if the epoch containing a year overlaps a year range
+     * @param year Year
+     * @param minYear First year of the range
+     * @param maxYear Last year of the range
+     * @return Does the epoch overlap the range
+     */
+    public boolean overlaps(int year, int minYear, int maxYear) {
+        return this.getStart(year) <= maxYear && this.getEnd(year) >= minYear;
+    }
+
+    /**
+     * Boundaries getter
+     * @return Sorted first years of the epochs (empty for one epoch per year)
+     */
+    public int[] getBoundaries() {
+        return boundaries == null ? new int[0] : boundaries.clone();
+    }
+}
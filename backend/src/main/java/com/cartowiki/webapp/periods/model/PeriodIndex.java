@@ -0,0 +1,228 @@
+package com.cartowiki.webapp.periods.model;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable interval index over the periods, answering which periods, countries and cities are valid at a year.
+ * Periods are sorted by first year and form an implicit balanced tree (the middle of each range is its root),
+ * where each node also stores the greatest last year of its subtree, so that subtrees ending too early are skipped.
+ */
+public final class PeriodIndex {
+    public static final PeriodIndex EMPTY = new PeriodIndex(Map.of(), Map.of(), Map.of());
+
+    private final int[] ids;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] maxEnds;
+
+    // Entities of the period at position i are entities[offsets[i]] to entities[offsets[i + 1] - 1]
+    private final int[] countryOffsets;
+    private final int[] countries;
+    private final int[] cityOffsets;
+    private final int[] cities;
+
+    /**
+     * Constructor with arguments
+     * @param periods Periods by id, as {firstYear, lastYear} (missing bounds given as Short.MIN_VALUE and Short.MAX_VALUE)
+     * @param countriesByPeriod Country entities by period id
+     * @param citiesByPeriod City entities by period id
+     */
+    public PeriodIndex(Map<Integer, int[]> periods, Map<Integer, int[]> countriesByPeriod, Map<Integer, int[]> citiesByPeriod) {
+        int size = periods.size();
+        Integer[] order = periods.keySet().toArray(new Integer[size]);
+        Arrays.sort(order, (first, second) -> Integer.compare(periods.get(first)[0], periods.get(second)[0]));
+
+        this.ids = new int[size];
+        this.starts = new int[size];
+        this.ends = new int[size];
+        this.maxEnds = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            ids[i] = order[i];
+            starts[i] = periods.get(order[i])[0];
+            ends[i] = periods.get(order[i])[1];
+        }
+
+        this.computeMaxEnds(0, size - 1);
+
+        this.countryOffsets = new int[size + 1];
+        this.countries = flatten(ids, countriesByPeriod, countryOffsets);
+        this.cityOffsets = new int[size + 1];
+        this.cities = flatten(ids, citiesByPeriod, cityOffsets);
+    }
+
+    /**
+     * Fill the greatest last year of each subtree
+     * @param low First position of the subtree
+     * @param high Last position of the subtree
+     * @return Greatest last year of the subtree
+     */
+    private int computeMaxEnds(int low, int high) {
+        int max = Integer.MIN_VALUE;
+
+        if (low <= high) {
+            int middle = (low + high) >>> 1;
+
+            max = Math.max(ends[middle], Math.max(this.computeMaxEnds(low, middle - 1), this.computeMaxEnds(middle + 1, high)));
+            maxEnds[middle] = max;
+        }
+
+        return max;
+    }
+
+    /**
+     * Concatenate the entities of each period, in the order of the periods
+     * @param ids Sorted period ids
+     * @param entitiesByPeriod Entities by period id
+     * @param offsets Array to fill with the position of the entities of each period
+     * @return Concatenated entities
+     */
+    private static int[] flatten(int[] ids, Map<Integer, int[]> entitiesByPeriod, int[] offsets) {
+        int total = 0;
+
+        for (int i = 0; i < ids.length; i++) {
+            offsets[i] = total;
+            total += entitiesByPeriod.getOrDefault(ids[i], new int[0]).length;
+        }
+
+        offsets[ids.length] = total;
+        int[] entities = new int[total];
+
+        for (int i = 0; i < ids.length; i++) {
+            int[] periodEntities = entitiesByPeriod.getOrDefault(ids[i], new int[0]);
+            System.arraycopy(periodEntities, 0, entities, offsets[i], periodEntities.length);
+        }
+
+        return entities;
+    }
+
+    /**
+     * Return the ids of the periods valid at a year
+     * @param year Year
+     * @return Sorted period ids
+     */
+    public int[] getPeriodsAt(int year) {
+        int[] positions = this.findPositions(year);
+        int[] result = new int[positions.length];
+
+        for (int i = 0; i < positions.length; i++) {
+            result[i] = ids[positions[i]];
+        }
+
+        Arrays.sort(result);
+
+        return result;
+    }
+
+    /**
+     * Return the country entities with a period valid at a year
+     * @param year Year
+     * @return Sorted country entity ids, without duplicates
+     */
+    public int[] getCountriesAt(int year) {
+        return collect(this.findPositions(year), countryOffsets, countries);
+    }
+
+    /**
+     * Return the city entities with a period valid at a year
+     * @param year Year
+     * @return Sorted city entity ids, without duplicates
+     */
+    public int[] getCitiesAt(int year) {
+        return collect(this.findPositions(year), cityOffsets, cities);
+    }
+
+    /**
+     * Number of periods getter
+     * @return Number of periods
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Return the positions of the periods valid at a year
+     * @param year Year
+     * @return Positions in the sorted arrays
+     */
+    private int[] findPositions(int year) {
+        int[] found = new int[16];
+        int count = 0;
+
+        // Iterative traversal of the implicit tree, with an explicit stack of ranges
+        int[] stack = new int[2 * 64];
+        int top = 0;
+
+        if (ids.length > 0) {
+            stack[top++] = 0;
+            stack[top++] = ids.length - 1;
+        }
+
+        while (top > 0) {
+            int high = stack[--top];
+            int low = stack[--top];
+            int middle = (low + high) >>> 1;
+
+            if (maxEnds[middle] >= year) {
+                if (starts[middle] <= year) {
+                    if (ends[middle] >= year) {
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, 2 * count);
+                        }
+
+                        found[count++] = middle;
+                    }
+
+                    // Periods on the right start later, but might still contain the year
+                    if (middle < high) {
+                        stack[top++] = middle + 1;
+                        stack[top++] = high;
+                    }
+                }
+
+                if (low < middle) {
+                    stack[top++] = low;
+                    stack[top++] = middle - 1;
+                }
+            }
+        }
+
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Collect the entities of some periods
+     * @param positions Positions of the periods
+     * @param offsets Position of the entities of each period
+     * @param entities Concatenated entities
+     * @return Sorted entity ids, without duplicates
+     */
+    private static int[] collect(int[] positions, int[] offsets, int[] entities) {
+        int total = 0;
+
+        for (int position: positions) {
+            total += offsets[position + 1] - offsets[position];
+        }
+
+        int[] result = new int[total];
+        int count = 0;
+
+        for (int position: positions) {
+            int length = offsets[position + 1] - offsets[position];
+            System.arraycopy(entities, offsets[position], result, count, length);
+            count += length;
+        }
+
+        Arrays.sort(result);
+        int unique = 0;
+
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[i - 1]) {
+                result[unique++] = result[i];
+            }
+        }
+
+        return Arrays.copyOf(result, unique);
+    }
+}
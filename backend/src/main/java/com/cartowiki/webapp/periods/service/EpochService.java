@@ -0,0 +1,96 @@
+package com.cartowiki.webapp.periods.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.cartowiki.webapp.periods.model.EpochIndex;
+
+/**
+ * Maintain the epochs of the world history, so that caches key on epochs instead of years
+ */
+@Service
+public class EpochService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EpochService.class);
+
+    // Years where something displayed on the map starts or stops
+    private static final String BOUNDARIES_QUERY = """
+        WITH used_periods AS (
+            SELECT id_periode FROM pays
+            UNION SELECT id_periode FROM geometrie_pays
+            UNION SELECT id_periode FROM existence_ville
+            UNION SELECT id_periode FROM capitales
+            UNION SELECT id_periode FROM ville
+            UNION SELECT id_periode FROM pays_ville
+        )
+        SELECT boundary FROM (
+            SELECT periodes.annee_debut::int AS boundary FROM periodes JOIN used_periods USING (id_periode)
+            UNION SELECT periodes.annee_fin::int + 1 FROM periodes JOIN used_periods USING (id_periode)
+            UNION SELECT populations_villes.annee::int FROM populations_villes
+        ) AS boundaries
+        WHERE boundary IS NOT NULL AND boundary <= 32767
+        ORDER BY boundary
+        """;
+
+    private JdbcTemplate jdbcTemplate;
+    private volatile EpochIndex index = EpochIndex.IDENTITY;
+
+    /**
+     * Autowired constructor
+     * @param jdbcTemplate JDBC access to the database
+     */
+    @Autowired
+    public EpochService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Load the epochs at startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            this.refresh();
+        }
+        catch (DataAccessException e) {
+            LOGGER.error("Unable to load epochs, each year is its own epoch until next refresh", e);
+        }
+    }
+
+    /**
+     * Compute the epochs again from the periods of the database
+     * @return New epochs
+     * @throws DataAccessException Error while reading the periods
+     */
+    public EpochIndex refresh() throws DataAccessException {
+        List<Integer> boundaries = jdbcTemplate.queryForList(BOUNDARIES_QUERY, Integer.class);
+
+        index = new EpochIndex(boundaries.stream().mapToInt(Integer::intValue).toArray());
+
+        return index;
+    }
+
+    /**
+     * Current epochs getter
+     * @return Current epochs
+     */
+    public EpochIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Return the first year of the epoch containing a year
+     * @param year Year
+     * @return First year of the epoch
+     */
+    public int getEpochStart(int year) {
+        return index.getStart(year);
+    }
+}
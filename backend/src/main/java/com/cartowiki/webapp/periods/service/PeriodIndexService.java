@@ -0,0 +1,141 @@
+package com.cartowiki.webapp.periods.service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.cartowiki.webapp.periods.model.PeriodIndex;
+import com.cartowiki.webapp.tiles.model.DataChangeEvent;
+
+/**
+ * Answer "valid at year Y" lookups on periods, countries and cities from memory, without querying the database.
+ * The index is loaded at startup and loaded again after changes of country geometries or city existences,
+ * the previous index answering lookups until the new one replaces it.
+ */
+@Service
+public class PeriodIndexService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PeriodIndexService.class);
+
+    private static final String PERIODS_QUERY = "SELECT id_periode, COALESCE(annee_debut, -32768) AS debut, COALESCE(annee_fin, 32767) AS fin FROM periodes";
+    private static final String COUNTRIES_QUERY = "SELECT DISTINCT id_periode, id_entite_pays FROM geometrie_pays WHERE id_periode IS NOT NULL";
+    private static final String CITIES_QUERY = "SELECT DISTINCT id_periode, id_entite_ville FROM existence_ville WHERE id_periode IS NOT NULL";
+
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile PeriodIndex index = PeriodIndex.EMPTY;
+
+    /**
+     * Autowired constructor
+     * @param jdbcTemplate JDBC access to the database
+     */
+    @Autowired
+    public PeriodIndexService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Load the index at startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            this.reload();
+        }
+        catch (DataAccessException e) {
+            LOGGER.error("Unable to load the period index", e);
+        }
+    }
+
+    /**
+     * Load the index again after a change of the periods of countries or cities
+     * @param event Change of a row of the map data
+     */
+    @EventListener
+    public void onDataChange(DataChangeEvent event) {
+        if (DataChangeEvent.COUNTRY_GEOMETRIES.equals(event.getTable()) || DataChangeEvent.CITY_EXISTENCES.equals(event.getTable())) {
+            this.load();
+        }
+    }
+
+    /**
+     * Load the whole index from the database
+     * @throws DataAccessException Error while reading the periods
+     */
+    public synchronized void reload() throws DataAccessException {
+        Map<Integer, int[]> loadedPeriods = new HashMap<>();
+        Map<Integer, Set<Integer>> loadedCountries = new HashMap<>();
+        Map<Integer, Set<Integer>> loadedCities = new HashMap<>();
+
+        jdbcTemplate.query(PERIODS_QUERY, row -> {
+            loadedPeriods.put(row.getInt(1), new int[] {row.getInt(2), row.getInt(3)});
+        });
+        jdbcTemplate.query(COUNTRIES_QUERY, row -> {
+            loadedCountries.computeIfAbsent(row.getInt(1), id -> new HashSet<>()).add(row.getInt(2));
+        });
+        jdbcTemplate.query(CITIES_QUERY, row -> {
+            loadedCities.computeIfAbsent(row.getInt(1), id -> new HashSet<>()).add(row.getInt(2));
+        });
+
+        index = new PeriodIndex(loadedPeriods, toArrays(loadedCountries), toArrays(loadedCities));
+    }
+
+    /**
+     * Convert sets of entities to arrays
+     * @param entitiesByPeriod Sets of entities by period id
+     * @return Arrays of entities by period id
+     */
+    private static Map<Integer, int[]> toArrays(Map<Integer, Set<Integer>> entitiesByPeriod) {
+        Map<Integer, int[]> arrays = new HashMap<>();
+
+        for (Map.Entry<Integer, Set<Integer>> entry: entitiesByPeriod.entrySet()) {
+            arrays.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        return arrays;
+    }
+
+    /**
+     * Return the ids of the periods valid at a year
+     * @param year Year
+     * @return Sorted period ids
+     */
+    public int[] getPeriodsAt(int year) {
+        return index.getPeriodsAt(year);
+    }
+
+    /**
+     * Return the country entities existing at a year
+     * @param year Year
+     * @return Sorted country entity ids
+     */
+    public int[] getCountriesAt(int year) {
+        return index.getCountriesAt(year);
+    }
+
+    /**
+     * Return the city entities existing at a year
+     * @param year Year
+     * @return Sorted city entity ids
+     */
+    public int[] getCitiesAt(int year) {
+        return index.getCitiesAt(year);
+    }
+
+    /**
+     * Current index getter
+     * @return Current index
+     */
+    public PeriodIndex getIndex() {
+        return index;
+    }
+}
@@ -0,0 +1,131 @@
+package com.cartowiki.webapp.population.controller;
+
+import java.util.MissingResourceException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cartowiki.webapp.population.service.PopulationService;
+import com.cartowiki.webapp.util.ResponseMaker;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * Population time series of cities and countries
+ */
+@RestController
+@RequestMapping("/api/population")
+@Tag(name = "Populations")
+public class PopulationController {
+    private PopulationService service;
+
+    /**
+     * Autowired constructor
+     * @param service Service for populations
+     */
+    @Autowired
+    public PopulationController(PopulationService service) {
+        this.service = service;
+    }
+
+    /**
+     * Return the population samples of a city or country
+     * @param type Entity type ("city" or "country")
+     * @param id Entity id
+     * @param year Optional year of an interpolated population
+     * @return Response containing the samples
+     */
+    @GetMapping("/{type}/{id}")
+    @Operation(
+        summary = "Retrieve the population of a city or country",
+        description = "Return the years and populations of the known samples of a city or country, and its population at a year if given, " +
+                      "linearly interpolated between samples (the last sample is kept after it, nothing is known before the first one)"
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Population samples",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": {\"type\": \"city\", \"id\": 12, \"years\": [1800, 1850], \"populations\": [547000, 1053000], \"year\": 1825, \"population\": 800000}}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Unknown type, or entity without population",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"No population\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getEntityPopulation(@PathVariable("type") @Parameter(name = "type", description = "Entity type", example = "city") String type,
+                                                      @PathVariable("id") @Parameter(name = "id", description = "Entity id", example = "12") int id,
+                                                      @RequestParam(name = "year", required = false) @Parameter(name = "year", description = "Year", example = "1825") Integer year) {
+        ResponseEntity<Object> response;
+
+        try {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, service.getEntity(type, id, year), HttpStatus.OK);
+        }
+        catch (MissingResourceException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+
+        return response;
+    }
+
+    /**
+     * Return the populations of all cities or countries at a year
+     * @param type Entity type ("city" or "country")
+     * @param year Year
+     * @return Response containing the populations by entity id
+     */
+    @GetMapping("/{type}")
+    @Operation(
+        summary = "Retrieve the population of all cities or countries",
+        description = "Return the population at a year of each city or country with a known population, linearly interpolated between samples"
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Populations by entity id",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": {\"12\": 800000, \"37\": 115000}}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Unknown type",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Unknown type\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getAllPopulations(@PathVariable("type") @Parameter(name = "type", description = "Entity type", example = "city") String type,
+                                                    @RequestParam("year") @Parameter(name = "year", description = "Year", example = "1825") int year) {
+        ResponseEntity<Object> response;
+
+        try {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, service.getAllAt(type, year), HttpStatus.OK);
+        }
+        catch (MissingResourceException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+
+        return response;
+    }
+}
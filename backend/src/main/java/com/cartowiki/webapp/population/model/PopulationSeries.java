@@ -0,0 +1,163 @@
+package com.cartowiki.webapp.population.model;
+
+import java.util.Arrays;
+
+/**
+ * Immutable population time series of all entities of one type, stored by columns:
+ * samples of the entity at position i are years[offsets[i]] to years[offsets[i + 1] - 1] (sorted),
+ * with the matching populations. Entity ids are sorted, so that an entity is found by binary search.
+ */
+public final class PopulationSeries {
+    public static final int UNKNOWN = -1;
+
+    public static final PopulationSeries EMPTY = new PopulationSeries(new int[0], new short[0], new int[0]);
+
+    private final int[] ids;
+    private final int[] offsets;
+    private final short[] years;
+    private final int[] populations;
+
+    /**
+     * Constructor with arguments, from samples sorted by entity and year (a later duplicate replaces an earlier one)
+     * @param sampleIds Entity id of each sample
+     * @param sampleYears Year of each sample
+     * @param samplePopulations Population of each sample
+     * @throws IllegalArgumentException Samples of different lengths or not sorted
+     */
+    public PopulationSeries(int[] sampleIds, short[] sampleYears, int[] samplePopulations) throws IllegalArgumentException {
+        int size = sampleIds.length;
+
+        if (sampleYears.length != size || samplePopulations.length != size) {
+            throw new IllegalArgumentException("Samples of different lengths");
+        }
+
+        int[] entityIds = new int[size];
+        int[] entityOffsets = new int[size + 1];
+        short[] keptYears = new short[size];
+        int[] keptPopulations = new int[size];
+        int entities = 0;
+        int kept = 0;
+
+        for (int i = 0; i < size; i++) {
+            boolean newEntity = entities == 0 || sampleIds[i] != entityIds[entities - 1];
+
+            if (!newEntity && sampleYears[i] < keptYears[kept - 1]
+                || entities > 0 && sampleIds[i] < entityIds[entities - 1]) {
+                throw new IllegalArgumentException("Samples not sorted");
+            }
+
+            if (newEntity) {
+                entityIds[entities] = sampleIds[i];
+                entityOffsets[entities] = kept;
+                entities++;
+            }
+            else if (sampleYears[i] == keptYears[kept - 1]) {
+                kept--;
+            }
+
+            keptYears[kept] = sampleYears[i];
+            keptPopulations[kept] = samplePopulations[i];
+            kept++;
+        }
+
+        entityOffsets[entities] = kept;
+
+        this.ids = Arrays.copyOf(entityIds, entities);
+        this.offsets = Arrays.copyOf(entityOffsets, entities + 1);
+        this.years = Arrays.copyOf(keptYears, kept);
+        this.populations = Arrays.copyOf(keptPopulations, kept);
+    }
+
+    /**
+     * Return the years of the samples of an entity
+     * @param id Entity id
+     * @return Sorted years, empty if no sample
+     */
+    public short[] getYears(int id) {
+        int position = Arrays.binarySearch(ids, id);
+
+        return position < 0 ? new short[0] : Arrays.copyOfRange(years, offsets[position], offsets[position + 1]);
+    }
+
+    /**
+     * Return the populations of the samples of an entity
+     * @param id Entity id
+     * @return Populations, in the order of the years
+     */
+    public int[] getPopulations(int id) {
+        int position = Arrays.binarySearch(ids, id);
+
+        return position < 0 ? new int[0] : Arrays.copyOfRange(populations, offsets[position], offsets[position + 1]);
+    }
+
+    /**
+     * Return the population of an entity at a year, linearly interpolated between the surrounding samples.
+     * After the last sample, the last population is kept.
+     * @param id Entity id
+     * @param year Year
+     * @return Population, or UNKNOWN before the first sample
+     */
+    public int getPopulation(int id, int year) {
+        int position = Arrays.binarySearch(ids, id);
+
+        return position < 0 ? UNKNOWN : this.interpolate(position, year);
+    }
+
+    /**
+     * Return the populations of all entities at a year
+     * @param year Year
+     * @return {entity ids, populations}, only for entities with a known population
+     */
+    public int[][] getAllAt(int year) {
+        int[] foundIds = new int[ids.length];
+        int[] foundPopulations = new int[ids.length];
+        int count = 0;
+
+        for (int position = 0; position < ids.length; position++) {
+            int population = this.interpolate(position, year);
+
+            if (population != UNKNOWN) {
+                foundIds[count] = ids[position];
+                foundPopulations[count] = population;
+                count++;
+            }
+        }
+
+        return new int[][] {Arrays.copyOf(foundIds, count), Arrays.copyOf(foundPopulations, count)};
+    }
+
+    /**
+     * Return the population of the entity at a position at a year
+     * @param position Position of the entity
+     * @param year Year
+     * @return Population, or UNKNOWN before the first sample
+     */
+    private int interpolate(int position, int year) {
+        int start = offsets[position];
+        int end = offsets[position + 1];
+        int population = UNKNOWN;
+
+        // Last sample at or before the year
+        int found = Arrays.binarySearch(years, start, end, (short) Math.clamp(year, Short.MIN_VALUE, Short.MAX_VALUE));
+        int before = found >= 0 ? found : -found - 2;
+
+        if (before >= start) {
+            population = populations[before];
+
+            if (found < 0 && before + 1 < end) {
+                double progress = (double) (year - years[before]) / (years[before + 1] - years[before]);
+                population = (int) Math.round(populations[before] + progress * (populations[before + 1] - populations[before]));
+            }
+        }
+
+        return population;
+    }
+
+    /**
+     * Number of entities getter
+     * @return Number of entities with samples
+     */
+    public int size() {
+        return ids.length;
+    }
+}
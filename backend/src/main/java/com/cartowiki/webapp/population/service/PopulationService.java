@@ -0,0 +1,217 @@
+package com.cartowiki.webapp.population.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.MissingResourceException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.cartowiki.webapp.population.model.PopulationSeries;
+import com.cartowiki.webapp.tiles.model.DataChangeEvent;
+
+/**
+ * Answer population lookups of cities and countries from memory.
+ * The samples of each type are held as sorted primitive columns, read at startup and read again in full when the
+ * population table of that type changes: a lookup uses the columns current when it starts.
+ */
+@Service
+public class PopulationService {
+    public static final String CITY = "city";
+    public static final String COUNTRY = "country";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PopulationService.class);
+
+    private static final String CITIES_QUERY = "SELECT id_entite_ville, annee, population FROM populations_villes ORDER BY id_entite_ville, annee, id_pop_ville";
+    private static final String COUNTRIES_QUERY = "SELECT id_entite_pays, annee, population FROM populations_pays ORDER BY id_entite_pays, annee, id_pop_pays";
+
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile PopulationSeries cities = PopulationSeries.EMPTY;
+    private volatile PopulationSeries countries = PopulationSeries.EMPTY;
+
+    /**
+     * Autowired constructor
+     * @param jdbcTemplate JDBC access to the database
+     */
+    @Autowired
+    public PopulationService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Load all series at startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        try {
+            cities = this.loadSeries(CITIES_QUERY);
+            countries = this.loadSeries(COUNTRIES_QUERY);
+        }
+        catch (DataAccessException e) {
+            LOGGER.error("Unable to load populations", e);
+        }
+    }
+
+    /**
+     * Load the series of a type again after a change of its table (reloads are serialized, so that older series
+     * never replace newer ones)
+     * @param event Change of a row of the map data
+     */
+    @EventListener
+    public synchronized void onDataChange(DataChangeEvent event) {
+        try {
+            if (DataChangeEvent.CITY_POPULATIONS.equals(event.getTable())) {
+                cities = this.loadSeries(CITIES_QUERY);
+            }
+            else if (DataChangeEvent.COUNTRY_POPULATIONS.equals(event.getTable())) {
+                countries = this.loadSeries(COUNTRIES_QUERY);
+            }
+        }
+        catch (DataAccessException e) {
+            LOGGER.error("Unable to load populations after a change of table {}", event.getTable(), e);
+        }
+    }
+
+    /**
+     * Read series from the database into primitive columns
+     * @param query Query of (entity id, year, population) rows sorted by entity and year
+     * @return Series
+     * @throws DataAccessException Error while reading the populations
+     */
+    private PopulationSeries loadSeries(String query) throws DataAccessException {
+        Samples samples = new Samples();
+
+        jdbcTemplate.query(query, row -> {
+            samples.add(row.getInt(1), row.getShort(2), row.getInt(3));
+        });
+
+        return samples.toSeries();
+    }
+
+    /**
+     * Growing columns of samples, read without boxing
+     */
+    private static final class Samples {
+        private int[] ids = new int[1024];
+        private short[] years = new short[1024];
+        private int[] populations = new int[1024];
+        private int count = 0;
+
+        /**
+         * Append a sample
+         * @param id Entity id
+         * @param year Year
+         * @param population Population
+         */
+        private void add(int id, short year, int population) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * count);
+                years = Arrays.copyOf(years, 2 * count);
+                populations = Arrays.copyOf(populations, 2 * count);
+            }
+
+            ids[count] = id;
+            years[count] = year;
+            populations[count] = population;
+            count++;
+        }
+
+        /**
+         * Build series from the appended samples
+         * @return Series
+         */
+        private PopulationSeries toSeries() {
+            return new PopulationSeries(Arrays.copyOf(ids, count), Arrays.copyOf(years, count), Arrays.copyOf(populations, count));
+        }
+    }
+
+    /**
+     * Return the samples of an entity, and its population at a year if asked
+     * @param type Entity type ("city" or "country")
+     * @param id Entity id
+     * @param year Year of the interpolated population, null for none
+     * @return Map of the series for converting to JSON
+     * @throws MissingResourceException Unknown type, or entity without samples
+     */
+    public HashMap<String, Object> getEntity(String type, int id, Integer year) throws MissingResourceException {
+        PopulationSeries series = this.getSeries(type);
+        short[] years = series.getYears(id);
+
+        if (years.length == 0) {
+            throw new MissingResourceException("No population", type, Integer.toString(id));
+        }
+
+        HashMap<String, Object> map = new HashMap<>();
+        map.put("type", type);
+        map.put("id", id);
+        map.put("years", years);
+        map.put("populations", series.getPopulations(id));
+
+        if (year != null) {
+            int population = series.getPopulation(id, year);
+            map.put("year", year);
+            map.put("population", population == PopulationSeries.UNKNOWN ? null : population);
+        }
+
+        return map;
+    }
+
+    /**
+     * Return the population of an entity at a year
+     * @param type Entity type ("city" or "country")
+     * @param id Entity id
+     * @param year Year
+     * @return Interpolated population, PopulationSeries.UNKNOWN if not known at that year
+     * @throws MissingResourceException Unknown type
+     */
+    public int getPopulation(String type, int id, int year) throws MissingResourceException {
+        return this.getSeries(type).getPopulation(id, year);
+    }
+
+    /**
+     * Return the populations of all entities of a type at a year
+     * @param type Entity type ("city" or "country")
+     * @param year Year
+     * @return Map of the populations by entity id for converting to JSON
+     * @throws MissingResourceException Unknown type
+     */
+    public HashMap<Integer, Integer> getAllAt(String type, int year) throws MissingResourceException {
+        int[][] found = this.getSeries(type).getAllAt(year);
+        HashMap<Integer, Integer> map = HashMap.newHashMap(found[0].length);
+
+        for (int i = 0; i < found[0].length; i++) {
+            map.put(found[0][i], found[1][i]);
+        }
+
+        return map;
+    }
+
+    /**
+     * Return the series of a type
+     * @param type Entity type ("city" or "country")
+     * @return Series
+     * @throws MissingResourceException Unknown type
+     */
+    private PopulationSeries getSeries(String type) throws MissingResourceException {
+        PopulationSeries series;
+
+        if (CITY.equals(type)) {
+            series = cities;
+        }
+        else if (COUNTRY.equals(type)) {
+            series = countries;
+        }
+        else {
+            throw new MissingResourceException("Unknown type", "Type", type);
+        }
+
+        return series;
+    }
+}
@@ -0,0 +1,46 @@
+package com.cartowiki.webapp.search.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Store parameters of the place name search
+ */
+@Configuration
+@ConfigurationProperties(prefix = "search")
+public class SearchConfig {
+    private int limit = 10;
+    private int maxLimit = 50;
+
+    /**
+     * Limit getter
+     * @return Number of results returned when the client gives no limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Limit setter
+     * @param limit New number of results returned when the client gives no limit
+     */
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Max limit getter
+     * @return Greatest number of results a client may ask for
+     */
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Max limit setter
+     * @param maxLimit New greatest number of results a client may ask for
+     */
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+}
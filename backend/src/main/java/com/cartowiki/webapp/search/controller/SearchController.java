@@ -0,0 +1,85 @@
+package com.cartowiki.webapp.search.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cartowiki.webapp.search.service.NameSearchService;
+import com.cartowiki.webapp.util.ResponseMaker;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * Search of places by name
+ */
+@RestController
+@RequestMapping("/api/search")
+@Tag(name = "Search")
+public class SearchController {
+    private NameSearchService service;
+
+    /**
+     * Autowired constructor
+     * @param service Service for the name search
+     */
+    @Autowired
+    public SearchController(NameSearchService service) {
+        this.service = service;
+    }
+
+    /**
+     * Return the cities and countries whose name matches a query
+     * @param query Query typed by the user
+     * @param year Year the names must be used at (optional)
+     * @param limit Maximum number of results (optional)
+     * @return Response containing the places
+     */
+    @GetMapping
+    @Operation(
+        summary = "Search cities and countries by name",
+        description = "Return the cities and countries with a name equal to, starting with, having a word starting with, or close to the query, ignoring accents and case. " +
+                      "Equally good matches are sorted by decreasing population. If a year is given, only names used at that year are matched"
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "List of places, best match first",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": [{\"type\": \"city\", \"id\": 37, \"name\": \"Lyon\", \"firstYear\": null, \"lastYear\": null, \"population\": 109000}]}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Empty query, or invalid limit",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Empty query\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> search(@RequestParam("q") @Parameter(name = "q", description = "Query", example = "lyo") String query,
+                                         @RequestParam(name = "year", required = false) @Parameter(name = "year", description = "Year", example = "1800") Integer year,
+                                         @RequestParam(name = "limit", required = false) @Parameter(name = "limit", description = "Maximum number of results", example = "10") Integer limit) {
+        ResponseEntity<Object> response;
+
+        try {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, service.search(query, year, limit), HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+
+        return response;
+    }
+}
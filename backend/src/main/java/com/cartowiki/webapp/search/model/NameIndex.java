@@ -0,0 +1,263 @@
+package com.cartowiki.webapp.search.model;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable autocomplete index over place names, matching accent-folded and lower-cased names.
+ * Every word start of every name is kept in an array sorted by the rest of the name from there,
+ * so that prefixes of any word are found by binary search. Misspelled queries are matched by
+ * the trigrams they share with names, through an inverted index from trigrams to names.
+ */
+public final class NameIndex {
+    public static final NameIndex EMPTY = new NameIndex(List.of());
+
+    // Smallest Dice similarity of the trigrams of a fuzzy match
+    public static final double MIN_SIMILARITY = 0.5;
+
+    // Scores of the kinds of matches, fuzzy matches score their similarity (at most 1)
+    private static final double EXACT = 4;
+    private static final double PREFIX = 3;
+    private static final double WORD_PREFIX = 2;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final PlaceName[] names;
+    private final String[] keys;
+
+    // Word i starts at wordOffsets[i] in keys[wordNames[i]], words are sorted by the rest of their key
+    private final int[] wordNames;
+    private final int[] wordOffsets;
+
+    // Positions of the names containing each trigram, and number of distinct trigrams of each name
+    private final Map<String, int[]> trigrams;
+    private final int[] trigramCounts;
+
+    /**
+     * Constructor with arguments
+     * @param names Indexed names
+     */
+    public NameIndex(Collection<PlaceName> names) {
+        this.names = names.toArray(new PlaceName[0]);
+        this.keys = new String[this.names.length];
+
+        List<long[]> words = new ArrayList<>();
+        Map<String, List<Integer>> postings = new HashMap<>();
+        this.trigramCounts = new int[this.names.length];
+
+        for (int i = 0; i < this.names.length; i++) {
+            keys[i] = normalize(this.names[i].getName());
+
+            for (int offset = 0; offset < keys[i].length(); offset++) {
+                if (offset == 0 || keys[i].charAt(offset - 1) == ' ') {
+                    words.add(new long[] {i, offset});
+                }
+            }
+
+            Set<String> nameTrigrams = trigramsOf(keys[i]);
+            trigramCounts[i] = nameTrigrams.size();
+
+            for (String trigram: nameTrigrams) {
+                postings.computeIfAbsent(trigram, key -> new ArrayList<>()).add(i);
+            }
+        }
+
+        words.sort(Comparator.comparing((long[] word) -> keys[(int) word[0]].substring((int) word[1]))
+                             .thenComparingLong(word -> word[0]));
+
+        this.wordNames = new int[words.size()];
+        this.wordOffsets = new int[words.size()];
+
+        for (int i = 0; i < words.size(); i++) {
+            wordNames[i] = (int) words.get(i)[0];
+            wordOffsets[i] = (int) words.get(i)[1];
+        }
+
+        this.trigrams = HashMap.newHashMap(postings.size());
+
+        for (Map.Entry<String, List<Integer>> entry: postings.entrySet()) {
+            trigrams.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    /**
+     * Fold a name for matching: accents removed, lower case, words separated by single spaces
+     * @param name Name, may be null
+     * @return Normalized name
+     */
+    public static String normalize(String name) {
+        String normalized = "";
+
+        if (name != null) {
+            String folded = Normalizer.normalize(name, Normalizer.Form.NFD);
+            folded = MARKS.matcher(folded).replaceAll("").toLowerCase(Locale.ROOT);
+            folded = folded.replace("ß", "ss").replace("æ", "ae").replace("œ", "oe").replace("ø", "o").replace("ł", "l").replace("đ", "d");
+            normalized = SEPARATORS.matcher(folded).replaceAll(" ").strip();
+        }
+
+        return normalized;
+    }
+
+    /**
+     * Return the distinct trigrams of a normalized name, padded so that word starts weigh more
+     * @param key Normalized name
+     * @return Trigrams
+     */
+    private static Set<String> trigramsOf(String key) {
+        Set<String> result = new HashSet<>();
+        String padded = "  " + key + " ";
+
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+
+        return result;
+    }
+
+    /**
+     * Find the best names matching a query, one per entity.
+     * Exact names come first, then names starting with the query, names with a word starting with it,
+     * and finally names close to it; names of the same kind of match are sorted by decreasing weight.
+     * @param query Query typed by the user
+     * @param year Year the names must be used at, null for all names
+     * @param limit Maximum number of names
+     * @param weight Weight of a name among names of the same kind of match, such as the population of its entity
+     * @return Matching names, best first
+     */
+    public List<PlaceName> search(String query, Integer year, int limit, ToLongFunction<PlaceName> weight) {
+        String key = normalize(query);
+        Map<String, double[]> best = new HashMap<>();
+
+        if (!key.isEmpty()) {
+            this.matchWords(key, year, best);
+            this.matchTrigrams(key, year, best);
+        }
+
+        // Candidates as {position, score, weight}
+        List<double[]> candidates = new ArrayList<>(best.size());
+
+        for (double[] match: best.values()) {
+            candidates.add(new double[] {match[0], match[1], weight.applyAsLong(names[(int) match[0]])});
+        }
+
+        candidates.sort(Comparator.comparingDouble((double[] candidate) -> -candidate[1])
+                                  .thenComparingDouble(candidate -> -candidate[2])
+                                  .thenComparing(candidate -> keys[(int) candidate[0]]));
+
+        List<PlaceName> result = new ArrayList<>(Math.min(limit, candidates.size()));
+
+        for (int i = 0; i < candidates.size() && i < limit; i++) {
+            result.add(names[(int) candidates.get(i)[0]]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Add the names with a word starting with a query
+     * @param key Normalized query
+     * @param year Year the names must be used at, null for all names
+     * @param best Best match of each entity so far, as {position, score}, to update
+     */
+    private void matchWords(String key, Integer year, Map<String, double[]> best) {
+        for (int i = this.lowerBound(key); i < wordNames.length && keys[wordNames[i]].startsWith(key, wordOffsets[i]); i++) {
+            int position = wordNames[i];
+            double score = WORD_PREFIX;
+
+            if (wordOffsets[i] == 0) {
+                score = keys[position].length() == key.length() ? EXACT : PREFIX;
+            }
+
+            this.offer(position, score, year, best);
+        }
+    }
+
+    /**
+     * Add the names sharing enough trigrams with a query
+     * @param key Normalized query
+     * @param year Year the names must be used at, null for all names
+     * @param best Best match of each entity so far, as {position, score}, to update
+     */
+    private void matchTrigrams(String key, Integer year, Map<String, double[]> best) {
+        Set<String> queryTrigrams = trigramsOf(key);
+        Map<Integer, Integer> shared = new HashMap<>();
+
+        for (String trigram: queryTrigrams) {
+            for (int position: trigrams.getOrDefault(trigram, new int[0])) {
+                shared.merge(position, 1, Integer::sum);
+            }
+        }
+
+        for (Map.Entry<Integer, Integer> entry: shared.entrySet()) {
+            int position = entry.getKey();
+            double similarity = 2.0 * entry.getValue() / (queryTrigrams.size() + trigramCounts[position]);
+
+            if (similarity >= MIN_SIMILARITY) {
+                this.offer(position, similarity, year, best);
+            }
+        }
+    }
+
+    /**
+     * Keep a match if it is the best one of its entity
+     * @param position Position of the matching name
+     * @param score Score of the match
+     * @param year Year the names must be used at, null for all names
+     * @param best Best match of each entity so far, as {position, score}, to update
+     */
+    private void offer(int position, double score, Integer year, Map<String, double[]> best) {
+        PlaceName name = names[position];
+
+        if (year == null || name.isValidAt(year)) {
+            String entity = name.getType() + "/" + name.getId();
+            double[] current = best.get(entity);
+
+            if (current == null || current[1] < score) {
+                best.put(entity, new double[] {position, score});
+            }
+        }
+    }
+
+    /**
+     * Return the position of the first word whose rest of the key is not before a query
+     * @param key Normalized query
+     * @return Position in the sorted words
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = wordNames.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            String word = keys[wordNames[middle]].substring(wordOffsets[middle]);
+
+            if (word.compareTo(key) < 0) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Number of names getter
+     * @return Number of indexed names
+     */
+    public int size() {
+        return names.length;
+    }
+}
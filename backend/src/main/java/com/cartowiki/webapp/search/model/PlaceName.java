@@ -0,0 +1,77 @@
+package com.cartowiki.webapp.search.model;
+
+/**
+ * Name of a city or country during a period
+ */
+public final class PlaceName {
+    private final String type;
+    private final int id;
+    private final String name;
+    private final int firstYear;
+    private final int lastYear;
+
+    /**
+     * Constructor with arguments
+     * @param type Entity type ("city" or "country")
+     * @param id Entity id
+     * @param name Name
+     * @param firstYear First year of the name (Short.MIN_VALUE if unbounded)
+     * @param lastYear Last year of the name (Short.MAX_VALUE if unbounded)
+     */
+    public PlaceName(String type, int id, String name, int firstYear, int lastYear) {
+        this.type = type;
+        this.id = id;
+        this.name = name;
+        this.firstYear = firstYear;
+        this.lastYear = lastYear;
+    }
+
+    /**
+     * Type getter
+     * @return Entity type ("city" or "country")
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Id getter
+     * @return Entity id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Name getter
+     * @return Name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * First year getter
+     * @return First year of the name (Short.MIN_VALUE if unbounded)
+     */
+    public int getFirstYear() {
+        return firstYear;
+    }
+
+    /**
+     * Last year getter
+     * @return Last year of the name (Short.MAX_VALUE if unbounded)
+     */
+    public int getLastYear() {
+        return lastYear;
+    }
+
+    /**
+     * Check whether the name is used at a year
+     * @param year Year
+     * @return True if the period of the name contains the year
+     */
+    public boolean isValidAt(int year) {
+        return firstYear <= year && lastYear >= year;
+    }
+}
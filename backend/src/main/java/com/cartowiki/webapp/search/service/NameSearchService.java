@@ -0,0 +1,172 @@
+package com.cartowiki.webapp.search.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.cartowiki.webapp.population.model.PopulationSeries;
+import com.cartowiki.webapp.population.service.PopulationService;
+import com.cartowiki.webapp.search.config.SearchConfig;
+import com.cartowiki.webapp.search.model.NameIndex;
+import com.cartowiki.webapp.search.model.PlaceName;
+import com.cartowiki.webapp.tiles.model.DataChangeEvent;
+
+/**
+ * Autocomplete city and country names from memory, ignoring accents and case.
+ * Names are loaded at startup, and the names of a type are read again when its table changes; the index is then
+ * rebuilt with the names of the other type kept as they are.
+ */
+@Service
+public class NameSearchService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NameSearchService.class);
+
+    private static final String CITY_NAMES_QUERY = """
+        SELECT ville.id_ville, ville.id_entite_ville, noms_villes.nom_ville,
+               COALESCE(periodes.annee_debut, -32768), COALESCE(periodes.annee_fin, 32767)
+        FROM ville
+        JOIN noms_villes ON ville.id_nom_ville = noms_villes.id_nom_ville
+        LEFT JOIN periodes ON ville.id_periode = periodes.id_periode
+        """;
+
+    private static final String COUNTRY_NAMES_QUERY = """
+        SELECT pays.id_pays, pays.id_entite_pays, noms_pays.nom_pays,
+               COALESCE(periodes.annee_debut, -32768), COALESCE(periodes.annee_fin, 32767)
+        FROM pays
+        JOIN noms_pays ON pays.id_nom_pays = noms_pays.id_nom_pays
+        LEFT JOIN periodes ON pays.id_periode = periodes.id_periode
+        """;
+
+    private SearchConfig config;
+    private JdbcTemplate jdbcTemplate;
+    private PopulationService populationService;
+
+    // Names of each type, kept to rebuild the index when only the other type changes
+    private List<PlaceName> cityNames = new ArrayList<>();
+    private List<PlaceName> countryNames = new ArrayList<>();
+
+    private volatile NameIndex index = NameIndex.EMPTY;
+
+    /**
+     * Autowired constructor
+     * @param config Search parameters
+     * @param jdbcTemplate JDBC access to the database
+     * @param populationService Populations, for ranking names
+     */
+    @Autowired
+    public NameSearchService(SearchConfig config, JdbcTemplate jdbcTemplate, PopulationService populationService) {
+        this.config = config;
+        this.jdbcTemplate = jdbcTemplate;
+        this.populationService = populationService;
+    }
+
+    /**
+     * Load the names at startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        try {
+            cityNames = this.loadNames(CITY_NAMES_QUERY, PopulationService.CITY);
+            countryNames = this.loadNames(COUNTRY_NAMES_QUERY, PopulationService.COUNTRY);
+            this.publish();
+        }
+        catch (DataAccessException e) {
+            LOGGER.error("Unable to load the name index", e);
+        }
+    }
+
+    /**
+     * Load the names of a type again after a change of its table, keeping the names of the other type
+     * @param event Change of a row of the map data
+     */
+    @EventListener
+    public synchronized void onDataChange(DataChangeEvent event) {
+        try {
+            if (DataChangeEvent.CITY_NAMES.equals(event.getTable())) {
+                cityNames = this.loadNames(CITY_NAMES_QUERY, PopulationService.CITY);
+                this.publish();
+            }
+            else if (DataChangeEvent.COUNTRY_NAMES.equals(event.getTable())) {
+                countryNames = this.loadNames(COUNTRY_NAMES_QUERY, PopulationService.COUNTRY);
+                this.publish();
+            }
+        }
+        catch (DataAccessException e) {
+            LOGGER.error("Unable to load names after a change of table {}", event.getTable(), e);
+        }
+    }
+
+    /**
+     * Read the names of a type from the database
+     * @param query Query of (row id, entity id, name, first year, last year) rows
+     * @param type Entity type ("city" or "country")
+     * @return Names
+     * @throws DataAccessException Error while reading the names
+     */
+    private List<PlaceName> loadNames(String query, String type) throws DataAccessException {
+        List<PlaceName> names = new ArrayList<>();
+
+        jdbcTemplate.query(query, row -> {
+            names.add(new PlaceName(type, row.getInt(2), row.getString(3), row.getInt(4), row.getInt(5)));
+        });
+
+        return names;
+    }
+
+    /**
+     * Build and publish a new index from the names of both types
+     */
+    private void publish() {
+        List<PlaceName> names = new ArrayList<>(cityNames.size() + countryNames.size());
+        names.addAll(cityNames);
+        names.addAll(countryNames);
+
+        index = new NameIndex(names);
+    }
+
+    /**
+     * Find the cities and countries whose name matches a query, the most populated first among equally good matches
+     * @param query Query typed by the user
+     * @param year Year the names must be used at, null for all names
+     * @param limit Maximum number of results, null for the default one
+     * @return List of places for converting to JSON
+     * @throws IllegalArgumentException Empty query, or invalid limit
+     */
+    public List<HashMap<String, Object>> search(String query, Integer year, Integer limit) throws IllegalArgumentException {
+        if (NameIndex.normalize(query).isEmpty()) {
+            throw new IllegalArgumentException("Empty query");
+        }
+
+        if (limit != null && (limit < 1 || limit > config.getMaxLimit())) {
+            throw new IllegalArgumentException("Invalid limit");
+        }
+
+        // Without a year, entities are ranked by their latest known population
+        int rankYear = year == null ? Short.MAX_VALUE : year;
+        List<HashMap<String, Object>> places = new ArrayList<>();
+
+        for (PlaceName name: index.search(query, year, limit == null ? config.getLimit() : limit,
+                                          place -> populationService.getPopulation(place.getType(), place.getId(), rankYear))) {
+            HashMap<String, Object> place = new HashMap<>();
+            int population = populationService.getPopulation(name.getType(), name.getId(), rankYear);
+
+            place.put("type", name.getType());
+            place.put("id", name.getId());
+            place.put("name", name.getName());
+            place.put("firstYear", name.getFirstYear() == Short.MIN_VALUE ? null : name.getFirstYear());
+            place.put("lastYear", name.getLastYear() == Short.MAX_VALUE ? null : name.getLastYear());
+            place.put("population", population == PopulationSeries.UNKNOWN ? null : population);
+            places.add(place);
+        }
+
+        return places;
+    }
+}
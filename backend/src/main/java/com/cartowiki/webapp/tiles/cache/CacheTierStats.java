@@ -0,0 +1,89 @@
+package com.cartowiki.webapp.tiles.cache;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit, miss and eviction counters of one cache tier
+ */
+public class CacheTierStats {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Record one hit
+     */
+    public void recordHit() {
+        hits.increment();
+    }
+
+    /**
+     * Record one miss
+     */
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    /**
+     * Record one eviction
+     */
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+    /**
+     * Record one candidate refused by the admission policy
+     */
+    public void recordRejection() {
+        rejections.increment();
+    }
+
+    /**
+     * Number of hits getter
+     * @return Number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Number of misses getter
+     * @return Number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of evictions getter
+     * @return Number of evictions
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Number of rejections getter
+     * @return Number of candidates refused by the admission policy
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * Return the counters for converting to JSON
+     * @return Map of counters
+     */
+    public HashMap<String, Object> toMap() {
+        HashMap<String, Object> map = new HashMap<>();
+
+        map.put("hits", this.getHits());
+        map.put("misses", this.getMisses());
+        map.put("evictions", this.getEvictions());
+        map.put("rejections", this.getRejections());
+
+        return map;
+    }
+}
@@ -0,0 +1,89 @@
+package com.cartowiki.webapp.tiles.cache;
+
+/**
+ * Approximate access frequency of keys (Count-Min sketch with periodic aging, as in TinyLFU)
+ */
+public class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x97cb3127, 0xb14f5e3d, 0x5bd1e995, 0x27d4eb2f};
+
+    private final int[][] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * Constructor with arguments
+     * @param expectedEntries Approximate number of distinct keys to track
+     */
+    public FrequencySketch(int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(16, expectedEntries - 1) << 1);
+
+        this.table = new int[DEPTH][width];
+        this.mask = width - 1;
+        this.sampleSize = 10 * width;
+    }
+
+    /**
+     * Record one access to a key
+     * @param hash Hash code of the key
+     */
+    public void increment(int hash) {
+        boolean added = false;
+
+        for (int i = 0; i < DEPTH; i++) {
+            int index = this.indexOf(hash, i);
+
+            if (table[i][index] < MAX_COUNT) {
+                table[i][index]++;
+                added = true;
+            }
+        }
+
+        // Halve every counter once in a while so that old popularity fades away
+        if (added && ++additions >= sampleSize) {
+            this.reset();
+        }
+    }
+
+    /**
+     * Return the estimated access frequency of a key
+     * @param hash Hash code of the key
+     * @return Estimated frequency (between 0 and 15)
+     */
+    public int frequency(int hash) {
+        int frequency = MAX_COUNT;
+
+        for (int i = 0; i < DEPTH; i++) {
+            frequency = Math.min(frequency, table[i][this.indexOf(hash, i)]);
+        }
+
+        return frequency;
+    }
+
+    /**
+     * Return the counter index of a key in one row of the sketch
+     * @param hash Hash code of the key
+     * @param row Row of the sketch
+     * @return Index in the row
+     */
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Halve all counters
+     */
+    private void reset() {
+        for (int[] row: table) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>>= 1;
+            }
+        }
+
+        additions /= 2;
+    }
+}
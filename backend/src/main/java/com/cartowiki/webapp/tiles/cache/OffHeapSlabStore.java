@@ -0,0 +1,119 @@
+package com.cartowiki.webapp.tiles.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size arena of direct memory split into blocks, holding byte arrays outside of the Java heap
+ */
+public class OffHeapSlabStore {
+    private final ByteBuffer arena;
+    private final int blockSize;
+    private final int[] freeBlocks;
+    private int freeCount;
+
+    /**
+     * Constructor with arguments
+     * @param capacity Size of the arena (in bytes)
+     * @param blockSize Size of one block (in bytes)
+     * @throws IllegalArgumentException Invalid sizes
+     */
+    public OffHeapSlabStore(long capacity, int blockSize) throws IllegalArgumentException {
+        if (blockSize <= 0 || capacity < blockSize || capacity > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid off-heap arena size");
+        }
+
+        int blocks = (int) (capacity / blockSize);
+
+        this.arena = ByteBuffer.allocateDirect(blocks * blockSize);
+        this.blockSize = blockSize;
+        this.freeBlocks = new int[blocks];
+        this.freeCount = blocks;
+
+        for (int i = 0; i < blocks; i++) {
+            freeBlocks[i] = blocks - 1 - i;
+        }
+    }
+
+    /**
+     * Return the number of blocks needed to store some bytes
+     * @param length Number of bytes
+     * @return Number of blocks
+     */
+    public int blocksFor(int length) {
+        return Math.max(1, (length + blockSize - 1) / blockSize);
+    }
+
+    /**
+     * Number of free blocks getter
+     * @return Number of free blocks
+     */
+    public int getFreeBlocks() {
+        return freeCount;
+    }
+
+    /**
+     * Total number of blocks getter
+     * @return Number of blocks in the arena
+     */
+    public int getTotalBlocks() {
+        return freeBlocks.length;
+    }
+
+    /**
+     * Block size getter
+     * @return Size of one block (in bytes)
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Copy bytes into free blocks
+     * @param content Bytes to store
+     * @return Indices of the used blocks, or null if there isn't enough free blocks
+     */
+    public int[] store(byte[] content) {
+        int needed = this.blocksFor(content.length);
+        int[] blocks = null;
+
+        if (needed <= freeCount) {
+            blocks = new int[needed];
+
+            for (int i = 0; i < needed; i++) {
+                blocks[i] = freeBlocks[--freeCount];
+
+                int offset = i * blockSize;
+                arena.put(blocks[i] * blockSize, content, offset, Math.min(blockSize, content.length - offset));
+            }
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Copy stored bytes back into the heap
+     * @param blocks Indices of the blocks
+     * @param length Number of stored bytes
+     * @return Stored bytes
+     */
+    public byte[] read(int[] blocks, int length) {
+        byte[] content = new byte[length];
+
+        for (int i = 0; i < blocks.length; i++) {
+            int offset = i * blockSize;
+            arena.get(blocks[i] * blockSize, content, offset, Math.min(blockSize, length - offset));
+        }
+
+        return content;
+    }
+
+    /**
+     * Give blocks back to the arena
+     * @param blocks Indices of the blocks
+     */
+    public void free(int[] blocks) {
+        for (int block: blocks) {
+            freeBlocks[freeCount++] = block;
+        }
+    }
+}
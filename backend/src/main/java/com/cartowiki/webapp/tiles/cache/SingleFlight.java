@@ -0,0 +1,130 @@
+package com.cartowiki.webapp.tiles.cache;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesce concurrent loads of the same key: the first caller runs the load,
+ * and the other ones wait for its result instead of loading again
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long timeout;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder savedLoads = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * Constructor with arguments
+     * @param timeout Maximum waiting time for the result of another caller (in milliseconds)
+     */
+    public SingleFlight(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Return the value of a key, running the load only if no other caller is already loading it
+     * @param key Key
+     * @param loader Load of the value
+     * @return Value
+     * @throws IOException Load failed, or took too long (HttpTimeoutException)
+     * @throws InterruptedException Waiting interrupted
+     */
+    public V load(K key, Loader<V> loader) throws IOException, InterruptedException {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+        V value;
+
+        if (running == null) {
+            loads.increment();
+
+            try {
+                value = loader.load();
+                future.complete(value);
+            }
+            catch (IOException | InterruptedException | RuntimeException e) {
+                future.completeExceptionally(e);
+                throw e;
+            }
+            finally {
+                inFlight.remove(key, future);
+            }
+        }
+        else {
+            savedLoads.increment();
+            value = this.await(running);
+        }
+
+        return value;
+    }
+
+    /**
+     * Wait for the result of another caller
+     * @param running Load of the other caller
+     * @return Value
+     * @throws IOException Load failed, or took too long (HttpTimeoutException)
+     * @throws InterruptedException Waiting interrupted
+     */
+    private V await(CompletableFuture<V> running) throws IOException, InterruptedException {
+        try {
+            return running.get(timeout, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e) {
+            timeouts.increment();
+            throw new HttpTimeoutException("Timed out waiting for a concurrent load");
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            else {
+                throw new IOException("Concurrent load interrupted", cause);
+            }
+        }
+    }
+
+    /**
+     * Return the counters for converting to JSON
+     * @return Map of counters
+     */
+    public HashMap<String, Object> getStats() {
+        HashMap<String, Object> map = new HashMap<>();
+
+        map.put("loads", loads.sum());
+        map.put("savedLoads", savedLoads.sum());
+        map.put("timeouts", timeouts.sum());
+        map.put("inFlight", inFlight.size());
+
+        return map;
+    }
+
+    /**
+     * Load of a value
+     * @param <V> Value type
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+        /**
+         * Load the value
+         * @return Value
+         * @throws IOException Load failed
+         * @throws InterruptedException Load interrupted
+         */
+        V load() throws IOException, InterruptedException;
+    }
+}
@@ -0,0 +1,280 @@
+package com.cartowiki.webapp.tiles.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.cartowiki.webapp.tiles.config.TileCacheConfig;
+import com.cartowiki.webapp.tiles.model.TileKey;
+
+/**
+ * Two-tier in-memory tile cache, in front of the disk and GeoServer.
+ * The heap tier is a small LRU window for the hottest tiles. Tiles leaving it are candidates
+ * for the larger off-heap tier, sized in bytes, which only admits a candidate if it has been
+ * requested more often than the tiles it would evict (TinyLFU admission).
+ */
+@Component
+public class TileMemoryCache {
+    private static final int POPULARITY_THRESHOLD = 2;
+
+    private final int heapEntries;
+    private final LinkedHashMap<TileKey, byte[]> heapTier;
+    private final LinkedHashMap<TileKey, OffHeapEntry> offHeapTier;
+    private final OffHeapSlabStore slabs;
+    private final FrequencySketch sketch;
+
+    private final CacheTierStats heapStats = new CacheTierStats();
+    private final CacheTierStats offHeapStats = new CacheTierStats();
+
+    /**
+     * Autowired constructor
+     * @param config Sizes of the cache
+     */
+    @Autowired
+    public TileMemoryCache(TileCacheConfig config) {
+        this(config.getHeapEntries(), config.getOffHeapBytes(), config.getBlockSize());
+    }
+
+    /**
+     * Constructor with arguments
+     * @param heapEntries Maximum number of tiles in the heap tier
+     * @param offHeapBytes Size of the off-heap tier (in bytes)
+     * @param blockSize Size of one off-heap block (in bytes)
+     */
+    public TileMemoryCache(int heapEntries, long offHeapBytes, int blockSize) {
+        this.heapEntries = heapEntries;
+        this.heapTier = new LinkedHashMap<>(16, 0.75f, true);
+        this.offHeapTier = new LinkedHashMap<>(16, 0.75f, true);
+        this.slabs = new OffHeapSlabStore(offHeapBytes, blockSize);
+
+        // Track many more keys than cached ones so that frequencies survive evictions
+        this.sketch = new FrequencySketch(4 * (heapEntries + slabs.getTotalBlocks()));
+    }
+
+    /**
+     * Return a cached tile
+     * @param key Tile identifier
+     * @return Optional tile content, might be empty if not cached
+     */
+    public synchronized Optional<byte[]> get(TileKey key) {
+        sketch.increment(key.hashCode());
+
+        byte[] tile = heapTier.get(key);
+
+        if (tile != null) {
+            heapStats.recordHit();
+        }
+        else {
+            heapStats.recordMiss();
+
+            OffHeapEntry entry = offHeapTier.remove(key);
+
+            if (entry != null) {
+                offHeapStats.recordHit();
+
+                // Promote the tile into the heap tier
+                tile = slabs.read(entry.blocks, entry.length);
+                slabs.free(entry.blocks);
+                this.putInHeap(key, tile);
+            }
+            else {
+                offHeapStats.recordMiss();
+            }
+        }
+
+        return Optional.ofNullable(tile);
+    }
+
+    /**
+     * Check if a tile has been requested often enough to be worth copying in memory
+     * @param key Tile identifier
+     * @return Is the tile popular
+     */
+    public synchronized boolean isPopular(TileKey key) {
+        return sketch.frequency(key.hashCode()) >= POPULARITY_THRESHOLD;
+    }
+
+    /**
+     * Add a tile to the cache
+     * @param key Tile identifier
+     * @param tile Tile content
+     */
+    public synchronized void put(TileKey key, byte[] tile) {
+        OffHeapEntry previous = offHeapTier.remove(key);
+
+        if (previous != null) {
+            slabs.free(previous.blocks);
+        }
+
+        this.putInHeap(key, tile);
+    }
+
+    /**
+     * Remove a tile from the cache
+     * @param key Tile identifier
+     * @return Was the tile cached
+     */
+    public synchronized boolean invalidate(TileKey key) {
+        boolean removed = heapTier.remove(key) != null;
+        OffHeapEntry entry = offHeapTier.remove(key);
+
+        if (entry != null) {
+            slabs.free(entry.blocks);
+            removed = true;
+        }
+
+        return removed;
+    }
+
+    /**
+     * Remove all tiles matching a condition from the cache
+     * @param filter Condition on tile identifiers
+     * @return Number of removed tiles
+     */
+    public synchronized int invalidateWhere(Predicate<TileKey> filter) {
+        int removed = 0;
+        Iterator<TileKey> heapKeys = heapTier.keySet().iterator();
+
+        while (heapKeys.hasNext()) {
+            if (filter.test(heapKeys.next())) {
+                heapKeys.remove();
+                removed++;
+            }
+        }
+
+        Iterator<Map.Entry<TileKey, OffHeapEntry>> offHeapEntries = offHeapTier.entrySet().iterator();
+
+        while (offHeapEntries.hasNext()) {
+            Map.Entry<TileKey, OffHeapEntry> entry = offHeapEntries.next();
+
+            if (filter.test(entry.getKey())) {
+                slabs.free(entry.getValue().blocks);
+                offHeapEntries.remove();
+                removed++;
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Add a tile to the heap tier, moving the least recently used one to the off-heap tier if full
+     * @param key Tile identifier
+     * @param tile Tile content
+     */
+    private void putInHeap(TileKey key, byte[] tile) {
+        heapTier.put(key, tile);
+
+        if (heapTier.size() > heapEntries) {
+            Iterator<Map.Entry<TileKey, byte[]>> eldest = heapTier.entrySet().iterator();
+            Map.Entry<TileKey, byte[]> candidate = eldest.next();
+
+            eldest.remove();
+            heapStats.recordEviction();
+            this.admitOffHeap(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    /**
+     * Add a tile to the off-heap tier if it is more popular than the tiles it would evict
+     * @param key Tile identifier
+     * @param tile Tile content
+     */
+    private void admitOffHeap(TileKey key, byte[] tile) {
+        int needed = slabs.blocksFor(tile.length);
+        int candidateFrequency = sketch.frequency(key.hashCode());
+
+        // Select victims in least recently used order, without evicting them yet
+        List<TileKey> victims = new ArrayList<>();
+        int available = slabs.getFreeBlocks();
+        Iterator<Map.Entry<TileKey, OffHeapEntry>> iterator = offHeapTier.entrySet().iterator();
+        boolean admitted = needed <= slabs.getTotalBlocks();
+
+        while (admitted && available < needed) {
+            Map.Entry<TileKey, OffHeapEntry> victim = iterator.next();
+
+            if (sketch.frequency(victim.getKey().hashCode()) >= candidateFrequency) {
+                admitted = false;
+            }
+            else {
+                victims.add(victim.getKey());
+                available += victim.getValue().blocks.length;
+            }
+        }
+
+        if (admitted) {
+            for (TileKey victim: victims) {
+                slabs.free(offHeapTier.remove(victim).blocks);
+                offHeapStats.recordEviction();
+            }
+
+            offHeapTier.put(key, new OffHeapEntry(slabs.store(tile), tile.length));
+        }
+        else {
+            offHeapStats.recordRejection();
+        }
+    }
+
+    /**
+     * Return the counters of both tiers for converting to JSON
+     * @return Map of counters
+     */
+    public synchronized HashMap<String, Object> getStats() {
+        HashMap<String, Object> heap = heapStats.toMap();
+        heap.put("entries", heapTier.size());
+        heap.put("capacityEntries", heapEntries);
+
+        HashMap<String, Object> offHeap = offHeapStats.toMap();
+        offHeap.put("entries", offHeapTier.size());
+        offHeap.put("usedBytes", (long) (slabs.getTotalBlocks() - slabs.getFreeBlocks()) * slabs.getBlockSize());
+        offHeap.put("capacityBytes", (long) slabs.getTotalBlocks() * slabs.getBlockSize());
+
+        HashMap<String, Object> map = new HashMap<>();
+        map.put("heap", heap);
+        map.put("offHeap", offHeap);
+
+        return map;
+    }
+
+    /**
+     * Heap tier counters getter
+     * @return Heap tier counters
+     */
+    public CacheTierStats getHeapStats() {
+        return heapStats;
+    }
+
+    /**
+     * Off-heap tier counters getter
+     * @return Off-heap tier counters
+     */
+    public CacheTierStats getOffHeapStats() {
+        return offHeapStats;
+    }
+
+    /**
+     * Location of a tile in the off-heap arena
+     */
+    private static final class OffHeapEntry {
+        private final int[] blocks;
+        private final int length;
+
+        /**
+         * Constructor with arguments
+         * @param blocks Indices of the blocks
+         * @param length Size of the tile (in bytes)
+         */
+        private OffHeapEntry(int[] blocks, int length) {
+            this.blocks = blocks;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.cartowiki.webapp.tiles.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Store parameters for tile requests to GeoServer
+ */
+@Configuration
+@ConfigurationProperties(prefix = "geoserver")
+public class GeoServerConfig {
+    private String url;
+    private String tileCacheDirectory;
+    private int tileSize = 256;
+    private int timeout = 10000;
+    private Map<String, String> layers = new HashMap<>();
+
+    /**
+     * GeoServer base URL getter
+     * @return GeoServer base URL
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * GeoServer base URL setter
+     * @param url New GeoServer base URL
+     */
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Tile cache directory getter
+     * @return Root directory of the on-disk tile cache
+     */
+    public String getTileCacheDirectory() {
+        return tileCacheDirectory;
+    }
+
+    /**
+     * Tile cache directory setter
+     * @param tileCacheDirectory New root directory of the on-disk tile cache
+     */
+    public void setTileCacheDirectory(String tileCacheDirectory) {
+        this.tileCacheDirectory = tileCacheDirectory;
+    }
+
+    /**
+     * Tile size getter
+     * @return Width and height of a tile (in pixels)
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Tile size setter
+     * @param tileSize New width and height of a tile (in pixels)
+     */
+    public void setTileSize(int tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Request timeout getter
+     * @return Timeout of a request to GeoServer (in milliseconds)
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Request timeout setter
+     * @param timeout New timeout of a request to GeoServer (in milliseconds)
+     */
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Published layers getter
+     * @return Map of public layer names to GeoServer layer names
+     */
+    public Map<String, String> getLayers() {
+        return layers;
+    }
+
+    /**
+     * Published layers setter
+     * @param layers New map of public layer names to GeoServer layer names
+     */
+    public void setLayers(Map<String, String> layers) {
+        this.layers = layers;
+    }
+}
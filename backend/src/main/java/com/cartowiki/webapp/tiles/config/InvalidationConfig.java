@@ -0,0 +1,63 @@
+package com.cartowiki.webapp.tiles.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Store parameters of the tile invalidation after data changes
+ */
+@Configuration
+@ConfigurationProperties(prefix = "tiles.invalidation")
+public class InvalidationConfig {
+    private int hotZoom = 6;
+    private double padding = 0.25;
+    private int queueSize = 10000;
+
+    /**
+     * Hot zoom getter
+     * @return Highest zoom level whose invalidated tiles are always rendered again
+     */
+    public int getHotZoom() {
+        return hotZoom;
+    }
+
+    /**
+     * Hot zoom setter
+     * @param hotZoom New highest zoom level whose invalidated tiles are always rendered again
+     */
+    public void setHotZoom(int hotZoom) {
+        this.hotZoom = hotZoom;
+    }
+
+    /**
+     * Padding getter
+     * @return Margin around tiles when checking if they intersect a change, as a fraction of the tile width
+     */
+    public double getPadding() {
+        return padding;
+    }
+
+    /**
+     * Padding setter
+     * @param padding New margin around tiles when checking if they intersect a change
+     */
+    public void setPadding(double padding) {
+        this.padding = padding;
+    }
+
+    /**
+     * Queue size getter
+     * @return Maximum number of tiles waiting to be rendered again
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Queue size setter
+     * @param queueSize New maximum number of tiles waiting to be rendered again
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+}
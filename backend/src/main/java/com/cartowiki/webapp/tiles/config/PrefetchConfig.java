@@ -0,0 +1,97 @@
+package com.cartowiki.webapp.tiles.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Store parameters of the background prefetching of tiles
+ */
+@Configuration
+@ConfigurationProperties(prefix = "tiles.prefetch")
+public class PrefetchConfig {
+    private int neighbours = 1;
+    private int workers = 1;
+    private int queueSize = 2000;
+    private int maxTiles = 1024;
+    private int busyRenders = 4;
+
+    /**
+     * Neighbours getter
+     * @return Number of epochs before and after a requested tile whose tiles are prefetched (0 to disable)
+     */
+    public int getNeighbours() {
+        return neighbours;
+    }
+
+    /**
+     * Neighbours setter
+     * @param neighbours New number of epochs before and after a requested tile whose tiles are prefetched
+     */
+    public void setNeighbours(int neighbours) {
+        this.neighbours = neighbours;
+    }
+
+    /**
+     * Workers getter
+     * @return Number of prefetching threads
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Workers setter
+     * @param workers New number of prefetching threads
+     */
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * Queue size getter
+     * @return Maximum number of waiting prefetches, further ones are dropped
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Queue size setter
+     * @param queueSize New maximum number of waiting prefetches
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Max tiles getter
+     * @return Maximum number of tiles of an explicit prefetch request
+     */
+    public int getMaxTiles() {
+        return maxTiles;
+    }
+
+    /**
+     * Max tiles setter
+     * @param maxTiles New maximum number of tiles of an explicit prefetch request
+     */
+    public void setMaxTiles(int maxTiles) {
+        this.maxTiles = maxTiles;
+    }
+
+    /**
+     * Busy renders getter
+     * @return Number of renders in flight for clients above which prefetching waits
+     */
+    public int getBusyRenders() {
+        return busyRenders;
+    }
+
+    /**
+     * Busy renders setter
+     * @param busyRenders New number of renders in flight for clients above which prefetching waits
+     */
+    public void setBusyRenders(int busyRenders) {
+        this.busyRenders = busyRenders;
+    }
+}
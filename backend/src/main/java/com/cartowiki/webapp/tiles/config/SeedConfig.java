@@ -0,0 +1,46 @@
+package com.cartowiki.webapp.tiles.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Store parameters of the tile seeding jobs
+ */
+@Configuration
+@ConfigurationProperties(prefix = "tiles.seed")
+public class SeedConfig {
+    private int workers = 4;
+    private int checkpointInterval = 1024;
+
+    /**
+     * Workers getter
+     * @return Number of tiles rendered in parallel
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Workers setter
+     * @param workers New number of tiles rendered in parallel
+     */
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * Checkpoint interval getter
+     * @return Number of seeded tiles between two saves of the progress
+     */
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Checkpoint interval setter
+     * @param checkpointInterval New number of seeded tiles between two saves of the progress
+     */
+    public void setCheckpointInterval(int checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+}
@@ -0,0 +1,63 @@
+package com.cartowiki.webapp.tiles.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Store sizes of the in-memory tile cache
+ */
+@Configuration
+@ConfigurationProperties(prefix = "tiles.cache")
+public class TileCacheConfig {
+    private int heapEntries = 512;
+    private long offHeapBytes = 256L * 1024 * 1024;
+    private int blockSize = 4096;
+
+    /**
+     * Heap tier size getter
+     * @return Maximum number of tiles in the heap tier
+     */
+    public int getHeapEntries() {
+        return heapEntries;
+    }
+
+    /**
+     * Heap tier size setter
+     * @param heapEntries New maximum number of tiles in the heap tier
+     */
+    public void setHeapEntries(int heapEntries) {
+        this.heapEntries = heapEntries;
+    }
+
+    /**
+     * Off-heap tier size getter
+     * @return Size of the off-heap tier (in bytes)
+     */
+    public long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    /**
+     * Off-heap tier size setter
+     * @param offHeapBytes New size of the off-heap tier (in bytes)
+     */
+    public void setOffHeapBytes(long offHeapBytes) {
+        this.offHeapBytes = offHeapBytes;
+    }
+
+    /**
+     * Off-heap block size getter
+     * @return Size of one off-heap block (in bytes)
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Off-heap block size setter
+     * @param blockSize New size of one off-heap block (in bytes)
+     */
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+}
@@ -0,0 +1,580 @@
+package com.cartowiki.webapp.tiles.controller;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.MissingResourceException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cartowiki.webapp.tiles.cache.TileMemoryCache;
+import com.cartowiki.webapp.tiles.model.DataChangeEvent;
+import com.cartowiki.webapp.tiles.model.SeedJob;
+import com.cartowiki.webapp.tiles.model.SeedRequest;
+import com.cartowiki.webapp.tiles.service.TileInvalidator;
+import com.cartowiki.webapp.tiles.service.TilePrefetcher;
+import com.cartowiki.webapp.tiles.service.TileSeeder;
+import com.cartowiki.webapp.tiles.service.TileService;
+import com.cartowiki.webapp.tiles.service.VectorTileService;
+import com.cartowiki.webapp.tiles.store.ArchiveTileStore;
+import com.cartowiki.webapp.util.ResponseMaker;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * Tile cache monitoring and seeding
+ */
+@RestController
+@RequestMapping("/admin/tiles")
+@Tag(name = "Tiles management (admin and superadmin only)")
+public class TileAdminController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TileAdminController.class);
+
+    private TileMemoryCache memoryCache;
+    private ArchiveTileStore store;
+    private TileSeeder seeder;
+    private TileInvalidator invalidator;
+    private TileService tileService;
+    private VectorTileService vectorTileService;
+    private TilePrefetcher prefetcher;
+    private ApplicationEventPublisher publisher;
+
+    /**
+     * Autowired constructor
+     * @param memoryCache In-memory tile cache
+     * @param store Persistent tile archives
+     * @param seeder Tile seeding jobs
+     * @param invalidator Tile invalidation after data changes
+     * @param tileService Service for raster tiles
+     * @param vectorTileService Service for vector tiles
+     * @param prefetcher Background prefetching of tiles
+     * @param publisher Publisher of data changes to all their listeners
+     */
+    @Autowired
+    public TileAdminController(TileMemoryCache memoryCache, ArchiveTileStore store, TileSeeder seeder, TileInvalidator invalidator, TileService tileService, VectorTileService vectorTileService, TilePrefetcher prefetcher, ApplicationEventPublisher publisher) {
+        this.memoryCache = memoryCache;
+        this.store = store;
+        this.seeder = seeder;
+        this.invalidator = invalidator;
+        this.tileService = tileService;
+        this.vectorTileService = vectorTileService;
+        this.prefetcher = prefetcher;
+        this.publisher = publisher;
+    }
+
+    /**
+     * Return the counters of the in-memory tile cache and of tile rendering
+     * @return Response
+     */
+    @GetMapping("/cache")
+    @Operation(
+        summary = "Retrieve tile cache statistics",
+        description = "Return hit, miss and eviction counters of each tier of the in-memory tile cache, and the number of renders saved by coalescing concurrent misses",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Counters of both tiers",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": {" +
+                            "\"heap\": {\"hits\": 1200, \"misses\": 300, \"evictions\": 250, \"rejections\": 0, \"entries\": 512, \"capacityEntries\": 512}," +
+                            "\"offHeap\": {\"hits\": 180, \"misses\": 120, \"evictions\": 40, \"rejections\": 90, \"entries\": 3000, \"usedBytes\": 52428800, \"capacityBytes\": 268435456}," +
+                            "\"rasterRenders\": {\"loads\": 250, \"savedLoads\": 1900, \"timeouts\": 0, \"inFlight\": 3}," +
+                            "\"vectorBuilds\": {\"loads\": 80, \"savedLoads\": 310, \"timeouts\": 0, \"inFlight\": 0}" +
+                            "}}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getCacheStats() {
+        HashMap<String, Object> data = memoryCache.getStats();
+        data.put("rasterRenders", tileService.getRenderStats());
+        data.put("vectorBuilds", vectorTileService.getBuildStats());
+
+        return ResponseMaker.singleValueResponse(ResponseMaker.DATA, data, HttpStatus.OK);
+    }
+
+    /**
+     * Return the size of the tile archives
+     * @return Response
+     */
+    @GetMapping("/archives")
+    @Operation(
+        summary = "Retrieve tile archives sizes",
+        description = "Return the number of tiles and the data file size of each opened layer archive",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Size of each archive",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": {\"cities\": {\"tiles\": 120000, \"bytes\": 1610612736}}}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getArchivesStats() {
+        ResponseEntity<Object> response;
+
+        try {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, store.getStats(), HttpStatus.OK);
+        }
+        catch (IOException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        return response;
+    }
+
+    /**
+     * Compact the tile archive of a layer
+     * @param layer Archive name, a public layer or a vector tile layer
+     * @return Response
+     */
+    @PostMapping("/archives/{layer}/compact")
+    @Operation(
+        summary = "Compact a tile archive",
+        description = "Rewrite the archive of one layer without replaced and deleted tiles. Requests on this layer wait until the end of the compaction.",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Archive successfully compacted",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": {\"reclaimedBytes\": 52428800}}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Layer has no archive",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Unknown layer\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> compactArchive(@PathVariable("layer") @Parameter(name = "layer", description = "Archive name, a public layer or a vector tile layer", example = "countries.mvt") String layer) {
+        ResponseEntity<Object> response;
+
+        try {
+            // Vector tiles have their own archives, named after their cache layer
+            if (!store.getLayers().contains(layer)) {
+                response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, "Unknown layer", HttpStatus.NOT_FOUND);
+            }
+            else {
+                HashMap<String, Object> data = new HashMap<>();
+                data.put("reclaimedBytes", store.compact(layer));
+
+                response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, data, HttpStatus.OK);
+            }
+        }
+        catch (IOException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        return response;
+    }
+
+    /**
+     * Start a tile seeding job
+     * @param request Layers, format, years and zoom levels to seed
+     * @return Response
+     */
+    @PostMapping("/seed")
+    @Operation(
+        summary = "Start a tile seeding job",
+        description = "Render and store in the archives all tiles of some layers for a range of years and zoom levels. Progress is saved, so the job resumes after a restart.",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "201",
+            description = "Job successfully started",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": {\"id\": 1, \"status\": \"RUNNING\", \"layers\": [\"cities\"], \"format\": \"png\", \"minYear\": -3000, \"maxYear\": 2025, \"seededYears\": 1200, \"minZoom\": 0, \"maxZoom\": 6, \"totalTiles\": 6553200, \"completedTiles\": 1048576, \"renderedTiles\": 1040000, \"failedTiles\": 12, \"createdAt\": \"2025-01-10T08:00:00Z\", \"updatedAt\": \"2025-01-10T10:30:00Z\", \"tilesPerSecond\": 116.5, \"etaSeconds\": 274900}}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid years, zoom levels or format",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Invalid zoom range\"}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Layer is not published",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Unknown layer\"}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "500",
+            description = "Job could not be saved",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Unable to save the job\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> startSeedJob(@RequestBody SeedRequest request) {
+        ResponseEntity<Object> response;
+
+        try {
+            SeedJob job = seeder.startJob(request);
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, seeder.getProgress(job), HttpStatus.CREATED);
+        }
+        catch (IllegalArgumentException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        catch (MissingResourceException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+        catch (DataAccessException e) {
+            LOGGER.error("Unable to save a tile seeding job", e);
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, "Unable to save the job", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        return response;
+    }
+
+    /**
+     * Return the progress of all tile seeding jobs
+     * @return Response
+     */
+    @GetMapping("/seed")
+    @Operation(
+        summary = "Retrieve all tile seeding jobs",
+        description = "Return the progress of all seeding jobs, with throughput and estimated remaining time of the running ones",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "List of jobs",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": [{\"id\": 1, \"status\": \"RUNNING\", \"layers\": [\"cities\"], \"format\": \"png\", \"minYear\": -3000, \"maxYear\": 2025, \"seededYears\": 1200, \"minZoom\": 0, \"maxZoom\": 6, \"totalTiles\": 6553200, \"completedTiles\": 1048576, \"renderedTiles\": 1040000, \"failedTiles\": 12, \"createdAt\": \"2025-01-10T08:00:00Z\", \"updatedAt\": \"2025-01-10T10:30:00Z\", \"tilesPerSecond\": 116.5, \"etaSeconds\": 274900}]}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getSeedJobs() {
+        List<HashMap<String, Object>> jobs = new ArrayList<>();
+
+        for (SeedJob job: seeder.getJobs()) {
+            jobs.add(seeder.getProgress(job));
+        }
+
+        return ResponseMaker.singleValueResponse(ResponseMaker.DATA, jobs, HttpStatus.OK);
+    }
+
+    /**
+     * Return the progress of a tile seeding job
+     * @param id Job id
+     * @return Response
+     */
+    @GetMapping("/seed/{id}")
+    @Operation(
+        summary = "Retrieve a tile seeding job",
+        description = "Return the progress of a seeding job, with throughput and estimated remaining time if it is running",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Job progress",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": {\"id\": 1, \"status\": \"RUNNING\", \"layers\": [\"cities\"], \"format\": \"png\", \"minYear\": -3000, \"maxYear\": 2025, \"seededYears\": 1200, \"minZoom\": 0, \"maxZoom\": 6, \"totalTiles\": 6553200, \"completedTiles\": 1048576, \"renderedTiles\": 1040000, \"failedTiles\": 12, \"createdAt\": \"2025-01-10T08:00:00Z\", \"updatedAt\": \"2025-01-10T10:30:00Z\", \"tilesPerSecond\": 116.5, \"etaSeconds\": 274900}}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Job is not found",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Missing job\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getSeedJob(@PathVariable("id") @Parameter(name = "id", description = "Job id", example = "1") int id) {
+        ResponseEntity<Object> response;
+
+        try {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, seeder.getProgress(seeder.getJob(id)), HttpStatus.OK);
+        }
+        catch (MissingResourceException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+
+        return response;
+    }
+
+    /**
+     * Cancel a tile seeding job
+     * @param id Job id
+     * @return Response
+     */
+    @DeleteMapping("/seed/{id}")
+    @Operation(
+        summary = "Cancel a tile seeding job",
+        description = "Stop a running seeding job for good. Tiles already seeded stay in the archives.",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Job successfully cancelled",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Job successfully cancelled\"}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Job is not running",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Job is not running\"}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Job is not found",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Missing job\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> cancelSeedJob(@PathVariable("id") @Parameter(name = "id", description = "Job id", example = "1") int id) {
+        ResponseEntity<Object> response;
+
+        try {
+            seeder.cancelJob(id);
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, "Job successfully cancelled", HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        catch (MissingResourceException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+
+        return response;
+    }
+
+    /**
+     * Publish a change of the map data made outside of the application, to invalidate the affected tiles and refresh the indexes
+     * @param event Changed table, bounding boxes and years
+     * @return Response
+     */
+    @PostMapping("/invalidate")
+    @Operation(
+        summary = "Publish a data change",
+        description = "Notify all caches of a change made outside of the application, as if it were made by a contribution. Tiles whose year is in the given range and whose area intersects the old or new bounding box are removed from the caches, tiles of low zoom levels and popular tiles being rendered again in the background, and the indexes and world state are refreshed.",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Change successfully published",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Data change published\"}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Unknown table, or no bounding box",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Unknown table\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> invalidateTiles(@RequestBody DataChangeEvent event) {
+        ResponseEntity<Object> response;
+
+        try {
+            invalidator.checkEvent(event);
+
+            // Published like the changes of contributions, so that every cache and index sees it
+            publisher.publishEvent(event);
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, "Data change published", HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+
+        return response;
+    }
+
+    /**
+     * Return the counters of the tile invalidation
+     * @return Response
+     */
+    @GetMapping("/invalidation")
+    @Operation(
+        summary = "Retrieve tile invalidation statistics",
+        description = "Return the number of data changes handled, of invalidated tiles, and of tiles rendered again",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Invalidation counters",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": {\"events\": 42, \"invalidatedTiles\": 120000, \"queuedRenders\": 9000, \"droppedRenders\": 0, \"pendingRenders\": 12}}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getInvalidationStats() {
+        return ResponseMaker.singleValueResponse(ResponseMaker.DATA, invalidator.getStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Return the counters of the background prefetching of tiles
+     * @return Response
+     */
+    @GetMapping("/prefetch")
+    @Operation(
+        summary = "Retrieve tile prefetching statistics",
+        description = "Return the number of prefetched tiles, and the share of them later requested by clients",
+        parameters = {
+            @Parameter(
+                name = "Authorization",
+                in = ParameterIn.HEADER,
+                description = "JavaScript Web Token for user authentication",
+                required = true,
+                example = "Bearer [admin or superadmin JWT]",
+                schema = @Schema(type = "string")
+            )
+        }
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Prefetching counters",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": {\"queued\": 5200, \"dropped\": 0, \"rendered\": 1800, \"alreadyStored\": 3350, \"failed\": 2, " +
+                            "\"yielded\": 48, \"pending\": 12, \"useful\": 1130, \"hitRate\": 0.63}}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getPrefetchStats() {
+        return ResponseMaker.singleValueResponse(ResponseMaker.DATA, prefetcher.getStats(), HttpStatus.OK);
+    }
+}
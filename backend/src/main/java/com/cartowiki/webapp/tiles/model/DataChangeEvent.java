@@ -0,0 +1,134 @@
+package com.cartowiki.webapp.tiles.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Change of a row of the map data, published to invalidate what depends on it
+ */
+public class DataChangeEvent {
+    public static final String COUNTRY_GEOMETRIES = "geometrie_pays";
+    public static final String CITY_ENTITIES = "entites_villes";
+    public static final String CITY_EXISTENCES = "existence_ville";
+    public static final String CITY_POPULATIONS = "populations_villes";
+    public static final String COUNTRY_POPULATIONS = "populations_pays";
+    public static final String CITY_NAMES = "ville";
+    public static final String COUNTRY_NAMES = "pays";
+
+    @Schema(name = "table", example = COUNTRY_GEOMETRIES)
+    private String table;
+
+    @Schema(name = "oldBounds", description = "Bounding box before the change {minLongitude, minLatitude, maxLongitude, maxLatitude}, null for a new row", example = "[2.2, 48.8, 2.5, 48.9]")
+    private double[] oldBounds;
+
+    @Schema(name = "newBounds", description = "Bounding box after the change {minLongitude, minLatitude, maxLongitude, maxLatitude}, null for a removed row", example = "[2.2, 48.8, 2.6, 49.0]")
+    private double[] newBounds;
+
+    @Schema(name = "minYear", example = "1789")
+    private int minYear;
+
+    @Schema(name = "maxYear", example = "1815")
+    private int maxYear;
+
+    /**
+     * Default constructor
+     */
+    public DataChangeEvent() {
+        // All variables are set to their type's default value
+    }
+
+    /**
+     * Constructor with arguments
+     * @param table Name of the changed table
+     * @param oldBounds Bounding box before the change, null for a new row
+     * @param newBounds Bounding box after the change, null for a removed row
+     * @param minYear First year of the period of the row (before or after the change)
+     * @param maxYear Last year of the period of the row (before or after the change)
+     */
+    public DataChangeEvent(String table, double[] oldBounds, double[] newBounds, int minYear, int maxYear) {
+        this.table = table;
+        this.oldBounds = oldBounds;
+        this.newBounds = newBounds;
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+    }
+
+    /**
+     * Table getter
+     * @return Name of the changed table
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Table setter
+     * @param table New name of the changed table
+     */
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    /**
+     * Old bounding box getter
+     * @return Bounding box before the change {minLongitude, minLatitude, maxLongitude, maxLatitude}, null for a new row
+     */
+    public double[] getOldBounds() {
+        return oldBounds;
+    }
+
+    /**
+     * Old bounding box setter
+     * @param oldBounds New bounding box before the change
+     */
+    public void setOldBounds(double[] oldBounds) {
+        this.oldBounds = oldBounds;
+    }
+
+    /**
+     * New bounding box getter
+     * @return Bounding box after the change {minLongitude, minLatitude, maxLongitude, maxLatitude}, null for a removed row
+     */
+    public double[] getNewBounds() {
+        return newBounds;
+    }
+
+    /**
+     * New bounding box setter
+     * @param newBounds New bounding box after the change
+     */
+    public void setNewBounds(double[] newBounds) {
+        this.newBounds = newBounds;
+    }
+
+    /**
+     * First year getter
+     * @return First year of the period of the row
+     */
+    public int getMinYear() {
+        return minYear;
+    }
+
+    /**
+     * First year setter
+     * @param minYear New first year of the period of the row
+     */
+    public void setMinYear(int minYear) {
+        this.minYear = minYear;
+    }
+
+    /**
+     * Last year getter
+     * @return Last year of the period of the row
+     */
+    public int getMaxYear() {
+        return maxYear;
+    }
+
+    /**
+     * Last year setter
+     * @param maxYear New last year of the period of the row
+     */
+    public void setMaxYear(int maxYear) {
+        this.maxYear = maxYear;
+    }
+}
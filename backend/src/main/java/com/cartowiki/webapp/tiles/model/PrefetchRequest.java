@@ -0,0 +1,133 @@
+package com.cartowiki.webapp.tiles.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Tile prefetching request, for the tiles of a viewport over a window of years
+ */
+public class PrefetchRequest {
+    @Schema(name = "layers", example = "[\"countries\"]")
+    private List<String> layers;
+
+    @Schema(name = "format", example = "mvt", allowableValues = {SeedJob.PNG, SeedJob.MVT})
+    private String format;
+
+    @Schema(name = "bbox", example = "[-5, 42, 8, 51]")
+    private double[] bbox;
+
+    @Schema(name = "zoom", example = "5")
+    private int zoom;
+
+    @Schema(name = "minYear", example = "1795")
+    private int minYear;
+
+    @Schema(name = "maxYear", example = "1805")
+    private int maxYear;
+
+    /**
+     * Default constructor
+     */
+    public PrefetchRequest() {
+        this.layers = new ArrayList<>();
+        this.format = SeedJob.PNG;
+    }
+
+    /**
+     * Layers getter
+     * @return Public layer names
+     */
+    public List<String> getLayers() {
+        return layers;
+    }
+
+    /**
+     * Layers setter
+     * @param layers New public layer names
+     */
+    public void setLayers(List<String> layers) {
+        this.layers = layers;
+    }
+
+    /**
+     * Format getter
+     * @return Tile format ("png" or "mvt")
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Format setter
+     * @param format New tile format ("png" or "mvt")
+     */
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    /**
+     * Bounding box getter
+     * @return Viewport {minLongitude, minLatitude, maxLongitude, maxLatitude}
+     */
+    public double[] getBbox() {
+        return bbox;
+    }
+
+    /**
+     * Bounding box setter
+     * @param bbox New viewport {minLongitude, minLatitude, maxLongitude, maxLatitude}
+     */
+    public void setBbox(double[] bbox) {
+        this.bbox = bbox;
+    }
+
+    /**
+     * Zoom getter
+     * @return Zoom level
+     */
+    public int getZoom() {
+        return zoom;
+    }
+
+    /**
+     * Zoom setter
+     * @param zoom New zoom level
+     */
+    public void setZoom(int zoom) {
+        this.zoom = zoom;
+    }
+
+    /**
+     * Min year getter
+     * @return First year of the window
+     */
+    public int getMinYear() {
+        return minYear;
+    }
+
+    /**
+     * Min year setter
+     * @param minYear New first year of the window
+     */
+    public void setMinYear(int minYear) {
+        this.minYear = minYear;
+    }
+
+    /**
+     * Max year getter
+     * @return Last year of the window
+     */
+    public int getMaxYear() {
+        return maxYear;
+    }
+
+    /**
+     * Max year setter
+     * @param maxYear New last year of the window
+     */
+    public void setMaxYear(int maxYear) {
+        this.maxYear = maxYear;
+    }
+}
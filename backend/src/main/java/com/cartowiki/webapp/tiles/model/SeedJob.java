@@ -0,0 +1,339 @@
+package com.cartowiki.webapp.tiles.model;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+
+/**
+ * Class for the tile seeding job entity of the database.
+ * Tiles of a job are numbered layer by layer, then year by year, then zoom level by zoom level, row after row,
+ * so that the progress is a single number: all tiles before it are seeded. Tiles are the same for all years of an epoch,
+ * so a job only seeds one year per epoch of its range when the epochs are known.
+ */
+@Entity
+@Table(name = "taches_generation_tuiles")
+public class SeedJob {
+    public static final String PNG = "png";
+    public static final String MVT = "mvt";
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String CANCELLED = "CANCELLED";
+
+    private static final String LAYER_SEPARATOR = ",";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_tache")
+    private int id;
+
+    @Column(name = "couches")
+    private String layers;
+
+    @Column(name = "format")
+    private String format;
+
+    @Column(name = "annee_debut")
+    private int minYear;
+
+    @Column(name = "annee_fin")
+    private int maxYear;
+
+    // One year per epoch over thousands of years, so an array rather than a bounded text column
+    @Column(name = "annees", columnDefinition = "smallint[]")
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    private short[] years;
+
+    @Column(name = "zoom_min")
+    private int minZoom;
+
+    @Column(name = "zoom_max")
+    private int maxZoom;
+
+    @Column(name = "statut")
+    private String status;
+
+    @Column(name = "nb_tuiles_terminees")
+    private long completedTiles;
+
+    @Column(name = "nb_tuiles_generees")
+    private long renderedTiles;
+
+    @Column(name = "nb_echecs")
+    private long failedTiles;
+
+    @Column(name = "date_creation")
+    private Instant createdAt;
+
+    @Column(name = "date_maj")
+    private Instant updatedAt;
+
+    // Seeded years, converted once since every tile number needs them
+    @Transient
+    private int[] yearArray;
+
+    /**
+     * No-argument constructor
+     */
+    public SeedJob() {
+        // All variables are set to their type's default value
+    }
+
+    /**
+     * Constructor with arguments for a new running job seeding every year of a range
+     * @param layers Public layer names
+     * @param format Tile format ("png" or "mvt")
+     * @param minYear First seeded year
+     * @param maxYear Last seeded year
+     * @param minZoom Lowest seeded zoom level
+     * @param maxZoom Highest seeded zoom level
+     */
+    public SeedJob(List<String> layers, String format, int minYear, int maxYear, int minZoom, int maxZoom) {
+        this(layers, format, minYear, maxYear, null, minZoom, maxZoom);
+    }
+
+    /**
+     * Constructor with arguments for a new running job seeding some years of a range
+     * @param layers Public layer names
+     * @param format Tile format ("png" or "mvt")
+     * @param minYear First year of the range
+     * @param maxYear Last year of the range
+     * @param years Sorted seeded years of the range, one per epoch (null for every year)
+     * @param minZoom Lowest seeded zoom level
+     * @param maxZoom Highest seeded zoom level
+     */
+    public SeedJob(List<String> layers, String format, int minYear, int maxYear, List<Integer> years, int minZoom, int maxZoom) {
+        this.layers = String.join(LAYER_SEPARATOR, layers);
+        this.format = format;
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+        this.status = RUNNING;
+        this.createdAt = Instant.now();
+        this.updatedAt = this.createdAt;
+
+        if (years != null) {
+            this.years = new short[years.size()];
+
+            for (int i = 0; i < this.years.length; i++) {
+                this.years[i] = years.get(i).shortValue();
+            }
+        }
+    }
+
+    /**
+     * Return the number of tiles of one layer for one seeded year
+     * @return Number of tiles
+     */
+    public long getTilesPerYear() {
+        long count = 0;
+
+        for (int z = minZoom; z <= maxZoom; z++) {
+            count += 1L << (2 * z);
+        }
+
+        return count;
+    }
+
+    /**
+     * Return the total number of tiles of the job
+     * @return Number of tiles
+     */
+    public long getTotalTiles() {
+        return this.getLayerList().size() * (long) this.getYearArray().length * this.getTilesPerYear();
+    }
+
+    /**
+     * Return the identifier of a tile from its number in the job
+     * @param index Number of the tile, between 0 and the total number of tiles
+     * @return Tile identifier
+     * @throws IllegalArgumentException Number outside of the job
+     */
+    public TileKey getTile(long index) throws IllegalArgumentException {
+        if (index < 0 || index >= this.getTotalTiles()) {
+            throw new IllegalArgumentException("Invalid tile number");
+        }
+
+        int[] seededYears = this.getYearArray();
+        long tilesPerYear = this.getTilesPerYear();
+        long tilesPerLayer = tilesPerYear * seededYears.length;
+
+        String layer = this.getLayerList().get((int) (index / tilesPerLayer));
+        int year = seededYears[(int) ((index % tilesPerLayer) / tilesPerYear)];
+        long remainder = index % tilesPerYear;
+        int z = minZoom;
+
+        while (remainder >= 1L << (2 * z)) {
+            remainder -= 1L << (2 * z);
+            z++;
+        }
+
+        return new TileKey(layer, year, z, (int) (remainder % (1 << z)), (int) (remainder / (1 << z)));
+    }
+
+    /**
+     * Id getter
+     * @return Id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Layers getter
+     * @return Public layer names
+     */
+    public List<String> getLayerList() {
+        return Arrays.asList(layers.split(LAYER_SEPARATOR));
+    }
+
+    /**
+     * Format getter
+     * @return Tile format ("png" or "mvt")
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * First year getter
+     * @return First seeded year
+     */
+    public int getMinYear() {
+        return minYear;
+    }
+
+    /**
+     * Last year getter
+     * @return Last seeded year
+     */
+    public int getMaxYear() {
+        return maxYear;
+    }
+
+    /**
+     * Seeded years getter
+     * @return Seeded years, one per epoch of the range or every year of the range
+     */
+    public List<Integer> getYearList() {
+        return Arrays.stream(this.getYearArray()).boxed().toList();
+    }
+
+    /**
+     * Return the seeded years, converting them on first use
+     * @return Seeded years
+     */
+    private int[] getYearArray() {
+        if (yearArray == null) {
+            if (years == null) {
+                // Job seeding every year of its range
+                yearArray = new int[maxYear - minYear + 1];
+                Arrays.setAll(yearArray, i -> minYear + i);
+            }
+            else {
+                yearArray = new int[years.length];
+                Arrays.setAll(yearArray, i -> years[i]);
+            }
+        }
+
+        return yearArray;
+    }
+
+    /**
+     * Lowest zoom level getter
+     * @return Lowest seeded zoom level
+     */
+    public int getMinZoom() {
+        return minZoom;
+    }
+
+    /**
+     * Highest zoom level getter
+     * @return Highest seeded zoom level
+     */
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    /**
+     * Status getter
+     * @return Status ("RUNNING", "COMPLETED" or "CANCELLED")
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * Status setter
+     * @param status New status ("RUNNING", "COMPLETED" or "CANCELLED")
+     */
+    public void setStatus(String status) {
+        this.status = status;
+        this.updatedAt = Instant.now();
+    }
+
+    /**
+     * Progress getter
+     * @return Number of tiles such that all tiles before it are seeded
+     */
+    public long getCompletedTiles() {
+        return completedTiles;
+    }
+
+    /**
+     * Progress setter
+     * @param completedTiles New number of tiles such that all tiles before it are seeded
+     * @param renderedTiles New number of tiles actually rendered
+     * @param failedTiles New number of tiles that failed to render
+     */
+    public void setProgress(long completedTiles, long renderedTiles, long failedTiles) {
+        this.completedTiles = completedTiles;
+        this.renderedTiles = renderedTiles;
+        this.failedTiles = failedTiles;
+        this.updatedAt = Instant.now();
+    }
+
+    /**
+     * Rendered tiles getter
+     * @return Number of tiles actually rendered (the other ones were already stored)
+     */
+    public long getRenderedTiles() {
+        return renderedTiles;
+    }
+
+    /**
+     * Failed tiles getter
+     * @return Number of tiles that failed to render
+     */
+    public long getFailedTiles() {
+        return failedTiles;
+    }
+
+    /**
+     * Creation date getter
+     * @return Creation date
+     */
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Last update date getter
+     * @return Last update date
+     */
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,133 @@
+package com.cartowiki.webapp.tiles.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Tile seeding job request
+ */
+public class SeedRequest {
+    @Schema(name = "layers", example = "[\"cities\"]")
+    private List<String> layers;
+
+    @Schema(name = "format", example = "png", allowableValues = {SeedJob.PNG, SeedJob.MVT})
+    private String format;
+
+    @Schema(name = "minYear", example = "-3000")
+    private int minYear;
+
+    @Schema(name = "maxYear", example = "2025")
+    private int maxYear;
+
+    @Schema(name = "minZoom", example = "0")
+    private int minZoom;
+
+    @Schema(name = "maxZoom", example = "6")
+    private int maxZoom;
+
+    /**
+     * Default constructor
+     */
+    public SeedRequest() {
+        this.layers = new ArrayList<>();
+        this.format = SeedJob.PNG;
+    }
+
+    /**
+     * Layers getter
+     * @return Public layer names
+     */
+    public List<String> getLayers() {
+        return layers;
+    }
+
+    /**
+     * Layers setter
+     * @param layers New public layer names
+     */
+    public void setLayers(List<String> layers) {
+        this.layers = layers;
+    }
+
+    /**
+     * Format getter
+     * @return Tile format ("png" or "mvt")
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Format setter
+     * @param format New tile format ("png" or "mvt")
+     */
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    /**
+     * First year getter
+     * @return First seeded year
+     */
+    public int getMinYear() {
+        return minYear;
+    }
+
+    /**
+     * First year setter
+     * @param minYear New first seeded year
+     */
+    public void setMinYear(int minYear) {
+        this.minYear = minYear;
+    }
+
+    /**
+     * Last year getter
+     * @return Last seeded year
+     */
+    public int getMaxYear() {
+        return maxYear;
+    }
+
+    /**
+     * Last year setter
+     * @param maxYear New last seeded year
+     */
+    public void setMaxYear(int maxYear) {
+        this.maxYear = maxYear;
+    }
+
+    /**
+     * Lowest zoom level getter
+     * @return Lowest seeded zoom level
+     */
+    public int getMinZoom() {
+        return minZoom;
+    }
+
+    /**
+     * Lowest zoom level setter
+     * @param minZoom New lowest seeded zoom level
+     */
+    public void setMinZoom(int minZoom) {
+        this.minZoom = minZoom;
+    }
+
+    /**
+     * Highest zoom level getter
+     * @return Highest seeded zoom level
+     */
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    /**
+     * Highest zoom level setter
+     * @param maxZoom New highest seeded zoom level
+     */
+    public void setMaxZoom(int maxZoom) {
+        this.maxZoom = maxZoom;
+    }
+}
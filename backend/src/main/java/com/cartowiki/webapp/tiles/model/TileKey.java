@@ -0,0 +1,158 @@
+package com.cartowiki.webapp.tiles.model;
+
+import java.util.Objects;
+
+/**
+ * Identifier of one map tile of a layer for a given year
+ */
+public final class TileKey {
+    public static final int MAX_ZOOM = 20;
+
+    // Half of the Web Mercator (EPSG:3857) world extent, in meters
+    private static final double MERCATOR_HALF_EXTENT = 20037508.342789244;
+
+    // Latitude limit of the Web Mercator projection, in degrees
+    private static final double MAX_LATITUDE = 85.0511287798066;
+
+    private final String layer;
+    private final int year;
+    private final int z;
+    private final int x;
+    private final int y;
+
+    /**
+     * Constructor with arguments
+     * @param layer Public layer name
+     * @param year Year displayed by the tile
+     * @param z Zoom level
+     * @param x Column of the tile (from west to east)
+     * @param y Row of the tile (from north to south)
+     * @throws IllegalArgumentException Coordinates are outside of the tile grid
+     */
+    public TileKey(String layer, int year, int z, int x, int y) throws IllegalArgumentException {
+        if (z < 0 || z > MAX_ZOOM) {
+            throw new IllegalArgumentException("Invalid zoom level");
+        }
+        else if (x < 0 || y < 0 || x >= (1 << z) || y >= (1 << z)) {
+            throw new IllegalArgumentException("Invalid tile coordinates");
+        }
+        else if (year < Short.MIN_VALUE || year > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid year");
+        }
+
+        this.layer = Objects.requireNonNull(layer);
+        this.year = year;
+        this.z = z;
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Layer getter
+     * @return Public layer name
+     */
+    public String getLayer() {
+        return layer;
+    }
+
+    /**
+     * Year getter
+     * @return Year displayed by the tile
+     */
+    public int getYear() {
+        return year;
+    }
+
+    /**
+     * Zoom level getter
+     * @return Zoom level
+     */
+    public int getZ() {
+        return z;
+    }
+
+    /**
+     * Column getter
+     * @return Column of the tile
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Row getter
+     * @return Row of the tile
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Return the bounds of the tile in Web Mercator (EPSG:3857)
+     * @return Array {minX, minY, maxX, maxY} in meters
+     */
+    public double[] getMercatorBounds() {
+        double tileExtent = 2 * MERCATOR_HALF_EXTENT / (1 << z);
+
+        double minX = -MERCATOR_HALF_EXTENT + x * tileExtent;
+        double maxY = MERCATOR_HALF_EXTENT - y * tileExtent;
+
+        return new double[] {minX, maxY - tileExtent, minX + tileExtent, maxY};
+    }
+
+    /**
+     * Check if the tile intersects an area given in longitude and latitude (EPSG:4326)
+     * @param bounds Array {minLongitude, minLatitude, maxLongitude, maxLatitude} in degrees
+     * @param padding Margin added around the tile, as a fraction of its width (for symbols drawn across tile borders)
+     * @return Does the tile intersect the area
+     */
+    public boolean intersects(double[] bounds, double padding) {
+        int tiles = 1 << z;
+        double minColumn = (bounds[0] + 180) / 360 * tiles;
+        double maxColumn = (bounds[2] + 180) / 360 * tiles;
+        double minRow = latitudeToRow(bounds[3], tiles);
+        double maxRow = latitudeToRow(bounds[1], tiles);
+
+        return x - padding <= maxColumn && x + 1 + padding >= minColumn
+            && y - padding <= maxRow && y + 1 + padding >= minRow;
+    }
+
+    /**
+     * Convert a latitude to a fractional row number
+     * @param latitude Latitude in degrees
+     * @param tiles Number of rows at the zoom level
+     * @return Row number (from north to south)
+     */
+    public static double latitudeToRow(double latitude, int tiles) {
+        double radians = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+
+        return (1 - Math.log(Math.tan(radians) + 1 / Math.cos(radians)) / Math.PI) / 2 * tiles;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        boolean flag;
+
+        if (this == other) {
+            flag = true;
+        }
+        else if (other instanceof TileKey key) {
+            flag = year == key.year && z == key.z && x == key.x && y == key.y && layer.equals(key.layer);
+        }
+        else {
+            flag = false;
+        }
+
+        return flag;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(layer, year, z, x, y);
+    }
+
+    @Override
+    public String toString() {
+        return layer + "/" + year + "/" + z + "/" + x + "/" + y;
+    }
+}
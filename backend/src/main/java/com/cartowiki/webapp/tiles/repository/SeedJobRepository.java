@@ -0,0 +1,21 @@
+package com.cartowiki.webapp.tiles.repository;
+
+import java.util.List;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import com.cartowiki.webapp.tiles.model.SeedJob;
+
+/**
+ * Requests management about the SeedJob entity in the database
+ */
+@Repository
+public interface SeedJobRepository extends CrudRepository<SeedJob, Integer> {
+    /**
+     * Return the list of all jobs with a status
+     * @param status Status of the jobs
+     * @return List of jobs
+     */
+    List<SeedJob> findAllByStatus(String status);
+}
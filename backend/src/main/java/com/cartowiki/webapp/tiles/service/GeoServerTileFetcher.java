@@ -0,0 +1,94 @@
+package com.cartowiki.webapp.tiles.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.MissingResourceException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.cartowiki.webapp.tiles.config.GeoServerConfig;
+import com.cartowiki.webapp.tiles.model.TileKey;
+
+/**
+ * Render tiles with the WMS service of GeoServer
+ */
+@Component
+public class GeoServerTileFetcher {
+    private static final String PNG_FORMAT = "image/png";
+
+    private GeoServerConfig config;
+    private HttpClient client;
+
+    /**
+     * Autowired constructor
+     * @param config GeoServer parameters
+     */
+    @Autowired
+    public GeoServerTileFetcher(GeoServerConfig config) {
+        this.config = config;
+        this.client = HttpClient.newBuilder()
+                                .connectTimeout(Duration.ofMillis(config.getTimeout()))
+                                .build();
+    }
+
+    /**
+     * Build the WMS GetMap URI of a tile
+     * @param key Tile identifier
+     * @return GetMap URI
+     * @throws MissingResourceException Layer is not published
+     */
+    public URI getMapUri(TileKey key) throws MissingResourceException {
+        String layer = config.getLayers().get(key.getLayer());
+
+        if (layer == null) {
+            throw new MissingResourceException("Unknown layer", "Layer", key.getLayer());
+        }
+
+        double[] bounds = key.getMercatorBounds();
+        String bbox = String.format(Locale.ROOT, "%.6f,%.6f,%.6f,%.6f", bounds[0], bounds[1], bounds[2], bounds[3]);
+
+        // The year is given to the SQL view of the layer as a view parameter
+        String query = "SERVICE=WMS&VERSION=1.1.1&REQUEST=GetMap&STYLES=&TRANSPARENT=true&SRS=EPSG:3857"
+                     + "&FORMAT=" + URLEncoder.encode(PNG_FORMAT, StandardCharsets.UTF_8)
+                     + "&LAYERS=" + URLEncoder.encode(layer, StandardCharsets.UTF_8)
+                     + "&WIDTH=" + config.getTileSize()
+                     + "&HEIGHT=" + config.getTileSize()
+                     + "&BBOX=" + bbox
+                     + "&VIEWPARAMS=" + URLEncoder.encode("year:" + key.getYear(), StandardCharsets.UTF_8);
+
+        return URI.create(config.getUrl() + "/wms?" + query);
+    }
+
+    /**
+     * Render one tile
+     * @param key Tile identifier
+     * @return PNG content of the tile
+     * @throws MissingResourceException Layer is not published
+     * @throws IOException GeoServer is unreachable or didn't return an image
+     * @throws InterruptedException Request interrupted
+     */
+    public byte[] fetch(TileKey key) throws MissingResourceException, IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(this.getMapUri(key))
+                                         .timeout(Duration.ofMillis(config.getTimeout()))
+                                         .GET()
+                                         .build();
+
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+
+        // GeoServer answers errors with status 200 and an XML service exception
+        if (response.statusCode() != 200 || !contentType.startsWith(PNG_FORMAT)) {
+            throw new IOException("GeoServer failed to render tile " + key);
+        }
+
+        return response.body();
+    }
+}
@@ -0,0 +1,249 @@
+package com.cartowiki.webapp.tiles.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.MissingResourceException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import com.cartowiki.webapp.periods.model.EpochIndex;
+import com.cartowiki.webapp.periods.service.EpochService;
+import com.cartowiki.webapp.tiles.cache.TileMemoryCache;
+import com.cartowiki.webapp.tiles.config.GeoServerConfig;
+import com.cartowiki.webapp.tiles.config.InvalidationConfig;
+import com.cartowiki.webapp.tiles.model.DataChangeEvent;
+import com.cartowiki.webapp.tiles.model.TileKey;
+import com.cartowiki.webapp.tiles.store.ArchiveTileStore;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Remove the tiles affected by a change of the map data, instead of dropping the whole cache.
+ * Only tiles whose epoch overlaps the period of the changed row and whose area intersects the old
+ * or new bounding box of the row are removed. Removed tiles of low zoom levels, or popular ones,
+ * are rendered again in the background.
+ */
+@Service
+public class TileInvalidator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TileInvalidator.class);
+
+    private GeoServerConfig geoServerConfig;
+    private InvalidationConfig config;
+    private TileMemoryCache memoryCache;
+    private ArchiveTileStore store;
+    private TileService tileService;
+    private VectorTileService vectorTileService;
+    private EpochService epochService;
+
+    private ThreadPoolExecutor renderer;
+
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong invalidatedTiles = new AtomicLong();
+    private final AtomicLong queuedRenders = new AtomicLong();
+    private final AtomicLong droppedRenders = new AtomicLong();
+
+    /**
+     * Autowired constructor
+     * @param geoServerConfig GeoServer parameters
+     * @param config Invalidation parameters
+     * @param memoryCache In-memory tile cache
+     * @param store Persistent tile archives
+     * @param tileService Service for raster tiles
+     * @param vectorTileService Service for vector tiles
+     * @param epochService Epochs of the world history
+     */
+    @Autowired
+    public TileInvalidator(GeoServerConfig geoServerConfig, InvalidationConfig config, TileMemoryCache memoryCache, ArchiveTileStore store, TileService tileService, VectorTileService vectorTileService, EpochService epochService) {
+        this.geoServerConfig = geoServerConfig;
+        this.config = config;
+        this.memoryCache = memoryCache;
+        this.store = store;
+        this.tileService = tileService;
+        this.vectorTileService = vectorTileService;
+        this.epochService = epochService;
+
+        // Single background renderer, dropping tiles when too far behind (they will be rendered on request)
+        this.renderer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(config.getQueueSize()),
+                                               (task, executor) -> droppedRenders.incrementAndGet());
+    }
+
+    /**
+     * Invalidate tiles after a change published by another service
+     * @param event Change of a row of the map data
+     */
+    @EventListener
+    public void onDataChange(DataChangeEvent event) {
+        try {
+            this.invalidate(event);
+        }
+        catch (IOException | IllegalArgumentException e) {
+            LOGGER.error("Unable to invalidate tiles after a change of table {}", event.getTable(), e);
+        }
+    }
+
+    /**
+     * Check that a change can be handled, before publishing it
+     * @param event Change of a row of the map data
+     * @throws IllegalArgumentException Unknown table, or no bounding box
+     */
+    public void checkEvent(DataChangeEvent event) throws IllegalArgumentException {
+        if (event.getOldBounds() == null && event.getNewBounds() == null) {
+            throw new IllegalArgumentException("No bounding box");
+        }
+
+        this.getAffectedLayers(event.getTable());
+    }
+
+    /**
+     * Remove the tiles affected by a change from the memory cache and the archives, and queue the hot ones for rendering
+     * @param event Change of a row of the map data
+     * @return Numbers of invalidated and queued tiles for converting to JSON
+     * @throws IOException Error while opening an archive
+     * @throws IllegalArgumentException Unknown table, or no bounding box
+     */
+    public HashMap<String, Object> invalidate(DataChangeEvent event) throws IOException, IllegalArgumentException {
+        this.checkEvent(event);
+
+        List<String> layers = this.getAffectedLayers(event.getTable());
+        double padding = config.getPadding();
+
+        // Tiles are stored for the first year of their epoch, and the change may move epoch boundaries:
+        // a tile is affected if its epoch overlaps the changed years, before or after the change
+        EpochIndex before = epochService.getIndex();
+        EpochIndex after = this.refreshEpochs(before);
+
+        Predicate<TileKey> affected = key -> (before.overlaps(key.getYear(), event.getMinYear(), event.getMaxYear())
+                                              || after.overlaps(key.getYear(), event.getMinYear(), event.getMaxYear()))
+            && ((event.getOldBounds() != null && key.intersects(event.getOldBounds(), padding))
+                || (event.getNewBounds() != null && key.intersects(event.getNewBounds(), padding)));
+
+        int invalidated = 0;
+        int queued = 0;
+
+        for (String layer: layers) {
+            memoryCache.invalidateWhere(key -> key.getLayer().equals(layer) && affected.test(key));
+
+            for (TileKey key: store.deleteWhere(layer, affected)) {
+                invalidated++;
+
+                if (key.getZ() <= config.getHotZoom() || memoryCache.isPopular(key)) {
+                    renderer.execute(() -> this.render(key));
+                    queued++;
+                }
+            }
+        }
+
+        events.incrementAndGet();
+        invalidatedTiles.addAndGet(invalidated);
+        queuedRenders.addAndGet(queued);
+
+        HashMap<String, Object> map = new HashMap<>();
+        map.put("invalidatedTiles", invalidated);
+        map.put("queuedRenders", queued);
+
+        return map;
+    }
+
+    /**
+     * Compute the epochs again after a change
+     * @param current Current epochs
+     * @return New epochs, or current ones if they can't be computed
+     */
+    private EpochIndex refreshEpochs(EpochIndex current) {
+        EpochIndex refreshed = current;
+
+        try {
+            refreshed = epochService.refresh();
+        }
+        catch (DataAccessException e) {
+            LOGGER.error("Unable to refresh epochs after a data change", e);
+        }
+
+        return refreshed;
+    }
+
+    /**
+     * Return the cache layers showing a table
+     * @param table Name of the changed table
+     * @return Layer names in the caches
+     * @throws IllegalArgumentException Unknown table
+     */
+    private List<String> getAffectedLayers(String table) throws IllegalArgumentException {
+        // The content of GeoServer layers is not known here, so all of them are affected
+        List<String> layers = new ArrayList<>(geoServerConfig.getLayers().keySet());
+
+        if (DataChangeEvent.COUNTRY_GEOMETRIES.equals(table) || DataChangeEvent.COUNTRY_NAMES.equals(table)) {
+            layers.add(VectorTileService.COUNTRIES + VectorTileService.CACHE_SUFFIX);
+        }
+        else if (DataChangeEvent.CITY_ENTITIES.equals(table) || DataChangeEvent.CITY_EXISTENCES.equals(table)
+                 || DataChangeEvent.CITY_POPULATIONS.equals(table) || DataChangeEvent.CITY_NAMES.equals(table)) {
+            layers.add(VectorTileService.CITIES + VectorTileService.CACHE_SUFFIX);
+        }
+        else if (DataChangeEvent.COUNTRY_POPULATIONS.equals(table)) {
+            // Country populations are only shown by GeoServer layers
+        }
+        else {
+            throw new IllegalArgumentException("Unknown table");
+        }
+
+        return layers;
+    }
+
+    /**
+     * Render and store again an invalidated tile
+     * @param key Tile identifier in the caches
+     */
+    private void render(TileKey key) {
+        try {
+            if (key.getLayer().endsWith(VectorTileService.CACHE_SUFFIX)) {
+                String layer = key.getLayer().substring(0, key.getLayer().length() - VectorTileService.CACHE_SUFFIX.length());
+                vectorTileService.seedTile(new TileKey(layer, key.getYear(), key.getZ(), key.getX(), key.getY()));
+            }
+            else {
+                tileService.seedTile(key);
+            }
+        }
+        catch (IOException | DataAccessException | MissingResourceException e) {
+            LOGGER.warn("Unable to render tile {} again", key, e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Return the invalidation counters for converting to JSON
+     * @return Map of counters
+     */
+    public HashMap<String, Object> getStats() {
+        HashMap<String, Object> map = new HashMap<>();
+
+        map.put("events", events.get());
+        map.put("invalidatedTiles", invalidatedTiles.get());
+        map.put("queuedRenders", queuedRenders.get());
+        map.put("droppedRenders", droppedRenders.get());
+        map.put("pendingRenders", renderer.getQueue().size());
+
+        return map;
+    }
+
+    /**
+     * Stop the background renderer on shutdown
+     */
+    @PreDestroy
+    public void stop() {
+        renderer.shutdownNow();
+    }
+}
@@ -0,0 +1,385 @@
+package com.cartowiki.webapp.tiles.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import com.cartowiki.webapp.periods.model.EpochIndex;
+import com.cartowiki.webapp.periods.service.EpochService;
+import com.cartowiki.webapp.tiles.config.GeoServerConfig;
+import com.cartowiki.webapp.tiles.config.PrefetchConfig;
+import com.cartowiki.webapp.tiles.model.PrefetchRequest;
+import com.cartowiki.webapp.tiles.model.SeedJob;
+import com.cartowiki.webapp.tiles.model.TileKey;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Render in the background the tiles a client is likely to request next: the same tiles in the neighbouring
+ * epochs of each requested tile, or the tiles of a viewport over a window of years on explicit request.
+ * Prefetching runs on low priority threads with a bounded queue, and waits while renders for clients are in flight.
+ * Prefetched tiles are tracked until requested, to measure how many of them were useful.
+ */
+@Service
+public class TilePrefetcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TilePrefetcher.class);
+
+    // Prefetched tiles remembered for measuring their use
+    private static final int TRACKED_TILES = 10000;
+
+    // Waiting for renders of clients to finish, between checks and in total
+    private static final long BUSY_WAIT = 20;
+    private static final long MAX_BUSY_WAIT = 2000;
+
+    private PrefetchConfig config;
+    private GeoServerConfig geoServerConfig;
+    private TileService tileService;
+    private VectorTileService vectorTileService;
+    private EpochService epochService;
+
+    private ThreadPoolExecutor executor;
+
+    // Tiles waiting or being prefetched, by cache key
+    private final Set<TileKey> pending = ConcurrentHashMap.newKeySet();
+
+    // Tiles rendered by prefetching and not requested yet, by cache key, only accessed while holding its lock
+    private final LinkedHashMap<TileKey, Boolean> prefetched = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TileKey, Boolean> eldest) {
+            return size() > TRACKED_TILES;
+        }
+    };
+
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rendered = new AtomicLong();
+    private final AtomicLong alreadyStored = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong yielded = new AtomicLong();
+    private final AtomicLong useful = new AtomicLong();
+
+    /**
+     * Prefetch of one tile
+     */
+    private final class PrefetchTask implements Runnable {
+        private final TileKey key;
+        private final boolean vector;
+        private final TileKey cacheKey;
+
+        /**
+         * Constructor with arguments
+         * @param key Tile identifier, with a public layer name
+         * @param vector Is it a vector tile
+         * @param cacheKey Tile identifier in the caches
+         */
+        private PrefetchTask(TileKey key, boolean vector, TileKey cacheKey) {
+            this.key = key;
+            this.vector = vector;
+            this.cacheKey = cacheKey;
+        }
+
+        /**
+         * Prefetch the tile
+         */
+        @Override
+        public void run() {
+            execute(this);
+        }
+    }
+
+    /**
+     * Autowired constructor
+     * @param config Prefetching parameters
+     * @param geoServerConfig GeoServer parameters
+     * @param tileService Service for raster tiles
+     * @param vectorTileService Service for vector tiles
+     * @param epochService Epochs of the world history
+     */
+    @Autowired
+    public TilePrefetcher(PrefetchConfig config, GeoServerConfig geoServerConfig, TileService tileService, VectorTileService vectorTileService, EpochService epochService) {
+        this.config = config;
+        this.geoServerConfig = geoServerConfig;
+        this.tileService = tileService;
+        this.vectorTileService = vectorTileService;
+        this.epochService = epochService;
+
+        ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+        ThreadFactory lowPriorityFactory = task -> {
+            Thread thread = defaultFactory.newThread(task);
+            thread.setName("tile-prefetch-" + thread.getName());
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        // Prefetches beyond the queue are dropped: the client may request them, or not
+        this.executor = new ThreadPoolExecutor(config.getWorkers(), config.getWorkers(), 0, TimeUnit.MILLISECONDS,
+                                               new LinkedBlockingQueue<>(config.getQueueSize()), lowPriorityFactory,
+                                               (task, pool) -> this.drop(task));
+    }
+
+    /**
+     * Record a tile requested by a client, and prefetch the same tile in the neighbouring epochs
+     * @param key Tile identifier, with a public layer name
+     * @param vector Is it a vector tile
+     */
+    public void onRequest(TileKey key, boolean vector) {
+        try {
+            TileKey cacheKey = this.getCacheKey(key, vector);
+            boolean wasPrefetched;
+
+            synchronized (prefetched) {
+                wasPrefetched = prefetched.remove(cacheKey) != null;
+            }
+
+            if (wasPrefetched) {
+                useful.incrementAndGet();
+            }
+
+            EpochIndex epochs = epochService.getIndex();
+            int previous = epochs.getStart(key.getYear());
+            int next = previous;
+
+            for (int i = 0; i < config.getNeighbours(); i++) {
+                if (previous > Short.MIN_VALUE) {
+                    previous = epochs.getStart(previous - 1);
+                    this.submit(new TileKey(key.getLayer(), previous, key.getZ(), key.getX(), key.getY()), vector);
+                }
+
+                if (epochs.getEnd(next) < Short.MAX_VALUE) {
+                    next = epochs.getEnd(next) + 1;
+                    this.submit(new TileKey(key.getLayer(), next, key.getZ(), key.getX(), key.getY()), vector);
+                }
+            }
+        }
+        catch (MissingResourceException | IllegalArgumentException e) {
+            // Invalid tiles are answered to the client, nothing to prefetch
+        }
+    }
+
+    /**
+     * Queue the prefetch of the tiles of a viewport over a window of years (one per epoch)
+     * @param request Prefetching request
+     * @return Numbers of queued and dropped tiles for converting to JSON
+     * @throws IllegalArgumentException Invalid request, or too many tiles
+     * @throws MissingResourceException Unknown layer
+     */
+    public HashMap<String, Object> prefetch(PrefetchRequest request) throws IllegalArgumentException, MissingResourceException {
+        boolean vector = SeedJob.MVT.equals(request.getFormat());
+        double[] bounds = request.getBbox();
+
+        if (!vector && !SeedJob.PNG.equals(request.getFormat())) {
+            throw new IllegalArgumentException("Unknown format");
+        }
+
+        if (bounds == null || bounds.length != 4 || bounds[0] > bounds[2] || bounds[1] > bounds[3]) {
+            throw new IllegalArgumentException("Invalid bounding box");
+        }
+
+        if (request.getZoom() < 0 || request.getZoom() > TileKey.MAX_ZOOM) {
+            throw new IllegalArgumentException("Invalid zoom level");
+        }
+
+        if (request.getMinYear() > request.getMaxYear() || request.getMinYear() < Short.MIN_VALUE || request.getMaxYear() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid years");
+        }
+
+        if (request.getLayers() == null || request.getLayers().isEmpty() || request.getLayers().contains(null)) {
+            throw new IllegalArgumentException("No layer to prefetch");
+        }
+
+        for (String layer: request.getLayers()) {
+            if (vector ? !vectorTileService.hasLayer(layer) : !geoServerConfig.getLayers().containsKey(layer)) {
+                throw new MissingResourceException("Unknown layer", "Layer", layer);
+            }
+        }
+
+        // One year per epoch of the window
+        EpochIndex epochs = epochService.getIndex();
+        List<Integer> years = new ArrayList<>();
+        int year = request.getMinYear();
+
+        while (year <= request.getMaxYear()) {
+            years.add(year);
+            year = epochs.getEnd(year) + 1;
+        }
+
+        int tiles = 1 << request.getZoom();
+        int minColumn = Math.clamp((long) Math.floor((bounds[0] + 180) / 360 * tiles), 0, tiles - 1);
+        int maxColumn = Math.clamp((long) Math.floor((bounds[2] + 180) / 360 * tiles), 0, tiles - 1);
+        int minRow = Math.clamp((long) Math.floor(TileKey.latitudeToRow(bounds[3], tiles)), 0, tiles - 1);
+        int maxRow = Math.clamp((long) Math.floor(TileKey.latitudeToRow(bounds[1], tiles)), 0, tiles - 1);
+
+        long total = (long) request.getLayers().size() * years.size() * (maxColumn - minColumn + 1) * (maxRow - minRow + 1);
+
+        if (total > config.getMaxTiles()) {
+            throw new IllegalArgumentException("Too many tiles");
+        }
+
+        long droppedBefore = dropped.get();
+        int submitted = 0;
+
+        for (String layer: request.getLayers()) {
+            for (int tileYear: years) {
+                for (int x = minColumn; x <= maxColumn; x++) {
+                    for (int y = minRow; y <= maxRow; y++) {
+                        if (this.submit(new TileKey(layer, tileYear, request.getZoom(), x, y), vector)) {
+                            submitted++;
+                        }
+                    }
+                }
+            }
+        }
+
+        HashMap<String, Object> map = new HashMap<>();
+        map.put("tiles", total);
+        map.put("queued", submitted);
+        map.put("dropped", dropped.get() - droppedBefore);
+
+        return map;
+    }
+
+    /**
+     * Queue the prefetch of a tile, unless already pending
+     * @param key Tile identifier, with a public layer name
+     * @param vector Is it a vector tile
+     * @return Was the tile queued
+     * @throws MissingResourceException Unknown layer
+     */
+    private boolean submit(TileKey key, boolean vector) throws MissingResourceException {
+        TileKey cacheKey = this.getCacheKey(key, vector);
+        boolean submitted = pending.add(cacheKey);
+
+        if (submitted) {
+            queued.incrementAndGet();
+            executor.execute(new PrefetchTask(key, vector, cacheKey));
+        }
+
+        return submitted;
+    }
+
+    /**
+     * Forget a prefetch rejected by the full queue
+     * @param task Rejected task
+     */
+    private void drop(Runnable task) {
+        dropped.incrementAndGet();
+
+        if (task instanceof PrefetchTask prefetchTask) {
+            pending.remove(prefetchTask.cacheKey);
+        }
+    }
+
+    /**
+     * Render and store a tile if missing, after renders for clients are done
+     * @param prefetch Prefetch of the tile
+     */
+    private void execute(PrefetchTask prefetch) {
+        try {
+            long waited = 0;
+
+            while (this.isBusy() && waited < MAX_BUSY_WAIT) {
+                Thread.sleep(BUSY_WAIT);
+                waited += BUSY_WAIT;
+            }
+
+            if (this.isBusy()) {
+                yielded.incrementAndGet();
+            }
+            else {
+                boolean built = prefetch.vector ? vectorTileService.seedTile(prefetch.key) : tileService.seedTile(prefetch.key);
+
+                if (built) {
+                    rendered.incrementAndGet();
+
+                    synchronized (prefetched) {
+                        prefetched.put(prefetch.cacheKey, Boolean.TRUE);
+                    }
+                }
+                else {
+                    alreadyStored.incrementAndGet();
+                }
+            }
+        }
+        catch (IOException | DataAccessException | MissingResourceException e) {
+            failed.incrementAndGet();
+            LOGGER.debug("Unable to prefetch tile {}", prefetch.key, e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            pending.remove(prefetch.cacheKey);
+        }
+    }
+
+    /**
+     * Check if renders for clients are in flight
+     * @return Are too many renders in flight
+     */
+    private boolean isBusy() {
+        long inFlight = ((Number) tileService.getRenderStats().get("inFlight")).longValue()
+                      + ((Number) vectorTileService.getBuildStats().get("inFlight")).longValue();
+
+        return inFlight >= config.getBusyRenders();
+    }
+
+    /**
+     * Return the identifier of a tile in the caches
+     * @param key Tile identifier, with a public layer name
+     * @param vector Is it a vector tile
+     * @return Tile identifier in the caches
+     * @throws MissingResourceException Unknown layer
+     */
+    private TileKey getCacheKey(TileKey key, boolean vector) throws MissingResourceException {
+        return vector ? vectorTileService.getCacheKey(key) : tileService.getEpochKey(key);
+    }
+
+    /**
+     * Return the prefetching counters for converting to JSON
+     * @return Map of counters
+     */
+    public HashMap<String, Object> getStats() {
+        HashMap<String, Object> map = new HashMap<>();
+        long renderedTiles = rendered.get();
+        long usefulTiles = useful.get();
+
+        map.put("queued", queued.get());
+        map.put("dropped", dropped.get());
+        map.put("rendered", renderedTiles);
+        map.put("alreadyStored", alreadyStored.get());
+        map.put("failed", failed.get());
+        map.put("yielded", yielded.get());
+        map.put("pending", executor.getQueue().size());
+        map.put("useful", usefulTiles);
+        map.put("hitRate", renderedTiles == 0 ? 0.0 : (double) usefulTiles / renderedTiles);
+
+        return map;
+    }
+
+    /**
+     * Stop prefetching on shutdown
+     */
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+}
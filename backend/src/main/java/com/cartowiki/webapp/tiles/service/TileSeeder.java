@@ -0,0 +1,414 @@
+package com.cartowiki.webapp.tiles.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import com.cartowiki.webapp.periods.model.EpochIndex;
+import com.cartowiki.webapp.periods.service.EpochService;
+import com.cartowiki.webapp.tiles.config.GeoServerConfig;
+import com.cartowiki.webapp.tiles.config.SeedConfig;
+import com.cartowiki.webapp.tiles.model.SeedJob;
+import com.cartowiki.webapp.tiles.model.SeedRequest;
+import com.cartowiki.webapp.tiles.model.TileKey;
+import com.cartowiki.webapp.tiles.repository.SeedJobRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Fill the tile archives ahead of requests, over a range of years and zoom levels.
+ * Tiles are rendered by a bounded pool of workers, and the progress of each job is saved
+ * in the database so that jobs interrupted by a shutdown or a crash resume where they stopped.
+ */
+@Service
+public class TileSeeder {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TileSeeder.class);
+
+    // Number of consecutive tiles given to a worker at once
+    private static final int CHUNK_SIZE = 64;
+
+    private TileService tileService;
+    private VectorTileService vectorTileService;
+    private GeoServerConfig geoServerConfig;
+    private SeedConfig config;
+    private SeedJobRepository repository;
+    private EpochService epochService;
+
+    private ExecutorService workers;
+    private Map<Integer, SeedRun> runs = new ConcurrentHashMap<>();
+
+    /**
+     * Autowired constructor
+     * @param tileService Service for raster tiles
+     * @param vectorTileService Service for vector tiles
+     * @param geoServerConfig GeoServer parameters
+     * @param config Seeding parameters
+     * @param repository Saved seeding jobs
+     * @param epochService Epochs of the world history
+     */
+    @Autowired
+    public TileSeeder(TileService tileService, VectorTileService vectorTileService, GeoServerConfig geoServerConfig, SeedConfig config, SeedJobRepository repository, EpochService epochService) {
+        this.tileService = tileService;
+        this.vectorTileService = vectorTileService;
+        this.geoServerConfig = geoServerConfig;
+        this.config = config;
+        this.repository = repository;
+        this.epochService = epochService;
+        this.workers = Executors.newFixedThreadPool(config.getWorkers());
+    }
+
+    /**
+     * Resume the jobs which were running when the application stopped
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeJobs() {
+        try {
+            for (SeedJob job: repository.findAllByStatus(SeedJob.RUNNING)) {
+                LOGGER.info("Resuming tile seeding job {} at tile {}", job.getId(), job.getCompletedTiles());
+                this.run(job);
+            }
+        }
+        catch (DataAccessException e) {
+            LOGGER.error("Unable to resume tile seeding jobs", e);
+        }
+    }
+
+    /**
+     * Create and start a seeding job
+     * @param request Layers, format, years and zoom levels to seed
+     * @return Created job
+     * @throws IllegalArgumentException Invalid years, zoom levels, format or layers
+     * @throws MissingResourceException Unknown layer
+     * @throws DataAccessException Error while saving the job
+     */
+    public SeedJob startJob(SeedRequest request) throws IllegalArgumentException, MissingResourceException, DataAccessException {
+        if (request.getFormat() == null) {
+            throw new IllegalArgumentException("Invalid format");
+        }
+        else if (request.getLayers() == null || request.getLayers().isEmpty() || request.getLayers().contains(null)) {
+            throw new IllegalArgumentException("No layer to seed");
+        }
+        else if (request.getMinYear() > request.getMaxYear() || request.getMinYear() < Short.MIN_VALUE || request.getMaxYear() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid year range");
+        }
+        else if (request.getMinZoom() < 0 || request.getMinZoom() > request.getMaxZoom() || request.getMaxZoom() > TileKey.MAX_ZOOM) {
+            throw new IllegalArgumentException("Invalid zoom range");
+        }
+        else if (!request.getFormat().equals(SeedJob.PNG) && !request.getFormat().equals(SeedJob.MVT)) {
+            throw new IllegalArgumentException("Invalid format");
+        }
+
+        for (String layer: request.getLayers()) {
+            boolean known = request.getFormat().equals(SeedJob.PNG) ? geoServerConfig.getLayers().containsKey(layer) : vectorTileService.hasLayer(layer);
+
+            if (!known) {
+                throw new MissingResourceException("Unknown layer", "Layer", layer);
+            }
+        }
+
+        // Tiles are keyed by epoch, so one year per epoch of the range is enough
+        EpochIndex epochs = epochService.getIndex();
+        List<Integer> years = new ArrayList<>();
+
+        for (int year = request.getMinYear(); year <= request.getMaxYear(); year++) {
+            if (year == request.getMinYear() || epochs.getStart(year) == year) {
+                years.add(year);
+            }
+        }
+
+        SeedJob job = repository.save(new SeedJob(request.getLayers(), request.getFormat(), request.getMinYear(), request.getMaxYear(), years, request.getMinZoom(), request.getMaxZoom()));
+        this.run(job);
+
+        return job;
+    }
+
+    /**
+     * Stop a running job for good
+     * @param id Job id
+     * @return Cancelled job
+     * @throws MissingResourceException Job not found
+     * @throws IllegalArgumentException Job is not running
+     */
+    public SeedJob cancelJob(int id) throws MissingResourceException, IllegalArgumentException {
+        SeedJob job = this.getJob(id);
+        SeedRun run = runs.remove(id);
+
+        if (!job.getStatus().equals(SeedJob.RUNNING)) {
+            throw new IllegalArgumentException("Job is not running");
+        }
+
+        if (run != null) {
+            run.cancelled = true;
+            job = run.job;
+        }
+
+        job.setStatus(SeedJob.CANCELLED);
+
+        return repository.save(job);
+    }
+
+    /**
+     * Return a job, with up-to-date progress if it is running
+     * @param id Job id
+     * @return Job
+     * @throws MissingResourceException Job not found
+     */
+    public SeedJob getJob(int id) throws MissingResourceException {
+        SeedRun run = runs.get(id);
+
+        return run != null ? run.job : repository.findById(id).orElseThrow(() -> new MissingResourceException("Missing job", "SeedJob", String.valueOf(id)));
+    }
+
+    /**
+     * Return all jobs
+     * @return List of jobs
+     */
+    public List<SeedJob> getJobs() {
+        List<SeedJob> jobs = new ArrayList<>();
+
+        for (SeedJob job: repository.findAll()) {
+            SeedRun run = runs.get(job.getId());
+            jobs.add(run != null ? run.job : job);
+        }
+
+        return jobs;
+    }
+
+    /**
+     * Return the progress of a job for converting to JSON, with throughput and estimated remaining time if it is running
+     * @param job Job
+     * @return Map of values
+     */
+    public HashMap<String, Object> getProgress(SeedJob job) {
+        HashMap<String, Object> map = new HashMap<>();
+        long total = job.getTotalTiles();
+
+        map.put("id", job.getId());
+        map.put("status", job.getStatus());
+        map.put("layers", job.getLayerList());
+        map.put("format", job.getFormat());
+        map.put("minYear", job.getMinYear());
+        map.put("maxYear", job.getMaxYear());
+        map.put("seededYears", job.getYearList().size());
+        map.put("minZoom", job.getMinZoom());
+        map.put("maxZoom", job.getMaxZoom());
+        map.put("totalTiles", total);
+        map.put("completedTiles", job.getCompletedTiles());
+        map.put("renderedTiles", job.getRenderedTiles());
+        map.put("failedTiles", job.getFailedTiles());
+        map.put("createdAt", job.getCreatedAt().toString());
+        map.put("updatedAt", job.getUpdatedAt().toString());
+
+        SeedRun run = runs.get(job.getId());
+
+        if (run != null) {
+            double seconds = Math.max(1, Duration.between(run.startedAt, Instant.now()).toMillis()) / 1000.0;
+            long processed = run.processed.get();
+            double throughput = processed / seconds;
+
+            map.put("tilesPerSecond", throughput);
+            map.put("etaSeconds", throughput > 0 ? (long) ((total - run.startIndex - processed) / throughput) : null);
+        }
+
+        return map;
+    }
+
+    /**
+     * Start the coordinator of a job, which hands chunks of tiles to the workers
+     * @param job Job to run from its saved progress
+     */
+    private void run(SeedJob job) {
+        SeedRun run = new SeedRun(job);
+        runs.put(job.getId(), run);
+
+        Thread coordinator = new Thread(() -> this.coordinate(run), "tile-seed-" + job.getId());
+        coordinator.setDaemon(true);
+        coordinator.start();
+    }
+
+    /**
+     * Submit the chunks of a job, keeping at most two chunks per worker waiting
+     * @param run Running job
+     */
+    private void coordinate(SeedRun run) {
+        long total = run.job.getTotalTiles();
+        Semaphore slots = new Semaphore(2 * config.getWorkers());
+
+        try {
+            for (long start = run.startIndex; start < total && !run.cancelled; start += CHUNK_SIZE) {
+                long chunkStart = start;
+                long chunkEnd = Math.min(start + CHUNK_SIZE, total);
+
+                slots.acquire();
+                workers.execute(() -> {
+                    try {
+                        if (this.seedChunk(run, chunkStart, chunkEnd)) {
+                            this.completeChunk(run, chunkStart, chunkEnd);
+                        }
+                    }
+                    finally {
+                        slots.release();
+                    }
+                });
+            }
+
+            // Wait for the last chunks
+            slots.acquire(2 * config.getWorkers());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (RejectedExecutionException e) {
+            // Shutting down, the job will resume at next start
+        }
+    }
+
+    /**
+     * Seed the tiles of a chunk, counting and skipping tiles that fail to render
+     * @param run Running job
+     * @param start Number of the first tile
+     * @param end Number after the last tile
+     * @return Was the whole chunk processed
+     */
+    private boolean seedChunk(SeedRun run, long start, long end) {
+        boolean finished = true;
+
+        for (long index = start; index < end && finished; index++) {
+            TileKey key = run.job.getTile(index);
+
+            try {
+                boolean rendered = run.job.getFormat().equals(SeedJob.MVT) ? vectorTileService.seedTile(key) : tileService.seedTile(key);
+
+                if (rendered) {
+                    run.rendered.incrementAndGet();
+                }
+            }
+            catch (IOException | DataAccessException | MissingResourceException e) {
+                run.failed.incrementAndGet();
+                LOGGER.warn("Unable to seed tile {} of job {}: {}", key, run.job.getId(), e.getMessage());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                finished = false;
+            }
+
+            if (run.cancelled) {
+                finished = false;
+            }
+            else if (finished) {
+                run.processed.incrementAndGet();
+            }
+        }
+
+        return finished;
+    }
+
+    /**
+     * Record a finished chunk, moving the job progress forward if all previous chunks are finished too
+     * @param run Running job
+     * @param start Number of the first tile of the chunk
+     * @param end Number after the last tile of the chunk
+     */
+    private void completeChunk(SeedRun run, long start, long end) {
+        synchronized (run) {
+            run.finishedChunks.put(start, end);
+            long lowWaterMark = run.job.getCompletedTiles();
+
+            while (run.finishedChunks.containsKey(lowWaterMark)) {
+                lowWaterMark = run.finishedChunks.remove(lowWaterMark);
+            }
+
+            run.job.setProgress(lowWaterMark, run.job.getRenderedTiles() + run.rendered.getAndSet(0), run.job.getFailedTiles() + run.failed.getAndSet(0));
+
+            boolean finished = lowWaterMark == run.job.getTotalTiles();
+
+            if (finished) {
+                run.job.setStatus(SeedJob.COMPLETED);
+                runs.remove(run.job.getId());
+            }
+
+            if (finished || lowWaterMark - run.checkpoint >= config.getCheckpointInterval()) {
+                this.saveProgress(run);
+            }
+        }
+    }
+
+    /**
+     * Save the progress of a job
+     * @param run Running job
+     */
+    private void saveProgress(SeedRun run) {
+        try {
+            if (!run.cancelled) {
+                repository.save(run.job);
+                run.checkpoint = run.job.getCompletedTiles();
+            }
+        }
+        catch (DataAccessException e) {
+            LOGGER.error("Unable to save progress of tile seeding job {}", run.job.getId(), e);
+        }
+    }
+
+    /**
+     * Stop the workers and save the progress of the running jobs, which will resume at next start
+     */
+    @PreDestroy
+    public void stop() {
+        workers.shutdownNow();
+
+        for (SeedRun run: runs.values()) {
+            synchronized (run) {
+                this.saveProgress(run);
+            }
+        }
+    }
+
+    /**
+     * Running state of a job
+     */
+    private static final class SeedRun {
+        private final SeedJob job;
+        private final long startIndex;
+        private final Instant startedAt = Instant.now();
+
+        // Chunks finished after a chunk still in progress, by first tile number
+        private final TreeMap<Long, Long> finishedChunks = new TreeMap<>();
+
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong rendered = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        private long checkpoint;
+        private volatile boolean cancelled;
+
+        /**
+         * Constructor with arguments
+         * @param job Job to run from its saved progress
+         */
+        private SeedRun(SeedJob job) {
+            this.job = job;
+            this.startIndex = job.getCompletedTiles();
+            this.checkpoint = this.startIndex;
+        }
+    }
+}
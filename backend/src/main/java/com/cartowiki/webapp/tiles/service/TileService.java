@@ -0,0 +1,174 @@
+package com.cartowiki.webapp.tiles.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
+import java.util.MissingResourceException;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.cartowiki.webapp.periods.service.EpochService;
+import com.cartowiki.webapp.tiles.cache.SingleFlight;
+import com.cartowiki.webapp.tiles.cache.TileMemoryCache;
+import com.cartowiki.webapp.tiles.config.GeoServerConfig;
+import com.cartowiki.webapp.tiles.model.TileKey;
+import com.cartowiki.webapp.tiles.store.ArchiveTileStore;
+
+/**
+ * Serve map tiles, from the memory cache or the tile archives when possible.
+ * Tiles are cached and rendered for the first year of their epoch.
+ */
+@Service
+public class TileService {
+    private GeoServerConfig config;
+    private TileMemoryCache memoryCache;
+    private ArchiveTileStore store;
+    private GeoServerTileFetcher fetcher;
+    private EpochService epochService;
+    private SingleFlight<TileKey, byte[]> renders;
+
+    /**
+     * Autowired constructor
+     * @param config GeoServer parameters
+     * @param memoryCache In-memory tile cache
+     * @param store Persistent tile archives
+     * @param fetcher Tile renderer
+     * @param epochService Epochs of the world history
+     */
+    @Autowired
+    public TileService(GeoServerConfig config, TileMemoryCache memoryCache, ArchiveTileStore store, GeoServerTileFetcher fetcher, EpochService epochService) {
+        this.config = config;
+        this.memoryCache = memoryCache;
+        this.store = store;
+        this.fetcher = fetcher;
+        this.epochService = epochService;
+
+        // Concurrent misses of a tile wait for a single GeoServer render
+        this.renders = new SingleFlight<>(config.getTimeout());
+    }
+
+    /**
+     * Return the content of a tile from the memory cache, reading or rendering it if needed, unless it is stored but
+     * not popular enough to be copied in memory. The memory cache is looked up once, so that each request counts once
+     * in its statistics and in the frequency sketch of its admission policy.
+     * @param key Tile identifier
+     * @return Optional PNG content of the tile, empty if the tile should rather be sent from the archive with transferTile
+     * @throws MissingResourceException Layer is not published
+     * @throws IOException Tile can't be read nor rendered
+     * @throws InterruptedException Rendering interrupted
+     */
+    public Optional<byte[]> getTile(TileKey key) throws MissingResourceException, IOException, InterruptedException {
+        TileKey epochKey = this.getEpochKey(key);
+        Optional<byte[]> cached = memoryCache.get(epochKey);
+
+        if (cached.isEmpty() && (memoryCache.isPopular(epochKey) || !store.contains(epochKey))) {
+            byte[] tile = this.loadTile(epochKey);
+
+            memoryCache.put(epochKey, tile);
+            cached = Optional.of(tile);
+        }
+
+        return cached;
+    }
+
+    /**
+     * Send a stored tile to a channel without copying it through the Java heap, rendering it if it was removed meanwhile
+     * @param key Tile identifier
+     * @param target Destination channel
+     * @throws MissingResourceException Layer is not published
+     * @throws IOException Tile can't be read nor rendered, or error while writing to the channel
+     * @throws InterruptedException Rendering interrupted
+     */
+    public void transferTile(TileKey key, WritableByteChannel target) throws MissingResourceException, IOException, InterruptedException {
+        TileKey epochKey = this.getEpochKey(key);
+
+        if (store.transferTo(epochKey, target) < 0) {
+            byte[] tile = this.loadTile(epochKey);
+
+            memoryCache.put(epochKey, tile);
+            target.write(ByteBuffer.wrap(tile));
+        }
+    }
+
+    /**
+     * Render and store a tile if it is not in the archives yet, without filling the memory cache
+     * @param key Tile identifier
+     * @return Was the tile rendered
+     * @throws MissingResourceException Layer is not published
+     * @throws IOException Tile can't be rendered or stored
+     * @throws InterruptedException Rendering interrupted
+     */
+    public boolean seedTile(TileKey key) throws MissingResourceException, IOException, InterruptedException {
+        TileKey epochKey = this.getEpochKey(key);
+        boolean rendered = !store.contains(epochKey);
+
+        if (rendered) {
+            this.render(epochKey);
+        }
+
+        return rendered;
+    }
+
+    /**
+     * Return the identifier of a tile in the caches, where the year is replaced by the first year of its epoch
+     * (all years of an epoch show the same map)
+     * @param key Tile identifier
+     * @return Tile identifier in the caches
+     * @throws MissingResourceException Layer is not published
+     */
+    public TileKey getEpochKey(TileKey key) throws MissingResourceException {
+        if (!config.getLayers().containsKey(key.getLayer())) {
+            throw new MissingResourceException("Unknown layer", "Layer", key.getLayer());
+        }
+
+        return new TileKey(key.getLayer(), epochService.getEpochStart(key.getYear()), key.getZ(), key.getX(), key.getY());
+    }
+
+    /**
+     * Read a tile from the archives, or render and store it
+     * @param key Tile identifier
+     * @return PNG content of the tile
+     * @throws IOException Tile can't be read nor rendered
+     * @throws InterruptedException Rendering interrupted
+     */
+    private byte[] loadTile(TileKey key) throws IOException, InterruptedException {
+        Optional<byte[]> stored = store.read(key);
+        byte[] tile;
+
+        if (stored.isPresent()) {
+            tile = stored.get();
+        }
+        else {
+            tile = this.render(key);
+        }
+
+        return tile;
+    }
+
+    /**
+     * Render a tile with GeoServer and store it, or wait for a concurrent render of the same tile
+     * @param key Tile identifier
+     * @return PNG content of the tile
+     * @throws IOException Tile can't be rendered or stored, or concurrent render too long
+     * @throws InterruptedException Rendering interrupted
+     */
+    private byte[] render(TileKey key) throws IOException, InterruptedException {
+        return renders.load(key, () -> {
+            byte[] tile = fetcher.fetch(key);
+            store.write(key, tile);
+
+            return tile;
+        });
+    }
+
+    /**
+     * Return the counters of GeoServer renders, including the ones saved by coalescing concurrent misses
+     * @return Map of counters
+     */
+    public HashMap<String, Object> getRenderStats() {
+        return renders.getStats();
+    }
+}
@@ -0,0 +1,239 @@
+package com.cartowiki.webapp.tiles.service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.cartowiki.webapp.periods.service.EpochService;
+import com.cartowiki.webapp.tiles.cache.SingleFlight;
+import com.cartowiki.webapp.tiles.cache.TileMemoryCache;
+import com.cartowiki.webapp.tiles.config.GeoServerConfig;
+import com.cartowiki.webapp.tiles.model.TileKey;
+import com.cartowiki.webapp.tiles.store.ArchiveTileStore;
+import com.cartowiki.webapp.util.PeriodSql;
+import com.cartowiki.webapp.world.service.LodService;
+
+/**
+ * Build Mapbox Vector Tiles of countries and cities straight from PostGIS
+ */
+@Service
+public class VectorTileService {
+    public static final String COUNTRIES = "countries";
+    public static final String CITIES = "cities";
+
+    // Suffix of the cache layers, to keep vector tiles apart from raster ones
+    public static final String CACHE_SUFFIX = ".mvt";
+
+    private static final int EXTENT = 4096;
+    private static final int BUFFER = 64;
+
+    private static final String COUNTRIES_QUERY = """
+        WITH bounds AS (SELECT ST_TileEnvelope(?, ?, ?) AS envelope)
+        SELECT ST_AsMVT(tile, 'countries', %1$d, 'geom', 'id') FROM (
+            SELECT geometrie_pays.id_entite_pays AS id, names.nom_pays AS name, entites_pays.couleur AS color, names.proto_etat AS proto_state,
+                   ST_AsMVTGeom(ST_Transform(COALESCE(lod.geometrie, geometrie_pays.geometrie), 3857), bounds.envelope, %1$d, %2$d, true) AS geom
+            FROM geometrie_pays
+            CROSS JOIN bounds
+            LEFT JOIN geometrie_pays_lod AS lod ON lod.id_geometrie_pays = geometrie_pays.id_geometrie_pays AND lod.niveau = ?
+            JOIN periodes AS geometrie_periodes ON geometrie_pays.id_periode = geometrie_periodes.id_periode
+            JOIN entites_pays ON geometrie_pays.id_entite_pays = entites_pays.id_entite_pays
+            LEFT JOIN LATERAL (
+                SELECT noms_pays.nom_pays, pays.proto_etat
+                FROM pays
+                JOIN periodes AS pays_periodes ON pays.id_periode = pays_periodes.id_periode
+                JOIN noms_pays ON pays.id_nom_pays = noms_pays.id_nom_pays
+                WHERE pays.id_entite_pays = geometrie_pays.id_entite_pays AND %4$s
+                LIMIT 1
+            ) AS names ON true
+            WHERE %3$s AND geometrie_pays.geometrie && ST_Transform(bounds.envelope, 4326)
+        ) AS tile
+        WHERE tile.geom IS NOT NULL
+        """.formatted(EXTENT, BUFFER, PeriodSql.validAt("geometrie_periodes"), PeriodSql.validAt("pays_periodes"));
+
+    private static final String CITIES_QUERY = """
+        WITH bounds AS (SELECT ST_TileEnvelope(?, ?, ?) AS envelope)
+        SELECT ST_AsMVT(tile, 'cities', %1$d, 'geom', 'id') FROM (
+            SELECT entites_villes.id_entite_ville AS id, names.nom_ville AS name, populations.population AS population,
+                   ST_AsMVTGeom(ST_Transform(entites_villes.position_ville, 3857), bounds.envelope, %1$d, %2$d, true) AS geom
+            FROM entites_villes
+            CROSS JOIN bounds
+            JOIN existence_ville ON entites_villes.id_entite_ville = existence_ville.id_entite_ville
+            JOIN periodes AS existence_periodes ON existence_ville.id_periode = existence_periodes.id_periode
+            LEFT JOIN LATERAL (
+                SELECT noms_villes.nom_ville
+                FROM ville
+                JOIN periodes AS ville_periodes ON ville.id_periode = ville_periodes.id_periode
+                JOIN noms_villes ON ville.id_nom_ville = noms_villes.id_nom_ville
+                WHERE ville.id_entite_ville = entites_villes.id_entite_ville AND %4$s
+                LIMIT 1
+            ) AS names ON true
+            LEFT JOIN LATERAL (
+                SELECT populations_villes.population
+                FROM populations_villes
+                WHERE populations_villes.id_entite_ville = entites_villes.id_entite_ville AND populations_villes.annee <= ?
+                ORDER BY populations_villes.annee DESC
+                LIMIT 1
+            ) AS populations ON true
+            WHERE %3$s AND entites_villes.position_ville && ST_Transform(bounds.envelope, 4326)
+        ) AS tile
+        WHERE tile.geom IS NOT NULL
+        """.formatted(EXTENT, BUFFER, PeriodSql.validAt("existence_periodes"), PeriodSql.validAt("ville_periodes"));
+
+    private static final Map<String, String> QUERIES = Map.of(COUNTRIES, COUNTRIES_QUERY, CITIES, CITIES_QUERY);
+
+    private JdbcTemplate jdbcTemplate;
+    private TileMemoryCache memoryCache;
+    private ArchiveTileStore store;
+    private EpochService epochService;
+    private LodService lodService;
+    private SingleFlight<TileKey, byte[]> builds;
+
+    /**
+     * Autowired constructor
+     * @param jdbcTemplate JDBC access to the database
+     * @param memoryCache In-memory tile cache
+     * @param store Persistent tile archives
+     * @param config GeoServer parameters (for the rendering timeout)
+     * @param epochService Epochs of the world history
+     * @param lodService Levels of detail of country borders
+     */
+    @Autowired
+    public VectorTileService(JdbcTemplate jdbcTemplate, TileMemoryCache memoryCache, ArchiveTileStore store, GeoServerConfig config, EpochService epochService, LodService lodService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.memoryCache = memoryCache;
+        this.store = store;
+        this.epochService = epochService;
+        this.lodService = lodService;
+
+        // Concurrent misses of a tile wait for a single query
+        this.builds = new SingleFlight<>(config.getTimeout());
+    }
+
+    /**
+     * Return a vector tile, building and caching it if needed
+     * @param key Tile identifier, with a public vector layer name
+     * @return Mapbox Vector Tile content
+     * @throws MissingResourceException Unknown vector layer
+     * @throws IOException Error while reading or writing the tile archive, or concurrent build too long
+     * @throws InterruptedException Waiting for a concurrent build interrupted
+     */
+    public byte[] getTile(TileKey key) throws MissingResourceException, IOException, InterruptedException {
+        TileKey cacheKey = this.getCacheKey(key);
+        Optional<byte[]> cached = memoryCache.get(cacheKey);
+        byte[] tile;
+
+        if (cached.isPresent()) {
+            tile = cached.get();
+        }
+        else {
+            cached = store.read(cacheKey);
+
+            if (cached.isPresent()) {
+                tile = cached.get();
+            }
+            else {
+                tile = this.build(key, cacheKey);
+            }
+
+            memoryCache.put(cacheKey, tile);
+        }
+
+        return tile;
+    }
+
+    /**
+     * Build and store a vector tile if it is not in the archives yet, without filling the memory cache
+     * @param key Tile identifier, with a public vector layer name
+     * @return Was the tile built
+     * @throws MissingResourceException Unknown vector layer
+     * @throws IOException Error while reading or writing the tile archive, or concurrent build too long
+     * @throws InterruptedException Waiting for a concurrent build interrupted
+     */
+    public boolean seedTile(TileKey key) throws MissingResourceException, IOException, InterruptedException {
+        TileKey cacheKey = this.getCacheKey(key);
+        boolean built = !store.contains(cacheKey);
+
+        if (built) {
+            this.build(key, cacheKey);
+        }
+
+        return built;
+    }
+
+    /**
+     * Return the identifier of a vector tile in the caches, where the year is replaced by the first year of its epoch
+     * (all years of an epoch show the same map)
+     * @param key Tile identifier, with a public vector layer name
+     * @return Tile identifier in the caches
+     * @throws MissingResourceException Unknown vector layer
+     */
+    public TileKey getCacheKey(TileKey key) throws MissingResourceException {
+        if (!QUERIES.containsKey(key.getLayer())) {
+            throw new MissingResourceException("Unknown layer", "Layer", key.getLayer());
+        }
+
+        return new TileKey(key.getLayer() + CACHE_SUFFIX, epochService.getEpochStart(key.getYear()), key.getZ(), key.getX(), key.getY());
+    }
+
+    /**
+     * Check if a vector layer exists
+     * @param layer Vector layer name
+     * @return Does the layer exist
+     */
+    public boolean hasLayer(String layer) {
+        return QUERIES.containsKey(layer);
+    }
+
+    /**
+     * Build a vector tile and store it, or wait for a concurrent build of the same tile
+     * @param key Tile identifier, with a public vector layer name
+     * @param cacheKey Tile identifier in the caches
+     * @return Mapbox Vector Tile content
+     * @throws IOException Error while writing the tile archive, or concurrent build too long
+     * @throws InterruptedException Waiting for a concurrent build interrupted
+     */
+    private byte[] build(TileKey key, TileKey cacheKey) throws IOException, InterruptedException {
+        return builds.load(cacheKey, () -> {
+            byte[] tile = this.buildTile(key.getLayer(), cacheKey);
+            store.write(cacheKey, tile);
+
+            return tile;
+        });
+    }
+
+    /**
+     * Return the counters of tile builds, including the ones saved by coalescing concurrent misses
+     * @return Map of counters
+     */
+    public HashMap<String, Object> getBuildStats() {
+        return builds.getStats();
+    }
+
+    /**
+     * Build a vector tile with PostGIS
+     * @param layer Public vector layer name
+     * @param key Tile identifier in the caches (for the first year of an epoch)
+     * @return Mapbox Vector Tile content (empty if no feature)
+     */
+    private byte[] buildTile(String layer, TileKey key) {
+        byte[] tile;
+
+        if (layer.equals(COUNTRIES)) {
+            // Simplified borders for low zoom levels, full resolution ones when no level is fine enough
+            tile = jdbcTemplate.queryForObject(COUNTRIES_QUERY, byte[].class,
+                key.getZ(), key.getX(), key.getY(), lodService.getLevel(key.getZ()), key.getYear(), key.getYear(), key.getYear(), key.getYear());
+        }
+        else {
+            tile = jdbcTemplate.queryForObject(CITIES_QUERY, byte[].class,
+                key.getZ(), key.getX(), key.getY(), key.getYear(), key.getYear(), key.getYear(), key.getYear(), key.getYear());
+        }
+
+        return tile == null ? new byte[0] : tile;
+    }
+}
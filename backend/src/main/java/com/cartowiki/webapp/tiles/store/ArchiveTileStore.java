@@ -0,0 +1,198 @@
+package com.cartowiki.webapp.tiles.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.cartowiki.webapp.tiles.config.GeoServerConfig;
+import com.cartowiki.webapp.tiles.model.TileKey;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Persistent tile cache, with one archive file per layer
+ */
+@Component
+public class ArchiveTileStore {
+    private Path root;
+    private Map<String, TileArchive> archives = new ConcurrentHashMap<>();
+
+    /**
+     * Autowired constructor
+     * @param config GeoServer parameters
+     */
+    @Autowired
+    public ArchiveTileStore(GeoServerConfig config) {
+        this(Paths.get(config.getTileCacheDirectory()));
+    }
+
+    /**
+     * Constructor with arguments
+     * @param root Directory of the archives
+     */
+    public ArchiveTileStore(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Return the archive of a layer, opening it if needed
+     * @param layer Layer name
+     * @return Archive of the layer
+     * @throws IOException Error while opening the archive
+     */
+    private TileArchive getArchive(String layer) throws IOException {
+        try {
+            return archives.computeIfAbsent(layer, name -> {
+                try {
+                    return new TileArchive(root, name);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Check if a tile is stored
+     * @param key Tile identifier
+     * @return Is the tile stored
+     * @throws IOException Error while reading the archive
+     */
+    public boolean contains(TileKey key) throws IOException {
+        return this.getArchive(key.getLayer()).contains(key);
+    }
+
+    /**
+     * Read a tile
+     * @param key Tile identifier
+     * @return Optional tile content, might be empty if not stored
+     * @throws IOException Error while reading the archive
+     */
+    public Optional<byte[]> read(TileKey key) throws IOException {
+        return this.getArchive(key.getLayer()).read(key);
+    }
+
+    /**
+     * Send a stored tile to a channel without copying it through the Java heap
+     * @param key Tile identifier
+     * @param target Destination channel
+     * @return Size of the tile (in bytes), or -1 if not stored
+     * @throws IOException Error while reading the archive or writing to the channel
+     */
+    public long transferTo(TileKey key, WritableByteChannel target) throws IOException {
+        return this.getArchive(key.getLayer()).transferTo(key, target);
+    }
+
+    /**
+     * Store a tile
+     * @param key Tile identifier
+     * @param content Tile content
+     * @throws IOException Error while writing the archive
+     */
+    public void write(TileKey key, byte[] content) throws IOException {
+        this.getArchive(key.getLayer()).append(key, content);
+    }
+
+    /**
+     * Remove a tile
+     * @param key Tile identifier
+     * @return Was the tile stored
+     * @throws IOException Error while opening the archive
+     */
+    public boolean delete(TileKey key) throws IOException {
+        return this.getArchive(key.getLayer()).delete(key);
+    }
+
+    /**
+     * Remove all tiles of a layer matching a condition
+     * @param layer Layer name
+     * @param filter Condition on tile identifiers
+     * @return Identifiers of the removed tiles
+     * @throws IOException Error while opening the archive
+     */
+    public List<TileKey> deleteWhere(String layer, Predicate<TileKey> filter) throws IOException {
+        return this.getArchive(layer).deleteWhere(filter);
+    }
+
+    /**
+     * Return the layers having an archive, opened or on disk
+     * @return Layer names
+     * @throws IOException Error while listing the archive directory
+     */
+    public Set<String> getLayers() throws IOException {
+        TreeSet<String> layers = new TreeSet<>(archives.keySet());
+
+        if (Files.isDirectory(root)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(root, "*" + TileArchive.DATA_EXTENSION)) {
+                for (Path file: files) {
+                    String name = file.getFileName().toString();
+                    layers.add(name.substring(0, name.length() - TileArchive.DATA_EXTENSION.length()));
+                }
+            }
+        }
+
+        return layers;
+    }
+
+    /**
+     * Compact the archive of a layer
+     * @param layer Layer name
+     * @return Number of reclaimed bytes
+     * @throws IOException Error while rewriting the archive
+     */
+    public long compact(String layer) throws IOException {
+        return this.getArchive(layer).compact();
+    }
+
+    /**
+     * Return the size of the archive of each opened layer for converting to JSON
+     * @return Map of archive sizes
+     * @throws IOException Error while reading the sizes
+     */
+    public HashMap<String, Object> getStats() throws IOException {
+        HashMap<String, Object> map = new HashMap<>();
+
+        for (Map.Entry<String, TileArchive> entry: archives.entrySet()) {
+            HashMap<String, Object> archive = new HashMap<>();
+
+            archive.put("tiles", entry.getValue().getCount());
+            archive.put("bytes", entry.getValue().getDataSize());
+
+            map.put(entry.getKey(), archive);
+        }
+
+        return map;
+    }
+
+    /**
+     * Close all archives on shutdown
+     * @throws IOException Error while closing an archive
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        for (TileArchive archive: archives.values()) {
+            archive.close();
+        }
+
+        archives.clear();
+    }
+}
@@ -0,0 +1,688 @@
+package com.cartowiki.webapp.tiles.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+import com.cartowiki.webapp.tiles.model.TileKey;
+
+/**
+ * Archive packing all tiles of one layer in a single append-only data file.
+ * Tiles are located through an open-addressing hash table stored in a memory-mapped index file.
+ *
+ * Data file: sequence of records [key (long), length (int), content]
+ * Index file: header [magic, version, capacity, count, deleted] then slots [key (long), offset (long), length (int)]
+ */
+public class TileArchive implements Closeable {
+    public static final String DATA_EXTENSION = ".tiles";
+    public static final String INDEX_EXTENSION = ".idx";
+
+    private static final int MAGIC = 0x43575449;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 20;
+    private static final int RECORD_HEADER_SIZE = 12;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final double MAX_LOAD_FACTOR = 0.7;
+    private static final int TOMBSTONE = -1;
+
+    private final String name;
+    private final Path dataPath;
+    private final Path indexPath;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FileChannel data;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int count;
+    private int deleted;
+
+    /**
+     * Constructor with arguments, opening or creating the archive
+     * @param directory Directory of the archive files
+     * @param name Name of the archive (layer name)
+     * @throws IOException Error while opening the files
+     */
+    public TileArchive(Path directory, String name) throws IOException {
+        Files.createDirectories(directory);
+
+        this.name = name;
+        this.dataPath = directory.resolve(name + DATA_EXTENSION);
+        this.indexPath = directory.resolve(name + DATA_EXTENSION + INDEX_EXTENSION);
+
+        // Leftovers of an interrupted compaction
+        Files.deleteIfExists(this.temporaryPath(dataPath));
+        Files.deleteIfExists(this.temporaryPath(indexPath));
+
+        this.data = FileChannel.open(dataPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (!this.loadIndex()) {
+            this.rebuildIndex();
+        }
+    }
+
+    /**
+     * Encode the coordinates of a tile into an index key (never 0)
+     * @param key Tile identifier
+     * @return Index key
+     */
+    static long encode(TileKey key) {
+        return (1L << 61)
+             | ((long) (key.getYear() - Short.MIN_VALUE) << 45)
+             | ((long) key.getZ() << 40)
+             | ((long) key.getX() << 20)
+             | key.getY();
+    }
+
+    /**
+     * Decode an index key into the coordinates of a tile
+     * @param layer Layer name
+     * @param code Index key
+     * @return Tile identifier
+     */
+    static TileKey decode(String layer, long code) {
+        return new TileKey(layer,
+                           (int) ((code >>> 45) & 0xFFFF) + Short.MIN_VALUE,
+                           (int) ((code >>> 40) & 0x1F),
+                           (int) ((code >>> 20) & 0xFFFFF),
+                           (int) (code & 0xFFFFF));
+    }
+
+    /**
+     * Number of tiles getter
+     * @return Number of tiles in the archive
+     */
+    public int getCount() {
+        lock.readLock().lock();
+
+        try {
+            return count;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Data file size getter
+     * @return Size of the data file (in bytes)
+     * @throws IOException Error while reading the size
+     */
+    public long getDataSize() throws IOException {
+        lock.readLock().lock();
+
+        try {
+            return data.size();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Check if a tile is in the archive
+     * @param key Tile identifier
+     * @return Is the tile in the archive
+     * @throws IOException Error while reading the data file
+     */
+    public boolean contains(TileKey key) throws IOException {
+        lock.readLock().lock();
+
+        try {
+            return this.locate(encode(key)) != null;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Read a tile from the archive
+     * @param key Tile identifier
+     * @return Optional tile content, might be empty if not in the archive
+     * @throws IOException Error while reading the data file
+     */
+    public Optional<byte[]> read(TileKey key) throws IOException {
+        lock.readLock().lock();
+
+        try {
+            long[] location = this.locate(encode(key));
+            Optional<byte[]> tile = Optional.empty();
+
+            if (location != null) {
+                ByteBuffer content = ByteBuffer.allocate((int) location[1]);
+                this.readFully(content, location[0]);
+                tile = Optional.of(content.array());
+            }
+
+            return tile;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Send a tile to a channel without copying it through the Java heap
+     * @param key Tile identifier
+     * @param target Destination channel
+     * @return Size of the tile (in bytes), or -1 if not in the archive
+     * @throws IOException Error while reading the data file or writing to the channel
+     */
+    public long transferTo(TileKey key, WritableByteChannel target) throws IOException {
+        lock.readLock().lock();
+
+        try {
+            long[] location = this.locate(encode(key));
+            long length = -1;
+
+            if (location != null) {
+                length = location[1];
+                long position = location[0];
+                long end = position + length;
+
+                while (position < end) {
+                    position += data.transferTo(position, end - position, target);
+                }
+            }
+
+            return length;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Append a tile to the archive, replacing any previous version
+     * @param key Tile identifier
+     * @param content Tile content
+     * @throws IOException Error while writing the files
+     */
+    public void append(TileKey key, byte[] content) throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            long code = encode(key);
+            long offset = data.size();
+
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + content.length);
+            record.putLong(code).putInt(content.length).put(content).flip();
+
+            this.writeFully(data, record, offset);
+            this.putSlot(code, offset, content.length);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a tile from the archive (its bytes are reclaimed by the next compaction)
+     * @param key Tile identifier
+     * @return Was the tile in the archive
+     */
+    public boolean delete(TileKey key) {
+        lock.writeLock().lock();
+
+        try {
+            int slot = this.findSlot(encode(key));
+            boolean removed = slot >= 0 && index.getInt(slotPosition(slot) + 16) != TOMBSTONE;
+
+            if (removed) {
+                index.putInt(slotPosition(slot) + 16, TOMBSTONE);
+                count--;
+                deleted++;
+                this.writeHeader(index, capacity, count, deleted);
+            }
+
+            return removed;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all tiles matching a condition, scanning the index only
+     * @param filter Condition on tile identifiers
+     * @return Identifiers of the removed tiles
+     */
+    public List<TileKey> deleteWhere(Predicate<TileKey> filter) {
+        lock.writeLock().lock();
+
+        try {
+            List<TileKey> removed = new ArrayList<>();
+
+            for (int slot = 0; slot < capacity; slot++) {
+                int position = slotPosition(slot);
+                long code = index.getLong(position);
+
+                if (code != 0 && index.getInt(position + 16) != TOMBSTONE) {
+                    TileKey key = decode(name, code);
+
+                    if (filter.test(key)) {
+                        index.putInt(position + 16, TOMBSTONE);
+                        removed.add(key);
+                    }
+                }
+            }
+
+            if (!removed.isEmpty()) {
+                count -= removed.size();
+                deleted += removed.size();
+                this.writeHeader(index, capacity, count, deleted);
+            }
+
+            return removed;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrite the archive with live tiles only, dropping replaced and deleted ones
+     * @return Number of reclaimed bytes
+     * @throws IOException Error while rewriting the files
+     */
+    public long compact() throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            long previousSize = data.size();
+            Path compactedData = this.temporaryPath(dataPath);
+            Path compactedIndex = this.temporaryPath(indexPath);
+            int newCapacity = capacityFor(count);
+
+            try (FileChannel target = FileChannel.open(compactedData, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                 FileChannel targetIndexChannel = FileChannel.open(compactedIndex, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer targetIndex = this.createIndex(targetIndexChannel, newCapacity);
+                long written = 0;
+
+                for (int slot = 0; slot < capacity; slot++) {
+                    int position = slotPosition(slot);
+                    long code = index.getLong(position);
+                    int length = index.getInt(position + 16);
+
+                    if (code != 0 && length != TOMBSTONE) {
+                        long offset = index.getLong(position + 8);
+                        long recordLength = RECORD_HEADER_SIZE + (long) length;
+                        long copied = 0;
+
+                        while (copied < recordLength) {
+                            copied += data.transferTo(offset + copied, recordLength - copied, target);
+                        }
+
+                        insertSlot(targetIndex, newCapacity, code, written, length);
+                        written += recordLength;
+                    }
+                }
+
+                this.writeHeader(targetIndex, newCapacity, count, 0);
+                target.force(true);
+                targetIndex.force();
+            }
+
+            data.close();
+            indexChannel.close();
+
+            Files.move(compactedData, dataPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(compactedIndex, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            data = FileChannel.open(dataPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            if (!this.loadIndex()) {
+                this.rebuildIndex();
+            }
+
+            return previousSize - data.size();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            index.force();
+            data.force(true);
+            indexChannel.close();
+            data.close();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Return the position and length of the content of a tile in the data file
+     * @param code Index key of the tile
+     * @return Array {position, length}, or null if the tile isn't in the archive
+     * @throws IOException Error while reading the data file
+     */
+    private long[] locate(long code) throws IOException {
+        int slot = this.findSlot(code);
+        long[] location = null;
+
+        if (slot >= 0) {
+            int position = slotPosition(slot);
+            long offset = index.getLong(position + 8);
+            int length = index.getInt(position + 16);
+
+            // Check the record header, the index might be ahead of the data file after a crash
+            if (length != TOMBSTONE && offset + RECORD_HEADER_SIZE + length <= data.size()) {
+                ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+                this.readFully(header, offset);
+
+                if (header.getLong(0) == code && header.getInt(8) == length) {
+                    location = new long[] {offset + RECORD_HEADER_SIZE, length};
+                }
+            }
+        }
+
+        return location;
+    }
+
+    /**
+     * Return the slot holding a key
+     * @param code Index key
+     * @return Slot number, or -1 if absent
+     */
+    private int findSlot(long code) {
+        int mask = capacity - 1;
+        int slot = hash(code) & mask;
+        int found = -1;
+        long current = index.getLong(slotPosition(slot));
+
+        while (current != 0 && found < 0) {
+            if (current == code) {
+                found = slot;
+            }
+            else {
+                slot = (slot + 1) & mask;
+                current = index.getLong(slotPosition(slot));
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Add or replace a key in the index, growing it if needed
+     * @param code Index key
+     * @param offset Position of the record in the data file
+     * @param length Length of the tile content
+     * @throws IOException Error while growing the index
+     */
+    private void putSlot(long code, long offset, int length) throws IOException {
+        int slot = this.findSlot(code);
+
+        if (slot >= 0) {
+            int position = slotPosition(slot);
+
+            if (index.getInt(position + 16) == TOMBSTONE) {
+                deleted--;
+                count++;
+            }
+
+            index.putLong(position + 8, offset);
+            index.putInt(position + 16, length);
+        }
+        else {
+            if (count + deleted + 1 > capacity * MAX_LOAD_FACTOR) {
+                this.resizeIndex(capacityFor(count + 1));
+            }
+
+            insertSlot(index, capacity, code, offset, length);
+            count++;
+        }
+
+        this.writeHeader(index, capacity, count, deleted);
+    }
+
+    /**
+     * Insert a key absent from an index in its first free slot
+     * @param buffer Mapped index
+     * @param slots Capacity of the index
+     * @param code Index key
+     * @param offset Position of the record in the data file
+     * @param length Length of the tile content
+     */
+    private static void insertSlot(MappedByteBuffer buffer, int slots, long code, long offset, int length) {
+        int mask = slots - 1;
+        int slot = hash(code) & mask;
+
+        while (buffer.getLong(slotPosition(slot)) != 0) {
+            slot = (slot + 1) & mask;
+        }
+
+        int position = slotPosition(slot);
+        buffer.putLong(position, code);
+        buffer.putLong(position + 8, offset);
+        buffer.putInt(position + 16, length);
+    }
+
+    /**
+     * Rehash all live keys into a new index of the given capacity
+     * @param newCapacity Capacity of the new index
+     * @throws IOException Error while writing the new index
+     */
+    private void resizeIndex(int newCapacity) throws IOException {
+        Path resized = this.temporaryPath(indexPath);
+        FileChannel resizedChannel = FileChannel.open(resized, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer resizedIndex = this.createIndex(resizedChannel, newCapacity);
+
+        for (int slot = 0; slot < capacity; slot++) {
+            int position = slotPosition(slot);
+            long code = index.getLong(position);
+            int length = index.getInt(position + 16);
+
+            if (code != 0 && length != TOMBSTONE) {
+                insertSlot(resizedIndex, newCapacity, code, index.getLong(position + 8), length);
+            }
+        }
+
+        this.writeHeader(resizedIndex, newCapacity, count, 0);
+        resizedIndex.force();
+        Files.move(resized, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        indexChannel.close();
+        indexChannel = resizedChannel;
+        index = resizedIndex;
+        capacity = newCapacity;
+        deleted = 0;
+    }
+
+    /**
+     * Map an existing index file
+     * @return Was a valid index found
+     * @throws IOException Error while opening the index
+     */
+    private boolean loadIndex() throws IOException {
+        boolean loaded = false;
+
+        if (Files.exists(indexPath) && Files.size(indexPath) >= HEADER_SIZE) {
+            indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+
+            int slots = index.getInt(8);
+
+            if (index.getInt(0) == MAGIC && index.getInt(4) == VERSION && Integer.bitCount(slots) == 1 && indexChannel.size() == HEADER_SIZE + (long) slots * SLOT_SIZE) {
+                capacity = slots;
+                count = index.getInt(12);
+                deleted = index.getInt(16);
+                loaded = true;
+            }
+            else {
+                indexChannel.close();
+            }
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Build a new index by scanning the data file
+     * @throws IOException Error while reading the data file or writing the index
+     */
+    private void rebuildIndex() throws IOException {
+        Files.deleteIfExists(indexPath);
+
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        capacity = INITIAL_CAPACITY;
+        count = 0;
+        deleted = 0;
+        index = this.createIndex(indexChannel, capacity);
+
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        long offset = 0;
+        long size = data.size();
+        boolean complete = true;
+
+        while (complete && offset + RECORD_HEADER_SIZE <= size) {
+            header.clear();
+            this.readFully(header, offset);
+
+            long code = header.getLong(0);
+            int length = header.getInt(8);
+
+            if (code == 0 || length < 0 || offset + RECORD_HEADER_SIZE + length > size) {
+                complete = false;
+            }
+            else {
+                this.putSlot(code, offset, length);
+                offset += RECORD_HEADER_SIZE + length;
+            }
+        }
+
+        // Drop a record partially written before a crash
+        data.truncate(offset);
+        this.writeHeader(index, capacity, count, deleted);
+    }
+
+    /**
+     * Create an empty mapped index
+     * @param channel Channel of the index file
+     * @param slots Capacity of the index
+     * @return Mapped index
+     * @throws IOException Error while mapping the file
+     */
+    private MappedByteBuffer createIndex(FileChannel channel, int slots) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * SLOT_SIZE);
+
+        this.writeHeader(buffer, slots, 0, 0);
+
+        return buffer;
+    }
+
+    /**
+     * Write the header of an index
+     * @param buffer Mapped index
+     * @param slots Capacity of the index
+     * @param entries Number of live keys
+     * @param tombstones Number of deleted keys
+     */
+    private void writeHeader(MappedByteBuffer buffer, int slots, int entries, int tombstones) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, slots);
+        buffer.putInt(12, entries);
+        buffer.putInt(16, tombstones);
+    }
+
+    /**
+     * Read bytes from the data file until the buffer is full
+     * @param buffer Destination buffer
+     * @param position Position in the data file
+     * @throws IOException Error while reading, or end of file reached
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+
+        while (buffer.hasRemaining()) {
+            int read = data.read(buffer, current);
+
+            if (read < 0) {
+                throw new IOException("Unexpected end of tile archive " + dataPath);
+            }
+
+            current += read;
+        }
+    }
+
+    /**
+     * Write a whole buffer to a channel
+     * @param channel Destination channel
+     * @param buffer Bytes to write
+     * @param position Position in the channel
+     * @throws IOException Error while writing
+     */
+    private void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+
+        while (buffer.hasRemaining()) {
+            current += channel.write(buffer, current);
+        }
+    }
+
+    /**
+     * Return the path of the temporary copy of a file
+     * @param path File path
+     * @return Temporary path
+     */
+    private Path temporaryPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    /**
+     * Return the smallest index capacity keeping the load factor low enough
+     * @param entries Number of keys
+     * @return Capacity (power of 2)
+     */
+    private static int capacityFor(int entries) {
+        int slots = INITIAL_CAPACITY;
+
+        while (entries > slots * MAX_LOAD_FACTOR / 2) {
+            slots <<= 1;
+        }
+
+        return slots;
+    }
+
+    /**
+     * Return the position of a slot in the index
+     * @param slot Slot number
+     * @return Position (in bytes)
+     */
+    private static int slotPosition(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    /**
+     * Spread the bits of a key
+     * @param code Index key
+     * @return Hash
+     */
+    private static int hash(long code) {
+        long h = code * 0x9e3779b97f4a7c15L;
+
+        return (int) (h ^ (h >>> 32));
+    }
+}
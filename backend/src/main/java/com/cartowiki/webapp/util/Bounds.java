@@ -0,0 +1,47 @@
+package com.cartowiki.webapp.util;
+
+/**
+ * Bounding boxes given as request parameters
+ */
+public abstract class Bounds {
+    /**
+     * No-argument constructor
+     */
+    private Bounds() {
+        // Overwrite public default constructor to private one because Bounds is a utility class
+    }
+
+    /**
+     * Parse a bounding box given as "minLongitude,minLatitude,maxLongitude,maxLatitude"
+     * @param value Bounding box parameter, may be null
+     * @return Bounds {minLongitude, minLatitude, maxLongitude, maxLatitude}, or null if no parameter
+     * @throws IllegalArgumentException Malformed bounding box
+     */
+    public static double[] parse(String value) throws IllegalArgumentException {
+        double[] bounds = null;
+
+        if (value != null) {
+            String[] parts = value.split(",");
+
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Invalid bounding box");
+            }
+
+            bounds = new double[4];
+
+            for (int i = 0; i < 4; i++) {
+                bounds[i] = Double.parseDouble(parts[i].trim());
+
+                if (!Double.isFinite(bounds[i])) {
+                    throw new IllegalArgumentException("Invalid bounding box");
+                }
+            }
+
+            if (bounds[0] > bounds[2] || bounds[1] > bounds[3]) {
+                throw new IllegalArgumentException("Invalid bounding box");
+            }
+        }
+
+        return bounds;
+    }
+}
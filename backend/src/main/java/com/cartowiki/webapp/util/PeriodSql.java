@@ -0,0 +1,33 @@
+package com.cartowiki.webapp.util;
+
+/**
+ * SQL fragments about validity periods (table periodes)
+ */
+public abstract class PeriodSql {
+    /**
+     * No-argument constructor
+     */
+    private PeriodSql() {
+        // Overwrite public default constructor to private one because PeriodSql is a utility class
+    }
+
+    /**
+     * Return a condition checking that a period contains a year given as two positional parameters.
+     * A missing bound means that the period is open on that side.
+     * @param alias Alias of the periodes table in the query
+     * @return SQL condition with two "?" parameters, both to be bound to the year
+     */
+    public static String validAt(String alias) {
+        return "COALESCE(" + alias + ".annee_debut, -32768) <= ? AND COALESCE(" + alias + ".annee_fin, 32767) >= ?";
+    }
+
+    /**
+     * Return a condition checking that a period starts or ends between two years, so that rows of this period
+     * appear or disappear between them. The years are given as four positional parameters.
+     * @param alias Alias of the periodes table in the query
+     * @return SQL condition with four "?" parameters, to be bound to the lower year, the upper year, the lower year and the upper year
+     */
+    public static String changesBetween(String alias) {
+        return "((" + alias + ".annee_debut > ? AND " + alias + ".annee_debut <= ?) OR (" + alias + ".annee_fin >= ? AND " + alias + ".annee_fin < ?))";
+    }
+}
@@ -0,0 +1,46 @@
+package com.cartowiki.webapp.world.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Store parameters of the in-memory country locator
+ */
+@Configuration
+@ConfigurationProperties(prefix = "identify")
+public class IdentifyConfig {
+    private int epochs = 8;
+    private int queueSize = 16;
+
+    /**
+     * Epochs getter
+     * @return Maximum number of epochs whose country borders are kept in memory
+     */
+    public int getEpochs() {
+        return epochs;
+    }
+
+    /**
+     * Epochs setter
+     * @param epochs New maximum number of epochs whose country borders are kept in memory
+     */
+    public void setEpochs(int epochs) {
+        this.epochs = epochs;
+    }
+
+    /**
+     * Queue size getter
+     * @return Maximum number of epochs waiting for their locator to be built
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Queue size setter
+     * @param queueSize New maximum number of epochs waiting for their locator to be built
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+}
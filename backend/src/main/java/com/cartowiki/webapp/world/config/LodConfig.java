@@ -0,0 +1,32 @@
+package com.cartowiki.webapp.world.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Store the levels of detail of country geometries
+ */
+@Configuration
+@ConfigurationProperties(prefix = "geometry.lod")
+public class LodConfig {
+    private List<Double> tolerances = new ArrayList<>(List.of(0.35, 0.087, 0.021, 0.0054));
+
+    /**
+     * Tolerances getter
+     * @return Simplification tolerance of each level (in degrees), from the coarsest to the finest
+     */
+    public List<Double> getTolerances() {
+        return tolerances;
+    }
+
+    /**
+     * Tolerances setter
+     * @param tolerances New simplification tolerance of each level (in degrees), from the coarsest to the finest
+     */
+    public void setTolerances(List<Double> tolerances) {
+        this.tolerances = tolerances;
+    }
+}
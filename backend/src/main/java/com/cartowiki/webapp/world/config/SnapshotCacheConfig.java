@@ -0,0 +1,63 @@
+package com.cartowiki.webapp.world.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Store parameters of the pre-compressed snapshot store
+ */
+@Configuration
+@ConfigurationProperties(prefix = "world.snapshots")
+public class SnapshotCacheConfig {
+    private String directory;
+    private int queueSize = 64;
+    private int level = 9;
+
+    /**
+     * Directory getter
+     * @return Root directory of the compressed snapshots
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Directory setter
+     * @param directory New root directory of the compressed snapshots
+     */
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Queue size getter
+     * @return Maximum number of snapshots waiting to be compressed
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Queue size setter
+     * @param queueSize New maximum number of snapshots waiting to be compressed
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Level getter
+     * @return Compression level, from 1 (fastest) to 9 (smallest)
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Level setter
+     * @param level New compression level, from 1 (fastest) to 9 (smallest)
+     */
+    public void setLevel(int level) {
+        this.level = level;
+    }
+}
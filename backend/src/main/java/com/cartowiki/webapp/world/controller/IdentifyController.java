@@ -0,0 +1,87 @@
+package com.cartowiki.webapp.world.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cartowiki.webapp.util.ResponseMaker;
+import com.cartowiki.webapp.world.service.IdentifyService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * Identification of the country owning a point of the map
+ */
+@RestController
+@RequestMapping("/api/identify")
+@Tag(name = "Identify")
+public class IdentifyController {
+    private IdentifyService service;
+
+    /**
+     * Autowired constructor
+     * @param service Service for identification
+     */
+    @Autowired
+    public IdentifyController(IdentifyService service) {
+        this.service = service;
+    }
+
+    /**
+     * Return the countries owning a point at a year
+     * @param longitude Longitude of the point
+     * @param latitude Latitude of the point
+     * @param year Year
+     * @return Response containing the countries
+     */
+    @GetMapping
+    @Operation(
+        summary = "Identify the country at a point",
+        description = "Return the id and name of the countries whose border contains a point at a year: usually one, none at sea, several where borders overlap"
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "List of countries",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"data\": [{\"id\": 4, \"name\": \"Royaume de France\"}]}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid point or year",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Invalid point\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> identify(@RequestParam("lon") @Parameter(name = "lon", description = "Longitude", example = "2.35") double longitude,
+                                           @RequestParam("lat") @Parameter(name = "lat", description = "Latitude", example = "48.85") double latitude,
+                                           @RequestParam("year") @Parameter(name = "year", description = "Year", example = "1700") int year) {
+        ResponseEntity<Object> response;
+
+        if (!(longitude >= -180 && longitude <= 180 && latitude >= -90 && latitude <= 90)) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, "Invalid point", HttpStatus.BAD_REQUEST);
+        }
+        else if (year < Short.MIN_VALUE || year > Short.MAX_VALUE) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, "Invalid year", HttpStatus.BAD_REQUEST);
+        }
+        else {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.DATA, service.identify(longitude, latitude, year), HttpStatus.OK);
+        }
+
+        return response;
+    }
+}
@@ -0,0 +1,256 @@
+package com.cartowiki.webapp.world.controller;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cartowiki.webapp.tiles.model.TileKey;
+import com.cartowiki.webapp.util.Bounds;
+import com.cartowiki.webapp.util.ResponseMaker;
+import com.cartowiki.webapp.world.service.CompressedSnapshotStore;
+import com.cartowiki.webapp.world.service.CompressedSnapshotStore.CompressedSnapshot;
+import com.cartowiki.webapp.world.service.GeoJsonSnapshotWriter;
+import com.cartowiki.webapp.world.service.TwkbSnapshotWriter;
+import com.cartowiki.webapp.world.service.WorldService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Snapshots of the state of the world
+ */
+@RestController
+@RequestMapping("/api/world")
+@Tag(name = "World snapshots")
+public class WorldController {
+    public static final String GEOJSON = GeoJsonSnapshotWriter.MEDIA_TYPE;
+    public static final String TWKB = TwkbSnapshotWriter.MEDIA_TYPE;
+    public static final String NDJSON = "application/x-ndjson";
+
+    private static final MediaType GEOJSON_TYPE = MediaType.parseMediaType(GEOJSON);
+    private static final MediaType TWKB_TYPE = MediaType.parseMediaType(TWKB);
+
+    private WorldService service;
+    private CompressedSnapshotStore compressedStore;
+
+    /**
+     * Autowired constructor
+     * @param service Service for world snapshots
+     * @param compressedStore Pre-compressed snapshots
+     */
+    @Autowired
+    public WorldController(WorldService service, CompressedSnapshotStore compressedStore) {
+        this.service = service;
+        this.compressedStore = compressedStore;
+    }
+
+    /**
+     * Stream all countries and cities existing at a year as GeoJSON, or as binary TWKB features if accepted by the client
+     * @param year Year
+     * @param zoom Zoom level the snapshot is displayed at (optional, full resolution borders if missing)
+     * @param bbox Area of the features (optional, whole world if missing)
+     * @param accept Accepted media types
+     * @param acceptEncoding Accepted content encodings
+     * @param servletResponse Raw response, for streaming features as they are read
+     * @return Error response, or null if the snapshot was written
+     */
+    @GetMapping("/{year}")
+    @Operation(
+        summary = "Retrieve the world at a year",
+        description = "Stream a GeoJSON feature collection of all countries (geometry, name, colour) and cities (position, name, population) existing at a year. Country borders are simplified and coordinates rounded for the given zoom level, if any. " +
+                      "Clients accepting " + TWKB + " receive a compact binary stream of features with TWKB geometries instead. " +
+                      "Whole-world snapshots are sent gzip-compressed to clients accepting it, once compressed in the background after their first request"
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "GeoJSON feature collection, or binary features",
+            content = {
+                @Content(
+                    mediaType = GEOJSON,
+                    examples = @ExampleObject(value = "{\"type\": \"FeatureCollection\", \"year\": 1800, \"features\": [" +
+                                "{\"type\": \"Feature\", \"id\": \"city/12\", \"properties\": {\"type\": \"city\", \"entity\": 12, \"name\": \"Paris\", \"population\": 547000}, \"geometry\": {\"type\": \"Point\", \"coordinates\": [2.35, 48.85]}}" +
+                                "]}")
+                    ),
+                @Content(mediaType = TWKB)
+            }
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid year, zoom level or bounding box",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Invalid year\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getWorld(@PathVariable("year") @Parameter(name = "year", description = "Year", example = "1800") int year,
+                                           @RequestParam(name = "zoom", required = false) @Parameter(name = "zoom", description = "Zoom level", example = "4") Integer zoom,
+                                           @RequestParam(name = "bbox", required = false) @Parameter(name = "bbox", description = "Bounding box (minLongitude,minLatitude,maxLongitude,maxLatitude)", example = "-5,42,8,51") String bbox,
+                                           @RequestHeader(name = HttpHeaders.ACCEPT, required = false) @Parameter(hidden = true) String accept,
+                                           @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) @Parameter(hidden = true) String acceptEncoding,
+                                           HttpServletResponse servletResponse) {
+        ResponseEntity<Object> response = null;
+
+        if (year < Short.MIN_VALUE || year > Short.MAX_VALUE) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, "Invalid year", HttpStatus.BAD_REQUEST);
+        }
+        else if (zoom != null && (zoom < 0 || zoom > TileKey.MAX_ZOOM)) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, "Invalid zoom level", HttpStatus.BAD_REQUEST);
+        }
+        else {
+            try {
+                double[] bounds = Bounds.parse(bbox);
+                String mediaType = negotiate(accept);
+
+                CompressedSnapshot compressed = bounds == null && acceptsGzip(acceptEncoding) ? compressedStore.find(mediaType, year, zoom) : null;
+
+                servletResponse.setContentType(mediaType);
+                servletResponse.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+
+                if (compressed != null) {
+                    servletResponse.setHeader(HttpHeaders.CONTENT_ENCODING, CompressedSnapshotStore.ENCODING);
+                    servletResponse.setContentLengthLong(compressed.getLength());
+                    compressed.writeTo(servletResponse.getOutputStream());
+                }
+                else {
+                    service.writeSnapshot(year, zoom, bounds, service.createWriter(mediaType, servletResponse.getOutputStream()));
+                }
+            }
+            catch (IllegalArgumentException e) {
+                response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+            catch (IOException e) {
+                // Client gone, or features already sent: nothing can be answered anymore
+                servletResponse.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            }
+        }
+
+        return response;
+    }
+
+    /**
+     * Stream the countries and cities added, removed or changed between two years, as newline-delimited JSON
+     * @param from Source year
+     * @param to Target year
+     * @param zoom Zoom level the features are displayed at (optional, full resolution borders if missing)
+     * @param servletResponse Raw response, for streaming changes as they are read
+     * @return Error response, or null if the diff was written
+     */
+    @GetMapping("/diff")
+    @Operation(
+        summary = "Retrieve the changes of the world between two years",
+        description = "Stream one JSON object per line for each country or city added, removed or changed between two years, " +
+                      "from the periods starting or ending between them. Added and changed features are given as GeoJSON features at the target year"
+        )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Newline-delimited changes",
+            content = @Content(
+                mediaType = NDJSON,
+                examples = @ExampleObject(value = "{\"action\": \"removed\", \"id\": \"country/4\"}\n" +
+                            "{\"action\": \"added\", \"feature\": {\"type\": \"Feature\", \"id\": \"city/12\", \"properties\": {\"type\": \"city\", \"entity\": 12, \"name\": \"Paris\", \"population\": 547000}, \"geometry\": {\"type\": \"Point\", \"coordinates\": [2.35, 48.85]}}}")
+                )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid year or zoom level",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"message\": \"Invalid year\"}")
+                )
+        )
+    })
+    public ResponseEntity<Object> getDiff(@RequestParam("from") @Parameter(name = "from", description = "Source year", example = "1800") int from,
+                                          @RequestParam("to") @Parameter(name = "to", description = "Target year", example = "1801") int to,
+                                          @RequestParam(name = "zoom", required = false) @Parameter(name = "zoom", description = "Zoom level", example = "4") Integer zoom,
+                                          HttpServletResponse servletResponse) {
+        ResponseEntity<Object> response = null;
+
+        if (from < Short.MIN_VALUE || from > Short.MAX_VALUE || to < Short.MIN_VALUE || to > Short.MAX_VALUE) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, "Invalid year", HttpStatus.BAD_REQUEST);
+        }
+        else if (zoom != null && (zoom < 0 || zoom > TileKey.MAX_ZOOM)) {
+            response = ResponseMaker.singleValueResponse(ResponseMaker.MESSAGE, "Invalid zoom level", HttpStatus.BAD_REQUEST);
+        }
+        else {
+            try {
+                servletResponse.setContentType(NDJSON);
+                service.writeDiff(from, to, zoom, servletResponse.getOutputStream());
+            }
+            catch (IOException e) {
+                // Client gone, or changes already sent: nothing can be answered anymore
+                servletResponse.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            }
+        }
+
+        return response;
+    }
+
+    /**
+     * Check whether a client accepts gzip-compressed responses
+     * @param acceptEncoding Accept-Encoding header, may be null
+     * @return True if gzip is listed without a zero quality
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        boolean accepted = false;
+
+        if (acceptEncoding != null) {
+            for (String coding: acceptEncoding.split(",")) {
+                String[] parts = coding.trim().split(";");
+
+                if (parts[0].trim().equalsIgnoreCase(CompressedSnapshotStore.ENCODING)) {
+                    accepted = parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+                }
+            }
+        }
+
+        return accepted;
+    }
+
+    /**
+     * Choose the output format from the Accept header: binary features if preferred over JSON, GeoJSON otherwise
+     * @param accept Accept header, may be null
+     * @return Media type of the output
+     */
+    private static String negotiate(String accept) {
+        double binaryQuality = 0;
+        double jsonQuality = 0;
+
+        try {
+            for (MediaType type: MediaType.parseMediaTypes(accept)) {
+                if (type.equalsTypeAndSubtype(TWKB_TYPE)) {
+                    binaryQuality = Math.max(binaryQuality, type.getQualityValue());
+                }
+                else if (type.equalsTypeAndSubtype(GEOJSON_TYPE) || type.equalsTypeAndSubtype(MediaType.APPLICATION_JSON)) {
+                    jsonQuality = Math.max(jsonQuality, type.getQualityValue());
+                }
+            }
+        }
+        catch (InvalidMediaTypeException e) {
+            // Malformed header, fall back to GeoJSON
+            binaryQuality = 0;
+        }
+
+        return binaryQuality > 0 && binaryQuality >= jsonQuality ? TWKB : GEOJSON;
+    }
+}
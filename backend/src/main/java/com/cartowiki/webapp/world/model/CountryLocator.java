@@ -0,0 +1,123 @@
+package com.cartowiki.webapp.world.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+
+/**
+ * Immutable point-in-polygon index over the country borders of an epoch.
+ * Candidates are found by their envelope in an STR-tree, then tested against prepared geometries,
+ * whose segment indexes make repeated tests on complex coastlines cheap. A geometry is prepared on
+ * its first test only, so that countries nobody clicks cost nothing more than their borders.
+ */
+public final class CountryLocator {
+    private static final GeometryFactory FACTORY = new GeometryFactory();
+
+    private final STRtree tree;
+    private final int size;
+
+    /**
+     * Country found at a point
+     * @param id Country entity id
+     * @param name Country name, may be null
+     */
+    public record Country(int id, String name) {}
+
+    /**
+     * Border of a country, prepared on its first test
+     */
+    private static final class Border {
+        private final int id;
+        private final String name;
+        private final Geometry geometry;
+        private volatile PreparedGeometry prepared;
+
+        /**
+         * Constructor with arguments
+         * @param id Country entity id
+         * @param name Country name
+         * @param geometry Border
+         */
+        private Border(int id, String name, Geometry geometry) {
+            this.id = id;
+            this.name = name;
+            this.geometry = geometry;
+        }
+
+        /**
+         * Check whether the border contains a point, preparing it if needed
+         * @param point Point
+         * @return True if the point is inside or on the border
+         */
+        private boolean covers(Point point) {
+            PreparedGeometry current = prepared;
+
+            if (current == null) {
+                // Two threads may prepare the same geometry at once, both results being the same
+                current = PreparedGeometryFactory.prepare(geometry);
+                prepared = current;
+            }
+
+            return current.covers(point);
+        }
+    }
+
+    /**
+     * Constructor with arguments, all lists having one item per country border
+     * @param ids Country entity ids
+     * @param names Country names (may contain null)
+     * @param geometries Borders, in longitude and latitude
+     */
+    public CountryLocator(List<Integer> ids, List<String> names, List<Geometry> geometries) {
+        this.tree = new STRtree();
+        this.size = ids.size();
+
+        for (int i = 0; i < size; i++) {
+            Geometry geometry = geometries.get(i);
+
+            if (geometry != null && !geometry.isEmpty()) {
+                tree.insert(geometry.getEnvelopeInternal(), new Border(ids.get(i), names.get(i), geometry));
+            }
+        }
+
+        // Build the tree now rather than on the first query, which would lock it
+        tree.build();
+    }
+
+    /**
+     * Find the countries whose border contains a point
+     * @param longitude Longitude of the point
+     * @param latitude Latitude of the point
+     * @return Countries, usually one, several if borders overlap
+     */
+    public List<Country> locate(double longitude, double latitude) {
+        Point point = FACTORY.createPoint(new Coordinate(longitude, latitude));
+        List<Country> found = new ArrayList<>();
+
+        for (Object candidate: tree.query(new Envelope(longitude, longitude, latitude, latitude))) {
+            Border border = (Border) candidate;
+
+            if (border.covers(point)) {
+                found.add(new Country(border.id, border.name));
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Number of borders getter
+     * @return Number of country borders of the epoch
+     */
+    public int size() {
+        return size;
+    }
+}
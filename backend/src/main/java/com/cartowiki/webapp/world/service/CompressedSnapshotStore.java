@@ -0,0 +1,392 @@
+package com.cartowiki.webapp.world.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import com.cartowiki.webapp.periods.service.EpochService;
+import com.cartowiki.webapp.tiles.model.DataChangeEvent;
+import com.cartowiki.webapp.world.config.SnapshotCacheConfig;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Store whole-world snapshots compressed once with gzip, so that they are sent as they are instead of being
+ * read and compressed again on each request. The features are the same for all years of an epoch, so they are
+ * compressed once per epoch, in the background after the first request of one of its years, and again after a change
+ * of its first year. The header carrying the requested year is sent before them as its own gzip member, a stream
+ * of several members being valid gzip.
+ * Files are stored as {root}/{format}/{zoom or "full"}/{first year of the epoch}.gz.
+ */
+@Service
+public class CompressedSnapshotStore {
+    public static final String ENCODING = "gzip";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompressedSnapshotStore.class);
+
+    private static final String EXTENSION = ".gz";
+    private static final String FULL_RESOLUTION = "full";
+
+    private Path root;
+    private int level;
+    private WorldService worldService;
+    private EpochService epochService;
+
+    private final ThreadPoolExecutor compressor;
+
+    // Snapshots queued or being compressed
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+
+    // Incremented on each change, so that snapshots compressed from older data are not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong compressed = new AtomicLong();
+
+    /**
+     * Autowired constructor
+     * @param config Store parameters
+     * @param worldService Service for world snapshots
+     * @param epochService Epochs of the world history
+     */
+    @Autowired
+    public CompressedSnapshotStore(SnapshotCacheConfig config, WorldService worldService, EpochService epochService) {
+        this.root = Paths.get(config.getDirectory());
+        this.level = config.getLevel();
+        this.worldService = worldService;
+        this.epochService = epochService;
+
+        // Single background compressor, dropping snapshots when too far behind (they will be queued again on the next request)
+        this.compressor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(config.getQueueSize()),
+                                                 (task, executor) -> pending.remove(((CompressTask) task).path));
+    }
+
+    /**
+     * Compressed snapshot of a year
+     * @param header Gzip member of the header of the year
+     * @param features File of the gzip member of the features of its epoch
+     */
+    public record CompressedSnapshot(byte[] header, Path features) {
+        /**
+         * Return the size of the compressed snapshot
+         * @return Number of bytes
+         * @throws IOException Error while reading the size of the file
+         */
+        public long getLength() throws IOException {
+            return header.length + Files.size(features);
+        }
+
+        /**
+         * Write the compressed snapshot
+         * @param output Destination stream
+         * @throws IOException Error while reading the file or writing to the stream
+         */
+        public void writeTo(OutputStream output) throws IOException {
+            output.write(header);
+            Files.copy(features, output);
+        }
+    }
+
+    /**
+     * Return the compressed snapshot of a year, queuing the compression of its epoch on a miss
+     * @param mediaType Media type of the snapshot
+     * @param year Year
+     * @param zoom Zoom level, null for full resolution
+     * @return Compressed snapshot, null if not compressed yet
+     * @throws IOException Error while compressing the header
+     */
+    public CompressedSnapshot find(String mediaType, int year, Integer zoom) throws IOException {
+        int start = epochService.getEpochStart(year);
+        Path path = this.getPath(mediaType, start, zoom);
+        CompressedSnapshot snapshot = null;
+
+        if (Files.isRegularFile(path)) {
+            hits.incrementAndGet();
+
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+
+            try (OutputStream output = new LeveledGzipOutputStream(header, level)) {
+                output.write(this.getHeader(mediaType, year));
+            }
+
+            snapshot = new CompressedSnapshot(header.toByteArray(), path);
+        }
+        else {
+            misses.incrementAndGet();
+            this.queue(path, mediaType, start, zoom);
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Return the file of the features of an epoch
+     * @param mediaType Media type of the snapshot
+     * @param start First year of the epoch
+     * @param zoom Zoom level, null for full resolution
+     * @return Path of the compressed file
+     */
+    private Path getPath(String mediaType, int start, Integer zoom) {
+        String format = TwkbSnapshotWriter.MEDIA_TYPE.equals(mediaType) ? "twkb" : "geojson";
+
+        return root.resolve(format).resolve(zoom == null ? FULL_RESOLUTION : zoom.toString()).resolve(start + EXTENSION);
+    }
+
+    /**
+     * Return the uncompressed header of a snapshot, written before its features
+     * @param mediaType Media type of the snapshot
+     * @param year Year
+     * @return Header
+     * @throws IOException Error while writing the header
+     */
+    private byte[] getHeader(String mediaType, int year) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+
+        try (SnapshotWriter writer = worldService.createWriter(mediaType, header)) {
+            writer.writeStart(year);
+        }
+
+        return header.toByteArray();
+    }
+
+    /**
+     * Compress the features of an epoch in the background, unless already queued
+     * @param path Path of the compressed file
+     * @param mediaType Media type of the snapshot
+     * @param start First year of the epoch
+     * @param zoom Zoom level, null for full resolution
+     */
+    private void queue(Path path, String mediaType, int start, Integer zoom) {
+        if (pending.add(path)) {
+            compressor.execute(new CompressTask(path, mediaType, start, zoom, generation.get()));
+        }
+    }
+
+    /**
+     * Background compression of the features of an epoch
+     */
+    private final class CompressTask implements Runnable {
+        private final Path path;
+        private final String mediaType;
+        private final int start;
+        private final Integer zoom;
+        private final long queuedGeneration;
+
+        /**
+         * Constructor with arguments
+         * @param path Path of the compressed file
+         * @param mediaType Media type of the snapshot
+         * @param start First year of the epoch
+         * @param zoom Zoom level, null for full resolution
+         * @param queuedGeneration Generation of the data when the compression was asked
+         */
+        private CompressTask(Path path, String mediaType, int start, Integer zoom, long queuedGeneration) {
+            this.path = path;
+            this.mediaType = mediaType;
+            this.start = start;
+            this.zoom = zoom;
+            this.queuedGeneration = queuedGeneration;
+        }
+
+        /**
+         * Write the snapshot of the first year of the epoch without its header to a temporary file,
+         * then move it to its place unless the data changed meanwhile
+         */
+        @Override
+        public void run() {
+            Path temporary = null;
+
+            try {
+                Files.createDirectories(path.getParent());
+                temporary = Files.createTempFile(path.getParent(), "snapshot", ".tmp");
+                int headerLength = CompressedSnapshotStore.this.getHeader(mediaType, start).length;
+
+                try (OutputStream output = new LeveledGzipOutputStream(Files.newOutputStream(temporary), level)) {
+                    worldService.writeSnapshot(start, zoom, null, worldService.createWriter(mediaType, new SkippingOutputStream(output, headerLength)));
+                }
+
+                synchronized (generation) {
+                    if (queuedGeneration == generation.get()) {
+                        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        compressed.incrementAndGet();
+                    }
+                }
+            }
+            catch (IOException | DataAccessException e) {
+                LOGGER.warn("Unable to compress the snapshot {}", path, e);
+            }
+            finally {
+                deleteQuietly(temporary);
+                pending.remove(path);
+            }
+        }
+    }
+
+    /**
+     * Gzip stream with a chosen compression level
+     */
+    private static final class LeveledGzipOutputStream extends GZIPOutputStream {
+        /**
+         * Constructor with arguments
+         * @param output Destination stream
+         * @param level Compression level, from 1 (fastest) to 9 (smallest)
+         * @throws IOException Error while writing the header
+         */
+        private LeveledGzipOutputStream(OutputStream output, int level) throws IOException {
+            super(output, 64 * 1024);
+            def.setLevel(level);
+        }
+    }
+
+    /**
+     * Stream dropping the first bytes written to it
+     */
+    private static final class SkippingOutputStream extends FilterOutputStream {
+        private long remaining;
+
+        /**
+         * Constructor with arguments
+         * @param output Destination stream
+         * @param count Number of bytes to drop
+         */
+        private SkippingOutputStream(OutputStream output, long count) {
+            super(output);
+            this.remaining = count;
+        }
+
+        /**
+         * Write a byte, unless it is dropped
+         * @param b Byte
+         * @throws IOException Error while writing to the stream
+         */
+        @Override
+        public void write(int b) throws IOException {
+            if (remaining > 0) {
+                remaining--;
+            }
+            else {
+                out.write(b);
+            }
+        }
+
+        /**
+         * Write the bytes of an array which are not dropped
+         * @param b Array
+         * @param off Offset of the first byte
+         * @param len Number of bytes
+         * @throws IOException Error while writing to the stream
+         */
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int skipped = (int) Math.min(remaining, len);
+            remaining -= skipped;
+
+            if (len > skipped) {
+                out.write(b, off + skipped, len - skipped);
+            }
+        }
+    }
+
+    /**
+     * Remove the snapshots of the epochs starting in the years changed by a contribution, and compress them again in the background.
+     * Other epochs keep the state of their first year, which did not change.
+     * @param event Change of a row of the map data
+     */
+    @EventListener
+    public void onDataChange(DataChangeEvent event) {
+        List<Path> removed = new ArrayList<>();
+
+        synchronized (generation) {
+            generation.incrementAndGet();
+
+            try (Stream<Path> files = Files.exists(root) ? Files.find(root, 3, (path, attributes) -> attributes.isRegularFile()) : Stream.empty()) {
+                files.filter(path -> path.getFileName().toString().endsWith(EXTENSION)).forEach(path -> {
+                    String name = path.getFileName().toString();
+                    int start = Integer.parseInt(name.substring(0, name.length() - EXTENSION.length()));
+
+                    if (start >= event.getMinYear() && start <= event.getMaxYear()) {
+                        deleteQuietly(path);
+                        removed.add(path);
+                    }
+                });
+            }
+            catch (IOException | NumberFormatException e) {
+                LOGGER.error("Unable to remove compressed snapshots after a change of table {}", event.getTable(), e);
+            }
+        }
+
+        // Snapshots were compressed because they were asked for, so they will probably be asked for again
+        for (Path path: removed) {
+            Path zoomDirectory = path.getParent();
+            String format = zoomDirectory.getParent().getFileName().toString();
+            String zoom = zoomDirectory.getFileName().toString();
+            String name = path.getFileName().toString();
+
+            this.queue(path, "twkb".equals(format) ? TwkbSnapshotWriter.MEDIA_TYPE : GeoJsonSnapshotWriter.MEDIA_TYPE,
+                       Integer.parseInt(name.substring(0, name.length() - EXTENSION.length())),
+                       FULL_RESOLUTION.equals(zoom) ? null : Integer.valueOf(zoom));
+        }
+    }
+
+    /**
+     * Delete a file, ignoring errors
+     * @param path File, may be null
+     */
+    private static void deleteQuietly(Path path) {
+        try {
+            if (path != null) {
+                Files.deleteIfExists(path);
+            }
+        }
+        catch (IOException e) {
+            LOGGER.warn("Unable to delete {}", path, e);
+        }
+    }
+
+    /**
+     * Return the store counters for converting to JSON
+     * @return Map of counters
+     */
+    public HashMap<String, Object> getStats() {
+        HashMap<String, Object> map = new HashMap<>();
+
+        map.put("hits", hits.get());
+        map.put("misses", misses.get());
+        map.put("compressed", compressed.get());
+        map.put("pending", pending.size());
+
+        return map;
+    }
+
+    /**
+     * Stop the background compressor on shutdown
+     */
+    @PreDestroy
+    public void stop() {
+        compressor.shutdownNow();
+    }
+}
@@ -0,0 +1,127 @@
+package com.cartowiki.webapp.world.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Write a world snapshot as a GeoJSON feature collection
+ */
+public class GeoJsonSnapshotWriter implements SnapshotWriter {
+    public static final String MEDIA_TYPE = "application/geo+json";
+
+    private JsonGenerator generator;
+
+    /**
+     * Constructor with arguments
+     * @param objectMapper JSON converter
+     * @param output Destination stream
+     * @throws IOException Error while opening the stream
+     */
+    public GeoJsonSnapshotWriter(ObjectMapper objectMapper, OutputStream output) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(output);
+
+        // A snapshot interrupted by an error must not look complete
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+    }
+
+    /**
+     * Return the SQL expression encoding a geometry column as GeoJSON
+     * @param column Geometry column or expression
+     * @param precision Number of decimal digits kept in coordinates
+     * @return SQL expression
+     */
+    @Override
+    public String encodeGeometry(String column, int precision) {
+        return encode(column, precision);
+    }
+
+    /**
+     * Return the SQL expression encoding a geometry column as GeoJSON
+     * @param column Geometry column or expression
+     * @param precision Number of decimal digits kept in coordinates
+     * @return SQL expression
+     */
+    public static String encode(String column, int precision) {
+        return "ST_AsGeoJSON(" + column + ", " + precision + ")";
+    }
+
+    /**
+     * Write the beginning of the feature collection
+     * @param year Year of the snapshot
+     * @throws IOException Error while writing to the stream
+     */
+    @Override
+    public void writeStart(int year) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", "FeatureCollection");
+        generator.writeNumberField("year", year);
+        generator.writeArrayFieldStart("features");
+    }
+
+    /**
+     * Write a feature as a GeoJSON feature
+     * @param type Feature type ("country" or "city")
+     * @param row Current row
+     * @param property Name of the property column ("color" or "population")
+     * @throws IOException Error while writing to the stream
+     * @throws SQLException Error while reading the row
+     */
+    @Override
+    public void writeFeature(String type, ResultSet row, String property) throws IOException, SQLException {
+        writeFeature(generator, type, row, property);
+    }
+
+    /**
+     * Write a GeoJSON feature from a row with columns id, name, geometry (GeoJSON) and a property
+     * @param generator JSON writer
+     * @param type Feature type ("country" or "city")
+     * @param row Current row
+     * @param property Name of the property column ("color" or "population")
+     * @throws IOException Error while writing to the stream
+     * @throws SQLException Error while reading the row
+     */
+    public static void writeFeature(JsonGenerator generator, String type, ResultSet row, String property) throws IOException, SQLException {
+        int id = row.getInt("id");
+        String geometry = row.getString("geometry");
+
+        generator.writeStartObject();
+        generator.writeStringField("type", "Feature");
+        generator.writeStringField("id", type + "/" + id);
+
+        generator.writeObjectFieldStart("properties");
+        generator.writeStringField("type", type);
+        generator.writeNumberField("entity", id);
+        generator.writeObjectField("name", row.getString("name"));
+        generator.writeObjectField(property, row.getObject(property));
+        generator.writeEndObject();
+
+        // Geometries are already GeoJSON, copy them without parsing
+        generator.writeFieldName("geometry");
+        generator.writeRawValue(geometry == null ? "null" : geometry);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Write the end of the feature collection
+     * @throws IOException Error while writing to the stream
+     */
+    @Override
+    public void writeEnd() throws IOException {
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    /**
+     * Flush and close the destination stream
+     * @throws IOException Error while writing to the stream
+     */
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
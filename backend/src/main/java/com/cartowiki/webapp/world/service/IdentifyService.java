@@ -0,0 +1,266 @@
+package com.cartowiki.webapp.world.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.cartowiki.webapp.periods.model.EpochIndex;
+import com.cartowiki.webapp.periods.service.EpochService;
+import com.cartowiki.webapp.tiles.model.DataChangeEvent;
+import com.cartowiki.webapp.util.PeriodSql;
+import com.cartowiki.webapp.world.config.IdentifyConfig;
+import com.cartowiki.webapp.world.model.CountryLocator;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Find the countries owning a point at a year.
+ * Borders of an epoch are loaded in the background on the first query of the epoch, and later queries are answered
+ * from memory; until then, and for epochs dropped as least recently used, queries are answered by the database.
+ */
+@Service
+public class IdentifyService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdentifyService.class);
+
+    private static final String COUNTRIES_QUERY = """
+        SELECT geometrie_pays.id_entite_pays AS id, names.nom_pays AS name%%s
+        FROM geometrie_pays
+        JOIN periodes AS geometrie_periodes ON geometrie_pays.id_periode = geometrie_periodes.id_periode
+        LEFT JOIN LATERAL (
+            SELECT noms_pays.nom_pays
+            FROM pays
+            JOIN periodes AS pays_periodes ON pays.id_periode = pays_periodes.id_periode
+            JOIN noms_pays ON pays.id_nom_pays = noms_pays.id_nom_pays
+            WHERE pays.id_entite_pays = geometrie_pays.id_entite_pays AND %2$s
+            LIMIT 1
+        ) AS names ON true
+        WHERE %1$s AND geometrie_pays.geometrie IS NOT NULL%%s
+        """.formatted(PeriodSql.validAt("geometrie_periodes"), PeriodSql.validAt("pays_periodes"));
+
+    private static final String BORDERS_QUERY = COUNTRIES_QUERY.formatted(", ST_AsBinary(geometrie_pays.geometrie) AS geometry", "");
+    private static final String POINT_QUERY = COUNTRIES_QUERY.formatted("", " AND ST_Intersects(geometrie_pays.geometrie, ST_SetSRID(ST_MakePoint(?, ?), 4326))");
+
+    private JdbcTemplate jdbcTemplate;
+    private EpochService epochService;
+
+    // Locators by first year of epoch, in access order, only accessed while holding the lock of the map
+    private final LinkedHashMap<Integer, CountryLocator> locators;
+
+    // Incremented on each change, so that locators built from older data are not kept
+    private long generation = 0;
+
+    // Epochs whose locator is queued or being built
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor builder;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Autowired constructor
+     * @param jdbcTemplate JDBC access to the database
+     * @param epochService Epochs of the world history
+     * @param config Locator parameters
+     */
+    @Autowired
+    public IdentifyService(JdbcTemplate jdbcTemplate, EpochService epochService, IdentifyConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.epochService = epochService;
+
+        int capacity = config.getEpochs();
+        this.locators = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CountryLocator> eldest) {
+                return size() > capacity;
+            }
+        };
+
+        // Single background builder, dropping epochs when too far behind (they will be queued again on the next query)
+        this.builder = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(config.getQueueSize()),
+                                              (task, executor) -> pending.remove(((BuildTask) task).start));
+    }
+
+    /**
+     * Drop the locators of the epochs affected by a change of the borders or names of countries
+     * @param event Change of a row of the map data
+     */
+    @EventListener
+    public void onDataChange(DataChangeEvent event) {
+        if (DataChangeEvent.COUNTRY_GEOMETRIES.equals(event.getTable()) || DataChangeEvent.COUNTRY_NAMES.equals(event.getTable())) {
+            EpochIndex epochs = epochService.getIndex();
+
+            synchronized (locators) {
+                generation++;
+                locators.keySet().removeIf(start -> start <= event.getMaxYear() && epochs.getEnd(start) >= event.getMinYear());
+            }
+        }
+    }
+
+    /**
+     * Return the countries owning a point at a year
+     * @param longitude Longitude of the point
+     * @param latitude Latitude of the point
+     * @param year Year
+     * @return List of countries for converting to JSON, usually one, empty at sea
+     * @throws DataAccessException Error while querying the database on a miss
+     */
+    public List<HashMap<String, Object>> identify(double longitude, double latitude, int year) throws DataAccessException {
+        int start = epochService.getIndex().getStart(year);
+        CountryLocator locator;
+        long builtGeneration;
+
+        synchronized (locators) {
+            locator = locators.get(start);
+            builtGeneration = generation;
+        }
+
+        List<CountryLocator.Country> countries;
+
+        if (locator == null) {
+            misses.incrementAndGet();
+            this.queueBuild(start, builtGeneration);
+
+            countries = new ArrayList<>();
+            jdbcTemplate.query(POINT_QUERY, row -> {
+                countries.add(new CountryLocator.Country(row.getInt("id"), row.getString("name")));
+            }, year, year, year, year, longitude, latitude);
+        }
+        else {
+            hits.incrementAndGet();
+            countries = locator.locate(longitude, latitude);
+        }
+
+        List<HashMap<String, Object>> result = new ArrayList<>();
+
+        for (CountryLocator.Country country: countries) {
+            HashMap<String, Object> map = new HashMap<>();
+            map.put("id", country.id());
+            map.put("name", country.name());
+            result.add(map);
+        }
+
+        return result;
+    }
+
+    /**
+     * Build the locator of an epoch in the background, unless already queued
+     * @param start First year of the epoch
+     * @param builtGeneration Generation of the data when the build was asked
+     */
+    private void queueBuild(int start, long builtGeneration) {
+        if (pending.add(start)) {
+            builder.execute(new BuildTask(start, builtGeneration));
+        }
+    }
+
+    /**
+     * Background build of the locator of an epoch
+     */
+    private final class BuildTask implements Runnable {
+        private final int start;
+        private final long builtGeneration;
+
+        /**
+         * Constructor with arguments
+         * @param start First year of the epoch
+         * @param builtGeneration Generation of the data when the build was asked
+         */
+        private BuildTask(int start, long builtGeneration) {
+            this.start = start;
+            this.builtGeneration = builtGeneration;
+        }
+
+        /**
+         * Build the locator, and keep it unless the data changed meanwhile
+         */
+        @Override
+        public void run() {
+            try {
+                CountryLocator built = IdentifyService.this.build(start);
+
+                synchronized (locators) {
+                    if (builtGeneration == generation) {
+                        locators.put(start, built);
+                    }
+                }
+            }
+            catch (DataAccessException e) {
+                LOGGER.warn("Unable to build the country locator of epoch {}", start, e);
+            }
+            finally {
+                pending.remove(start);
+            }
+        }
+    }
+
+    /**
+     * Load the borders of the countries existing during an epoch
+     * @param year First year of the epoch
+     * @return Locator to cache
+     * @throws DataAccessException Error while reading the borders
+     */
+    private CountryLocator build(int year) throws DataAccessException {
+        WKBReader reader = new WKBReader();
+        List<Integer> ids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Geometry> geometries = new ArrayList<>();
+
+        jdbcTemplate.query(BORDERS_QUERY, row -> {
+            try {
+                geometries.add(reader.read(row.getBytes("geometry")));
+                ids.add(row.getInt("id"));
+                names.add(row.getString("name"));
+            }
+            catch (ParseException e) {
+                LOGGER.warn("Invalid border of country {}", row.getInt("id"), e);
+            }
+        }, year, year, year, year);
+
+        return new CountryLocator(ids, names, geometries);
+    }
+
+    /**
+     * Return the locator counters for converting to JSON
+     * @return Map of counters
+     */
+    public HashMap<String, Object> getStats() {
+        HashMap<String, Object> map = new HashMap<>();
+
+        synchronized (locators) {
+            map.put("epochs", locators.size());
+        }
+
+        map.put("hits", hits.get());
+        map.put("misses", misses.get());
+        map.put("pendingBuilds", pending.size());
+
+        return map;
+    }
+
+    /**
+     * Stop the background builder on shutdown
+     */
+    @PreDestroy
+    public void stop() {
+        builder.shutdownNow();
+    }
+}
@@ -0,0 +1,160 @@
+package com.cartowiki.webapp.world.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.cartowiki.webapp.tiles.model.DataChangeEvent;
+import com.cartowiki.webapp.world.config.LodConfig;
+
+/**
+ * Maintain simplified versions of country geometries at a few levels of detail, in the side table geometrie_pays_lod.
+ * Each simplified geometry keeps a fingerprint of its source, so that only changed geometries are simplified again.
+ */
+@Service
+public class LodService {
+    public static final int FULL_RESOLUTION = -1;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LodService.class);
+
+    // Displayed width of a tile (in pixels), to compare tolerances with the size of a pixel
+    private static final int TILE_SIZE = 256;
+
+    private static final String CREATE_TABLE = """
+        CREATE TABLE IF NOT EXISTS geometrie_pays_lod (
+            id_geometrie_pays integer NOT NULL,
+            niveau smallint NOT NULL,
+            tolerance double precision NOT NULL,
+            empreinte text NOT NULL,
+            geometrie geometry(Geometry, 4326),
+            PRIMARY KEY (id_geometrie_pays, niveau)
+        )
+        """;
+
+    private static final String DELETE_OBSOLETE = """
+        DELETE FROM geometrie_pays_lod AS lod
+        WHERE lod.niveau >= ?
+           OR NOT EXISTS (SELECT 1 FROM geometrie_pays WHERE geometrie_pays.id_geometrie_pays = lod.id_geometrie_pays)
+        """;
+
+    private static final String UPSERT_LEVEL = """
+        INSERT INTO geometrie_pays_lod (id_geometrie_pays, niveau, tolerance, empreinte, geometrie)
+        SELECT geometrie_pays.id_geometrie_pays, ?, ?, md5(ST_AsEWKB(geometrie_pays.geometrie)), ST_SimplifyPreserveTopology(geometrie_pays.geometrie, ?)
+        FROM geometrie_pays
+        LEFT JOIN geometrie_pays_lod AS lod ON lod.id_geometrie_pays = geometrie_pays.id_geometrie_pays AND lod.niveau = ?
+        WHERE geometrie_pays.geometrie IS NOT NULL
+          AND (lod.id_geometrie_pays IS NULL OR lod.tolerance <> ? OR lod.empreinte <> md5(ST_AsEWKB(geometrie_pays.geometrie)))
+          %s
+        ON CONFLICT (id_geometrie_pays, niveau)
+        DO UPDATE SET tolerance = EXCLUDED.tolerance, empreinte = EXCLUDED.empreinte, geometrie = EXCLUDED.geometrie
+        """;
+
+    private static final String IN_BOUNDS = "AND geometrie_pays.geometrie && ST_MakeEnvelope(?, ?, ?, ?, 4326)";
+
+    private JdbcTemplate jdbcTemplate;
+    private List<Double> tolerances;
+
+    /**
+     * Autowired constructor
+     * @param jdbcTemplate JDBC access to the database
+     * @param config Levels of detail
+     */
+    @Autowired
+    public LodService(JdbcTemplate jdbcTemplate, LodConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tolerances = List.copyOf(config.getTolerances());
+    }
+
+    /**
+     * Create the side table if needed and bring all levels up to date at startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            jdbcTemplate.execute(CREATE_TABLE);
+            this.refresh(null);
+        }
+        catch (DataAccessException e) {
+            LOGGER.error("Unable to build levels of detail, full resolution geometries are used", e);
+        }
+    }
+
+    /**
+     * Simplify again the geometries changed by a contribution.
+     * Runs before other listeners, so that tiles rendered again after the change use the new levels.
+     * @param event Change of a row of the map data
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onDataChange(DataChangeEvent event) {
+        if (DataChangeEvent.COUNTRY_GEOMETRIES.equals(event.getTable())) {
+            try {
+                this.refresh(event.getNewBounds());
+            }
+            catch (DataAccessException e) {
+                LOGGER.error("Unable to update levels of detail", e);
+            }
+        }
+    }
+
+    /**
+     * Simplify the geometries whose source or tolerance changed, and remove levels of removed geometries
+     * @param bounds Area of the changed geometries {minLongitude, minLatitude, maxLongitude, maxLatitude}, null for all
+     * @return Number of simplified geometries
+     * @throws DataAccessException Error while updating the side table
+     */
+    public int refresh(double[] bounds) throws DataAccessException {
+        int simplified = 0;
+
+        jdbcTemplate.update(DELETE_OBSOLETE, tolerances.size());
+
+        for (int level = 0; level < tolerances.size(); level++) {
+            double tolerance = tolerances.get(level);
+
+            if (bounds == null) {
+                simplified += jdbcTemplate.update(UPSERT_LEVEL.formatted(""), level, tolerance, tolerance, level, tolerance);
+            }
+            else {
+                simplified += jdbcTemplate.update(UPSERT_LEVEL.formatted(IN_BOUNDS), level, tolerance, tolerance, level, tolerance,
+                                                  bounds[0], bounds[1], bounds[2], bounds[3]);
+            }
+        }
+
+        return simplified;
+    }
+
+    /**
+     * Return the level of detail to display at a zoom level: the coarsest one whose tolerance is below the size of a pixel
+     * @param zoom Zoom level
+     * @return Level, or FULL_RESOLUTION if all levels are too coarse
+     */
+    public int getLevel(int zoom) {
+        return this.getLevel(360.0 / (TILE_SIZE * Math.pow(2, zoom)));
+    }
+
+    /**
+     * Return the level of detail to display at a resolution: the coarsest one whose tolerance is below the resolution
+     * @param resolution Size of a pixel (in degrees)
+     * @return Level, or FULL_RESOLUTION if all levels are too coarse
+     */
+    public int getLevel(double resolution) {
+        int level = FULL_RESOLUTION;
+
+        for (int i = tolerances.size() - 1; i >= 0; i--) {
+            if (tolerances.get(i) <= resolution) {
+                level = i;
+            }
+        }
+
+        return level;
+    }
+}
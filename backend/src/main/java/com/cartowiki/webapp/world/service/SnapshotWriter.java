@@ -0,0 +1,42 @@
+package com.cartowiki.webapp.world.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Writer of the features of a world snapshot, in one output format
+ */
+public interface SnapshotWriter extends Closeable {
+    /**
+     * Return the SQL expression encoding a geometry column in the output format
+     * @param column Geometry column or expression
+     * @param precision Number of decimal digits kept in coordinates
+     * @return SQL expression
+     */
+    String encodeGeometry(String column, int precision);
+
+    /**
+     * Write the beginning of the snapshot
+     * @param year Year of the snapshot
+     * @throws IOException Error while writing to the stream
+     */
+    void writeStart(int year) throws IOException;
+
+    /**
+     * Write a feature from a row with columns id, name, geometry (encoded by encodeGeometry) and a property
+     * @param type Feature type ("country" or "city")
+     * @param row Current row
+     * @param property Name of the property column ("color" or "population")
+     * @throws IOException Error while writing to the stream
+     * @throws SQLException Error while reading the row
+     */
+    void writeFeature(String type, ResultSet row, String property) throws IOException, SQLException;
+
+    /**
+     * Write the end of the snapshot, only called if all features were written
+     * @throws IOException Error while writing to the stream
+     */
+    void writeEnd() throws IOException;
+}
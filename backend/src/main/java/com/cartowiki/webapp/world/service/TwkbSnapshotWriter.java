@@ -0,0 +1,135 @@
+package com.cartowiki.webapp.world.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Write a world snapshot as a binary stream of features with TWKB geometries (quantized, delta-encoded coordinates).
+ * All numbers are big-endian, strings are UTF-8 prefixed by their length in bytes (-1 for null):
+ * <pre>
+ * header:  "CWTB", version (byte), year (short)
+ * feature: kind (byte, 0 = country, 1 = city), entity id (int), name (string),
+ *          color (string) for a country or population (long, -1 if unknown) for a city,
+ *          geometry length (int, -1 for null), TWKB geometry
+ * end:     kind END (byte)
+ * </pre>
+ * A stream without the end marker was interrupted.
+ */
+public class TwkbSnapshotWriter implements SnapshotWriter {
+    public static final String MEDIA_TYPE = "application/vnd.cartowiki.twkb";
+
+    public static final byte[] MAGIC = "CWTB".getBytes(StandardCharsets.US_ASCII);
+    public static final byte VERSION = 1;
+    public static final byte COUNTRY = 0;
+    public static final byte CITY = 1;
+    public static final byte END = (byte) 0xFF;
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private DataOutputStream output;
+
+    /**
+     * Constructor with arguments
+     * @param output Destination stream
+     */
+    public TwkbSnapshotWriter(OutputStream output) {
+        this.output = new DataOutputStream(new BufferedOutputStream(output, BUFFER_SIZE));
+    }
+
+    /**
+     * Return the SQL expression encoding a geometry column as TWKB
+     * @param column Geometry column or expression
+     * @param precision Number of decimal digits kept in coordinates
+     * @return SQL expression
+     */
+    @Override
+    public String encodeGeometry(String column, int precision) {
+        return "ST_AsTWKB(" + column + ", " + precision + ")";
+    }
+
+    /**
+     * Write the header of the stream
+     * @param year Year of the snapshot
+     * @throws IOException Error while writing to the stream
+     */
+    @Override
+    public void writeStart(int year) throws IOException {
+        output.write(MAGIC);
+        output.writeByte(VERSION);
+        output.writeShort(year);
+    }
+
+    /**
+     * Write a feature as a binary record
+     * @param type Feature type ("country" or "city")
+     * @param row Current row
+     * @param property Name of the property column ("color" or "population")
+     * @throws IOException Error while writing to the stream
+     * @throws SQLException Error while reading the row
+     */
+    @Override
+    public void writeFeature(String type, ResultSet row, String property) throws IOException, SQLException {
+        boolean country = WorldService.COUNTRY.equals(type);
+
+        output.writeByte(country ? COUNTRY : CITY);
+        output.writeInt(row.getInt("id"));
+        this.writeString(row.getString("name"));
+
+        if (country) {
+            this.writeString(row.getString(property));
+        }
+        else {
+            long population = row.getLong(property);
+            output.writeLong(row.wasNull() ? -1 : population);
+        }
+
+        byte[] geometry = row.getBytes("geometry");
+
+        if (geometry == null) {
+            output.writeInt(-1);
+        }
+        else {
+            output.writeInt(geometry.length);
+            output.write(geometry);
+        }
+    }
+
+    /**
+     * Write a string prefixed by its length
+     * @param value String, may be null
+     * @throws IOException Error while writing to the stream
+     */
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+        }
+        else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * Write the end marker
+     * @throws IOException Error while writing to the stream
+     */
+    @Override
+    public void writeEnd() throws IOException {
+        output.writeByte(END);
+    }
+
+    /**
+     * Flush and close the destination stream
+     * @throws IOException Error while writing to the stream
+     */
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
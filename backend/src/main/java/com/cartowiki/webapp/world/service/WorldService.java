@@ -0,0 +1,363 @@
+package com.cartowiki.webapp.world.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cartowiki.webapp.periods.service.EpochService;
+import com.cartowiki.webapp.util.PeriodSql;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Write the state of the world at a year as GeoJSON or binary TWKB features, streaming them from the database to the client.
+ * Rows are read with a forward-only cursor, so that whole-world snapshots never sit in memory.
+ */
+@Service
+public class WorldService {
+    public static final String COUNTRY = "country";
+    public static final String CITY = "city";
+
+    // Number of rows fetched at once from the cursor
+    private static final int FETCH_SIZE = 256;
+
+    // Decimal digits of coordinates at full resolution (about 10 cm)
+    private static final int MAX_PRECISION = 6;
+
+    private static final String COUNTRY_GEOMETRY = "COALESCE(lod.geometrie, geometrie_pays.geometrie)";
+    private static final String CITY_GEOMETRY = "entites_villes.position_ville";
+    private static final String ENVELOPE = "ST_MakeEnvelope(?, ?, ?, ?, 4326)";
+
+    private static final String COUNTRIES_QUERY = """
+        SELECT geometrie_pays.id_entite_pays AS id, names.nom_pays AS name, entites_pays.couleur AS color,
+               %%1$s AS geometry
+        FROM geometrie_pays
+        LEFT JOIN geometrie_pays_lod AS lod ON lod.id_geometrie_pays = geometrie_pays.id_geometrie_pays AND lod.niveau = ?
+        JOIN periodes AS geometrie_periodes ON geometrie_pays.id_periode = geometrie_periodes.id_periode
+        JOIN entites_pays ON geometrie_pays.id_entite_pays = entites_pays.id_entite_pays
+        LEFT JOIN LATERAL (
+            SELECT noms_pays.nom_pays
+            FROM pays
+            JOIN periodes AS pays_periodes ON pays.id_periode = pays_periodes.id_periode
+            JOIN noms_pays ON pays.id_nom_pays = noms_pays.id_nom_pays
+            WHERE pays.id_entite_pays = geometrie_pays.id_entite_pays AND %2$s
+            LIMIT 1
+        ) AS names ON true
+        WHERE %1$s %%2$s
+        """.formatted(PeriodSql.validAt("geometrie_periodes"), PeriodSql.validAt("pays_periodes"));
+
+    private static final String CITIES_QUERY = """
+        SELECT entites_villes.id_entite_ville AS id, names.nom_ville AS name, populations.population AS population,
+               %%1$s AS geometry
+        FROM entites_villes
+        JOIN existence_ville ON entites_villes.id_entite_ville = existence_ville.id_entite_ville
+        JOIN periodes AS existence_periodes ON existence_ville.id_periode = existence_periodes.id_periode
+        LEFT JOIN LATERAL (
+            SELECT noms_villes.nom_ville
+            FROM ville
+            JOIN periodes AS ville_periodes ON ville.id_periode = ville_periodes.id_periode
+            JOIN noms_villes ON ville.id_nom_ville = noms_villes.id_nom_ville
+            WHERE ville.id_entite_ville = entites_villes.id_entite_ville AND %2$s
+            LIMIT 1
+        ) AS names ON true
+        LEFT JOIN LATERAL (
+            SELECT populations_villes.population
+            FROM populations_villes
+            WHERE populations_villes.id_entite_ville = entites_villes.id_entite_ville AND populations_villes.annee <= ?
+            ORDER BY populations_villes.annee DESC
+            LIMIT 1
+        ) AS populations ON true
+        WHERE %1$s %%2$s
+        """.formatted(PeriodSql.validAt("existence_periodes"), PeriodSql.validAt("ville_periodes"));
+
+    // Same features read from the materialized state of the epoch, see WorldStateService
+    private static final String STATE_COUNTRY_GEOMETRY = "COALESCE(lod.geometrie, etat.geometrie)";
+    private static final String STATE_CITY_GEOMETRY = "etat.position";
+
+    private static final String STATE_COUNTRIES_QUERY = """
+        SELECT etat.id_entite_pays AS id, etat.nom_pays AS name, etat.couleur AS color, %1$s AS geometry
+        FROM etat_monde_pays AS etat
+        LEFT JOIN geometrie_pays_lod AS lod ON lod.id_geometrie_pays = etat.id_geometrie_pays AND lod.niveau = ?
+        WHERE etat.debut_epoque = ? %2$s
+        """;
+
+    private static final String STATE_CITIES_QUERY = """
+        SELECT etat.id_entite_ville AS id, etat.nom_ville AS name, etat.population AS population, %1$s AS geometry
+        FROM etat_monde_villes AS etat
+        WHERE etat.debut_epoque = ? %2$s
+        """;
+
+    // Entities with a displayed row appearing or disappearing between two years
+    private static final String CHANGED_COUNTRIES = """
+        SELECT geometrie_pays.id_entite_pays AS id FROM geometrie_pays JOIN periodes ON geometrie_pays.id_periode = periodes.id_periode WHERE %1$s
+        UNION SELECT pays.id_entite_pays FROM pays JOIN periodes ON pays.id_periode = periodes.id_periode WHERE %1$s
+        UNION SELECT pays_ville.id_entite_pays FROM capitales
+              JOIN pays_ville ON capitales.id_pays_ville = pays_ville.id_pays_ville
+              JOIN periodes ON capitales.id_periode = periodes.id_periode
+              WHERE %1$s
+        """.formatted(PeriodSql.changesBetween("periodes"));
+
+    private static final String CHANGED_CITIES = """
+        SELECT existence_ville.id_entite_ville AS id FROM existence_ville JOIN periodes ON existence_ville.id_periode = periodes.id_periode WHERE %1$s
+        UNION SELECT ville.id_entite_ville FROM ville JOIN periodes ON ville.id_periode = periodes.id_periode WHERE %1$s
+        UNION SELECT populations_villes.id_entite_ville FROM populations_villes WHERE populations_villes.annee > ? AND populations_villes.annee <= ?
+        """.formatted(PeriodSql.changesBetween("periodes"));
+
+    // Changed entities, with their features at the target year (if any) and whether they existed at the source year
+    private static final String DIFF_QUERY = """
+        WITH changed AS (%1$s), features AS (%2$s)
+        SELECT changed.id AS id, features.id IS NOT NULL AS present, EXISTS (%3$s) AS existed, features.name, features.%4$s, features.geometry
+        FROM changed
+        LEFT JOIN features ON features.id = changed.id
+        ORDER BY changed.id
+        """;
+
+    private static final String COUNTRY_EXISTED = """
+        SELECT 1 FROM geometrie_pays JOIN periodes ON geometrie_pays.id_periode = periodes.id_periode
+        WHERE geometrie_pays.id_entite_pays = changed.id AND %1$s
+        """.formatted(PeriodSql.validAt("periodes"));
+
+    private static final String CITY_EXISTED = """
+        SELECT 1 FROM existence_ville JOIN periodes ON existence_ville.id_periode = periodes.id_periode
+        WHERE existence_ville.id_entite_ville = changed.id AND %1$s
+        """.formatted(PeriodSql.validAt("periodes"));
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private ObjectMapper objectMapper;
+    private LodService lodService;
+    private EpochService epochService;
+    private WorldStateService worldStateService;
+
+    /**
+     * Autowired constructor
+     * @param dataSource Database connections
+     * @param transactionManager Transactions (the PostgreSQL driver only streams rows inside a transaction)
+     * @param objectMapper JSON converter
+     * @param lodService Levels of detail of country borders
+     * @param epochService Epochs of the world history
+     * @param worldStateService Materialized state of the world
+     */
+    @Autowired
+    public WorldService(DataSource dataSource, PlatformTransactionManager transactionManager, ObjectMapper objectMapper, LodService lodService,
+                        EpochService epochService, WorldStateService worldStateService) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+
+        this.objectMapper = objectMapper;
+        this.lodService = lodService;
+        this.epochService = epochService;
+        this.worldStateService = worldStateService;
+    }
+
+    /**
+     * Create the writer of an output format
+     * @param mediaType Media type of the output, TwkbSnapshotWriter.MEDIA_TYPE for binary features, anything else for GeoJSON
+     * @param output Destination stream
+     * @return Snapshot writer
+     * @throws IOException Error while opening the stream
+     */
+    public SnapshotWriter createWriter(String mediaType, OutputStream output) throws IOException {
+        SnapshotWriter writer;
+
+        if (TwkbSnapshotWriter.MEDIA_TYPE.equals(mediaType)) {
+            writer = new TwkbSnapshotWriter(output);
+        }
+        else {
+            writer = new GeoJsonSnapshotWriter(objectMapper, output);
+        }
+
+        return writer;
+    }
+
+    /**
+     * Write all countries and cities existing at a year, from the materialized state of its epoch once complete
+     * @param year Year
+     * @param zoom Zoom level the snapshot is displayed at, to simplify country borders and round coordinates, null for full resolution
+     * @param bounds Area of the features {minLongitude, minLatitude, maxLongitude, maxLatitude}, null for the whole world
+     * @param writer Writer of the output format
+     * @throws IOException Error while writing to the stream
+     */
+    public void writeSnapshot(int year, Integer zoom, double[] bounds, SnapshotWriter writer) throws IOException {
+        int level = zoom == null ? LodService.FULL_RESOLUTION : lodService.getLevel(zoom);
+        int precision = getPrecision(zoom);
+
+        String countriesQuery;
+        String citiesQuery;
+        List<Object> countriesArguments;
+        List<Object> citiesArguments;
+
+        if (worldStateService.isReady()) {
+            int start = epochService.getEpochStart(year);
+
+            countriesQuery = STATE_COUNTRIES_QUERY.formatted(writer.encodeGeometry(STATE_COUNTRY_GEOMETRY, precision), bounds == null ? "" : "AND etat.geometrie && " + ENVELOPE);
+            citiesQuery = STATE_CITIES_QUERY.formatted(writer.encodeGeometry(STATE_CITY_GEOMETRY, precision), bounds == null ? "" : "AND etat.position && " + ENVELOPE);
+            countriesArguments = new ArrayList<>(List.of(level, start));
+            citiesArguments = new ArrayList<>(List.of(start));
+        }
+        else {
+            countriesQuery = COUNTRIES_QUERY.formatted(writer.encodeGeometry(COUNTRY_GEOMETRY, precision), bounds == null ? "" : "AND geometrie_pays.geometrie && " + ENVELOPE);
+            citiesQuery = CITIES_QUERY.formatted(writer.encodeGeometry(CITY_GEOMETRY, precision), bounds == null ? "" : "AND entites_villes.position_ville && " + ENVELOPE);
+            countriesArguments = new ArrayList<>(List.of(level, year, year, year, year));
+            citiesArguments = new ArrayList<>(List.of(year, year, year, year, year));
+        }
+
+        if (bounds != null) {
+            for (double bound: bounds) {
+                countriesArguments.add(bound);
+                citiesArguments.add(bound);
+            }
+        }
+
+        try (writer) {
+            writer.writeStart(year);
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.query(countriesQuery, row -> {
+                        writeFeature(writer, COUNTRY, row, "color");
+                    }, countriesArguments.toArray());
+
+                    jdbcTemplate.query(citiesQuery, row -> {
+                        writeFeature(writer, CITY, row, "population");
+                    }, citiesArguments.toArray());
+                });
+            }
+            catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            writer.writeEnd();
+        }
+    }
+
+    /**
+     * Write one feature, from inside a row callback
+     * @param writer Writer of the output format
+     * @param type Feature type ("country" or "city")
+     * @param row Current row
+     * @param property Name of the property column
+     * @throws SQLException Error while reading the row
+     */
+    private static void writeFeature(SnapshotWriter writer, String type, ResultSet row, String property) throws SQLException {
+        try {
+            writer.writeFeature(type, row, property);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Return the number of decimal digits of coordinates worth sending at a zoom level (a tenth of a pixel)
+     * @param zoom Zoom level, null for full precision
+     * @return Number of decimal digits
+     */
+    public static int getPrecision(Integer zoom) {
+        int precision = MAX_PRECISION;
+
+        if (zoom != null) {
+            double pixel = 360.0 / (256 * Math.pow(2, zoom));
+            precision = Math.clamp((long) Math.ceil(-Math.log10(pixel / 10)), 0, MAX_PRECISION);
+        }
+
+        return precision;
+    }
+
+    /**
+     * Write the features added, removed or changed between two years, as one JSON object per line:
+     * {"action": "added" or "changed", "feature": GeoJSON feature at the target year} or {"action": "removed", "id": feature id}
+     * @param from Source year
+     * @param to Target year (may be before the source year, to play history backwards)
+     * @param zoom Zoom level the features are displayed at, to simplify country borders and round coordinates, null for full resolution
+     * @param output Destination stream
+     * @throws IOException Error while writing to the stream
+     */
+    public void writeDiff(int from, int to, Integer zoom, OutputStream output) throws IOException {
+        int level = zoom == null ? LodService.FULL_RESOLUTION : lodService.getLevel(zoom);
+        int precision = getPrecision(zoom);
+        int lower = Math.min(from, to);
+        int upper = Math.max(from, to);
+
+        String countriesFeatures = COUNTRIES_QUERY.formatted(GeoJsonSnapshotWriter.encode(COUNTRY_GEOMETRY, precision), "AND geometrie_pays.id_entite_pays IN (SELECT id FROM changed)");
+        String citiesFeatures = CITIES_QUERY.formatted(GeoJsonSnapshotWriter.encode(CITY_GEOMETRY, precision), "AND entites_villes.id_entite_ville IN (SELECT id FROM changed)");
+        String countriesQuery = DIFF_QUERY.formatted(CHANGED_COUNTRIES, countriesFeatures, COUNTRY_EXISTED, "color");
+        String citiesQuery = DIFF_QUERY.formatted(CHANGED_CITIES, citiesFeatures, CITY_EXISTED, "population");
+
+        Object[] countriesArguments = {lower, upper, lower, upper, lower, upper, lower, upper, lower, upper, lower, upper,
+                                       level, to, to, to, to,
+                                       from, from};
+        Object[] citiesArguments = {lower, upper, lower, upper, lower, upper, lower, upper, lower, upper,
+                                    to, to, to, to, to,
+                                    from, from};
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.query(countriesQuery, row -> {
+                        writeChange(generator, COUNTRY, row, "color");
+                    }, countriesArguments);
+
+                    jdbcTemplate.query(citiesQuery, row -> {
+                        writeChange(generator, CITY, row, "population");
+                    }, citiesArguments);
+                });
+            }
+            catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            generator.writeRaw('\n');
+        }
+    }
+
+    /**
+     * Write one line of a diff, from inside a row callback
+     * @param generator JSON writer
+     * @param type Feature type ("country" or "city")
+     * @param row Current row, with columns present, existed and those of a feature
+     * @param property Name of the property column
+     * @throws SQLException Error while reading the row
+     */
+    private static void writeChange(JsonGenerator generator, String type, ResultSet row, String property) throws SQLException {
+        boolean present = row.getBoolean("present");
+        boolean existed = row.getBoolean("existed");
+
+        try {
+            if (present) {
+                generator.writeStartObject();
+                generator.writeStringField("action", existed ? "changed" : "added");
+                generator.writeFieldName("feature");
+                GeoJsonSnapshotWriter.writeFeature(generator, type, row, property);
+                generator.writeEndObject();
+            }
+            else if (existed) {
+                generator.writeStartObject();
+                generator.writeStringField("action", "removed");
+                generator.writeStringField("id", type + "/" + row.getInt("id"));
+                generator.writeEndObject();
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
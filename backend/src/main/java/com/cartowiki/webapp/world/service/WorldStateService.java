@@ -0,0 +1,409 @@
+package com.cartowiki.webapp.world.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.cartowiki.webapp.periods.model.EpochIndex;
+import com.cartowiki.webapp.periods.service.EpochService;
+import com.cartowiki.webapp.tiles.model.DataChangeEvent;
+import com.cartowiki.webapp.util.PeriodSql;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Maintain the state of the world materialized per epoch, in the side tables etat_monde_pays and etat_monde_villes:
+ * one denormalized row per (epoch, country border) and (epoch, city), so that readers of a year scan a single table.
+ * Each row keeps a fingerprint of the hash_column values of its source rows, so that only changed rows are written again.
+ * Changes are applied in the background by a single refresher, the year ranges changed meanwhile being merged into
+ * the next refresh; readers go back to the source tables until it is over.
+ */
+@Service
+public class WorldStateService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorldStateService.class);
+
+    private static final String CREATE_COUNTRIES_TABLE = """
+        CREATE TABLE IF NOT EXISTS etat_monde_pays (
+            debut_epoque smallint NOT NULL,
+            fin_epoque smallint NOT NULL,
+            id_geometrie_pays integer NOT NULL,
+            id_entite_pays integer NOT NULL,
+            nom_pays character varying(256),
+            couleur character varying(8),
+            id_capitale integer,
+            nom_capitale character varying(128),
+            empreinte text NOT NULL,
+            geometrie geometry(Geometry, 4326),
+            PRIMARY KEY (debut_epoque, id_geometrie_pays)
+        )
+        """;
+
+    private static final String CREATE_CITIES_TABLE = """
+        CREATE TABLE IF NOT EXISTS etat_monde_villes (
+            debut_epoque smallint NOT NULL,
+            fin_epoque smallint NOT NULL,
+            id_entite_ville integer NOT NULL,
+            nom_ville character varying(128),
+            population integer,
+            empreinte text NOT NULL,
+            position geometry(Geometry, 4326),
+            PRIMARY KEY (debut_epoque, id_entite_ville)
+        )
+        """;
+
+    private static final String CREATE_COUNTRIES_INDEX = "CREATE INDEX IF NOT EXISTS etat_monde_pays_geometrie ON etat_monde_pays USING GIST (geometrie)";
+    private static final String CREATE_CITIES_INDEX = "CREATE INDEX IF NOT EXISTS etat_monde_villes_position ON etat_monde_villes USING GIST (position)";
+
+    // Rows of an epoch whose fingerprint or epoch end changed, the geometry being only read for them
+    private static final String UPSERT_COUNTRIES = """
+        INSERT INTO etat_monde_pays (debut_epoque, fin_epoque, id_geometrie_pays, id_entite_pays, nom_pays, couleur, id_capitale, nom_capitale, empreinte, geometrie)
+        SELECT ?, ?, source.id_geometrie_pays, source.id_entite_pays, source.nom_pays, source.couleur, source.id_capitale, source.nom_capitale,
+               source.empreinte, geometrie_pays.geometrie
+        FROM (
+            SELECT geometrie_pays.id_geometrie_pays, geometrie_pays.id_entite_pays, names.nom_pays, entites_pays.couleur,
+                   capitals.id_entite_ville AS id_capitale, capitals.nom_ville AS nom_capitale,
+                   md5(%5$s || %6$s || COALESCE(names.empreinte, ''::bytea) || COALESCE(capitals.empreinte, ''::bytea)) AS empreinte
+            FROM geometrie_pays
+            JOIN periodes AS geometrie_periodes ON geometrie_pays.id_periode = geometrie_periodes.id_periode
+            JOIN entites_pays ON geometrie_pays.id_entite_pays = entites_pays.id_entite_pays
+            LEFT JOIN LATERAL (
+                SELECT noms_pays.nom_pays, %7$s || %8$s AS empreinte
+                FROM pays
+                JOIN periodes AS pays_periodes ON pays.id_periode = pays_periodes.id_periode
+                JOIN noms_pays ON pays.id_nom_pays = noms_pays.id_nom_pays
+                WHERE pays.id_entite_pays = geometrie_pays.id_entite_pays AND %2$s
+                LIMIT 1
+            ) AS names ON true
+            LEFT JOIN LATERAL (
+                SELECT pays_ville.id_entite_ville, capital_names.nom_ville,
+                       %9$s || %10$s || COALESCE(capital_names.empreinte, ''::bytea) AS empreinte
+                FROM capitales
+                JOIN periodes AS capitales_periodes ON capitales.id_periode = capitales_periodes.id_periode
+                JOIN pays_ville ON capitales.id_pays_ville = pays_ville.id_pays_ville
+                LEFT JOIN LATERAL (
+                    SELECT noms_villes.nom_ville, %11$s || %12$s AS empreinte
+                    FROM ville
+                    JOIN periodes AS ville_periodes ON ville.id_periode = ville_periodes.id_periode
+                    JOIN noms_villes ON ville.id_nom_ville = noms_villes.id_nom_ville
+                    WHERE ville.id_entite_ville = pays_ville.id_entite_ville AND %4$s
+                    LIMIT 1
+                ) AS capital_names ON true
+                WHERE pays_ville.id_entite_pays = geometrie_pays.id_entite_pays AND %3$s
+                LIMIT 1
+            ) AS capitals ON true
+            WHERE %1$s
+        ) AS source
+        JOIN geometrie_pays ON geometrie_pays.id_geometrie_pays = source.id_geometrie_pays
+        LEFT JOIN etat_monde_pays AS etat ON etat.debut_epoque = ? AND etat.id_geometrie_pays = source.id_geometrie_pays
+        WHERE etat.id_geometrie_pays IS NULL OR etat.empreinte <> source.empreinte OR etat.fin_epoque <> ?
+        ON CONFLICT (debut_epoque, id_geometrie_pays)
+        DO UPDATE SET fin_epoque = EXCLUDED.fin_epoque, id_entite_pays = EXCLUDED.id_entite_pays, nom_pays = EXCLUDED.nom_pays,
+                      couleur = EXCLUDED.couleur, id_capitale = EXCLUDED.id_capitale, nom_capitale = EXCLUDED.nom_capitale,
+                      empreinte = EXCLUDED.empreinte, geometrie = EXCLUDED.geometrie
+        """.formatted(PeriodSql.validAt("geometrie_periodes"), PeriodSql.validAt("pays_periodes"), PeriodSql.validAt("capitales_periodes"),
+                      PeriodSql.validAt("ville_periodes"), hash("geometrie_pays", "geometrie", "id_geometrie_pays", "id_entite_pays", "id_periode"),
+                      hash("entites_pays"), hash("pays"), hash("noms_pays"), hash("capitales"), hash("pays_ville"), hash("ville"), hash("noms_villes"));
+
+    private static final String UPSERT_CITIES = """
+        INSERT INTO etat_monde_villes (debut_epoque, fin_epoque, id_entite_ville, nom_ville, population, empreinte, position)
+        SELECT ?, ?, source.id_entite_ville, source.nom_ville, source.population, source.empreinte, entites_villes.position_ville
+        FROM (
+            SELECT DISTINCT ON (entites_villes.id_entite_ville)
+                   entites_villes.id_entite_ville, names.nom_ville, populations.population,
+                   md5(%3$s || COALESCE(names.empreinte, ''::bytea) || COALESCE(populations.empreinte, ''::bytea)) AS empreinte
+            FROM entites_villes
+            JOIN existence_ville ON entites_villes.id_entite_ville = existence_ville.id_entite_ville
+            JOIN periodes AS existence_periodes ON existence_ville.id_periode = existence_periodes.id_periode
+            LEFT JOIN LATERAL (
+                SELECT noms_villes.nom_ville, %4$s || %5$s AS empreinte
+                FROM ville
+                JOIN periodes AS ville_periodes ON ville.id_periode = ville_periodes.id_periode
+                JOIN noms_villes ON ville.id_nom_ville = noms_villes.id_nom_ville
+                WHERE ville.id_entite_ville = entites_villes.id_entite_ville AND %2$s
+                LIMIT 1
+            ) AS names ON true
+            LEFT JOIN LATERAL (
+                SELECT populations_villes.population, %6$s AS empreinte
+                FROM populations_villes
+                WHERE populations_villes.id_entite_ville = entites_villes.id_entite_ville AND populations_villes.annee <= ?
+                ORDER BY populations_villes.annee DESC
+                LIMIT 1
+            ) AS populations ON true
+            WHERE %1$s
+            ORDER BY entites_villes.id_entite_ville
+        ) AS source
+        JOIN entites_villes ON entites_villes.id_entite_ville = source.id_entite_ville
+        LEFT JOIN etat_monde_villes AS etat ON etat.debut_epoque = ? AND etat.id_entite_ville = source.id_entite_ville
+        WHERE etat.id_entite_ville IS NULL OR etat.empreinte <> source.empreinte OR etat.fin_epoque <> ?
+        ON CONFLICT (debut_epoque, id_entite_ville)
+        DO UPDATE SET fin_epoque = EXCLUDED.fin_epoque, nom_ville = EXCLUDED.nom_ville, population = EXCLUDED.population,
+                      empreinte = EXCLUDED.empreinte, position = EXCLUDED.position
+        """.formatted(PeriodSql.validAt("existence_periodes"), PeriodSql.validAt("ville_periodes"),
+                      hash("entites_villes", "position_ville", "id_entite_ville"), hash("ville"), hash("noms_villes"), hash("populations_villes"));
+
+    // Rows of an epoch whose source does not exist anymore during it
+    private static final String DELETE_COUNTRIES = """
+        DELETE FROM etat_monde_pays
+        WHERE debut_epoque = ? AND id_geometrie_pays NOT IN (
+            SELECT geometrie_pays.id_geometrie_pays FROM geometrie_pays
+            JOIN periodes ON geometrie_pays.id_periode = periodes.id_periode
+            WHERE %1$s
+        )
+        """.formatted(PeriodSql.validAt("periodes"));
+
+    private static final String DELETE_CITIES = """
+        DELETE FROM etat_monde_villes
+        WHERE debut_epoque = ? AND id_entite_ville NOT IN (
+            SELECT existence_ville.id_entite_ville FROM existence_ville
+            JOIN periodes ON existence_ville.id_periode = periodes.id_periode
+            WHERE %1$s
+        )
+        """.formatted(PeriodSql.validAt("periodes"));
+
+    // Rows of epochs which are not epochs anymore, inside a year range
+    private static final String DELETE_EPOCHS = "DELETE FROM %s WHERE debut_epoque BETWEEN ? AND ? AND debut_epoque NOT IN (%s)";
+
+    private JdbcTemplate jdbcTemplate;
+    private EpochService epochService;
+
+    // True once all epochs are materialized, false again if a refresh fails
+    private volatile boolean complete = false;
+
+    // True while complete and no change waits for a refresh
+    private volatile boolean ready = false;
+
+    // Years changed since the last refresh started, only accessed while holding the lock
+    private final Object lock = new Object();
+    private int changedMinYear = Integer.MAX_VALUE;
+    private int changedMaxYear = Integer.MIN_VALUE;
+    private boolean queued = false;
+
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor();
+
+    private final AtomicLong refreshedEpochs = new AtomicLong();
+    private final AtomicLong writtenRows = new AtomicLong();
+
+    /**
+     * Autowired constructor
+     * @param jdbcTemplate JDBC access to the database
+     * @param epochService Epochs of the world history
+     */
+    @Autowired
+    public WorldStateService(JdbcTemplate jdbcTemplate, EpochService epochService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.epochService = epochService;
+    }
+
+    /**
+     * Return the fingerprint of a source row without geometry: its hash_column, or a hash of the whole row if not filled
+     * @param table Name or alias of the table in the query
+     * @return SQL expression of type bytea
+     */
+    private static String hash(String table) {
+        return "COALESCE(" + table + ".hash_column, sha256(convert_to(" + table + "::text, 'UTF8')))";
+    }
+
+    /**
+     * Return the fingerprint of a source row with a geometry: its hash_column, or a hash of the columns read from it if
+     * not filled, the geometry being hashed as WKB rather than serialized with the whole row as text
+     * @param table Name or alias of the table in the query
+     * @param geometry Geometry column
+     * @param columns Other columns read from the table
+     * @return SQL expression of type bytea
+     */
+    private static String hash(String table, String geometry, String... columns) {
+        List<String> qualified = new ArrayList<>();
+
+        for (String column: columns) {
+            qualified.add(table + "." + column);
+        }
+
+        return "COALESCE(" + table + ".hash_column, sha256(convert_to(concat_ws('|', " + String.join(", ", qualified) + "), 'UTF8')"
+               + " || ST_AsBinary(" + table + "." + geometry + ")))";
+    }
+
+    /**
+     * Create the side tables if needed and bring all epochs up to date at startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            jdbcTemplate.execute(CREATE_COUNTRIES_TABLE);
+            jdbcTemplate.execute(CREATE_CITIES_TABLE);
+            jdbcTemplate.execute(CREATE_COUNTRIES_INDEX);
+            jdbcTemplate.execute(CREATE_CITIES_INDEX);
+            this.refresh(Short.MIN_VALUE, Short.MAX_VALUE);
+        }
+        catch (DataAccessException e) {
+            LOGGER.error("Unable to materialize the state of the world, snapshots are read from the source tables", e);
+        }
+    }
+
+    /**
+     * Queue the refresh of the epochs touched by a validated contribution, merged with the changes not refreshed yet.
+     * Runs before other listeners but after the levels of detail, so that snapshots read after the change come from the
+     * source tables until the refresh is over.
+     * @param event Change of a row of the map data
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void onDataChange(DataChangeEvent event) {
+        synchronized (lock) {
+            changedMinYear = Math.min(changedMinYear, event.getMinYear());
+            changedMaxYear = Math.max(changedMaxYear, event.getMaxYear());
+            ready = false;
+
+            if (!queued) {
+                try {
+                    refresher.execute(this::refreshChanges);
+                    queued = true;
+                }
+                catch (RejectedExecutionException e) {
+                    // Shutting down, everything is refreshed at next start
+                }
+            }
+        }
+    }
+
+    /**
+     * Refresh the years changed since the last refresh, in the background
+     */
+    private void refreshChanges() {
+        int minYear;
+        int maxYear;
+
+        synchronized (lock) {
+            minYear = changedMinYear;
+            maxYear = changedMaxYear;
+            changedMinYear = Integer.MAX_VALUE;
+            changedMaxYear = Integer.MIN_VALUE;
+            queued = false;
+        }
+
+        try {
+            if (complete) {
+                this.refresh(minYear, maxYear);
+            }
+            else {
+                // A previous refresh failed, so other epochs may be stale too
+                this.refresh(Short.MIN_VALUE, Short.MAX_VALUE);
+            }
+        }
+        catch (DataAccessException e) {
+            LOGGER.error("Unable to refresh the state of the world between years {} and {}", minYear, maxYear, e);
+        }
+    }
+
+    /**
+     * Materialize again the epochs overlapping a year range.
+     * The epochs just before and after the range are refreshed too, since the change may have moved their boundaries.
+     * @param minYear First changed year
+     * @param maxYear Last changed year
+     * @return Number of written or deleted rows
+     * @throws DataAccessException Error while updating the side tables
+     */
+    public synchronized int refresh(int minYear, int maxYear) throws DataAccessException {
+        boolean whole = minYear <= Short.MIN_VALUE && maxYear >= Short.MAX_VALUE;
+        EpochIndex epochs = epochService.refresh();
+
+        if (epochs.getBoundaries().length == 0) {
+            // Nothing on the map yet (or epochs unknown): nothing to write, and the previous state is kept
+            this.publishState();
+            return 0;
+        }
+
+        boolean wasComplete = complete;
+
+        // Readers go back to the source tables until the refresh is over
+        complete = false;
+        ready = false;
+
+        int lower = epochs.getStart(Math.max(minYear - 1, Short.MIN_VALUE));
+        int upper = epochs.getEnd(Math.min(maxYear + 1, Short.MAX_VALUE));
+        List<Integer> starts = new ArrayList<>();
+        int written = 0;
+
+        for (int start = lower; start <= upper; start = epochs.getEnd(start) + 1) {
+            int end = epochs.getEnd(start);
+
+            written += jdbcTemplate.update(UPSERT_COUNTRIES, start, end, start, start, start, start, start, start, start, start, start, end);
+            written += jdbcTemplate.update(DELETE_COUNTRIES, start, start, start);
+            written += jdbcTemplate.update(UPSERT_CITIES, start, end, start, start, start, start, start, start, end);
+            written += jdbcTemplate.update(DELETE_CITIES, start, start, start);
+
+            starts.add(start);
+            refreshedEpochs.incrementAndGet();
+
+            if (end >= Short.MAX_VALUE) {
+                break;
+            }
+        }
+
+        String kept = starts.stream().map(String::valueOf).collect(Collectors.joining(", "));
+        written += jdbcTemplate.update(DELETE_EPOCHS.formatted("etat_monde_pays", kept), lower, upper);
+        written += jdbcTemplate.update(DELETE_EPOCHS.formatted("etat_monde_villes", kept), lower, upper);
+
+        writtenRows.addAndGet(written);
+
+        // After a partial refresh, the other epochs are up to date only if they were before
+        complete = whole || wasComplete;
+        this.publishState();
+
+        return written;
+    }
+
+    /**
+     * Let readers use the side tables if all epochs are materialized and no change waits for a refresh
+     */
+    private void publishState() {
+        synchronized (lock) {
+            ready = complete && !queued;
+        }
+    }
+
+    /**
+     * Stop the background refresher on shutdown
+     */
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Check whether the side tables hold the state of all epochs
+     * @return True if they can be read instead of the source tables
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Return the refresh counters for converting to JSON
+     * @return Map of counters
+     */
+    public HashMap<String, Object> getStats() {
+        HashMap<String, Object> map = new HashMap<>();
+
+        map.put("ready", ready);
+        map.put("refreshedEpochs", refreshedEpochs.get());
+        map.put("writtenRows", writtenRows.get());
+
+        return map;
+    }
+}
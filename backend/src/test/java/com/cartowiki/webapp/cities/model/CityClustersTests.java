@@ -0,0 +1,111 @@
+package com.cartowiki.webapp.cities.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of CityClusters
+ */
+class CityClustersTests {
+    /**
+     * Test that each level keeps all cities and population, and that searches find the clusters of an area
+     */
+    @Test
+    void testLevels() {
+        Random random = new Random(7);
+        int size = 3000;
+        int[] ids = new int[size];
+        long[] populations = new long[size];
+        double[] longitudes = new double[size];
+        double[] latitudes = new double[size];
+        long totalPopulation = 0;
+
+        for (int i = 0; i < size; i++) {
+            ids[i] = i + 1;
+            populations[i] = i % 5 == 0 ? -1 : 100L * i;
+            totalPopulation += Math.max(0, populations[i]);
+            longitudes[i] = random.nextDouble() * 40 - 10;
+            latitudes[i] = random.nextDouble() * 30 + 30;
+        }
+
+        CityTree tree = new CityTree(ids, new String[size], populations, longitudes, latitudes);
+        CityClusters clusters = new CityClusters(tree, 8, 64);
+
+        for (int zoom = 0; zoom <= 8; zoom++) {
+            int[] all = clusters.search(zoom, -180, -85, 180, 85);
+            int cities = 0;
+            long population = 0;
+
+            assertEquals(clusters.size(zoom), all.length);
+
+            for (int position: all) {
+                cities += clusters.getCount(zoom, position);
+                population += clusters.getPopulation(zoom, position);
+            }
+
+            assertEquals(size, cities);
+            assertEquals(totalPopulation, population);
+
+            // Coarser levels have fewer clusters
+            if (zoom > 0) {
+                assertTrue(clusters.size(zoom - 1) <= clusters.size(zoom));
+            }
+        }
+
+        // Whole cities of a small area are found, possibly with neighbouring clusters
+        int[] area = clusters.search(8, 0, 40, 5, 45);
+        int inside = 0;
+
+        for (int i = 0; i < size; i++) {
+            if (longitudes[i] >= 0 && longitudes[i] <= 5 && latitudes[i] >= 40 && latitudes[i] <= 45) {
+                inside++;
+            }
+        }
+
+        int found = 0;
+
+        for (int position: area) {
+            found += clusters.getCount(8, position);
+        }
+
+        assertTrue(found >= inside);
+
+        // Above the finest level, the finest clusters are used
+        assertEquals(clusters.size(8), clusters.size(12));
+    }
+
+    /**
+     * Test single city clusters and invalid parameters
+     */
+    @Test
+    void testSingleCity() {
+        CityTree tree = new CityTree(new int[] {37, 38}, new String[2], new long[] {109000, -1}, new double[] {4.83, -70}, new double[] {45.76, -30});
+        CityClusters clusters = new CityClusters(tree, 4, 64);
+
+        int[] lyon = clusters.search(0, 0, 40, 10, 50);
+        assertEquals(1, lyon.length);
+        assertEquals(37, clusters.getId(0, lyon[0]));
+        assertEquals(109000, clusters.getPopulation(0, lyon[0]));
+        assertEquals(4.83, clusters.getLongitude(0, lyon[0]), 1e-9);
+
+        tree = new CityTree(new int[] {1, 2}, new String[2], new long[] {10, 20}, new double[] {4.8, 4.9}, new double[] {45.7, 45.8});
+        clusters = new CityClusters(tree, 4, 64);
+        int[] merged = clusters.search(0, -180, -85, 180, 85);
+        assertEquals(1, merged.length);
+        assertEquals(2, clusters.getCount(0, merged[0]));
+        assertEquals(30, clusters.getPopulation(0, merged[0]));
+        assertEquals(4.85, clusters.getLongitude(0, merged[0]), 1e-9);
+        assertNull(clusters.getId(0, merged[0]));
+
+        CityTree empty = CityTree.EMPTY;
+        assertThrows(IllegalArgumentException.class, () -> new CityClusters(empty, 4, 48));
+        assertThrows(IllegalArgumentException.class, () -> new CityClusters(empty, -1, 64));
+        assertEquals(0, new CityClusters(empty, 4, 64).search(2, -180, -85, 180, 85).length);
+    }
+}
@@ -0,0 +1,78 @@
+package com.cartowiki.webapp.cities.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of CityTree
+ */
+class CityTreeTests {
+    /**
+     * Test bounding box searches against a scan of all cities
+     */
+    @Test
+    void testSearch() {
+        Random random = new Random(42);
+        int size = 5000;
+        int[] ids = new int[size];
+        String[] names = new String[size];
+        long[] populations = new long[size];
+        double[] longitudes = new double[size];
+        double[] latitudes = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            ids[i] = i + 1;
+            names[i] = "City " + i;
+            populations[i] = i % 3 == 0 ? -1 : 1000L * i;
+            longitudes[i] = random.nextDouble() * 360 - 180;
+            latitudes[i] = random.nextDouble() * 170 - 85;
+        }
+
+        CityTree tree = new CityTree(ids, names, populations, longitudes, latitudes);
+        assertEquals(size, tree.size());
+
+        for (int query = 0; query < 100; query++) {
+            double minLongitude = random.nextDouble() * 360 - 180;
+            double minLatitude = random.nextDouble() * 170 - 85;
+            double maxLongitude = minLongitude + random.nextDouble() * 60;
+            double maxLatitude = minLatitude + random.nextDouble() * 30;
+
+            int[] expected = IntStream.range(0, size)
+                .filter(i -> longitudes[i] >= minLongitude && longitudes[i] <= maxLongitude && latitudes[i] >= minLatitude && latitudes[i] <= maxLatitude)
+                .map(i -> ids[i])
+                .sorted()
+                .toArray();
+
+            int[] positions = tree.search(minLongitude, minLatitude, maxLongitude, maxLatitude);
+            int[] found = Arrays.stream(positions).map(tree::getId).sorted().toArray();
+
+            assertArrayEquals(expected, found);
+
+            for (int position: positions) {
+                int source = tree.getId(position) - 1;
+                assertEquals(names[source], tree.getName(position));
+                assertEquals(populations[source], tree.getPopulation(position));
+                assertEquals(longitudes[source], tree.getLongitude(position));
+                assertEquals(latitudes[source], tree.getLatitude(position));
+            }
+        }
+    }
+
+    /**
+     * Test trees with no city or a single one
+     */
+    @Test
+    void testSmallTrees() {
+        assertEquals(0, CityTree.EMPTY.search(-180, -90, 180, 90).length);
+
+        CityTree tree = new CityTree(new int[] {7}, new String[] {null}, new long[] {-1}, new double[] {2.35}, new double[] {48.85});
+        assertEquals(1, tree.search(2, 48, 3, 49).length);
+        assertEquals(0, tree.search(3, 48, 4, 49).length);
+    }
+}
@@ -0,0 +1,72 @@
+package com.cartowiki.webapp.cities.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of CityIndexService
+ */
+class CityIndexServiceTests {
+    /**
+     * Return a row of the cities query, whose wasNull reports on the last column read like a JDBC driver
+     * @param population Population of the city, null if unknown
+     * @return Row
+     */
+    private static ResultSet row(Long population) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("id", 1);
+        values.put("name", "Paris");
+        values.put("population", population);
+
+        boolean[] lastNull = {false};
+
+        return mock(ResultSet.class, invocation -> {
+            Object result = null;
+
+            if (invocation.getMethod().getName().equals("wasNull")) {
+                result = lastNull[0];
+            }
+            else {
+                Object value = values.get(invocation.getArgument(0, String.class));
+                lastNull[0] = value == null;
+
+                if (invocation.getMethod().getName().equals("getLong")) {
+                    result = value == null ? 0L : ((Number) value).longValue();
+                }
+                else if (invocation.getMethod().getName().equals("getInt")) {
+                    result = value == null ? 0 : ((Number) value).intValue();
+                }
+                else {
+                    result = value;
+                }
+            }
+
+            return result;
+        });
+    }
+
+    /**
+     * Test that a NULL population is read as unknown, whatever the columns read after it
+     * @throws SQLException Error while reading the row
+     */
+    @Test
+    void testGetPopulation() throws SQLException {
+        ResultSet unknown = row(null);
+        assertEquals(-1, CityIndexService.getPopulation(unknown));
+
+        // Name read after the population, like in the index build
+        unknown.getString("name");
+        assertEquals(-1, CityIndexService.getPopulation(unknown));
+
+        ResultSet known = row(2100000L);
+        known.getString("name");
+        assertEquals(2100000, CityIndexService.getPopulation(known));
+    }
+}
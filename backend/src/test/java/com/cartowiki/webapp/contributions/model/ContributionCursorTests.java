@@ -0,0 +1,35 @@
+package com.cartowiki.webapp.contributions.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of ContributionCursor
+ */
+class ContributionCursorTests {
+    /**
+     * Test that a cursor is read back from its text
+     */
+    @Test
+    void testParse() {
+        ContributionCursor cursor = ContributionCursor.parse(new ContributionCursor(LocalDate.of(2025, 3, 12), 42).toString());
+
+        assertEquals("2025-03-12_42", cursor.toString());
+        assertEquals(LocalDate.of(2025, 3, 12), cursor.getDate());
+        assertEquals(42, cursor.getId());
+    }
+
+    /**
+     * Test malformed cursors
+     */
+    @Test
+    void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> ContributionCursor.parse("2025-03-12"));
+        assertThrows(IllegalArgumentException.class, () -> ContributionCursor.parse("2025-13-12_1"));
+        assertThrows(IllegalArgumentException.class, () -> ContributionCursor.parse("2025-03-12_x"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.cartowiki.webapp.contributions.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of ContributionRequest
+ */
+class ContributionRequestTests {
+    /**
+     * Create a valid request
+     * @return Request
+     */
+    private static ContributionRequest request() {
+        ContributionRequest request = new ContributionRequest();
+        request.setObjectType(5);
+        request.setComment("Ajout de Lyon");
+        request.setSources("https://fr.wikipedia.org/wiki/Lyon");
+
+        return request;
+    }
+
+    /**
+     * Test the validation of requests
+     */
+    @Test
+    void testValidate() {
+        assertNull(request().validate());
+
+        ContributionRequest request = request();
+        request.setObjectType(null);
+        assertEquals("Missing object type", request.validate());
+
+        request = request();
+        request.setComment("x".repeat(ContributionRequest.COMMENT_MAX_LENGTH + 1));
+        assertEquals("Comment is too long", request.validate());
+    }
+
+    /**
+     * Test that the hash only depends on the content of the request
+     */
+    @Test
+    void testHash() {
+        ContributionRequest other = request();
+
+        assertEquals(32, request().hash(1).length);
+        assertArrayEquals(request().hash(1), other.hash(1));
+
+        other.setPrevious(1);
+        assertFalse(Arrays.equals(request().hash(1), other.hash(1)));
+    }
+
+    /**
+     * Test that only requests with a comment or sources have a description to compare
+     */
+    @Test
+    void testHasDescription() {
+        assertTrue(request().hasDescription());
+
+        ContributionRequest request = request();
+        request.setComment(" ");
+        assertTrue(request.hasDescription());
+
+        request.setSources(null);
+        assertFalse(request.hasDescription());
+    }
+
+    /**
+     * Test that requests sharing their comment and sources are not duplicates when another user or object type is proposed
+     */
+    @Test
+    void testHashSameDescription() {
+        ContributionRequest other = request();
+        other.setObjectType(3);
+
+        assertFalse(Arrays.equals(request().hash(1), other.hash(1)));
+        assertFalse(Arrays.equals(request().hash(1), request().hash(2)));
+    }
+}
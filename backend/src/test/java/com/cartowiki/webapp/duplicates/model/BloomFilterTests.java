@@ -0,0 +1,76 @@
+package com.cartowiki.webapp.duplicates.model;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of BloomFilter
+ */
+class BloomFilterTests {
+    /**
+     * Return the SHA-256 hash of a number
+     * @param value Number
+     * @return Hash
+     * @throws NoSuchAlgorithmException Missing SHA-256
+     */
+    private static byte[] hash(int value) throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256").digest(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test that added keys are always found and that other keys are rarely found
+     * @throws NoSuchAlgorithmException Missing SHA-256
+     */
+    @Test
+    void testMightContain() throws NoSuchAlgorithmException {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+
+        for (int i = 0; i < 10000; i++) {
+            filter.add(hash(i));
+        }
+
+        int falsePositives = 0;
+
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain(hash(i)));
+
+            if (filter.mightContain(hash(-1 - i))) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 200);
+        assertFalse(filter.isFull());
+
+        filter.add(hash(10000));
+        assertTrue(filter.isFull());
+    }
+
+    /**
+     * Test keys shorter than a hash
+     */
+    @Test
+    void testShortKeys() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+
+        filter.add(new byte[] {1, 2, 3});
+        assertTrue(filter.mightContain(new byte[] {1, 2, 3}));
+        assertFalse(filter.mightContain(new byte[0]));
+    }
+
+    /**
+     * Test invalid sizes
+     */
+    @Test
+    void testInvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+    }
+}
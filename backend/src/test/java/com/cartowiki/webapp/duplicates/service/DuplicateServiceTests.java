@@ -0,0 +1,90 @@
+package com.cartowiki.webapp.duplicates.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.cartowiki.webapp.duplicates.config.DuplicateConfig;
+import com.cartowiki.webapp.duplicates.model.BloomFilter;
+
+/**
+ * Tests of DuplicateService
+ */
+class DuplicateServiceTests {
+    private static final String TABLE = "noms_villes";
+
+    /**
+     * Map of the filters being loaded, running an action right before a read, like a load finishing in another thread
+     */
+    private static final class RacingMap extends ConcurrentHashMap<String, BloomFilter> {
+        private transient Runnable beforeGet;
+
+        @Override
+        public BloomFilter get(Object key) {
+            Runnable action = beforeGet;
+            beforeGet = null;
+
+            if (action != null) {
+                action.run();
+            }
+
+            return super.get(key);
+        }
+    }
+
+    /**
+     * Test that a hash added while a load finishes ends up in the loaded filter
+     */
+    @Test
+    void testAddDuringPublish() {
+        DuplicateConfig config = new DuplicateConfig();
+        ConcurrentHashMap<String, BloomFilter> filters = new ConcurrentHashMap<>();
+        RacingMap loading = new RacingMap();
+        DuplicateService service = new DuplicateService(config, mock(DataSource.class), mock(PlatformTransactionManager.class), filters, loading);
+
+        try {
+            BloomFilter filter = new BloomFilter(config.getMinCapacity(), config.getFalsePositiveRate());
+            byte[] hash = {1, 2, 3, 4};
+            loading.put(TABLE, filter);
+            loading.beforeGet = () -> assertTrue(service.publish(TABLE, filter));
+
+            service.add(TABLE, hash);
+
+            assertEquals(filter, filters.get(TABLE));
+            assertTrue(filter.mightContain(hash));
+            assertEquals(1, filter.getSize());
+        }
+        finally {
+            service.stop();
+        }
+    }
+
+    /**
+     * Test that a load dropped by a commit is not used
+     */
+    @Test
+    void testPublishDropped() {
+        DuplicateConfig config = new DuplicateConfig();
+        ConcurrentHashMap<String, BloomFilter> filters = new ConcurrentHashMap<>();
+        DuplicateService service = new DuplicateService(config, mock(DataSource.class), mock(PlatformTransactionManager.class), filters, new ConcurrentHashMap<>());
+
+        try {
+            BloomFilter filter = new BloomFilter(config.getMinCapacity(), config.getFalsePositiveRate());
+
+            // Not in the loading map anymore, as after afterCommit
+            assertFalse(service.publish(TABLE, filter));
+            assertTrue(filters.isEmpty());
+        }
+        finally {
+            service.stop();
+        }
+    }
+}
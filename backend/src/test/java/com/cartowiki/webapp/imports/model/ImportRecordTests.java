@@ -0,0 +1,99 @@
+package com.cartowiki.webapp.imports.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+/**
+ * Tests of ImportRecord
+ */
+class ImportRecordTests {
+    private static final GeometryFactory FACTORY = new GeometryFactory();
+
+    /**
+     * Create a valid city record
+     * @return Record
+     */
+    private static ImportRecord city() {
+        ImportRecord record = new ImportRecord(1);
+        record.setType(ImportRecord.CITY);
+        record.setName("Paris");
+        record.setStartYear(-52);
+        record.setGeometry(FACTORY.createPoint(new Coordinate(2.35, 48.85)));
+        record.getPopulations().put(1800, 547000);
+
+        return record;
+    }
+
+    /**
+     * Test the validation of records
+     */
+    @Test
+    void testValidate() {
+        assertNull(city().validate());
+
+        ImportRecord record = city();
+        record.setType("region");
+        assertEquals("Invalid type", record.validate());
+
+        record = city();
+        record.setName(" ");
+        assertEquals("Missing name", record.validate());
+
+        record = city();
+        record.setEndYear(-100);
+        assertEquals("Invalid period", record.validate());
+
+        record = city();
+        record.setGeometry(FACTORY.createPoint(new Coordinate(48.85, 200)));
+        assertEquals("Coordinates out of range", record.validate());
+
+        record = city();
+        record.getPopulations().put(1850, -1);
+        assertEquals("Invalid population", record.validate());
+
+        // A bow tie is not a valid country border
+        record = city();
+        record.setType(ImportRecord.COUNTRY);
+        record.setColor("#aabbcc");
+        record.setGeometry(FACTORY.createPolygon(new Coordinate[] {
+            new Coordinate(0, 0), new Coordinate(1, 1), new Coordinate(1, 0), new Coordinate(0, 1), new Coordinate(0, 0)
+        }));
+        assertEquals("Invalid country geometry", record.validate());
+
+        record.setGeometry(FACTORY.createPolygon(new Coordinate[] {
+            new Coordinate(0, 0), new Coordinate(1, 0), new Coordinate(1, 1), new Coordinate(0, 1), new Coordinate(0, 0)
+        }));
+        assertNull(record.validate());
+
+        record.setColor("red");
+        assertEquals("Invalid color", record.validate());
+    }
+
+    /**
+     * Test that the hash only depends on the content of the record
+     */
+    @Test
+    void testHash() {
+        ImportRecord other = city();
+        ImportRecord copy = new ImportRecord(2);
+        copy.setType(ImportRecord.CITY);
+        copy.setName("Paris");
+        copy.setStartYear(-52);
+        copy.setGeometry(FACTORY.createPoint(new Coordinate(2.35, 48.85)));
+        copy.getPopulations().put(1800, 547000);
+
+        assertEquals(32, city().hash().length);
+        assertArrayEquals(city().hash(), copy.hash());
+
+        other.setName("Lutèce");
+        assertFalse(Arrays.equals(city().hash(), other.hash()));
+    }
+}
@@ -0,0 +1,102 @@
+package com.cartowiki.webapp.imports.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.cartowiki.webapp.imports.model.ImportRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests of CsvImportReader and GeoJsonImportReader
+ */
+class ImportReaderTests {
+    private static final String HEADER = "type,name,start_year,end_year,color,geometry,populations,wikipedia,description\n";
+
+    /**
+     * Create a CSV reader
+     * @param content File content
+     * @return Reader
+     */
+    private static CsvImportReader csv(String content) {
+        return new CsvImportReader(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Test the reading of CSV records, with quoted values
+     * @throws IOException Never thrown, the file being in memory
+     */
+    @Test
+    void testCsv() throws IOException {
+        try (CsvImportReader reader = csv(HEADER +
+                                          "city,Paris,-52,,,POINT (2.35 48.85),1800:547000;1850:1053000,,\"Ville \"\"lumière\"\",\nsur la Seine\"\r\n" +
+                                          "country,Gaule,-100,-50,#aabbcc,\"POLYGON ((0 40, 5 40, 5 50, 0 40))\",,,\n\n")) {
+            ImportRecord paris = reader.next();
+
+            assertEquals(1, paris.getNumber());
+            assertEquals(ImportRecord.CITY, paris.getType());
+            assertEquals(-52, paris.getStartYear());
+            assertNull(paris.getEndYear());
+            assertNull(paris.getColor());
+            assertEquals(2.35, paris.getGeometry().getCoordinate().getX());
+            assertEquals(Map.of(1800, 547000, 1850, 1053000), paris.getPopulations());
+            assertEquals("Ville \"lumière\",\nsur la Seine", paris.getDescription());
+
+            ImportRecord gaule = reader.next();
+
+            assertEquals(2, gaule.getNumber());
+            assertEquals("#aabbcc", gaule.getColor());
+            assertEquals(4, gaule.getGeometry().getNumPoints());
+            assertNull(gaule.validate());
+
+            assertNull(reader.next());
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> csv("type,name\n").next());
+        assertThrows(IllegalArgumentException.class, () -> csv(HEADER + "city,Paris,year,,,,,,\n").next());
+        assertThrows(IllegalArgumentException.class, () -> csv(HEADER + "city,\"Paris,,,,,,,\n").next());
+    }
+
+    /**
+     * Test the reading of GeoJSON features
+     * @throws IOException Never thrown, the file being in memory
+     */
+    @Test
+    void testGeoJson() throws IOException {
+        String content = "{\"type\": \"FeatureCollection\", \"bbox\": [0, 40, 5, 50], \"features\": [" +
+                         "{\"type\": \"Feature\", \"properties\": {\"type\": \"city\", \"name\": \"Paris\", \"startYear\": -52, \"populations\": {\"1800\": 547000}}, \"geometry\": {\"type\": \"Point\", \"coordinates\": [2.35, 48.85]}}," +
+                         "{\"type\": \"Feature\", \"properties\": {\"type\": \"country\", \"name\": \"Gaule\", \"color\": \"#aabbcc\"}, \"geometry\": {\"type\": \"MultiPolygon\", \"coordinates\": [[[[0, 40], [5, 40], [5, 50], [0, 40]]]]}}" +
+                         "]}";
+
+        try (GeoJsonImportReader reader = new GeoJsonImportReader(new ObjectMapper(), new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)))) {
+            ImportRecord paris = reader.next();
+
+            assertEquals("Paris", paris.getName());
+            assertEquals(-52, paris.getStartYear());
+            assertEquals(Map.of(1800, 547000), paris.getPopulations());
+            assertEquals("Point", paris.getGeometry().getGeometryType());
+
+            ImportRecord gaule = reader.next();
+
+            assertEquals(2, gaule.getNumber());
+            assertEquals("MultiPolygon", gaule.getGeometry().getGeometryType());
+            assertNull(gaule.validate());
+
+            assertNull(reader.next());
+        }
+
+        String unclosed = "{\"features\": [{\"properties\": {}, \"geometry\": {\"type\": \"Polygon\", \"coordinates\": [[[0, 0], [1, 0], [1, 1], [0, 1]]]}}]}";
+        GeoJsonImportReader reader = new GeoJsonImportReader(new ObjectMapper(), new ByteArrayInputStream(unclosed.getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IllegalArgumentException.class, reader::next);
+
+        reader = new GeoJsonImportReader(new ObjectMapper(), new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IllegalArgumentException.class, reader::next);
+    }
+}
@@ -0,0 +1,57 @@
+package com.cartowiki.webapp.periods.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of EpochIndex
+ */
+class EpochIndexTests {
+    /**
+     * Test epochs of years before, between and after the boundaries
+     */
+    @Test
+    void testEpochs() {
+        EpochIndex index = new EpochIndex(new int[] {-500, 1789, 1815});
+
+        assertEquals(Short.MIN_VALUE, index.getStart(-3000));
+        assertEquals(-501, index.getEnd(-3000));
+
+        assertEquals(-500, index.getStart(-500));
+        assertEquals(-500, index.getStart(1788));
+        assertEquals(1788, index.getEnd(1000));
+
+        assertEquals(1789, index.getStart(1800));
+        assertEquals(1814, index.getEnd(1789));
+
+        assertEquals(1815, index.getStart(2025));
+        assertEquals(Short.MAX_VALUE, index.getEnd(2025));
+    }
+
+    /**
+     * Test overlap of epochs with year ranges
+     */
+    @Test
+    void testOverlaps() {
+        EpochIndex index = new EpochIndex(new int[] {-500, 1789, 1815});
+
+        assertTrue(index.overlaps(1789, 1800, 1900));
+        assertTrue(index.overlaps(-500, 1788, 1788));
+        assertFalse(index.overlaps(-500, 1789, 1900));
+        assertFalse(index.overlaps(1815, 0, 1814));
+    }
+
+    /**
+     * Test that each year is its own epoch before boundaries are known
+     */
+    @Test
+    void testIdentity() {
+        assertEquals(1492, EpochIndex.IDENTITY.getStart(1492));
+        assertEquals(1492, EpochIndex.IDENTITY.getEnd(1492));
+        assertFalse(EpochIndex.IDENTITY.overlaps(1492, 1493, 1500));
+        assertEquals(0, EpochIndex.IDENTITY.getBoundaries().length);
+    }
+}
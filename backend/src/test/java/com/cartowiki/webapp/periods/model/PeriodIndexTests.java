@@ -0,0 +1,74 @@
+package com.cartowiki.webapp.periods.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of PeriodIndex
+ */
+class PeriodIndexTests {
+    /**
+     * Test lookups of periods and entities on a small history
+     */
+    @Test
+    void testLookups() {
+        Map<Integer, int[]> periods = Map.of(
+            1, new int[] {-500, 1789},
+            2, new int[] {1789, 1815},
+            3, new int[] {Short.MIN_VALUE, Short.MAX_VALUE},
+            4, new int[] {1900, 1950}
+        );
+        Map<Integer, int[]> countries = Map.of(1, new int[] {10}, 2, new int[] {10, 11}, 4, new int[] {12});
+        Map<Integer, int[]> cities = Map.of(3, new int[] {100}, 4, new int[] {100, 101});
+
+        PeriodIndex index = new PeriodIndex(periods, countries, cities);
+
+        assertEquals(4, index.size());
+        assertArrayEquals(new int[] {1, 2, 3}, index.getPeriodsAt(1789));
+        assertArrayEquals(new int[] {10, 11}, index.getCountriesAt(1789));
+        assertArrayEquals(new int[] {100}, index.getCitiesAt(1789));
+
+        assertArrayEquals(new int[] {3, 4}, index.getPeriodsAt(1950));
+        assertArrayEquals(new int[] {12}, index.getCountriesAt(1950));
+        assertArrayEquals(new int[] {100, 101}, index.getCitiesAt(1950));
+
+        assertArrayEquals(new int[] {3}, index.getPeriodsAt(-3000));
+        assertArrayEquals(new int[0], index.getCountriesAt(-3000));
+        assertArrayEquals(new int[0], PeriodIndex.EMPTY.getPeriodsAt(2000));
+    }
+
+    /**
+     * Test the index against a linear scan of random periods
+     */
+    @Test
+    void testAgainstScan() {
+        Random random = new Random(42);
+        Map<Integer, int[]> periods = new HashMap<>();
+
+        for (int id = 1; id <= 2000; id++) {
+            int start = random.nextInt(5000) - 3000;
+            periods.put(id, new int[] {start, start + random.nextInt(300)});
+        }
+
+        PeriodIndex index = new PeriodIndex(periods, Map.of(), Map.of());
+
+        for (int year = -3100; year <= 2300; year += 7) {
+            int current = year;
+            int[] expected = periods.entrySet().stream()
+                                    .filter(entry -> entry.getValue()[0] <= current && entry.getValue()[1] >= current)
+                                    .mapToInt(Map.Entry::getKey)
+                                    .sorted()
+                                    .toArray();
+
+            assertArrayEquals(expected, index.getPeriodsAt(year), "Year " + year);
+        }
+
+        assertEquals(2000, index.size());
+    }
+}
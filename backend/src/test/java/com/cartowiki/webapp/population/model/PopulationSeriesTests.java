@@ -0,0 +1,49 @@
+package com.cartowiki.webapp.population.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of PopulationSeries
+ */
+class PopulationSeriesTests {
+    private static final PopulationSeries SERIES = new PopulationSeries(
+        new int[] {3, 3, 3, 8, 8, 12},
+        new short[] {1800, 1850, 1850, 1700, 1900, -500},
+        new int[] {1000, 1500, 2000, 100, 300, 50000});
+
+    /**
+     * Test reading samples, with duplicates replaced by the last one
+     */
+    @Test
+    void testSamples() {
+        assertEquals(3, SERIES.size());
+        assertArrayEquals(new short[] {1800, 1850}, SERIES.getYears(3));
+        assertArrayEquals(new int[] {1000, 2000}, SERIES.getPopulations(3));
+        assertArrayEquals(new short[0], SERIES.getYears(4));
+
+        assertThrows(IllegalArgumentException.class, () -> new PopulationSeries(new int[] {2, 1}, new short[] {0, 0}, new int[] {1, 1}));
+        assertThrows(IllegalArgumentException.class, () -> new PopulationSeries(new int[] {1, 1}, new short[] {5, 0}, new int[] {1, 1}));
+    }
+
+    /**
+     * Test interpolation between samples
+     */
+    @Test
+    void testInterpolation() {
+        assertEquals(PopulationSeries.UNKNOWN, SERIES.getPopulation(3, 1799));
+        assertEquals(1000, SERIES.getPopulation(3, 1800));
+        assertEquals(1500, SERIES.getPopulation(3, 1825));
+        assertEquals(2000, SERIES.getPopulation(3, 1850));
+        assertEquals(2000, SERIES.getPopulation(3, 2000));
+        assertEquals(150, SERIES.getPopulation(8, 1750));
+        assertEquals(PopulationSeries.UNKNOWN, SERIES.getPopulation(5, 1800));
+
+        int[][] all = SERIES.getAllAt(1750);
+        assertArrayEquals(new int[] {8, 12}, all[0]);
+        assertArrayEquals(new int[] {150, 50000}, all[1]);
+    }
+}
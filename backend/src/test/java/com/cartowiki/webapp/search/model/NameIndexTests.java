@@ -0,0 +1,71 @@
+package com.cartowiki.webapp.search.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of NameIndex
+ */
+class NameIndexTests {
+    private static final PlaceName SAINT_ETIENNE = new PlaceName("city", 1, "Saint-Étienne", Short.MIN_VALUE, Short.MAX_VALUE);
+    private static final PlaceName SAINT_DENIS = new PlaceName("city", 2, "Saint-Denis", Short.MIN_VALUE, Short.MAX_VALUE);
+    private static final PlaceName ETAMPES = new PlaceName("city", 3, "Étampes", Short.MIN_VALUE, Short.MAX_VALUE);
+    private static final PlaceName LUTECE = new PlaceName("city", 4, "Lutèce", Short.MIN_VALUE, 500);
+    private static final PlaceName PARIS = new PlaceName("city", 4, "Paris", 501, Short.MAX_VALUE);
+    private static final PlaceName FRANCE = new PlaceName("country", 4, "France", 987, Short.MAX_VALUE);
+
+    private static final NameIndex INDEX = new NameIndex(List.of(SAINT_ETIENNE, SAINT_DENIS, ETAMPES, LUTECE, PARIS, FRANCE));
+
+    /**
+     * Test folding of names
+     */
+    @Test
+    void testNormalize() {
+        assertEquals("saint etienne", NameIndex.normalize("  Saint-Étienne "));
+        assertEquals("koln", NameIndex.normalize("Köln"));
+        assertEquals("strasse", NameIndex.normalize("STRAẞE"));
+        assertEquals("", NameIndex.normalize(null));
+    }
+
+    /**
+     * Test exact, prefix and word prefix matches
+     */
+    @Test
+    void testPrefixes() {
+        // Same kind of match: the heavier first
+        assertEquals(List.of(SAINT_DENIS, SAINT_ETIENNE), INDEX.search("saint", null, 10, name -> name.getId()));
+        assertEquals(List.of(SAINT_ETIENNE, SAINT_DENIS), INDEX.search("Saint", null, 10, name -> -name.getId()));
+
+        // Name starting with the query before a word starting with it
+        assertEquals(List.of(ETAMPES, SAINT_ETIENNE), INDEX.search("et", null, 10, name -> 0));
+        assertEquals(List.of(SAINT_ETIENNE), INDEX.search("saint etienne", null, 10, name -> 0));
+        assertEquals(List.of(SAINT_ETIENNE), INDEX.search("saint", null, 1, name -> -name.getId()));
+        assertTrue(INDEX.search("", null, 10, name -> 0).isEmpty());
+    }
+
+    /**
+     * Test matches of misspelled names
+     */
+    @Test
+    void testFuzzy() {
+        assertEquals(List.of(SAINT_ETIENNE), INDEX.search("st etiene", null, 10, name -> 0));
+        assertEquals(List.of(PARIS), INDEX.search("pariss", null, 10, name -> 0));
+        assertTrue(INDEX.search("berlin", null, 10, name -> 0).isEmpty());
+    }
+
+    /**
+     * Test filtering by year and keeping one name per entity
+     */
+    @Test
+    void testYear() {
+        assertEquals(List.of(LUTECE), INDEX.search("lutece", 300, 10, name -> 0));
+        assertTrue(INDEX.search("lutece", 1800, 10, name -> 0).isEmpty());
+        assertTrue(INDEX.search("fra", 800, 10, name -> 0).isEmpty());
+        assertEquals(List.of(FRANCE), INDEX.search("fra", 1800, 10, name -> 0));
+        assertEquals(List.of(PARIS), INDEX.search("paris", null, 10, name -> 0));
+    }
+}
@@ -0,0 +1,49 @@
+package com.cartowiki.webapp.tiles.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of FrequencySketch
+ */
+class FrequencySketchTests {
+    /**
+     * Test frequency estimation of keys
+     */
+    @Test
+    void testFrequency() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+
+        for (int i = 0; i < 5; i++) {
+            sketch.increment(42);
+        }
+        sketch.increment(7);
+
+        assertEquals(5, sketch.frequency(42));
+        assertEquals(1, sketch.frequency(7));
+        assertEquals(0, sketch.frequency(1000));
+    }
+
+    /**
+     * Test that counters are capped and fade away over time
+     */
+    @Test
+    void testAging() {
+        FrequencySketch sketch = new FrequencySketch(16);
+
+        for (int i = 0; i < 100; i++) {
+            sketch.increment(42);
+        }
+
+        assertEquals(15, sketch.frequency(42));
+
+        // Many other accesses trigger a reset which halves the counters
+        for (int i = 0; i < 1000; i++) {
+            sketch.increment(i * 31 + 100);
+        }
+
+        assertTrue(sketch.frequency(42) < 15);
+    }
+}
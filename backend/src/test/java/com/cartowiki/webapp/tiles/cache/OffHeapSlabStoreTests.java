@@ -0,0 +1,47 @@
+package com.cartowiki.webapp.tiles.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of OffHeapSlabStore
+ */
+class OffHeapSlabStoreTests {
+    /**
+     * Test storing and reading bytes spanning several blocks
+     */
+    @Test
+    void testStoreRead() {
+        OffHeapSlabStore slabs = new OffHeapSlabStore(64, 16);
+        byte[] content = new byte[40];
+
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+
+        int[] blocks = slabs.store(content);
+
+        assertEquals(3, blocks.length);
+        assertEquals(1, slabs.getFreeBlocks());
+        assertArrayEquals(content, slabs.read(blocks, content.length));
+
+        // Not enough room left
+        assertNull(slabs.store(new byte[17]));
+
+        slabs.free(blocks);
+        assertEquals(4, slabs.getFreeBlocks());
+    }
+
+    /**
+     * Test rejection of invalid sizes
+     */
+    @Test
+    void testInvalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapSlabStore(8, 16));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapSlabStore(64, 0));
+    }
+}
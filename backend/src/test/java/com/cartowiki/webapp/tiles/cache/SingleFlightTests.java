@@ -0,0 +1,102 @@
+package com.cartowiki.webapp.tiles.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of SingleFlight
+ */
+class SingleFlightTests {
+    /**
+     * Test that concurrent callers of the same key share one load
+     */
+    @Test
+    void testCoalescing() throws Exception {
+        SingleFlight<String, byte[]> flight = new SingleFlight<>(5000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<byte[]>> results = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> flight.load("cities/1900/0/0/0", () -> {
+                loads.incrementAndGet();
+                release.await();
+                return new byte[] {4, 2};
+            })));
+        }
+
+        // Let all callers reach the in-flight load
+        while ((long) flight.getStats().get("savedLoads") < 7) {
+            Thread.sleep(5);
+        }
+
+        release.countDown();
+
+        for (Future<byte[]> result: results) {
+            assertArrayEquals(new byte[] {4, 2}, result.get(5, TimeUnit.SECONDS));
+        }
+
+        executor.shutdown();
+        assertEquals(1, loads.get());
+        assertEquals(1L, flight.getStats().get("loads"));
+        assertEquals(0, flight.getStats().get("inFlight"));
+
+        // A later call loads again
+        flight.load("cities/1900/0/0/0", () -> new byte[0]);
+        assertEquals(2L, flight.getStats().get("loads"));
+    }
+
+    /**
+     * Test propagation of errors and timeouts to waiting callers
+     */
+    @Test
+    void testErrorsAndTimeout() throws Exception {
+        SingleFlight<String, byte[]> flight = new SingleFlight<>(50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        Future<byte[]> leader = executor.submit(() -> flight.load("key", () -> {
+            started.countDown();
+            release.await();
+            throw new IOException("GeoServer unavailable");
+        }));
+
+        started.await();
+        assertThrows(HttpTimeoutException.class, () -> flight.load("key", () -> new byte[0]));
+
+        Future<byte[]> follower = executor.submit(() -> flight.load("key", () -> new byte[0]));
+
+        while ((long) flight.getStats().get("savedLoads") < 2) {
+            Thread.sleep(5);
+        }
+
+        release.countDown();
+
+        Exception error = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertEquals("GeoServer unavailable", error.getCause().getMessage());
+
+        // The follower might have timed out before the error
+        error = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof IOException);
+
+        executor.shutdown();
+    }
+}
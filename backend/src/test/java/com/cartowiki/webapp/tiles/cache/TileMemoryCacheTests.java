@@ -0,0 +1,86 @@
+package com.cartowiki.webapp.tiles.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.cartowiki.webapp.tiles.model.TileKey;
+
+/**
+ * Tests of TileMemoryCache
+ */
+class TileMemoryCacheTests {
+    /**
+     * Test hits and misses in both tiers
+     */
+    @Test
+    void testTiers() {
+        TileMemoryCache cache = new TileMemoryCache(1, 1024, 128);
+        TileKey first = new TileKey("cities", 2000, 0, 0, 0);
+        TileKey second = new TileKey("cities", 2001, 0, 0, 0);
+        byte[] content = {1, 2, 3};
+
+        assertTrue(cache.get(first).isEmpty());
+        assertEquals(1, cache.getHeapStats().getMisses());
+        assertEquals(1, cache.getOffHeapStats().getMisses());
+
+        cache.put(first, content);
+        cache.get(second);
+        cache.put(second, new byte[] {4});
+
+        // First tile moved to the off-heap tier
+        assertEquals(1, cache.getHeapStats().getEvictions());
+        assertArrayEquals(content, cache.get(first).get());
+        assertEquals(1, cache.getOffHeapStats().getHits());
+
+        // And back in the heap tier
+        assertArrayEquals(content, cache.get(first).get());
+        assertEquals(1, cache.getHeapStats().getHits());
+
+        assertTrue(cache.invalidate(first));
+        assertFalse(cache.invalidate(first));
+        assertTrue(cache.get(first).isEmpty());
+    }
+
+    /**
+     * Test that a scrub through many years doesn't flush popular tiles from the off-heap tier
+     */
+    @Test
+    void testScanResistance() {
+        TileMemoryCache cache = new TileMemoryCache(2, 8 * 128, 128);
+        byte[] content = new byte[100];
+
+        // Popular modern years, requested many times
+        for (int round = 0; round < 10; round++) {
+            for (int year = 2000; year < 2010; year++) {
+                TileKey key = new TileKey("cities", year, 0, 0, 0);
+
+                if (cache.get(key).isEmpty()) {
+                    cache.put(key, content);
+                }
+            }
+        }
+
+        // One scrub through 30 times more years than the cache can hold
+        for (int year = -300; year < 0; year++) {
+            TileKey key = new TileKey("cities", year, 0, 0, 0);
+
+            cache.get(key);
+            cache.put(key, content);
+        }
+
+        int popularHits = 0;
+
+        for (int year = 2000; year < 2010; year++) {
+            if (cache.get(new TileKey("cities", year, 0, 0, 0)).isPresent()) {
+                popularHits++;
+            }
+        }
+
+        assertTrue(popularHits >= 8);
+        assertTrue(cache.getOffHeapStats().getRejections() > 0);
+    }
+}
@@ -0,0 +1,66 @@
+package com.cartowiki.webapp.tiles.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of SeedJob
+ */
+class SeedJobTests {
+    /**
+     * Test the number of tiles of a job
+     */
+    @Test
+    void testTotalTiles() {
+        SeedJob job = new SeedJob(List.of("cities", "countries"), SeedJob.MVT, -3000, 2025, 0, 6);
+
+        assertEquals(1 + 4 + 16 + 64 + 256 + 1024 + 4096, job.getTilesPerYear());
+        assertEquals(2L * 5026 * job.getTilesPerYear(), job.getTotalTiles());
+        assertEquals(SeedJob.RUNNING, job.getStatus());
+        assertEquals(0, job.getCompletedTiles());
+    }
+
+    /**
+     * Test that tile numbers enumerate every tile of the job exactly once, in order
+     */
+    @Test
+    void testGetTile() {
+        SeedJob job = new SeedJob(List.of("cities", "countries"), SeedJob.PNG, 1900, 1902, 1, 3);
+        Set<TileKey> tiles = new HashSet<>();
+
+        for (long index = 0; index < job.getTotalTiles(); index++) {
+            tiles.add(job.getTile(index));
+        }
+
+        assertEquals(job.getTotalTiles(), tiles.size());
+        assertEquals(new TileKey("cities", 1900, 1, 0, 0), job.getTile(0));
+        assertEquals(new TileKey("cities", 1900, 1, 1, 0), job.getTile(1));
+        assertEquals(new TileKey("cities", 1900, 2, 0, 0), job.getTile(4));
+        assertEquals(new TileKey("cities", 1901, 1, 0, 0), job.getTile(job.getTilesPerYear()));
+        assertEquals(new TileKey("countries", 1902, 3, 7, 7), job.getTile(job.getTotalTiles() - 1));
+
+        assertThrows(IllegalArgumentException.class, () -> job.getTile(job.getTotalTiles()));
+        assertThrows(IllegalArgumentException.class, () -> job.getTile(-1));
+    }
+
+    /**
+     * Test a job seeding one year per epoch
+     */
+    @Test
+    void testEpochYears() {
+        SeedJob job = new SeedJob(List.of("cities"), SeedJob.PNG, 1900, 2000, List.of(1900, 1914, 1945), 0, 1);
+
+        assertEquals(List.of(1900, 1914, 1945), job.getYearList());
+        assertEquals(3 * job.getTilesPerYear(), job.getTotalTiles());
+        assertEquals(new TileKey("cities", 1914, 0, 0, 0), job.getTile(job.getTilesPerYear()));
+        assertEquals(new TileKey("cities", 1945, 1, 1, 1), job.getTile(job.getTotalTiles() - 1));
+
+        assertEquals(0, new SeedJob(List.of("cities"), SeedJob.PNG, 1900, 2000, List.of(), 0, 1).getTotalTiles());
+    }
+}
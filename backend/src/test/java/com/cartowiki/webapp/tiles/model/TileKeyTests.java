@@ -0,0 +1,70 @@
+package com.cartowiki.webapp.tiles.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of TileKey
+ */
+class TileKeyTests {
+    private static final double HALF_EXTENT = 20037508.342789244;
+
+    /**
+     * Test rejection of coordinates outside of the tile grid
+     */
+    @Test
+    void testInvalidCoordinates() {
+        assertThrows(IllegalArgumentException.class, () -> new TileKey("cities", 2000, -1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TileKey("cities", 2000, TileKey.MAX_ZOOM + 1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TileKey("cities", 2000, 1, 2, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TileKey("cities", 2000, 1, 0, -1));
+        assertThrows(IllegalArgumentException.class, () -> new TileKey("cities", 40000, 0, 0, 0));
+    }
+
+    /**
+     * Test the Web Mercator bounds of tiles
+     */
+    @Test
+    void testMercatorBounds() {
+        assertArrayEquals(new double[] {-HALF_EXTENT, -HALF_EXTENT, HALF_EXTENT, HALF_EXTENT}, new TileKey("cities", -500, 0, 0, 0).getMercatorBounds(), 1e-6);
+
+        // North-east quarter of the world
+        assertArrayEquals(new double[] {0, 0, HALF_EXTENT, HALF_EXTENT}, new TileKey("cities", -500, 1, 1, 0).getMercatorBounds(), 1e-6);
+    }
+
+    /**
+     * Test equality of keys
+     */
+    @Test
+    void testEquals() {
+        TileKey key = new TileKey("cities", 1515, 3, 4, 2);
+
+        assertEquals(key, new TileKey("cities", 1515, 3, 4, 2));
+        assertEquals(key.hashCode(), new TileKey("cities", 1515, 3, 4, 2).hashCode());
+        assertNotEquals(key, new TileKey("cities", 1516, 3, 4, 2));
+        assertNotEquals(key, new TileKey("countries", 1515, 3, 4, 2));
+        assertEquals("cities/1515/3/4/2", key.toString());
+    }
+
+    /**
+     * Test intersection of tiles with an area in longitude and latitude
+     */
+    @Test
+    void testIntersects() {
+        double[] paris = {2.2, 48.8, 2.5, 48.9};
+
+        assertTrue(new TileKey("cities", 2000, 0, 0, 0).intersects(paris, 0));
+        assertTrue(new TileKey("cities", 2000, 1, 1, 0).intersects(paris, 0));
+        assertFalse(new TileKey("cities", 2000, 1, 0, 1).intersects(paris, 0));
+
+        assertTrue(new TileKey("cities", 2000, 10, 518, 352).intersects(paris, 0));
+        assertFalse(new TileKey("cities", 2000, 10, 520, 352).intersects(paris, 0));
+        assertTrue(new TileKey("cities", 2000, 10, 520, 352).intersects(paris, 1));
+    }
+}
@@ -0,0 +1,41 @@
+package com.cartowiki.webapp.tiles.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.cartowiki.webapp.tiles.model.TileKey;
+
+/**
+ * Tests of ArchiveTileStore
+ */
+class ArchiveTileStoreTests {
+    @TempDir
+    Path directory;
+
+    /**
+     * Test that layers are listed whether their archive is opened or only on disk
+     */
+    @Test
+    void testGetLayers() throws IOException {
+        ArchiveTileStore missing = new ArchiveTileStore(directory.resolve("missing"));
+        assertTrue(missing.getLayers().isEmpty());
+
+        ArchiveTileStore store = new ArchiveTileStore(directory);
+        store.write(new TileKey("cities", 1900, 1, 0, 0), new byte[] {1});
+        store.write(new TileKey("countries.mvt", 1900, 1, 0, 0), new byte[] {2});
+        store.close();
+
+        // Archives of a previous run, not opened yet
+        ArchiveTileStore reopened = new ArchiveTileStore(directory);
+        assertEquals(Set.of("cities", "countries.mvt"), reopened.getLayers());
+        assertTrue(reopened.compact("countries.mvt") >= 0);
+        reopened.close();
+    }
+}
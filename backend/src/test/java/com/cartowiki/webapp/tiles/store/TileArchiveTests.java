@@ -0,0 +1,153 @@
+package com.cartowiki.webapp.tiles.store;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.cartowiki.webapp.tiles.model.TileKey;
+
+/**
+ * Tests of TileArchive
+ */
+class TileArchiveTests {
+    @TempDir
+    Path directory;
+
+    /**
+     * Test appending, reading, sending and deleting tiles
+     */
+    @Test
+    void testAppendRead() throws IOException {
+        TileKey key = new TileKey("cities", -3000, 20, (1 << 20) - 1, 12345);
+        byte[] content = {1, 2, 3, 4, 5};
+
+        try (TileArchive archive = new TileArchive(directory, "cities")) {
+            assertTrue(archive.read(key).isEmpty());
+            assertEquals(-1, archive.transferTo(key, Channels.newChannel(new ByteArrayOutputStream())));
+
+            archive.append(key, content);
+            assertTrue(archive.contains(key));
+            assertArrayEquals(content, archive.read(key).get());
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            assertEquals(content.length, archive.transferTo(key, Channels.newChannel(output)));
+            assertArrayEquals(content, output.toByteArray());
+
+            // Replace the tile
+            archive.append(key, new byte[] {9});
+            assertArrayEquals(new byte[] {9}, archive.read(key).get());
+            assertEquals(1, archive.getCount());
+
+            assertTrue(archive.delete(key));
+            assertFalse(archive.delete(key));
+            assertFalse(archive.contains(key));
+            assertEquals(0, archive.getCount());
+        }
+    }
+
+    /**
+     * Test that tiles survive a reopening, and growth of the index
+     */
+    @Test
+    void testReopenAndGrow() throws IOException {
+        try (TileArchive archive = new TileArchive(directory, "cities")) {
+            for (int year = 0; year < 5000; year++) {
+                archive.append(new TileKey("cities", year, 1, 1, 0), new byte[] {(byte) year});
+            }
+        }
+
+        try (TileArchive archive = new TileArchive(directory, "cities")) {
+            assertEquals(5000, archive.getCount());
+
+            for (int year = 0; year < 5000; year++) {
+                assertArrayEquals(new byte[] {(byte) year}, archive.read(new TileKey("cities", year, 1, 1, 0)).get());
+            }
+        }
+    }
+
+    /**
+     * Test rebuilding a lost index from the data file, ignoring a partially written record
+     */
+    @Test
+    void testRebuildIndex() throws IOException {
+        TileKey key = new TileKey("cities", 1492, 3, 2, 1);
+
+        try (TileArchive archive = new TileArchive(directory, "cities")) {
+            archive.append(key, new byte[] {7, 7});
+        }
+
+        Files.delete(directory.resolve("cities" + TileArchive.DATA_EXTENSION + TileArchive.INDEX_EXTENSION));
+        Files.write(directory.resolve("cities" + TileArchive.DATA_EXTENSION), new byte[] {0, 0, 1}, StandardOpenOption.APPEND);
+
+        try (TileArchive archive = new TileArchive(directory, "cities")) {
+            assertEquals(1, archive.getCount());
+            assertArrayEquals(new byte[] {7, 7}, archive.read(key).get());
+            assertEquals(12 + 2, archive.getDataSize());
+        }
+    }
+
+    /**
+     * Test compaction of replaced and deleted tiles
+     */
+    @Test
+    void testCompact() throws IOException {
+        TileKey kept = new TileKey("cities", 1900, 2, 0, 0);
+        TileKey replaced = new TileKey("cities", 1901, 2, 0, 0);
+        TileKey deleted = new TileKey("cities", 1902, 2, 0, 0);
+
+        try (TileArchive archive = new TileArchive(directory, "cities")) {
+            archive.append(kept, new byte[100]);
+            archive.append(replaced, new byte[100]);
+            archive.append(replaced, new byte[] {1});
+            archive.append(deleted, new byte[100]);
+            archive.delete(deleted);
+
+            assertEquals(200 + 1 + 100 + 4 * 12, archive.getDataSize());
+            assertEquals(200 + 2 * 12, archive.compact());
+            assertEquals(100 + 1 + 2 * 12, archive.getDataSize());
+
+            assertEquals(2, archive.getCount());
+            assertArrayEquals(new byte[100], archive.read(kept).get());
+            assertArrayEquals(new byte[] {1}, archive.read(replaced).get());
+            assertFalse(archive.contains(deleted));
+
+            // Still writable after compaction
+            archive.append(deleted, new byte[] {2});
+            assertArrayEquals(new byte[] {2}, archive.read(deleted).get());
+        }
+    }
+
+    /**
+     * Test removal of all tiles matching a condition
+     */
+    @Test
+    void testDeleteWhere() throws IOException {
+        try (TileArchive archive = new TileArchive(directory, "cities")) {
+            for (int year = 1900; year < 1910; year++) {
+                archive.append(new TileKey("cities", year, 3, 4, 2), new byte[] {1});
+                archive.append(new TileKey("cities", year, 3, 0, 0), new byte[] {2});
+            }
+
+            List<TileKey> removed = archive.deleteWhere(key -> key.getYear() >= 1905 && key.getX() == 4);
+
+            assertEquals(5, removed.size());
+            assertTrue(removed.contains(new TileKey("cities", 1907, 3, 4, 2)));
+            assertEquals(15, archive.getCount());
+            assertFalse(archive.contains(new TileKey("cities", 1905, 3, 4, 2)));
+            assertTrue(archive.contains(new TileKey("cities", 1904, 3, 4, 2)));
+            assertTrue(archive.contains(new TileKey("cities", 1905, 3, 0, 0)));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.cartowiki.webapp.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of Bounds
+ */
+class BoundsTests {
+    /**
+     * Test parsing of valid and invalid bounding boxes
+     */
+    @Test
+    void testParse() {
+        assertNull(Bounds.parse(null));
+        assertArrayEquals(new double[] {-5, 42, 8.5, 51}, Bounds.parse("-5,42, 8.5,51"));
+
+        assertThrows(IllegalArgumentException.class, () -> Bounds.parse("-5,42,8"));
+        assertThrows(IllegalArgumentException.class, () -> Bounds.parse("-5,42,8,north"));
+        assertThrows(IllegalArgumentException.class, () -> Bounds.parse("8,42,-5,51"));
+        assertThrows(IllegalArgumentException.class, () -> Bounds.parse("-5,42,8,NaN"));
+    }
+}
@@ -0,0 +1,45 @@
+package com.cartowiki.webapp.world.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+
+/**
+ * Tests of CountryLocator
+ */
+class CountryLocatorTests {
+    /**
+     * Test finding the countries containing points
+     * @throws ParseException Invalid test geometry
+     */
+    @Test
+    void testLocate() throws ParseException {
+        WKTReader reader = new WKTReader();
+        CountryLocator locator = new CountryLocator(
+            List.of(1, 2, 3),
+            Arrays.asList("Concave", "Overlapping", null),
+            List.of(reader.read("POLYGON ((0 0, 10 0, 10 10, 5 2, 0 10, 0 0))"),
+                    reader.read("POLYGON ((8 0, 20 0, 20 5, 8 5, 8 0))"),
+                    reader.read("MULTIPOLYGON (((30 30, 31 30, 31 31, 30 31, 30 30)), ((40 40, 41 40, 41 41, 40 41, 40 40)))")));
+
+        assertEquals(3, locator.size());
+        assertEquals(List.of(new CountryLocator.Country(1, "Concave")), locator.locate(1, 1));
+
+        // Inside the envelope but outside the polygon
+        assertTrue(locator.locate(5, 8).isEmpty());
+
+        assertEquals(2, locator.locate(9, 1).size());
+        assertEquals(List.of(new CountryLocator.Country(3, null)), locator.locate(40.5, 40.5));
+        assertTrue(locator.locate(35, 35).isEmpty());
+
+        // Same answers once prepared
+        assertEquals(List.of(new CountryLocator.Country(1, "Concave")), locator.locate(1, 1));
+        assertTrue(new CountryLocator(List.of(), List.of(), List.of()).locate(0, 0).isEmpty());
+    }
+}
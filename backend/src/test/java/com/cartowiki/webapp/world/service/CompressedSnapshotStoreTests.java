@@ -0,0 +1,106 @@
+package com.cartowiki.webapp.world.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.cartowiki.webapp.periods.service.EpochService;
+import com.cartowiki.webapp.world.config.SnapshotCacheConfig;
+import com.cartowiki.webapp.world.service.CompressedSnapshotStore.CompressedSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests of CompressedSnapshotStore
+ */
+class CompressedSnapshotStoreTests {
+    @TempDir
+    Path directory;
+
+    /**
+     * Test that the years of an epoch share its compressed features, each with its own header
+     */
+    @Test
+    void testEpochSnapshots() throws IOException, InterruptedException {
+        SnapshotCacheConfig config = new SnapshotCacheConfig();
+        config.setDirectory(directory.toString());
+
+        // Epochs of a century, with an empty snapshot
+        EpochService epochService = mock(EpochService.class);
+        when(epochService.getEpochStart(anyInt())).thenAnswer(invocation -> Math.floorDiv((int) invocation.getArgument(0), 100) * 100);
+
+        WorldService worldService = mock(WorldService.class);
+        when(worldService.createWriter(any(), any())).thenAnswer(invocation -> new GeoJsonSnapshotWriter(new ObjectMapper(), invocation.getArgument(1, OutputStream.class)));
+        doAnswer(invocation -> {
+            try (SnapshotWriter writer = invocation.getArgument(3)) {
+                writer.writeStart(invocation.getArgument(0));
+                writer.writeEnd();
+            }
+
+            return null;
+        }).when(worldService).writeSnapshot(anyInt(), isNull(), isNull(), any());
+
+        CompressedSnapshotStore store = new CompressedSnapshotStore(config, worldService, epochService);
+
+        try {
+            assertNull(store.find(GeoJsonSnapshotWriter.MEDIA_TYPE, 1850, null));
+
+            CompressedSnapshot snapshot = null;
+
+            for (int i = 0; i < 100 && snapshot == null; i++) {
+                Thread.sleep(50);
+                snapshot = store.find(GeoJsonSnapshotWriter.MEDIA_TYPE, 1850, null);
+            }
+
+            assertNotNull(snapshot);
+            assertEquals("{\"type\":\"FeatureCollection\",\"year\":1850,\"features\":[]}", decompress(snapshot));
+
+            // Another year of the epoch, from the same file
+            CompressedSnapshot other = store.find(GeoJsonSnapshotWriter.MEDIA_TYPE, 1899, null);
+            assertEquals(snapshot.features(), other.features());
+            assertEquals("{\"type\":\"FeatureCollection\",\"year\":1899,\"features\":[]}", decompress(other));
+
+            verify(worldService).writeSnapshot(eq(1800), isNull(), isNull(), any());
+            verify(worldService, never()).writeSnapshot(eq(1850), any(), any(), any());
+        }
+        finally {
+            store.stop();
+        }
+    }
+
+    /**
+     * Decompress a snapshot as it is sent
+     * @param snapshot Compressed snapshot
+     * @return Content of the snapshot
+     * @throws IOException Error while reading the snapshot
+     */
+    private static String decompress(CompressedSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        snapshot.writeTo(compressed);
+        assertEquals(snapshot.getLength(), compressed.size());
+
+        try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.cartowiki.webapp.world.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.cartowiki.webapp.world.config.LodConfig;
+
+/**
+ * Tests of LodService
+ */
+class LodServiceTests {
+    /**
+     * Test the choice of a level of detail for a zoom level
+     */
+    @Test
+    void testGetLevel() {
+        LodConfig config = new LodConfig();
+        config.setTolerances(List.of(0.35, 0.087, 0.021, 0.0054));
+        LodService service = new LodService(null, config);
+
+        // A pixel is 1.4 degrees wide at zoom 0, and 0.35 at zoom 2
+        assertEquals(0, service.getLevel(0));
+        assertEquals(0, service.getLevel(2));
+        assertEquals(1, service.getLevel(3));
+        assertEquals(1, service.getLevel(4));
+        assertEquals(3, service.getLevel(8));
+
+        // Too fine for the finest level
+        assertEquals(LodService.FULL_RESOLUTION, service.getLevel(9));
+        assertEquals(LodService.FULL_RESOLUTION, service.getLevel(0.001));
+
+        config.setTolerances(List.of());
+        assertEquals(LodService.FULL_RESOLUTION, new LodService(null, config).getLevel(0));
+    }
+}
@@ -0,0 +1,25 @@
+package com.cartowiki.webapp.world.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of WorldService
+ */
+class WorldServiceTests {
+    /**
+     * Test the number of decimal digits kept in coordinates at each zoom level
+     */
+    @Test
+    void testGetPrecision() {
+        assertEquals(6, WorldService.getPrecision(null));
+
+        // A tenth of a pixel is 0.14 degrees at zoom 0, and about 0.00055 degrees at zoom 8
+        assertEquals(1, WorldService.getPrecision(0));
+        assertEquals(4, WorldService.getPrecision(8));
+        assertEquals(5, WorldService.getPrecision(12));
+        assertEquals(6, WorldService.getPrecision(18));
+        assertEquals(6, WorldService.getPrecision(20));
+    }
+}
@@ -32,12 +32,16 @@ export class MapComponent implements OnInit {
     // ✅ Suppression des anciennes couches
     if (this.cityLayer) this.map.removeLayer(this.cityLayer);
 
-    // ✅ Utilisation de GeoWebCache (GWC) pour un chargement rapide
-    this.cityLayer = L.tileLayer(`http://localhost:8081/api/geoserver/tiles/cities/{year}/{z}/{x}/{y}.png`, {
+    // ✅ L'année remplit le paramètre {year} de l'URL des tuiles
+    const options: L.TileLayerOptions & { year: number } = {
       tileSize: 256,
+      year: year,
       attribution: "© CartoWiki",
       opacity: 0.7
-    }).addTo(this.map);
+    };
+
+    // ✅ Utilisation de GeoWebCache (GWC) pour un chargement rapide
+    this.cityLayer = L.tileLayer(`http://localhost:8081/api/geoserver/tiles/cities/{year}/{z}/{x}/{y}.png`, options).addTo(this.map);
   }
 
   // ✅ Sélection dynamique de l'année pour changer les tuiles